@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.SplittableRandom;
+
+import org.neo5j.io.fs.FileUtils;
+
+/**
+ * Reproducible datasets and scratch space for the benchmarks.
+ * <p>
+ * All random data is generated from {@link #SEED}, or from a seed derived from it, so that every run of a benchmark
+ * operates on exactly the same data, and results from different machines or builds can be compared.
+ */
+public final class Datasets
+{
+    public static final long SEED = 0x6E656F346A4C4CL;
+
+    private Datasets()
+    {
+    }
+
+    /**
+     * @param stream distinguishes between datasets that must not be correlated, for instance per benchmark thread.
+     * @return a random number generator that always produces the same sequence for the given stream.
+     */
+    public static SplittableRandom random( int stream )
+    {
+        return new SplittableRandom( SEED + stream );
+    }
+
+    /**
+     * @return an array of {@code count} random longs in the range [0, bound), that is the same for every run.
+     */
+    public static long[] randomLongs( int stream, int count, long bound )
+    {
+        SplittableRandom rng = random( stream );
+        long[] longs = new long[count];
+        for ( int i = 0; i < count; i++ )
+        {
+            longs[i] = rng.nextLong( bound );
+        }
+        return longs;
+    }
+
+    public static File createScratchDirectory( String name ) throws IOException
+    {
+        return Files.createTempDirectory( "neo5j-benchmarks-" + name ).toFile();
+    }
+
+    public static void deleteScratchDirectory( File directory ) throws IOException
+    {
+        if ( directory != null )
+        {
+            FileUtils.deleteRecursively( directory );
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.benchmarks.bolt;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.neo5j.benchmarks.Datasets;
+import org.neo5j.bolt.v1.packstream.PackOutput;
+import org.neo5j.bolt.v1.packstream.PackStream;
+import org.neo5j.bolt.v1.packstream.PackType;
+import org.neo5j.bolt.v1.packstream.PackedInputArray;
+
+/**
+ * Encoding and decoding of result rows with PackStream. Every row is a list of integers, floats, strings, and a map
+ * of properties, like what a typical Cypher query returns.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+public class PackStreamBenchmark
+{
+    private static final int propertiesPerRow = 8;
+
+    @Param( { "10", "1000" } )
+    public int rows;
+
+    private Object[][] dataset;
+    private ByteBufferPackOutput output;
+    private PackStream.Packer packer;
+    private byte[] packed;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        SplittableRandom rng = Datasets.random( 0 );
+        dataset = new Object[rows][];
+        for ( int i = 0; i < rows; i++ )
+        {
+            String[] keys = new String[propertiesPerRow];
+            Object[] values = new Object[propertiesPerRow];
+            for ( int j = 0; j < propertiesPerRow; j++ )
+            {
+                keys[j] = "property" + j;
+                values[j] = (j & 1) == 0 ? (Object) rng.nextLong() : randomString( rng );
+            }
+            dataset[i] = new Object[]{rng.nextLong( 1 << 20 ), rng.nextDouble(), randomString( rng ), keys, values};
+        }
+        output = new ByteBufferPackOutput();
+        packer = new PackStream.Packer( output );
+        pack();
+        packed = Arrays.copyOf( output.buffer.array(), output.buffer.position() );
+    }
+
+    private static String randomString( SplittableRandom rng )
+    {
+        char[] chars = new char[5 + rng.nextInt( 20 )];
+        for ( int i = 0; i < chars.length; i++ )
+        {
+            chars[i] = (char) ('a' + rng.nextInt( 26 ));
+        }
+        return new String( chars );
+    }
+
+    @Benchmark
+    public int pack() throws IOException
+    {
+        output.buffer.clear();
+        for ( Object[] row : dataset )
+        {
+            packer.packListHeader( 4 );
+            packer.pack( (long) row[0] );
+            packer.pack( (double) row[1] );
+            packer.pack( (String) row[2] );
+            String[] keys = (String[]) row[3];
+            Object[] values = (Object[]) row[4];
+            packer.packMapHeader( keys.length );
+            for ( int i = 0; i < keys.length; i++ )
+            {
+                packer.pack( keys[i] );
+                if ( values[i] instanceof Long )
+                {
+                    packer.pack( (long) values[i] );
+                }
+                else
+                {
+                    packer.pack( (String) values[i] );
+                }
+            }
+        }
+        packer.flush();
+        return output.buffer.position();
+    }
+
+    @Benchmark
+    public void unpack( Blackhole blackhole ) throws IOException
+    {
+        PackStream.Unpacker unpacker = new PackStream.Unpacker( new PackedInputArray( packed ) );
+        for ( int row = 0; row < rows; row++ )
+        {
+            unpacker.unpackListHeader();
+            blackhole.consume( unpacker.unpackLong() );
+            blackhole.consume( unpacker.unpackDouble() );
+            blackhole.consume( unpacker.unpackString() );
+            long entries = unpacker.unpackMapHeader();
+            for ( long i = 0; i < entries; i++ )
+            {
+                blackhole.consume( unpacker.unpackString() );
+                if ( unpacker.peekNextType() == PackType.INTEGER )
+                {
+                    blackhole.consume( unpacker.unpackLong() );
+                }
+                else
+                {
+                    blackhole.consume( unpacker.unpackString() );
+                }
+            }
+        }
+    }
+
+    /**
+     * A {@link PackOutput} that writes to a heap buffer, which is big enough for the whole dataset.
+     */
+    private static class ByteBufferPackOutput implements PackOutput
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate( 1 << 20 );
+
+        @Override
+        public PackOutput flush()
+        {
+            return this;
+        }
+
+        @Override
+        public PackOutput writeByte( byte value )
+        {
+            buffer.put( value );
+            return this;
+        }
+
+        @Override
+        public PackOutput writeBytes( ByteBuffer data )
+        {
+            buffer.put( data );
+            return this;
+        }
+
+        @Override
+        public PackOutput writeBytes( byte[] data, int offset, int amountToWrite )
+        {
+            buffer.put( data, offset, amountToWrite );
+            return this;
+        }
+
+        @Override
+        public PackOutput writeShort( short value )
+        {
+            buffer.putShort( value );
+            return this;
+        }
+
+        @Override
+        public PackOutput writeInt( int value )
+        {
+            buffer.putInt( value );
+            return this;
+        }
+
+        @Override
+        public PackOutput writeLong( long value )
+        {
+            buffer.putLong( value );
+            return this;
+        }
+
+        @Override
+        public PackOutput writeDouble( double value )
+        {
+            buffer.putDouble( value );
+            return this;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.benchmarks.collections;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import org.neo5j.benchmarks.Datasets;
+import org.neo5j.collection.primitive.Primitive;
+import org.neo5j.collection.primitive.PrimitiveLongIntMap;
+import org.neo5j.collection.primitive.PrimitiveLongSet;
+
+/**
+ * Building and probing the hopscotch hash based primitive long collections.
+ * <p>
+ * The keys are either random, or sequential like the ids of a freshly imported store. Half of the probes are for
+ * keys that are not in the collection.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+public class PrimitiveCollectionsBenchmark
+{
+    private static final int probeCount = 1 << 16;
+
+    @Param( { "1000", "1000000" } )
+    public int size;
+
+    @Param( { "random", "sequential" } )
+    public String keys;
+
+    private long[] keyArray;
+    private long[] probes;
+    private int nextProbe;
+    private PrimitiveLongSet set;
+    private PrimitiveLongIntMap map;
+
+    @Setup
+    public void setUp()
+    {
+        keyArray = "random".equals( keys ) ? Datasets.randomLongs( 0, size, Long.MAX_VALUE ) : sequential( size );
+        long[] absent = Datasets.randomLongs( 1, probeCount, Long.MAX_VALUE );
+        long[] present = Datasets.randomLongs( 2, probeCount, size );
+        probes = new long[probeCount];
+        for ( int i = 0; i < probeCount; i++ )
+        {
+            probes[i] = (i & 1) == 0 ? keyArray[(int) present[i]] : absent[i];
+        }
+        set = buildSet();
+        map = buildMap();
+    }
+
+    private static long[] sequential( int size )
+    {
+        long[] keys = new long[size];
+        for ( int i = 0; i < size; i++ )
+        {
+            keys[i] = i;
+        }
+        return keys;
+    }
+
+    private long nextProbe()
+    {
+        long probe = probes[nextProbe];
+        nextProbe = (nextProbe + 1) & (probeCount - 1);
+        return probe;
+    }
+
+    @Benchmark
+    public PrimitiveLongSet buildSet()
+    {
+        PrimitiveLongSet set = Primitive.longSet();
+        for ( long key : keyArray )
+        {
+            set.add( key );
+        }
+        return set;
+    }
+
+    @Benchmark
+    public boolean setContains()
+    {
+        return set.contains( nextProbe() );
+    }
+
+    @Benchmark
+    public PrimitiveLongIntMap buildMap()
+    {
+        PrimitiveLongIntMap map = Primitive.longIntMap();
+        for ( int i = 0; i < keyArray.length; i++ )
+        {
+            map.put( keyArray[i], i );
+        }
+        return map;
+    }
+
+    @Benchmark
+    public int mapGet()
+    {
+        return map.get( nextProbe() );
+    }
+}
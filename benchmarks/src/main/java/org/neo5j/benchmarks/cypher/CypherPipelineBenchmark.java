@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.benchmarks.cypher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.neo5j.benchmarks.Datasets;
+import org.neo5j.graphdb.GraphDatabaseService;
+import org.neo5j.graphdb.Label;
+import org.neo5j.graphdb.Node;
+import org.neo5j.graphdb.RelationshipType;
+import org.neo5j.graphdb.Result;
+import org.neo5j.graphdb.Transaction;
+import org.neo5j.graphdb.factory.GraphDatabaseFactory;
+
+/**
+ * Per row cost of the interpreted Cypher runtime on pipelines of increasing length: a label scan, then one or two
+ * expands, a filter and a projection on top. Every query produces a known number of rows, which the benchmarks
+ * report as operations, so that the scores are the average time spent on one row in the whole pipeline.
+ * <p>
+ * Every node has {@link #degree} outgoing relationships to other, random, nodes, and no relationship is a loop, so
+ * that the relationship uniqueness of the two hop pattern never filters out any row. Run with {@code -prof gc} to
+ * see the heap allocated per row.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+public class CypherPipelineBenchmark
+{
+    private static final int nodes = 100_000;
+    private static final int degree = 4;
+    private static final int nodesPerTransaction = 10_000;
+
+    private static final Label person = Label.label( "Person" );
+    private static final RelationshipType knows = RelationshipType.withName( "KNOWS" );
+
+    private File directory;
+    private GraphDatabaseService db;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        directory = Datasets.createScratchDirectory( "cypher" );
+        db = new GraphDatabaseFactory().newEmbeddedDatabase( directory );
+
+        long[] nodeIds = new long[nodes];
+        for ( int first = 0; first < nodes; first += nodesPerTransaction )
+        {
+            try ( Transaction tx = db.beginTx() )
+            {
+                for ( int i = first; i < Math.min( first + nodesPerTransaction, nodes ); i++ )
+                {
+                    Node node = db.createNode( person );
+                    node.setProperty( "age", i % 100 );
+                    nodeIds[i] = node.getId();
+                }
+                tx.success();
+            }
+        }
+
+        SplittableRandom rng = Datasets.random( 0 );
+        for ( int first = 0; first < nodes; first += nodesPerTransaction )
+        {
+            try ( Transaction tx = db.beginTx() )
+            {
+                for ( int i = first; i < Math.min( first + nodesPerTransaction, nodes ); i++ )
+                {
+                    Node node = db.getNodeById( nodeIds[i] );
+                    for ( int r = 0; r < degree; r++ )
+                    {
+                        int other = (i + 1 + rng.nextInt( nodes - 1 )) % nodes;
+                        node.createRelationshipTo( db.getNodeById( nodeIds[other] ), knows );
+                    }
+                }
+                tx.success();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        db.shutdown();
+        Datasets.deleteScratchDirectory( directory );
+    }
+
+    @Benchmark
+    @OperationsPerInvocation( nodes )
+    public void scanFilterProject( Blackhole blackhole )
+    {
+        execute( "MATCH (a:Person) WHERE a.age >= 0 RETURN a.age + 1 AS x", blackhole );
+    }
+
+    @Benchmark
+    @OperationsPerInvocation( nodes * degree )
+    public void scanExpandFilterProject( Blackhole blackhole )
+    {
+        execute( "MATCH (a:Person)-[:KNOWS]->(b) WHERE b.age >= 0 RETURN a.age + b.age AS x", blackhole );
+    }
+
+    @Benchmark
+    @OperationsPerInvocation( nodes * degree * degree )
+    public void scanExpandExpandFilterProject( Blackhole blackhole )
+    {
+        execute( "MATCH (a:Person)-[:KNOWS]->(b)-[:KNOWS]->(c) WHERE c.age >= 0 RETURN a.age + b.age + c.age AS x",
+                blackhole );
+    }
+
+    private void execute( String query, Blackhole blackhole )
+    {
+        try ( Transaction tx = db.beginTx();
+              Result result = db.execute( "CYPHER runtime=interpreted " + query ) )
+        {
+            while ( result.hasNext() )
+            {
+                Map<String,Object> row = result.next();
+                blackhole.consume( row.get( "x" ) );
+            }
+            tx.success();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.benchmarks.cypher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import scala.collection.mutable.OpenHashMap;
+
+import java.util.concurrent.TimeUnit;
+
+import org.neo5j.cypher.internal.compiler.v3_2.pipes.SlottedMap;
+
+/**
+ * The row operations of the interpreted Cypher runtime, on the {@link SlottedMap} rows that it uses now, and on the
+ * {@link OpenHashMap} rows that it used before. Pipes mostly clone their input row and add a variable or two to it,
+ * and look up the variables that their expressions refer to.
+ * <p>
+ * The rows either have few enough variables for a {@link SlottedMap} to scan its layout, or so many that it hashes
+ * them. Run with {@code -prof gc} to see the heap allocated per row.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+public class RowMapBenchmark
+{
+    private static final String addedKey = "added";
+
+    @Param( { "4", "16" } )
+    public int variables;
+
+    private String[] keys;
+    private SlottedMap slottedRow;
+    private OpenHashMap<String,Object> openHashRow;
+
+    @Setup
+    public void setUp()
+    {
+        keys = new String[variables];
+        slottedRow = new SlottedMap();
+        // The size the runtime created its rows with, before it used slotted rows
+        openHashRow = new OpenHashMap<>( 16 );
+        for ( int i = 0; i < variables; i++ )
+        {
+            keys[i] = "v" + i;
+            slottedRow.update( keys[i], (long) i );
+            openHashRow.update( keys[i], (long) i );
+        }
+    }
+
+    @Benchmark
+    public Object cloneAndAddSlotted()
+    {
+        SlottedMap row = slottedRow.clone();
+        row.update( addedKey, 42L );
+        return row;
+    }
+
+    @Benchmark
+    public Object cloneAndAddOpenHash()
+    {
+        OpenHashMap<String,Object> row = openHashRow.clone();
+        row.update( addedKey, 42L );
+        return row;
+    }
+
+    @Benchmark
+    public void lookUpSlotted( Blackhole blackhole )
+    {
+        for ( String key : keys )
+        {
+            blackhole.consume( slottedRow.apply( key ) );
+        }
+    }
+
+    @Benchmark
+    public void lookUpOpenHash( Blackhole blackhole )
+    {
+        for ( String key : keys )
+        {
+            blackhole.consume( openHashRow.apply( key ) );
+        }
+    }
+}
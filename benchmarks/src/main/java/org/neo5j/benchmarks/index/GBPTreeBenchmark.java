@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.benchmarks.index;
+
+import org.apache.commons.lang3.mutable.MutableLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.neo5j.benchmarks.Datasets;
+import org.neo5j.cursor.RawCursor;
+import org.neo5j.index.internal.gbptree.GBPTree;
+import org.neo5j.index.internal.gbptree.Hit;
+import org.neo5j.index.internal.gbptree.Writer;
+import org.neo5j.io.fs.DefaultFileSystemAbstraction;
+import org.neo5j.io.fs.FileSystemAbstraction;
+import org.neo5j.io.pagecache.impl.SingleFilePageSwapperFactory;
+import org.neo5j.io.pagecache.impl.muninn.MuninnPageCache;
+import org.neo5j.io.pagecache.tracing.PageCacheTracer;
+import org.neo5j.io.pagecache.tracing.cursor.DefaultPageCursorTracerSupplier;
+
+import static org.neo5j.index.internal.gbptree.GBPTree.NO_HEADER;
+import static org.neo5j.index.internal.gbptree.GBPTree.NO_MONITOR;
+
+/**
+ * Insert and seek performance of a {@link GBPTree} of long keys and values, that fits in the page cache.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+public class GBPTreeBenchmark
+{
+    private static final int pageSize = 8192;
+    private static final int keyCount = 1_000_000;
+    private static final int insertBatchSize = 1_000;
+    private static final int rangeSize = 100;
+    // Half of the positive longs, so that the ranges we seek never overflow.
+    private static final long keySpace = Long.MAX_VALUE / 2;
+
+    private final LongLayout layout = new LongLayout();
+    private final MutableLong from = new MutableLong();
+    private final MutableLong to = new MutableLong();
+    private final MutableLong value = new MutableLong();
+
+    private File directory;
+    private FileSystemAbstraction fs;
+    private MuninnPageCache pageCache;
+    private GBPTree<MutableLong,MutableLong> populatedTree;
+    private GBPTree<MutableLong,MutableLong> insertTree;
+    private long[] keys;
+    private int nextKey;
+    private int nextInsertTree;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        directory = Datasets.createScratchDirectory( "gbptree" );
+        fs = new DefaultFileSystemAbstraction();
+        SingleFilePageSwapperFactory swapperFactory = new SingleFilePageSwapperFactory();
+        swapperFactory.setFileSystemAbstraction( fs );
+        pageCache = new MuninnPageCache( swapperFactory, 50_000, pageSize, PageCacheTracer.NULL,
+                DefaultPageCursorTracerSupplier.INSTANCE );
+        keys = Datasets.randomLongs( 0, keyCount, keySpace );
+
+        populatedTree = openTree( "populated" );
+        try ( Writer<MutableLong,MutableLong> writer = populatedTree.writer() )
+        {
+            for ( long key : keys )
+            {
+                put( writer, key );
+            }
+        }
+    }
+
+    private GBPTree<MutableLong,MutableLong> openTree( String name ) throws IOException
+    {
+        return new GBPTree<>( pageCache, new File( directory, name ), layout, 0, NO_MONITOR, NO_HEADER );
+    }
+
+    private void put( Writer<MutableLong,MutableLong> writer, long key ) throws IOException
+    {
+        from.setValue( key );
+        value.setValue( key );
+        writer.put( from, value );
+    }
+
+    @Setup( Level.Iteration )
+    public void createInsertTree() throws IOException
+    {
+        // Every iteration inserts into an empty tree, so all iterations measure the same thing.
+        insertTree = openTree( "insert-" + nextInsertTree++ );
+        nextKey = 0;
+    }
+
+    @TearDown( Level.Iteration )
+    public void closeInsertTree() throws IOException
+    {
+        insertTree.close();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        populatedTree.close();
+        pageCache.close();
+        fs.close();
+        Datasets.deleteScratchDirectory( directory );
+    }
+
+    private long nextKey()
+    {
+        long key = keys[nextKey];
+        nextKey = (nextKey + 1) % keyCount;
+        return key;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation( insertBatchSize )
+    public void insert() throws IOException
+    {
+        try ( Writer<MutableLong,MutableLong> writer = insertTree.writer() )
+        {
+            for ( int i = 0; i < insertBatchSize; i++ )
+            {
+                put( writer, nextKey() );
+            }
+        }
+    }
+
+    @Benchmark
+    public void seekExact( Blackhole blackhole ) throws IOException
+    {
+        long key = nextKey();
+        from.setValue( key );
+        to.setValue( key + 1 );
+        seek( blackhole );
+    }
+
+    @Benchmark
+    public void seekRange( Blackhole blackhole ) throws IOException
+    {
+        long key = nextKey();
+        from.setValue( key );
+        to.setValue( key + (keySpace / keyCount) * rangeSize );
+        seek( blackhole );
+    }
+
+    private void seek( Blackhole blackhole ) throws IOException
+    {
+        try ( RawCursor<Hit<MutableLong,MutableLong>,IOException> cursor = populatedTree.seek( from, to ) )
+        {
+            while ( cursor.next() )
+            {
+                blackhole.consume( cursor.get().value().longValue() );
+            }
+        }
+    }
+}
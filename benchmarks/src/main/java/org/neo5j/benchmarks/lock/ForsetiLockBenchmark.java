@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.benchmarks.lock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.time.Clock;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.neo5j.benchmarks.Datasets;
+import org.neo5j.kernel.configuration.Config;
+import org.neo5j.kernel.impl.enterprise.lock.forseti.ForsetiLockManager;
+import org.neo5j.kernel.impl.locking.LockTracer;
+import org.neo5j.kernel.impl.locking.Locks;
+import org.neo5j.kernel.impl.locking.ResourceTypes;
+
+/**
+ * Throughput of taking and releasing node locks in the {@link ForsetiLockManager}, from many threads at once.
+ * <p>
+ * Every lock is released before the next one is taken, so the threads never deadlock. With {@code hot} resources, all
+ * threads lock the same small set of nodes, so most shared locks are joined rather than created, and exclusive locks
+ * have to wait for each other. With {@code cold} resources, every thread locks nodes of its own, out of a large range,
+ * so every lock creates and removes an entry in the lock tables. Run with {@code -prof gc} to see the allocation rate
+ * of the lock tables.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+public class ForsetiLockBenchmark
+{
+    private static final int hotResources = 64;
+    private static final int coldResourcesPerThread = 1 << 20;
+
+    @Param( { "hot", "cold" } )
+    public String resources;
+
+    private ForsetiLockManager locks;
+
+    @Setup
+    public void setUp()
+    {
+        locks = new ForsetiLockManager( Config.defaults(), Clock.systemUTC(), ResourceTypes.values() );
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        locks.close();
+    }
+
+    @State( Scope.Thread )
+    public static class ThreadState
+    {
+        SplittableRandom rng;
+        Locks.Client client;
+        long firstResource;
+        int resourceCount;
+
+        @Setup
+        public void setUp( ForsetiLockBenchmark benchmark, ThreadParams threadParams )
+        {
+            rng = Datasets.random( threadParams.getThreadIndex() );
+            client = benchmark.locks.newClient();
+            boolean hot = "hot".equals( benchmark.resources );
+            firstResource = hot ? 0 : (long) threadParams.getThreadIndex() * coldResourcesPerThread;
+            resourceCount = hot ? hotResources : coldResourcesPerThread;
+        }
+
+        @TearDown
+        public void tearDown()
+        {
+            client.close();
+        }
+
+        long nextResource()
+        {
+            return firstResource + rng.nextInt( resourceCount );
+        }
+    }
+
+    private static long lockShared( ThreadState state )
+    {
+        long resourceId = state.nextResource();
+        state.client.acquireShared( LockTracer.NONE, ResourceTypes.NODE, resourceId );
+        state.client.releaseShared( ResourceTypes.NODE, resourceId );
+        return resourceId;
+    }
+
+    private static long lockExclusive( ThreadState state )
+    {
+        long resourceId = state.nextResource();
+        state.client.acquireExclusive( LockTracer.NONE, ResourceTypes.NODE, resourceId );
+        state.client.releaseExclusive( ResourceTypes.NODE, resourceId );
+        return resourceId;
+    }
+
+    @Benchmark
+    @Threads( 1 )
+    public long sharedLock( ThreadState state )
+    {
+        return lockShared( state );
+    }
+
+    @Benchmark
+    @Threads( 8 )
+    public long sharedLockContended( ThreadState state )
+    {
+        return lockShared( state );
+    }
+
+    @Benchmark
+    @Threads( 1 )
+    public long exclusiveLock( ThreadState state )
+    {
+        return lockExclusive( state );
+    }
+
+    @Benchmark
+    @Threads( 8 )
+    public long exclusiveLockContended( ThreadState state )
+    {
+        return lockExclusive( state );
+    }
+}
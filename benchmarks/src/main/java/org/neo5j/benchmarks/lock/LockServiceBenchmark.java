@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.benchmarks.lock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.neo5j.benchmarks.Datasets;
+import org.neo5j.kernel.impl.locking.LockGroup;
+import org.neo5j.kernel.impl.locking.LockService;
+import org.neo5j.kernel.impl.locking.ReentrantLockService;
+import org.neo5j.kernel.impl.locking.StripedLockService;
+
+/**
+ * Throughput of the record level {@link LockService}, when used the way transactions are applied to the store: a
+ * number of node and relationship locks are taken into a {@link LockGroup}, and released together once the
+ * transaction has been applied.
+ * <p>
+ * The transactions either touch random records of a big store, or records among a small set of dense nodes that every
+ * thread is updating. Run with {@code -prof gc} to see the allocation rate of the lock services.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+public class LockServiceBenchmark
+{
+    private static final int recordsPerTransaction = 10;
+
+    @Param( { "reentrant", "striped" } )
+    public String lockService;
+
+    @Param( { "1000000", "64" } )
+    public int records;
+
+    private LockService locks;
+
+    @Setup
+    public void setUp()
+    {
+        locks = "striped".equals( lockService ) ? new StripedLockService() : new ReentrantLockService();
+    }
+
+    @State( Scope.Thread )
+    public static class ThreadState
+    {
+        SplittableRandom rng;
+        final long[] nodeIds = new long[recordsPerTransaction / 2];
+        final long[] relationshipIds = new long[recordsPerTransaction / 2];
+
+        @Setup
+        public void setUp( ThreadParams threadParams )
+        {
+            rng = Datasets.random( threadParams.getThreadIndex() );
+        }
+
+        /**
+         * Picks the records for the next transaction. They are sorted, so that the threads always take their locks
+         * in the same order and cannot deadlock.
+         */
+        void nextTransaction( int records )
+        {
+            for ( int i = 0; i < nodeIds.length; i++ )
+            {
+                nodeIds[i] = rng.nextInt( records );
+                relationshipIds[i] = rng.nextInt( records );
+            }
+            Arrays.sort( nodeIds );
+            Arrays.sort( relationshipIds );
+        }
+    }
+
+    private void lockAndRelease( ThreadState state )
+    {
+        state.nextTransaction( records );
+        try ( LockGroup lockGroup = new LockGroup() )
+        {
+            for ( long nodeId : state.nodeIds )
+            {
+                lockGroup.add( locks.acquireNodeLock( nodeId, LockService.LockType.WRITE_LOCK ) );
+            }
+            for ( long relationshipId : state.relationshipIds )
+            {
+                lockGroup.add( locks.acquireRelationshipLock( relationshipId, LockService.LockType.WRITE_LOCK ) );
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads( 1 )
+    public void applyTransaction( ThreadState state )
+    {
+        lockAndRelease( state );
+    }
+
+    @Benchmark
+    @Threads( 8 )
+    public void applyTransactionContended( ThreadState state )
+    {
+        lockAndRelease( state );
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.benchmarks.pagecache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.neo5j.benchmarks.Datasets;
+import org.neo5j.io.fs.DefaultFileSystemAbstraction;
+import org.neo5j.io.fs.FileSystemAbstraction;
+import org.neo5j.io.fs.StoreChannel;
+import org.neo5j.io.pagecache.PageCursor;
+import org.neo5j.io.pagecache.PageSwapperFactory;
+import org.neo5j.io.pagecache.PagedFile;
+import org.neo5j.io.pagecache.impl.MemoryMappedPageSwapperFactory;
+import org.neo5j.io.pagecache.impl.SingleFilePageSwapperFactory;
+import org.neo5j.io.pagecache.impl.muninn.MuninnPageCache;
+import org.neo5j.io.pagecache.tracing.PageCacheTracer;
+import org.neo5j.io.pagecache.tracing.cursor.DefaultPageCursorTracerSupplier;
+
+import static org.neo5j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
+import static org.neo5j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
+
+/**
+ * Pin and unpin throughput of {@link MuninnPageCache} cursors, with and without contention.
+ * <p>
+ * The file either fits in the page cache, so every pin is a hit, or is ten times larger than the page cache, so most
+ * pins are page faults that also need to evict pages.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+public class PageCursorBenchmark
+{
+    private static final int cachePageSize = 8192;
+    private static final int cachePages = 10_000;
+
+    @Param( { "1000", "100000" } )
+    public int filePages;
+
+    @Param( { "single", "mmap" } )
+    public String swapper;
+
+    private File directory;
+    private FileSystemAbstraction fs;
+    private MuninnPageCache pageCache;
+    private PagedFile pagedFile;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        directory = Datasets.createScratchDirectory( "pagecache" );
+        fs = new DefaultFileSystemAbstraction();
+        File file = new File( directory, "file" );
+        writeFile( file );
+        PageSwapperFactory swapperFactory = "mmap".equals( swapper ) ? new MemoryMappedPageSwapperFactory()
+                                                                     : new SingleFilePageSwapperFactory();
+        swapperFactory.setFileSystemAbstraction( fs );
+        pageCache = new MuninnPageCache( swapperFactory, cachePages, cachePageSize, PageCacheTracer.NULL,
+                DefaultPageCursorTracerSupplier.INSTANCE );
+        pagedFile = pageCache.map( file, cachePageSize );
+    }
+
+    private void writeFile( File file ) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( cachePageSize );
+        try ( StoreChannel channel = fs.create( file ) )
+        {
+            for ( int i = 0; i < filePages; i++ )
+            {
+                buffer.clear();
+                while ( buffer.hasRemaining() )
+                {
+                    buffer.putLong( i );
+                }
+                buffer.flip();
+                channel.writeAll( buffer );
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        pagedFile.close();
+        pageCache.close();
+        fs.close();
+        Datasets.deleteScratchDirectory( directory );
+    }
+
+    @State( Scope.Thread )
+    public static class ThreadState
+    {
+        SplittableRandom rng;
+
+        @Setup
+        public void setUp( ThreadParams threadParams )
+        {
+            rng = Datasets.random( threadParams.getThreadIndex() );
+        }
+    }
+
+    private long pinRandomPageForReading( ThreadState state ) throws IOException
+    {
+        long pageId = state.rng.nextInt( filePages );
+        try ( PageCursor cursor = pagedFile.io( pageId, PF_SHARED_READ_LOCK ) )
+        {
+            long value = 0;
+            if ( cursor.next() )
+            {
+                do
+                {
+                    value = cursor.getLong();
+                }
+                while ( cursor.shouldRetry() );
+            }
+            return value;
+        }
+    }
+
+    private long pinRandomPageForWriting( ThreadState state ) throws IOException
+    {
+        long pageId = state.rng.nextInt( filePages );
+        try ( PageCursor cursor = pagedFile.io( pageId, PF_SHARED_WRITE_LOCK ) )
+        {
+            if ( cursor.next() )
+            {
+                cursor.putLong( pageId );
+            }
+            return pageId;
+        }
+    }
+
+    @Benchmark
+    @Threads( 1 )
+    public long readRandomPage( ThreadState state ) throws IOException
+    {
+        return pinRandomPageForReading( state );
+    }
+
+    @Benchmark
+    @Threads( 8 )
+    public long readRandomPageContended( ThreadState state ) throws IOException
+    {
+        return pinRandomPageForReading( state );
+    }
+
+    @Benchmark
+    @Threads( 8 )
+    public long readSamePageContended() throws IOException
+    {
+        try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK ) )
+        {
+            long value = 0;
+            if ( cursor.next() )
+            {
+                do
+                {
+                    value = cursor.getLong();
+                }
+                while ( cursor.shouldRetry() );
+            }
+            return value;
+        }
+    }
+
+    @Benchmark
+    @Threads( 1 )
+    public long writeRandomPage( ThreadState state ) throws IOException
+    {
+        return pinRandomPageForWriting( state );
+    }
+
+    @Benchmark
+    @Threads( 8 )
+    public long writeRandomPageContended( ThreadState state ) throws IOException
+    {
+        return pinRandomPageForWriting( state );
+    }
+}
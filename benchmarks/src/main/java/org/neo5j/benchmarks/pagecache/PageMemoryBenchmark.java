@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.benchmarks.pagecache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.neo5j.benchmarks.Datasets;
+import org.neo5j.io.fs.DefaultFileSystemAbstraction;
+import org.neo5j.io.fs.FileSystemAbstraction;
+import org.neo5j.io.pagecache.PageCursor;
+import org.neo5j.io.pagecache.PagedFile;
+import org.neo5j.io.pagecache.impl.SingleFilePageSwapperFactory;
+import org.neo5j.io.pagecache.impl.muninn.EvictionPolicy;
+import org.neo5j.io.pagecache.impl.muninn.MuninnPageCache;
+import org.neo5j.io.pagecache.tracing.PageCacheTracer;
+import org.neo5j.io.pagecache.tracing.cursor.DefaultPageCursorTracerSupplier;
+import org.neo5j.unsafe.impl.internal.dragons.HugePages;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static org.neo5j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
+import static org.neo5j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
+
+/**
+ * Random access throughput of a large, fully cached {@link MuninnPageCache}, with and without huge pages backing the
+ * page memory.
+ * <p>
+ * Every pin is a hit, and reads a random offset within the page, so the benchmark is dominated by TLB and cache misses.
+ * Run with {@code -prof perfnorm} to see the {@code dTLB-load-misses} per operation. Pass a hugetlbfs mount point as
+ * the {@code hugePages} parameter, e.g. {@code -p hugePages=/dev/hugepages}, to benchmark explicitly reserved huge
+ * pages.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Fork( value = 1, jvmArgsAppend = "-Xmx1g" )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+public class PageMemoryBenchmark
+{
+    private static final int cachePageSize = 8192;
+
+    @Param( { "262144" } ) // 2 GiB
+    public int cachePages;
+
+    @Param( { "disabled", "transparent" } )
+    public String hugePages;
+
+    private File directory;
+    private FileSystemAbstraction fs;
+    private MuninnPageCache pageCache;
+    private PagedFile pagedFile;
+    private int filePages;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        directory = Datasets.createScratchDirectory( "pagememory" );
+        fs = new DefaultFileSystemAbstraction();
+        SingleFilePageSwapperFactory swapperFactory = new SingleFilePageSwapperFactory();
+        swapperFactory.setFileSystemAbstraction( fs );
+        pageCache = new MuninnPageCache( swapperFactory, cachePages, cachePageSize, PageCacheTracer.NULL,
+                DefaultPageCursorTracerSupplier.INSTANCE, EvictionPolicy.CLOCK, hugePages() );
+        // Leave some room for the pages the eviction thread keeps free, so every pin in the benchmark is a hit.
+        filePages = cachePages - cachePages / 16;
+        pagedFile = pageCache.map( new File( directory, "file" ), cachePageSize, CREATE );
+        try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+        {
+            for ( int i = 0; i < filePages; i++ )
+            {
+                cursor.next();
+                while ( cursor.getOffset() < cachePageSize )
+                {
+                    cursor.putLong( i );
+                }
+            }
+        }
+    }
+
+    private HugePages hugePages()
+    {
+        switch ( hugePages )
+        {
+        case "disabled":
+            return HugePages.disabled();
+        case "transparent":
+            return HugePages.transparent();
+        default:
+            return HugePages.hugetlbfs( new File( hugePages ) );
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        pagedFile.close();
+        pageCache.close();
+        fs.close();
+        Datasets.deleteScratchDirectory( directory );
+    }
+
+    @State( Scope.Thread )
+    public static class ThreadState
+    {
+        SplittableRandom rng;
+
+        @Setup
+        public void setUp( ThreadParams threadParams )
+        {
+            rng = Datasets.random( threadParams.getThreadIndex() );
+        }
+    }
+
+    private long pinRandomPageAndReadLong( ThreadState state ) throws IOException
+    {
+        long pageId = state.rng.nextInt( filePages );
+        int offset = state.rng.nextInt( cachePageSize / Long.BYTES ) * Long.BYTES;
+        try ( PageCursor cursor = pagedFile.io( pageId, PF_SHARED_READ_LOCK ) )
+        {
+            long value = 0;
+            if ( cursor.next() )
+            {
+                do
+                {
+                    value = cursor.getLong( offset );
+                }
+                while ( cursor.shouldRetry() );
+            }
+            return value;
+        }
+    }
+
+    @Benchmark
+    @Threads( 1 )
+    public long readRandomLong( ThreadState state ) throws IOException
+    {
+        return pinRandomPageAndReadLong( state );
+    }
+
+    @Benchmark
+    @Threads( 8 )
+    public long readRandomLongContended( ThreadState state ) throws IOException
+    {
+        return pinRandomPageAndReadLong( state );
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.benchmarks.store;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.neo5j.benchmarks.Datasets;
+import org.neo5j.io.fs.DefaultFileSystemAbstraction;
+import org.neo5j.io.fs.FileSystemAbstraction;
+import org.neo5j.io.pagecache.PageCursor;
+import org.neo5j.io.pagecache.PagedFile;
+import org.neo5j.io.pagecache.impl.SingleFilePageSwapperFactory;
+import org.neo5j.io.pagecache.impl.muninn.MuninnPageCache;
+import org.neo5j.io.pagecache.tracing.PageCacheTracer;
+import org.neo5j.io.pagecache.tracing.cursor.DefaultPageCursorTracerSupplier;
+import org.neo5j.kernel.impl.store.format.RecordFormat;
+import org.neo5j.kernel.impl.store.format.RecordFormats;
+import org.neo5j.kernel.impl.store.format.highlimit.HighLimit;
+import org.neo5j.kernel.impl.store.format.standard.Standard;
+import org.neo5j.kernel.impl.store.id.IdSequence;
+import org.neo5j.kernel.impl.store.record.AbstractBaseRecord;
+import org.neo5j.kernel.impl.store.record.NodeRecord;
+import org.neo5j.kernel.impl.store.record.Record;
+import org.neo5j.kernel.impl.store.record.RecordLoad;
+import org.neo5j.kernel.impl.store.record.RelationshipRecord;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static org.neo5j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
+import static org.neo5j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
+import static org.neo5j.kernel.impl.store.NoStoreHeader.NO_STORE_HEADER;
+
+/**
+ * Reading and writing node and relationship records, with the standard and the high limit record formats, through
+ * page cursors on a store file that fits in the page cache.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+public class RecordFormatBenchmark
+{
+    private static final int pageSize = 8192;
+    private static final int recordCount = 1_000_000;
+
+    @Param( { Standard.LATEST_NAME, HighLimit.NAME } )
+    public String format;
+
+    private File directory;
+    private FileSystemAbstraction fs;
+    private MuninnPageCache pageCache;
+    private RecordFile<NodeRecord> nodes;
+    private RecordFile<RelationshipRecord> relationships;
+    private SplittableRandom rng;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        RecordFormats formats = HighLimit.NAME.equals( format ) ? HighLimit.RECORD_FORMATS
+                                                                : Standard.LATEST_RECORD_FORMATS;
+        directory = Datasets.createScratchDirectory( "records" );
+        fs = new DefaultFileSystemAbstraction();
+        SingleFilePageSwapperFactory swapperFactory = new SingleFilePageSwapperFactory();
+        swapperFactory.setFileSystemAbstraction( fs );
+        pageCache = new MuninnPageCache( swapperFactory, 50_000, pageSize, PageCacheTracer.NULL,
+                DefaultPageCursorTracerSupplier.INSTANCE );
+        rng = Datasets.random( 0 );
+
+        nodes = new RecordFile<>( new File( directory, "nodes" ), formats.node() );
+        NodeRecord node = nodes.format.newRecord();
+        for ( int id = 0; id < recordCount; id++ )
+        {
+            node.setId( id );
+            node.initialize( true, randomReference(), rng.nextInt( 10 ) == 0, randomReference(),
+                    Record.NO_LABELS_FIELD.longValue() );
+            nodes.write( node );
+        }
+
+        relationships = new RecordFile<>( new File( directory, "relationships" ), formats.relationship() );
+        RelationshipRecord relationship = relationships.format.newRecord();
+        for ( int id = 0; id < recordCount; id++ )
+        {
+            relationship.setId( id );
+            relationship.initialize( true, randomReference(), randomReference(), randomReference(),
+                    rng.nextInt( 100 ), randomReference(), randomReference(), randomReference(), randomReference(),
+                    rng.nextBoolean(), rng.nextBoolean() );
+            relationships.write( relationship );
+        }
+    }
+
+    private long randomReference()
+    {
+        return rng.nextInt( 20 ) == 0 ? Record.NO_NEXT_RELATIONSHIP.intValue() : rng.nextInt( recordCount );
+    }
+
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        nodes.close();
+        relationships.close();
+        pageCache.close();
+        fs.close();
+        Datasets.deleteScratchDirectory( directory );
+    }
+
+    @Benchmark
+    public NodeRecord readNode() throws IOException
+    {
+        return nodes.read( rng.nextInt( recordCount ) );
+    }
+
+    @Benchmark
+    public NodeRecord writeNode() throws IOException
+    {
+        NodeRecord record = nodes.read( rng.nextInt( recordCount ) );
+        record.setNextRel( rng.nextInt( recordCount ) );
+        nodes.write( record );
+        return record;
+    }
+
+    @Benchmark
+    public RelationshipRecord readRelationship() throws IOException
+    {
+        return relationships.read( rng.nextInt( recordCount ) );
+    }
+
+    @Benchmark
+    public RelationshipRecord writeRelationship() throws IOException
+    {
+        RelationshipRecord record = relationships.read( rng.nextInt( recordCount ) );
+        record.setFirstNextRel( rng.nextInt( recordCount ) );
+        relationships.write( record );
+        return record;
+    }
+
+    /**
+     * A store file of records of one type, with one read cursor that is reused for all reads. Every write opens a
+     * write cursor of its own, since a write cursor keeps the write lock of the page it is on until it moves on or is
+     * closed, and reads of that page would wait for it forever.
+     */
+    private class RecordFile<RECORD extends AbstractBaseRecord> implements AutoCloseable
+    {
+        final RecordFormat<RECORD> format;
+        final int recordSize;
+        final int recordsPerPage;
+        final PagedFile pagedFile;
+        final PageCursor readCursor;
+        final RECORD record;
+        // The high limit format may need to allocate secondary record units for big records. Those are given ids
+        // beyond the records of the dataset.
+        final IdSequence secondaryUnitIds = new IdSequence()
+        {
+            private long nextId = recordCount;
+
+            @Override
+            public long nextId()
+            {
+                return nextId++;
+            }
+        };
+
+        RecordFile( File file, RecordFormat<RECORD> format ) throws IOException
+        {
+            this.format = format;
+            this.recordSize = format.getRecordSize( NO_STORE_HEADER );
+            this.recordsPerPage = pageSize / recordSize;
+            this.pagedFile = pageCache.map( file, recordsPerPage * recordSize, CREATE );
+            this.readCursor = pagedFile.io( 0, PF_SHARED_READ_LOCK );
+            this.record = format.newRecord();
+        }
+
+        RECORD read( long id ) throws IOException
+        {
+            record.setId( id );
+            if ( readCursor.next( id / recordsPerPage ) )
+            {
+                int offset = (int) (id % recordsPerPage) * recordSize;
+                do
+                {
+                    readCursor.setOffset( offset );
+                    format.read( record, readCursor, RecordLoad.FORCE, recordSize );
+                }
+                while ( readCursor.shouldRetry() );
+            }
+            return record;
+        }
+
+        void write( RECORD record ) throws IOException
+        {
+            long id = record.getId();
+            format.prepare( record, recordSize, secondaryUnitIds );
+            try ( PageCursor writeCursor = pagedFile.io( id / recordsPerPage, PF_SHARED_WRITE_LOCK ) )
+            {
+                if ( writeCursor.next() )
+                {
+                    writeCursor.setOffset( (int) (id % recordsPerPage) * recordSize );
+                    format.write( record, writeCursor, recordSize );
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            readCursor.close();
+            pagedFile.close();
+        }
+    }
+}
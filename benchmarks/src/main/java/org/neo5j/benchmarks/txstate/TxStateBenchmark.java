@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.benchmarks.txstate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.neo5j.benchmarks.Datasets;
+import org.neo5j.graphdb.factory.GraphDatabaseSettings.TransactionStateMemoryAllocation;
+import org.neo5j.kernel.api.exceptions.schema.ConstraintValidationException;
+import org.neo5j.kernel.api.exceptions.schema.CreateConstraintFailureException;
+import org.neo5j.kernel.api.memory.MemoryTracker;
+import org.neo5j.kernel.api.properties.Property;
+import org.neo5j.kernel.impl.api.state.TxState;
+import org.neo5j.kernel.impl.util.collection.CollectionsFactory;
+import org.neo5j.kernel.impl.util.collection.CollectionsFactorySupplier;
+import org.neo5j.storageengine.api.txstate.TxStateVisitor;
+
+/**
+ * Cost of recording the changes of a write transaction in {@link TxState}, and of visiting them at commit time, the
+ * way the storage engine turns them into commands. Each transaction creates nodes with a label and a property, and
+ * connects every new node to an existing node of the store.
+ * <p>
+ * Run with {@code -prof gc} to see the heap allocated per transaction, which divided by the number of changes gives
+ * the heap cost of each change. With {@code OFF_HEAP} memory allocation, the large collections of the transaction state
+ * are kept in native memory instead.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+public class TxStateBenchmark
+{
+    private static final int storeNodes = 10_000_000;
+    private static final int labels = 4;
+    private static final int relationshipTypes = 3;
+
+    @Param( { "10", "10000" } )
+    public int nodesPerTransaction;
+
+    @Param( { "ON_HEAP", "OFF_HEAP" } )
+    public TransactionStateMemoryAllocation memoryAllocation;
+
+    private CollectionsFactorySupplier collectionsFactorySupplier;
+
+    @Setup
+    public void setUp()
+    {
+        collectionsFactorySupplier = memoryAllocation == TransactionStateMemoryAllocation.OFF_HEAP
+                                     ? CollectionsFactorySupplier.offHeap( Long.MAX_VALUE )
+                                     : CollectionsFactorySupplier.ON_HEAP;
+    }
+
+    @State( Scope.Thread )
+    public static class ThreadState
+    {
+        SplittableRandom rng;
+        long nextId = storeNodes;
+
+        @Setup
+        public void setUp( ThreadParams threadParams )
+        {
+            rng = Datasets.random( threadParams.getThreadIndex() );
+        }
+    }
+
+    private TxState recordChanges( ThreadState state, CollectionsFactory collectionsFactory )
+    {
+        TxState txState = new TxState( collectionsFactory );
+        for ( int i = 0; i < nodesPerTransaction; i++ )
+        {
+            long nodeId = state.nextId++;
+            txState.nodeDoCreate( nodeId );
+            txState.nodeDoAddLabel( i % labels, nodeId );
+            txState.nodeDoAddProperty( nodeId, Property.intProperty( 0, i ) );
+            long existingNodeId = state.rng.nextInt( storeNodes );
+            txState.relationshipDoCreate( state.nextId++, i % relationshipTypes, nodeId, existingNodeId );
+        }
+        return txState;
+    }
+
+    @Benchmark
+    public TxState recordTransactionState( ThreadState state )
+    {
+        CollectionsFactory collectionsFactory = collectionsFactorySupplier.create( MemoryTracker.NONE );
+        try
+        {
+            return recordChanges( state, collectionsFactory );
+        }
+        finally
+        {
+            collectionsFactory.release();
+        }
+    }
+
+    @Benchmark
+    public TxState recordAndVisitTransactionState( ThreadState state )
+            throws ConstraintValidationException, CreateConstraintFailureException
+    {
+        CollectionsFactory collectionsFactory = collectionsFactorySupplier.create( MemoryTracker.NONE );
+        try
+        {
+            TxState txState = recordChanges( state, collectionsFactory );
+            txState.accept( new TxStateVisitor.Adapter() );
+            return txState;
+        }
+        finally
+        {
+            collectionsFactory.release();
+        }
+    }
+}
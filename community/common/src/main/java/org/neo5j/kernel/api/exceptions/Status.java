@@ -151,6 +151,9 @@ public interface Status
                 "Supplied bookmark cannot be interpreted. You should only supply a bookmark previously that was " +
                 "previously generated by Neo5j. Maybe you have generated your own bookmark, " +
                 "or modified a bookmark since it was generated by Neo5j." ),
+        TransactionMemoryLimitExceeded( ClientError,
+                "The transaction needed more memory for its state than it is allowed to use. You may want to split " +
+                "the work into smaller transactions, or raise the limit." ),
 
         // database errors
         TransactionStartFailed( DatabaseError,
@@ -189,7 +192,10 @@ public interface Status
         Terminated( TransientError,
                 "Explicitly terminated by the user." ),
         Interrupted( TransientError,
-                "Interrupted while waiting." );
+                "Interrupted while waiting." ),
+        MemoryPoolExhausted( TransientError,
+                "The memory that all running transactions may use together has been used up. The transaction may " +
+                "succeed if retried when other transactions have completed." );
 
         private final Code code;
 
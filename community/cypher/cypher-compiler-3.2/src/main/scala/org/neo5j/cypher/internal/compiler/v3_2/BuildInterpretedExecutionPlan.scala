@@ -19,6 +19,8 @@
  */
 package org.neo5j.cypher.internal.compiler.v3_2
 
+import java.io.File
+
 import org.neo5j.cypher.internal.frontend.v3_2.phases.CompilationPhaseTracer.CompilationPhase.PIPE_BUILDING
 import org.neo5j.cypher.internal.compiler.v3_2.executionplan.{PipeInfo, _}
 import org.neo5j.cypher.internal.compiler.v3_2.phases._
@@ -47,7 +49,9 @@ object BuildInterpretedExecutionPlan extends Phase[CompilerContext, CompilationS
     val PipeInfo(pipe, updating, periodicCommitInfo, fp, planner) = pipeInfo
     val columns = from.statement.returnColumns
     val resultBuilderFactory = DefaultExecutionResultBuilderFactory(pipeInfo, columns, context.typeConverter, logicalPlan, idMap)
-    val func = getExecutionPlanFunction(periodicCommitInfo, from.queryText, updating, resultBuilderFactory, context.notificationLogger)
+    val func = getExecutionPlanFunction(periodicCommitInfo, from.queryText, updating, resultBuilderFactory, context.notificationLogger,
+                                        context.config.parallelWorkers, context.config.operatorMemoryBudget,
+                                        context.config.spillDirectory)
     val execPlan = new ExecutionPlan {
       private val fingerprint = context.createFingerprintReference(fp)
 
@@ -81,7 +85,10 @@ object BuildInterpretedExecutionPlan extends Phase[CompilerContext, CompilationS
                                        queryId: AnyRef,
                                        updating: Boolean,
                                        resultBuilderFactory: ExecutionResultBuilderFactory,
-                                       notificationLogger: InternalNotificationLogger):
+                                       notificationLogger: InternalNotificationLogger,
+                                       parallelWorkers: Int,
+                                       operatorMemoryBudget: Long,
+                                       spillDirectory: File):
   (QueryContext, ExecutionMode, Map[String, Any]) => InternalExecutionResult =
     (queryContext: QueryContext, planType: ExecutionMode, params: Map[String, Any]) => {
       val builder = resultBuilderFactory.create()
@@ -98,6 +105,12 @@ object BuildInterpretedExecutionPlan extends Phase[CompilerContext, CompilationS
 
       if (profiling)
         builder.setPipeDecorator(new Profiler())
+      else if (!updating && periodicCommit.isEmpty)
+        builder.setParallelism(parallelWorkers)
+
+      // Rows are read back from disk by the ids of their entities, which only holds as long as the query changes nothing
+      if (!updating && periodicCommit.isEmpty)
+        builder.setOperatorMemoryBudget(operatorMemoryBudget, spillDirectory)
 
       builder.build(queryId, planType, params, notificationLogger)
     }
@@ -19,6 +19,7 @@
  */
 package org.neo5j.cypher.internal.compiler.v3_2
 
+import java.io.File
 import java.time.Clock
 
 import org.neo5j.cypher.internal.compiler.v3_2.executionplan._
@@ -154,7 +155,10 @@ case class CypherCompilerConfiguration(queryCacheSize: Int,
                                        errorIfShortestPathFallbackUsedAtRuntime: Boolean,
                                        errorIfShortestPathHasCommonNodesAtRuntime: Boolean,
                                        legacyCsvQuoteEscaping: Boolean,
-                                       nonIndexedLabelWarningThreshold: Long)
+                                       nonIndexedLabelWarningThreshold: Long,
+                                       parallelWorkers: Int,
+                                       operatorMemoryBudget: Long,
+                                       spillDirectory: File)
 
 
 trait CypherCacheFlushingMonitor[T] {
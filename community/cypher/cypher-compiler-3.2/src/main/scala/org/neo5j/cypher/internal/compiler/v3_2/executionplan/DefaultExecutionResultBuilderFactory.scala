@@ -19,6 +19,8 @@
  */
 package org.neo5j.cypher.internal.compiler.v3_2.executionplan
 
+import java.io.File
+
 import org.neo5j.cypher.internal.compiler.v3_2.helpers.RuntimeTypeConverter
 import org.neo5j.cypher.internal.compiler.v3_2.pipes._
 import org.neo5j.cypher.internal.compiler.v3_2.planDescription.{Id, InternalPlanDescription}
@@ -44,6 +46,8 @@ case class DefaultExecutionResultBuilderFactory(pipeInfo: PipeInfo,
     private var externalResource: ExternalCSVResource = new CSVResources(taskCloser)
     private var maybeQueryContext: Option[QueryContext] = None
     private var pipeDecorator: PipeDecorator = NullPipeDecorator
+    private var parallelism: Int = 1
+    private var spillSpace: SpillSpace = SpillSpace.NONE
     private var exceptionDecorator: CypherException => CypherException = identity
 
     def setQueryContext(context: QueryContext) {
@@ -60,6 +64,14 @@ case class DefaultExecutionResultBuilderFactory(pipeInfo: PipeInfo,
       pipeDecorator = newDecorator
     }
 
+    def setParallelism(workers: Int) {
+      parallelism = workers
+    }
+
+    def setOperatorMemoryBudget(bytes: Long, spillDirectory: File) {
+      spillSpace = if (bytes > 0) new SpillSpace(bytes, spillDirectory, taskCloser) else SpillSpace.NONE
+    }
+
     def setExceptionDecorator(newDecorator: CypherException => CypherException) {
       exceptionDecorator = newDecorator
     }
@@ -68,7 +80,11 @@ case class DefaultExecutionResultBuilderFactory(pipeInfo: PipeInfo,
       taskCloser.addTask(queryContext.transactionalContext.close)
       val state = new QueryState(queryContext, externalResource, params, pipeDecorator, queryId = queryId,
                                  triadicState = mutable.Map.empty, repeatableReads = mutable.Map.empty,
-                                 typeConverter = typeConverter)
+                                 typeConverter = typeConverter,
+                                 memoryTracker = queryContext.transactionalContext.memoryTracker,
+                                 parallelism = parallelism,
+                                 spillSpace = spillSpace,
+                                 closer = taskCloser)
       try {
         try {
           createResults(state, planType, notificationLogger)
@@ -19,6 +19,8 @@
  */
 package org.neo5j.cypher.internal.compiler.v3_2.executionplan
 
+import java.io.File
+
 import org.neo5j.cypher.internal.compiler.v3_2.ExecutionMode
 import org.neo5j.cypher.internal.compiler.v3_2.pipes._
 import org.neo5j.cypher.internal.compiler.v3_2.spi.QueryContext
@@ -29,6 +31,8 @@ trait ExecutionResultBuilder {
   def setQueryContext(context: QueryContext)
   def setLoadCsvPeriodicCommitObserver(batchRowCount: Long)
   def setPipeDecorator(newDecorator: PipeDecorator)
+  def setParallelism(workers: Int)
+  def setOperatorMemoryBudget(bytes: Long, spillDirectory: File)
   def setExceptionDecorator(newDecorator: CypherException => CypherException)
   def build(queryId: AnyRef, planType: ExecutionMode, params: Map[String, Any], notificationLogger: InternalNotificationLogger): InternalExecutionResult
 }
@@ -22,29 +22,67 @@ package org.neo5j.cypher.internal.compiler.v3_2.pipes
 import org.neo5j.cypher.internal.compiler.v3_2._
 import org.neo5j.cypher.internal.compiler.v3_2.commands.expressions.AggregationExpression
 import org.neo5j.cypher.internal.compiler.v3_2.commands.predicates.Equivalent
-import org.neo5j.cypher.internal.compiler.v3_2.pipes.aggregation.AggregationFunction
+import org.neo5j.cypher.internal.compiler.v3_2.pipes.MemoryEstimation.groupSize
+import org.neo5j.cypher.internal.compiler.v3_2.pipes.aggregation.{AggregationFunction, MergeableAggregationFunction}
 import org.neo5j.cypher.internal.compiler.v3_2.planDescription.Id
 
 import scala.collection.mutable.{Map => MutableMap}
+import scala.util.hashing.MurmurHash3
 
 // Eager aggregation means that this pipe will eagerly load the whole resulting sub graphs before starting
 // to emit aggregated results.
 // Cypher is lazy until it can't - this pipe will eagerly load the full match
+// When the groups take more memory than the budget of an operator, the rows of groups that have not been seen yet are
+// written to partitions on disk, and the groups of each partition are aggregated once the groups in memory are done
 case class EagerAggregationPipe(source: Pipe, keyExpressions: Set[String], aggregations: Map[String, AggregationExpression])
                                (val id: Id = new Id)
                                (implicit pipeMonitor: PipeMonitor) extends PipeWithSource(source, pipeMonitor) {
 
+  import EagerAggregationPipe._
+
   aggregations.values.foreach(_.registerOwningPipe(this))
 
+  private val keyNames = keyExpressions.toList
+  private val aggregationNames: Seq[String] = aggregations.keys.toIndexedSeq
+  private val keyNamesSize = keyNames.size
+  private val mapSize = keyNamesSize + aggregationNames.size
+  private val sizeOfGroup = groupSize(keyNamesSize, aggregationNames.size)
+
+  private lazy val mergeable =
+    aggregations.values.forall(_.createAggregationFunction.isInstanceOf[MergeableAggregationFunction])
+
+  override def createResults(state: QueryState): Iterator[ExecutionContext] = source match {
+    case ParallelAggregation(leaf, pipeline) if mergeable && ParallelAggregation.canRunIn(state) =>
+      val groups = new ParallelAggregation(leaf, pipeline, aggregate).run(state)
+      val result = MutableMap[Equals, Seq[AggregationFunction]]()
+      val memory = new BufferMemory(state)
+      groups.foreach(merge(_, result, memory, state))
+      createGroupResults(result, memory, state)
+
+    case _ =>
+      super.createResults(state)
+  }
+
   protected def internalCreateResults(input: Iterator[ExecutionContext], state: QueryState) = {
+    // Without grouping keys there is at most one group, which is never worth moving to disk
+    if (state.spillSpace.isEnabled && keyNamesSize > 0)
+      aggregateInPartitions(input, state, level = 0)
+    else {
+      val result = MutableMap[Equals, Seq[AggregationFunction]]()
+      val memory = new BufferMemory(state)
+      aggregate(input, result, memory, state)
+      createGroupResults(result, memory, state)
+    }
+  }
 
-    implicit val s = state
+  // This code is not pretty. It's full of asInstanceOf calls and other things that might irk you.
+  // You'll just have to trust that the original authors spent time profiling and making sure that this
+  // code runs really fast.
+  // If you feel like cleaning it up - please make sure to not regress in performance. This is a hot spot.
+  private def createGroupResults(result: MutableMap[Equals, Seq[AggregationFunction]], memory: BufferMemory,
+                                 state: QueryState): Iterator[ExecutionContext] = {
 
-    val result = MutableMap[Equals, Seq[AggregationFunction]]()
-    val keyNames = keyExpressions.toList
-    val aggregationNames: Seq[String] = aggregations.keys.toIndexedSeq
-    val keyNamesSize = keyNames.size
-    val mapSize = keyNamesSize + aggregationNames.size
+    implicit val s = state
 
     def createEmptyResult(params: Map[String, Any]): Iterator[ExecutionContext] = {
       val newMap = MutableMaps.empty
@@ -55,10 +93,6 @@ case class EagerAggregationPipe(source: Pipe, keyExpressions: Set[String], aggre
       Iterator.single(ExecutionContext(newMap))
     }
 
-    // This code is not pretty. It's full of asInstanceOf calls and other things that might irk you.
-    // You'll just have to trust that the original authors spent time profiling and making sure that this
-    // code runs really fast.
-    // If you feel like cleaning it up - please make sure to not regress in performance. This is a hot spot.
     def createResults(key: Any, aggregator: scala.Seq[AggregationFunction]): ExecutionContext = {
       val newMap = MutableMaps.create(mapSize)
 
@@ -86,26 +120,102 @@ case class EagerAggregationPipe(source: Pipe, keyExpressions: Set[String], aggre
       ExecutionContext(newMap)
     }
 
-    input.foreach(ctx => {
-      val groupValues: Equals = keyNamesSize match {
-        case 1 => Equivalent(ctx(keyNames.head))
-        case 2 => (Equivalent(ctx(keyNames.head)),Equivalent(ctx(keyNames.last)))
-        case 3 => (Equivalent(ctx(keyNames.head)),Equivalent(ctx(keyNames.tail.head)),Equivalent(ctx(keyNames.last)))
-        case _ => keyNames.map( k => Equivalent(ctx(k)))
-      }
-      val functions = result.getOrElseUpdate(groupValues, {
-        val aggregateFunctions: Seq[AggregationFunction] = aggregations.map(_._2.createAggregationFunction).toIndexedSeq
-        aggregateFunctions
-      })
-      functions.foreach(func => func(ctx)(state))
-    })
-
     if (result.isEmpty && keyNames.isEmpty) {
       createEmptyResult(state.params)
     } else {
-      result.map {
+      val results = result.map {
         case (key, aggregator) => createResults(key, aggregator)
       }.toIterator
+      memory.releasingWhenExhausted(results)
     }
   }
+
+  private def aggregate(input: Iterator[ExecutionContext], result: MutableMap[Equals, Seq[AggregationFunction]],
+                        memory: BufferMemory, state: QueryState) {
+    input.foreach(ctx => {
+      val functions = result.getOrElseUpdate(groupKey(ctx), createGroup(memory))
+      functions.foreach(func => func(ctx)(state))
+    })
+  }
+
+  /*
+  Aggregates the groups that fit the memory budget, and sends the rows of any other group to a partition on disk.
+  Every group thereby ends up either in memory or in a single partition, and the partitions are aggregated the same way
+  after the groups in memory, each splitting on other bits of the hash of the groups. A partition with a single group
+  cannot be split, so partitions are aggregated in memory at the last level.
+   */
+  private def aggregateInPartitions(input: Iterator[ExecutionContext], state: QueryState, level: Int): Iterator[ExecutionContext] = {
+    val result = MutableMap[Equals, Seq[AggregationFunction]]()
+    val memory = new BufferMemory(state)
+    val canPartition = level < MAX_LEVELS
+    var partitions: Array[SpillFile] = null
+    input.foreach(ctx => {
+      val key = groupKey(ctx)
+      var functions = result.getOrElse(key, null)
+      if (functions == null) {
+        if (partitions == null && canPartition && state.spillSpace.exceeds(memory.size))
+          partitions = Array.fill(PARTITIONS)(state.spillSpace.createFile())
+        if (partitions != null)
+          partitions(partitionOf(key, level)).write(ctx)
+        else {
+          functions = createGroup(memory)
+          result.put(key, functions)
+        }
+      }
+      if (functions != null)
+        functions.foreach(func => func(ctx)(state))
+    })
+
+    val groups = createGroupResults(result, memory, state)
+    if (partitions == null) groups
+    else groups ++ partitions.iterator.flatMap { partition =>
+      if (partition.rowCount == 0) {
+        partition.delete()
+        Iterator.empty
+      } else {
+        aggregateInPartitions(partition.read(state), state, level + 1)
+      }
+    }
+  }
+
+  private def partitionOf(key: Equals, level: Int): Int = {
+    val hash = MurmurHash3.finalizeHash(MurmurHash3.mix(level, key.hashCode()), 1)
+    (hash & Int.MaxValue) % PARTITIONS
+  }
+
+  private def groupKey(ctx: ExecutionContext): Equals = keyNamesSize match {
+    case 1 => Equivalent(ctx(keyNames.head))
+    case 2 => (Equivalent(ctx(keyNames.head)),Equivalent(ctx(keyNames.last)))
+    case 3 => (Equivalent(ctx(keyNames.head)),Equivalent(ctx(keyNames.tail.head)),Equivalent(ctx(keyNames.last)))
+    case _ => keyNames.map( k => Equivalent(ctx(k)))
+  }
+
+  private def createGroup(memory: BufferMemory): Seq[AggregationFunction] = {
+    memory.allocated(sizeOfGroup)
+    aggregations.map(_._2.createAggregationFunction).toIndexedSeq
+  }
+
+  // Adds the groups that a parallel worker aggregated to the groups of the query
+  private def merge(partial: MutableMap[Equals, Seq[AggregationFunction]], result: MutableMap[Equals, Seq[AggregationFunction]],
+                    memory: BufferMemory, state: QueryState) {
+    partial.foreach {
+      case (key, functions) =>
+        result.get(key) match {
+          case Some(merged) =>
+            var i = 0
+            while (i < merged.size) {
+              merged(i).asInstanceOf[MergeableAggregationFunction].merge(functions(i))(state)
+              i += 1
+            }
+          case None =>
+            memory.allocated(sizeOfGroup)
+            result.put(key, functions)
+        }
+    }
+  }
+}
+
+object EagerAggregationPipe {
+  private val PARTITIONS = 16
+  private val MAX_LEVELS = 3
 }
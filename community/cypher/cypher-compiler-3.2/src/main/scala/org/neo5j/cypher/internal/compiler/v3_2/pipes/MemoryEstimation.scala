@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.cypher.internal.compiler.v3_2.pipes
+
+import org.neo5j.cypher.internal.compiler.v3_2.ExecutionContext
+
+/**
+ * Estimates of the memory held by pipes that buffer rows or groups before producing any, which is reported to the
+ * memory tracker of the transaction through the query state. Values are not counted, since they are most often
+ * entities or small values that are shared with other rows.
+ */
+object MemoryEstimation {
+  // A row is an open hash map of at least 16 slots, with an entry object per column
+  private val ROW_SIZE = 144L
+  private val COLUMN_SIZE = 40L
+
+  // A group is a key of equivalence wrappers in the map of groups, and an aggregation function per aggregation
+  private val GROUP_SIZE = 96L
+  private val GROUP_KEY_SIZE = 32L
+  private val AGGREGATION_SIZE = 48L
+
+  // A group of a join table is an entry in a primitive map, and a buffer of the rows with its ids of join nodes
+  private val JOIN_GROUP_SIZE = 64L
+
+  def rowSize(row: ExecutionContext): Long = ROW_SIZE + COLUMN_SIZE * row.size
+
+  def groupSize(keys: Int, aggregations: Int): Long =
+    GROUP_SIZE + GROUP_KEY_SIZE * keys + AGGREGATION_SIZE * aggregations
+
+  def joinGroupSize(nodes: Int): Long = JOIN_GROUP_SIZE + 8L * nodes
+}
+
+/**
+ * The estimated memory of the buffer of a pipe, which is reported as deallocated exactly once: when the rows read from
+ * the buffer are exhausted, or at the latest when the query is closed, so that a query that fails or is closed before
+ * all of its rows have been read does not leave the memory counted against its transaction.
+ */
+class BufferMemory(state: QueryState) {
+  private var bytes = 0L
+
+  state.closer.addTask(_ => release())
+
+  def allocated(size: Long): Unit = {
+    state.memoryTracker.allocated(size)
+    bytes += size
+  }
+
+  def size: Long = bytes
+
+  def release(): Unit =
+    if (bytes != 0) {
+      state.memoryTracker.deallocated(bytes)
+      bytes = 0
+    }
+
+  def releasingWhenExhausted[T](inner: Iterator[T]): Iterator[T] = new Iterator[T] {
+    override def hasNext: Boolean = {
+      val hasNext = inner.hasNext
+      if (!hasNext) release()
+      hasNext
+    }
+
+    override def next(): T = inner.next()
+  }
+}
@@ -21,10 +21,9 @@ package org.neo5j.cypher.internal.compiler.v3_2.pipes
 
 object MutableMaps {
 
-  def create(size: Int) : collection.mutable.Map[String, Any] =
-    new collection.mutable.OpenHashMap[String, Any](if (size < 16) 16 else size)
+  def create(size: Int) : collection.mutable.Map[String, Any] = new SlottedMap(size)
 
-  def empty: collection.mutable.Map[String, Any] = create(16)
+  def empty: collection.mutable.Map[String, Any] = new SlottedMap()
 
   def create(input: scala.collection.Map[String, Any]) : collection.mutable.Map[String, Any] =
     create(input.size) ++= input
@@ -20,17 +20,30 @@
 package org.neo5j.cypher.internal.compiler.v3_2.pipes
 
 import org.neo5j.cypher.internal.compiler.v3_2.ExecutionContext
+import org.neo5j.cypher.internal.compiler.v3_2.pipes.MemoryEstimation.{joinGroupSize, rowSize}
 import org.neo5j.cypher.internal.compiler.v3_2.planDescription.Id
 import org.neo5j.cypher.internal.frontend.v3_2.CypherTypeException
 import org.neo5j.graphdb.Node
 
-import scala.collection.mutable
+import scala.collection.mutable.ArrayBuffer
 
+/**
+  * Joins the rows of the left side and the right side that have the same nodes, by building a table of the rows of
+  * the left side and probing it with the rows of the right side.
+  *
+  * When the rows of the left side take more memory than the budget of an operator, both sides are split by the ids of
+  * their join nodes into partitions on disk, which are then joined one at a time. Joined rows then come out grouped by
+  * partition, instead of in the order of the right side.
+  */
 case class NodeHashJoinPipe(nodeVariables: Set[String], left: Pipe, right: Pipe)
                            (val id: Id = new Id)
                            (implicit pipeMonitor: PipeMonitor)
   extends PipeWithSource(left, pipeMonitor) {
 
+  import NodeHashJoinPipe._
+
+  private val cachedVariables = nodeVariables.toArray
+
   protected def internalCreateResults(input: Iterator[ExecutionContext], state: QueryState): Iterator[ExecutionContext] = {
     if (input.isEmpty)
       return Iterator.empty
@@ -40,45 +53,109 @@ case class NodeHashJoinPipe(nodeVariables: Set[String], left: Pipe, right: Pipe)
     if (rhsIterator.isEmpty)
       return Iterator.empty
 
-    val table = buildProbeTable(input)
-
-    if (table.isEmpty)
-      return Iterator.empty
+    join(input, rhsIterator, state, level = 0)
+  }
 
-    val result = for {context: ExecutionContext <- rhsIterator
-                      joinKey <- computeKey(context)}
-    yield {
-      val seq = table.getOrElse(joinKey, mutable.MutableList.empty)
-      seq.map(context ++ _)
+  private def join(buildSide: Iterator[ExecutionContext], probeSide: Iterator[ExecutionContext], state: QueryState,
+                   level: Int): Iterator[ExecutionContext] = {
+    // A partition with rows of a single key cannot be split any further, so it is joined in memory at the last level
+    val canPartition = level < MAX_LEVELS
+    val key = new Array[Long](cachedVariables.length)
+    val table = NodeHashJoinTable(cachedVariables.length)
+    val memory = new BufferMemory(state)
+
+    while (buildSide.hasNext && !(canPartition && state.spillSpace.exceeds(memory.size))) {
+      val context = buildSide.next()
+      if (computeKey(context, key)) {
+        val isNewGroup = table.add(key, context)
+        memory.allocated(rowSize(context) + (if (isNewGroup) joinGroupSize(key.length) else 0L))
+      }
     }
 
-    result.flatten
+    if (!buildSide.hasNext) {
+      if (table.isEmpty) Iterator.empty
+      else memory.releasingWhenExhausted(probe(table, probeSide))
+    } else {
+      val buildPartitions = createPartitions(state)
+      table.foreachRow(context => writeToPartition(context, buildPartitions, key, level))
+      memory.release()
+      buildSide.foreach(context => writeToPartition(context, buildPartitions, key, level))
+
+      val probePartitions = createPartitions(state)
+      probeSide.foreach(context => writeToPartition(context, probePartitions, key, level))
+
+      (0 until PARTITIONS).iterator.flatMap { partition =>
+        val buildPartition = buildPartitions(partition)
+        val probePartition = probePartitions(partition)
+        if (buildPartition.rowCount == 0 || probePartition.rowCount == 0) {
+          buildPartition.delete()
+          probePartition.delete()
+          Iterator.empty
+        } else {
+          join(buildPartition.read(state), probePartition.read(state), state, level + 1)
+        }
+      }
+    }
   }
 
-  private def buildProbeTable(input: Iterator[ExecutionContext]): mutable.HashMap[IndexedSeq[Long], mutable.MutableList[ExecutionContext]] = {
-    val table = new mutable.HashMap[IndexedSeq[Long], mutable.MutableList[ExecutionContext]]
+  private def probe(table: NodeHashJoinTable, probeSide: Iterator[ExecutionContext]): Iterator[ExecutionContext] =
+    new Iterator[ExecutionContext] {
+      private val key = new Array[Long](cachedVariables.length)
+      private var context: ExecutionContext = _
+      private var matches: ArrayBuffer[ExecutionContext] = _
+      private var index = 0
+
+      override def hasNext: Boolean = {
+        while ((matches == null || index == matches.size) && probeSide.hasNext) {
+          context = probeSide.next()
+          matches = if (computeKey(context, key)) table.get(key) else null
+          index = 0
+        }
+        matches != null && index < matches.size
+      }
 
-    for {context <- input
-         joinKey <- computeKey(context)} {
-      val seq = table.getOrElseUpdate(joinKey, mutable.MutableList.empty)
-      seq += context
+      override def next(): ExecutionContext = {
+        if (!hasNext) Iterator.empty.next()
+        val joined = context ++ matches(index)
+        index += 1
+        joined
+      }
     }
 
-    table
+  private def createPartitions(state: QueryState): Array[SpillFile] = {
+    val partitions = new Array[SpillFile](PARTITIONS)
+    for (partition <- partitions.indices)
+      partitions(partition) = state.spillSpace.createFile()
+    partitions
   }
 
-  private val cachedVariables = nodeVariables.toIndexedSeq
-
-  private def computeKey(context: ExecutionContext): Option[IndexedSeq[Long]] = {
-    val key = new Array[Long](cachedVariables.length)
+  private def writeToPartition(context: ExecutionContext, partitions: Array[SpillFile], key: Array[Long], level: Int): Unit =
+    if (computeKey(context, key)) {
+      // Every level splits on other bits of the hash, so that rows of one partition end up in different ones below it
+      val partition = (NodeHashJoinTable.hash(key, level) >>> 1) % PARTITIONS
+      partitions(partition.toInt).write(context)
+    }
 
-    for (idx <- cachedVariables.indices) {
-      key(idx) = context(cachedVariables(idx)) match {
-        case n: Node => n.getId
-        case null => return None
+  /**
+    * Fills in the ids of the join nodes of the row.
+    *
+    * @return false if one of the join nodes is null, in which case the row does not join with anything.
+    */
+  private def computeKey(context: ExecutionContext, key: Array[Long]): Boolean = {
+    var idx = 0
+    while (idx < cachedVariables.length) {
+      context(cachedVariables(idx)) match {
+        case n: Node => key(idx) = n.getId
+        case null => return false
         case _ => throw new CypherTypeException("Created a plan that uses non-nodes when expecting a node")
       }
+      idx += 1
     }
-    Some(key.toIndexedSeq)
+    true
   }
 }
+
+object NodeHashJoinPipe {
+  private val PARTITIONS = 16
+  private val MAX_LEVELS = 3
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.cypher.internal.compiler.v3_2.pipes
+
+import java.util
+
+import org.neo5j.collection.primitive.{Primitive, PrimitiveLongObjectVisitor}
+import org.neo5j.cypher.internal.compiler.v3_2.ExecutionContext
+
+import scala.collection.mutable.ArrayBuffer
+
+/**
+  * The rows of the build side of a node hash join, grouped by the ids of their join nodes. The groups are kept in
+  * primitive maps keyed on the node ids, so neither adding nor looking up rows needs a key object of its own.
+  */
+sealed trait NodeHashJoinTable {
+
+  /**
+    * @param key the ids of the join nodes of the row, which the table copies if it needs to keep them.
+    * @return true if this is the first row with these ids.
+    */
+  def add(key: Array[Long], row: ExecutionContext): Boolean
+
+  /**
+    * @return the rows with the given ids of join nodes, or null if there are none.
+    */
+  def get(key: Array[Long]): ArrayBuffer[ExecutionContext]
+
+  def foreachRow(f: ExecutionContext => Unit): Unit
+
+  def isEmpty: Boolean
+}
+
+object NodeHashJoinTable {
+
+  def apply(width: Int): NodeHashJoinTable =
+    if (width == 1) new SingleNodeTable else new MultiNodeTable
+
+  /**
+    * Hash of the ids of join nodes, with all bits depending on all ids. Different seeds give unrelated hashes.
+    */
+  def hash(key: Array[Long], seed: Long): Long = {
+    var hash = mix(seed)
+    var i = 0
+    while (i < key.length) {
+      hash = mix(hash ^ key(i))
+      i += 1
+    }
+    hash
+  }
+
+  // The finalizer of MurmurHash3
+  private def mix(value: Long): Long = {
+    var h = value
+    h ^= h >>> 33
+    h *= 0xff51afd7ed558ccdL
+    h ^= h >>> 33
+    h *= 0xc4ceb9fe1a85ec53L
+    h ^= h >>> 33
+    h
+  }
+}
+
+private class SingleNodeTable extends NodeHashJoinTable {
+  private val rowsByNode = Primitive.longObjectMap[ArrayBuffer[ExecutionContext]]()
+
+  override def add(key: Array[Long], row: ExecutionContext): Boolean = {
+    val rows = rowsByNode.get(key(0))
+    if (rows == null) {
+      rowsByNode.put(key(0), new ArrayBuffer[ExecutionContext](1) += row)
+      true
+    } else {
+      rows += row
+      false
+    }
+  }
+
+  override def get(key: Array[Long]): ArrayBuffer[ExecutionContext] = rowsByNode.get(key(0))
+
+  override def foreachRow(f: ExecutionContext => Unit): Unit =
+    rowsByNode.visitEntries(new PrimitiveLongObjectVisitor[ArrayBuffer[ExecutionContext], RuntimeException] {
+      override def visited(node: Long, rows: ArrayBuffer[ExecutionContext]): Boolean = {
+        rows.foreach(f)
+        false
+      }
+    })
+
+  override def isEmpty: Boolean = rowsByNode.isEmpty
+}
+
+/*
+The ids of several nodes are hashed into a single long to key the map on, and the rare keys with the same hash are
+chained in the same entry, told apart by their ids.
+ */
+private class MultiNodeTable extends NodeHashJoinTable {
+  private val groupsByHash = Primitive.longObjectMap[JoinGroup]()
+
+  override def add(key: Array[Long], row: ExecutionContext): Boolean = {
+    val hash = hashOf(key)
+    val first = groupsByHash.get(hash)
+    val group = find(first, key)
+    if (group == null) {
+      val created = new JoinGroup(key.clone(), first)
+      created.rows += row
+      groupsByHash.put(hash, created)
+      true
+    } else {
+      group.rows += row
+      false
+    }
+  }
+
+  override def get(key: Array[Long]): ArrayBuffer[ExecutionContext] = {
+    val group = find(groupsByHash.get(hashOf(key)), key)
+    if (group == null) null else group.rows
+  }
+
+  override def foreachRow(f: ExecutionContext => Unit): Unit =
+    groupsByHash.visitEntries(new PrimitiveLongObjectVisitor[JoinGroup, RuntimeException] {
+      override def visited(hash: Long, first: JoinGroup): Boolean = {
+        var group = first
+        while (group != null) {
+          group.rows.foreach(f)
+          group = group.next
+        }
+        false
+      }
+    })
+
+  override def isEmpty: Boolean = groupsByHash.isEmpty
+
+  // The primitive maps take -1 to mean no key, so keep hashes positive
+  private def hashOf(key: Array[Long]): Long = NodeHashJoinTable.hash(key, 0) >>> 1
+
+  private def find(first: JoinGroup, key: Array[Long]): JoinGroup = {
+    var group = first
+    while (group != null && !util.Arrays.equals(group.key, key))
+      group = group.next
+    group
+  }
+}
+
+private class JoinGroup(val key: Array[Long], val next: JoinGroup) {
+  val rows = new ArrayBuffer[ExecutionContext](1)
+}
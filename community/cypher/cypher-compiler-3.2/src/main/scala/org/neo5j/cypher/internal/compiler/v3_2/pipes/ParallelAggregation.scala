@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.cypher.internal.compiler.v3_2.pipes
+
+import java.util.concurrent._
+import java.util.concurrent.atomic.AtomicBoolean
+
+import org.neo5j.cypher.internal.compiler.v3_2.ExecutionContext
+import org.neo5j.cypher.internal.compiler.v3_2.pipes.aggregation.AggregationFunction
+
+import scala.collection.mutable.{ArrayBuffer, Map => MutableMap}
+
+/*
+Aggregates the rows of a node scan on parallel workers. The scan runs on the query thread and hands batches of rows to
+the workers, which run the filters, projections and expands between the scan and the aggregation, and aggregate the
+rows they produce into groups of their own. The aggregation merges the groups of all workers once the scan is done.
+
+Each worker reads in a transaction of its own, which sees what has been committed but not the changes of the
+transaction that runs the query, so this is only done when that transaction has no changes. The workers count their
+memory against the transaction of the query, and check it for termination and timeout, so that a query that is killed
+or runs out of time or memory stops on all threads. When any thread fails the others stop at their next row, and the
+query thread waits for the workers to be done before it fails.
+ */
+class ParallelAggregation(leaf: Pipe, pipeline: Seq[PipeWithSource],
+                          aggregate: (Iterator[ExecutionContext], MutableMap[Equals, Seq[AggregationFunction]], BufferMemory,
+                            QueryState) => Unit) {
+
+  import ParallelAggregation._
+
+  def run(state: QueryState): Seq[MutableMap[Equals, Seq[AggregationFunction]]] = {
+    val batches = new ArrayBlockingQueue[Array[ExecutionContext]](state.parallelism * 2)
+    val stopped = new AtomicBoolean
+    val workers = new ArrayBuffer[FutureTask[MutableMap[Equals, Seq[AggregationFunction]]]](state.parallelism)
+
+    try {
+      val executor = state.query.transactionalContext.workerExecutor
+      (1 to state.parallelism).foreach { _ =>
+        val worker = new FutureTask(new Worker(batches, stopped, state))
+        executor.execute(worker)
+        workers += worker
+      }
+
+      val rows = leaf.createResults(state)
+      while (rows.hasNext) {
+        state.query.transactionalContext.check()
+        val batch = new Array[ExecutionContext](batchSize)
+        var size = 0
+        while (size < batchSize && rows.hasNext) {
+          batch(size) = rows.next()
+          size += 1
+        }
+        hand(if (size == batchSize) batch else batch.take(size), batches, workers, state)
+      }
+      workers.foreach(_ => hand(endOfInput, batches, workers, state))
+      awaitAll(workers, state)
+    } catch {
+      case t: Throwable =>
+        // The workers drop the batches they have not taken yet, and stop
+        stopped.set(true)
+        batches.clear()
+        workers.foreach(_ => batches.offer(endOfInput))
+        workers.foreach { worker =>
+          try {
+            worker.get()
+          } catch {
+            case e: ExecutionException if e.getCause ne t => t.addSuppressed(e.getCause)
+            case _: ExecutionException =>
+          }
+        }
+        throw t
+    }
+  }
+
+  private class Worker(batches: BlockingQueue[Array[ExecutionContext]], stopped: AtomicBoolean, state: QueryState)
+    extends Callable[MutableMap[Equals, Seq[AggregationFunction]]] {
+
+    override def call(): MutableMap[Equals, Seq[AggregationFunction]] = {
+      val query = state.query.beginInNewThread()
+      val workerState = state.forWorker(query)
+      var success = false
+      try {
+        val groups = MutableMap[Equals, Seq[AggregationFunction]]()
+        val memory = new BufferMemory(workerState)
+        var batch = batches.take()
+        while ((batch ne endOfInput) && !stopped.get) {
+          state.query.transactionalContext.check()
+          val rows = pipeline.foldLeft[Iterator[ExecutionContext]](batch.iterator.takeWhile(_ => !stopped.get)) {
+            (input, pipe) => pipe.applyTo(input, workerState)
+          }
+          aggregate(rows, groups, memory, workerState)
+          batch = batches.take()
+        }
+        success = true
+        groups
+      } catch {
+        case t: Throwable =>
+          stopped.set(true)
+          throw t
+      } finally {
+        try {
+          workerState.closer.close(success)
+        } finally {
+          query.transactionalContext.close(success)
+        }
+      }
+    }
+  }
+}
+
+object ParallelAggregation {
+  private val batchSize = 1024
+  private val endOfInput = new Array[ExecutionContext](0)
+
+  /*
+  Splits the source of an aggregation into the node scan at the bottom, and the pipes above it, if those only filter,
+  project or expand the rows they get one row at a time.
+   */
+  def unapply(source: Pipe): Option[(Pipe, List[PipeWithSource])] = split(source, Nil)
+
+  def canRunIn(state: QueryState): Boolean =
+    state.parallelism > 1 &&
+      state.decorator == NullPipeDecorator &&
+      state.initialContext.isEmpty &&
+      !state.query.transactionalContext.hasChanges
+
+  private def split(pipe: Pipe, above: List[PipeWithSource]): Option[(Pipe, List[PipeWithSource])] = pipe match {
+    case _: AllNodesScanPipe | _: NodeByLabelScanPipe => Some((pipe, above))
+    case p@FilterPipe(inner, _) => split(inner, p :: above)
+    case p@ProjectionPipe(inner, _) => split(inner, p :: above)
+    case p@ExpandAllPipe(inner, _, _, _, _, _) => split(inner, p :: above)
+    case _ => None
+  }
+
+  /*
+  Waits for room for the batch. Meanwhile the query thread checks its transaction, and fails as soon as a worker has
+  failed, since the workers may not take any more batches then.
+   */
+  private def hand[T](batch: Array[ExecutionContext], batches: BlockingQueue[Array[ExecutionContext]],
+                      workers: Seq[Future[T]], state: QueryState) {
+    while (!batches.offer(batch, 10, TimeUnit.MILLISECONDS)) {
+      workers.foreach(worker => if (worker.isDone) result(worker))
+      state.query.transactionalContext.check()
+    }
+  }
+
+  private def awaitAll[T](workers: Seq[Future[T]], state: QueryState): Seq[T] = {
+    while (!workers.forall(_.isDone)) {
+      workers.foreach(worker => if (worker.isDone) result(worker))
+      state.query.transactionalContext.check()
+      try {
+        workers.find(!_.isDone).foreach(_.get(10, TimeUnit.MILLISECONDS))
+      } catch {
+        case _: TimeoutException | _: ExecutionException =>
+      }
+    }
+    workers.map(result)
+  }
+
+  private def result[T](worker: Future[T]): T =
+    try {
+      worker.get()
+    } catch {
+      case e: ExecutionException => throw e.getCause
+    }
+}
@@ -83,6 +83,10 @@ abstract class PipeWithSource(source: Pipe, val monitor: PipeMonitor) extends Pi
     state.decorator.decorate(this, result)
   }
 
+  // Runs this pipe over rows that do not come from its source, such as the batches of a parallel worker
+  private[pipes] def applyTo(input: Iterator[ExecutionContext], state: QueryState): Iterator[ExecutionContext] =
+    internalCreateResults(input, state)
+
   protected def internalCreateResults(state: QueryState): Iterator[ExecutionContext] =
     throw new UnsupportedOperationException("This method should never be called on PipeWithSource")
 
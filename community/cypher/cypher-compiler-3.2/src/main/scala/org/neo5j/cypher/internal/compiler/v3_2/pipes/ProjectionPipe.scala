@@ -33,13 +33,16 @@ case class ProjectionPipe(source: Pipe, expressions: Map[String, Expression])
 
   expressions.values.foreach(_.registerOwningPipe(this))
 
+  private val names: Array[String] = expressions.keys.toArray
+  private val projections: Array[Expression] = names.map(expressions)
+
   protected def internalCreateResults(input: Iterator[ExecutionContext], state: QueryState) = {
     input.map {
       ctx =>
-        expressions.foreach {
-          case (name, expression) =>
-            val result = expression(ctx)(state)
-            ctx.put(name, result)
+        var i = 0
+        while (i < names.length) {
+          ctx.update(names(i), projections(i)(ctx)(state))
+          i += 1
         }
 
         ctx
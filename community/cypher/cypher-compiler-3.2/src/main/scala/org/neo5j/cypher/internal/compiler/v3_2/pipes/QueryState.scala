@@ -28,6 +28,7 @@ import org.neo5j.cypher.internal.compiler.v3_2.commands.predicates.{InCheckConta
 import org.neo5j.cypher.internal.compiler.v3_2.helpers.{IdentityTypeConverter, RuntimeTypeConverter}
 import org.neo5j.cypher.internal.compiler.v3_2.spi.QueryContext
 import org.neo5j.cypher.internal.frontend.v3_2.ParameterNotFoundException
+import org.neo5j.kernel.api.memory.MemoryTracker
 
 import scala.collection.mutable
 
@@ -42,7 +43,11 @@ class QueryState(val query: QueryContext,
                  val repeatableReads: mutable.Map[Pipe, Seq[ExecutionContext]] = mutable.Map.empty,
                  val typeConverter: RuntimeTypeConverter = IdentityTypeConverter,
                  val cachedIn: SingleThreadedLRUCache[Any, InCheckContainer] =
-                   new SingleThreadedLRUCache(maxSize = 16)) {
+                   new SingleThreadedLRUCache(maxSize = 16),
+                 val memoryTracker: MemoryTracker = MemoryTracker.NONE,
+                 val parallelism: Int = 1,
+                 val spillSpace: SpillSpace = SpillSpace.NONE,
+                 val closer: TaskCloser = new TaskCloser) {
   private var _pathValueBuilder: PathValueBuilder = _
 
   def createOrGetInitialContext(): ExecutionContext = initialContext.getOrElse(ExecutionContext.empty)
@@ -62,13 +67,22 @@ class QueryState(val query: QueryContext,
   def getStatistics: InternalQueryStatistics = query.getOptStatistics.getOrElse(QueryState.defaultStatistics)
 
   def withDecorator(decorator: PipeDecorator) =
-    new QueryState(query, resources, params, decorator, timeReader, initialContext, queryId, triadicState, repeatableReads, typeConverter, cachedIn)
+    new QueryState(query, resources, params, decorator, timeReader, initialContext, queryId, triadicState, repeatableReads, typeConverter, cachedIn, memoryTracker, parallelism, spillSpace, closer)
 
   def withInitialContext(initialContext: ExecutionContext) =
-    new QueryState(query, resources, params, decorator, timeReader, Some(initialContext), queryId, triadicState, repeatableReads, typeConverter, cachedIn)
+    new QueryState(query, resources, params, decorator, timeReader, Some(initialContext), queryId, triadicState, repeatableReads, typeConverter, cachedIn, memoryTracker, parallelism, spillSpace, closer)
 
   def withQueryContext(query: QueryContext) =
-    new QueryState(query, resources, params, decorator, timeReader, initialContext, queryId, triadicState, repeatableReads, typeConverter, cachedIn)
+    new QueryState(query, resources, params, decorator, timeReader, initialContext, queryId, triadicState, repeatableReads, typeConverter, cachedIn, memoryTracker, parallelism, spillSpace, closer)
+
+  /*
+  The state of a worker that runs a part of this query in parallel, reading through a query context of its own. Caches
+  and other mutable state are not shared with the query thread, and the worker closes its own tasks when it is done.
+  The memory of the worker is counted against the transaction of the query, so that all workers share its limit.
+   */
+  def forWorker(query: QueryContext) =
+    new QueryState(query, resources, params, decorator, timeReader, initialContext, queryId, mutable.Map.empty, mutable.Map.empty, typeConverter,
+                   new SingleThreadedLRUCache(maxSize = 16), memoryTracker, closer = new TaskCloser)
 }
 
 object QueryState {
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.cypher.internal.compiler.v3_2.pipes
+
+import java.util
+
+import scala.collection.mutable
+
+/**
+  * The variables of rows, in the order of the slots that hold their values.
+  *
+  * Layouts are extended one variable at a time, and each layout remembers its last extension. Rows that are cloned
+  * from each other share their layout, so when a pipe adds the same variables to every row that it produces, all of
+  * those rows end up with the same layout, and every variable is found at the same slot in all of them.
+  */
+final class SlotLayout private(private val keys: Array[String]) {
+
+  @volatile private var lastExtension: SlotLayout = null
+
+  // Rows rarely have more than a handful of variables, for which a scan is cheaper than hashing
+  private val slotsByKey: util.HashMap[String, Integer] =
+    if (keys.length <= SlotLayout.MAX_SCANNED_SIZE) null
+    else {
+      val slots = new util.HashMap[String, Integer](keys.length * 2)
+      var slot = 0
+      while (slot < keys.length) {
+        slots.put(keys(slot), slot)
+        slot += 1
+      }
+      slots
+    }
+
+  def size: Int = keys.length
+
+  def keyAt(slot: Int): String = keys(slot)
+
+  /**
+    * @return the slot of the given variable, or -1 if this layout does not have it.
+    */
+  def slotOf(key: String): Int = {
+    if (slotsByKey != null) {
+      val slot = slotsByKey.get(key)
+      if (slot == null) -1 else slot.intValue()
+    } else {
+      // Variable names mostly come from the same plan, so try the cheap identity comparison first
+      var slot = 0
+      while (slot < keys.length) {
+        if (keys(slot) eq key) return slot
+        slot += 1
+      }
+      slot = 0
+      while (slot < keys.length) {
+        if (keys(slot) == key) return slot
+        slot += 1
+      }
+      -1
+    }
+  }
+
+  /**
+    * @return a layout with the variables of this one, followed by the given variable.
+    */
+  def withKey(key: String): SlotLayout = {
+    val cached = lastExtension
+    if (cached != null && cached.keys(keys.length) == key) cached
+    else {
+      val extendedKeys = util.Arrays.copyOf(keys, keys.length + 1)
+      extendedKeys(keys.length) = key
+      val extended = new SlotLayout(extendedKeys)
+      lastExtension = extended
+      extended
+    }
+  }
+}
+
+object SlotLayout {
+  val empty = new SlotLayout(Array.empty[String])
+
+  private val MAX_SCANNED_SIZE = 8
+}
+
+/**
+  * Map of the variables of a row, which keeps the values in an array of slots, as laid out by a [[SlotLayout]].
+  * Cloning a row copies the array and shares the layout, instead of hashing every variable into a new table.
+  */
+final class SlottedMap private(private var layout: SlotLayout,
+                               private var values: Array[AnyRef],
+                               private var count: Int) extends mutable.Map[String, Any] {
+
+  import SlottedMap.ABSENT
+
+  def this(initialCapacity: Int) = this(SlotLayout.empty, new Array[AnyRef](initialCapacity), 0)
+
+  def this() = this(SlottedMap.DEFAULT_CAPACITY)
+
+  override def get(key: String): Option[Any] = {
+    val slot = layout.slotOf(key)
+    if (slot < 0) None
+    else {
+      val value = values(slot)
+      if (value eq ABSENT) None else Some(value)
+    }
+  }
+
+  override def contains(key: String): Boolean = {
+    val slot = layout.slotOf(key)
+    slot >= 0 && (values(slot) ne ABSENT)
+  }
+
+  override def apply(key: String): Any = {
+    val slot = layout.slotOf(key)
+    if (slot < 0 || (values(slot) eq ABSENT)) default(key) else values(slot)
+  }
+
+  override def getOrElse[V1 >: Any](key: String, default: => V1): V1 = {
+    val slot = layout.slotOf(key)
+    if (slot < 0 || (values(slot) eq ABSENT)) default else values(slot)
+  }
+
+  override def +=(kv: (String, Any)): this.type = {
+    set(kv._1, kv._2)
+    this
+  }
+
+  override def update(key: String, value: Any): Unit = set(key, value)
+
+  override def put(key: String, value: Any): Option[Any] = {
+    val previous = get(key)
+    set(key, value)
+    previous
+  }
+
+  override def -=(key: String): this.type = {
+    val slot = layout.slotOf(key)
+    if (slot >= 0 && (values(slot) ne ABSENT)) {
+      // The slot stays in the layout, so that the rows made from this one keep sharing it
+      values(slot) = ABSENT
+      count -= 1
+    }
+    this
+  }
+
+  override def size: Int = count
+
+  override def iterator: Iterator[(String, Any)] = new Iterator[(String, Any)] {
+    private val iteratedLayout = layout
+    private val iteratedValues = values
+    private var slot = nextSlot(0)
+
+    private def nextSlot(from: Int): Int = {
+      var next = from
+      while (next < iteratedLayout.size && (iteratedValues(next) eq ABSENT)) next += 1
+      next
+    }
+
+    override def hasNext: Boolean = slot < iteratedLayout.size
+
+    override def next(): (String, Any) = {
+      if (!hasNext) throw new NoSuchElementException
+      val entry = (iteratedLayout.keyAt(slot), iteratedValues(slot))
+      slot = nextSlot(slot + 1)
+      entry
+    }
+  }
+
+  override def foreach[U](f: ((String, Any)) => U): Unit = {
+    var slot = 0
+    while (slot < layout.size) {
+      val value = values(slot)
+      if (value ne ABSENT) f((layout.keyAt(slot), value))
+      slot += 1
+    }
+  }
+
+  override def empty: SlottedMap = new SlottedMap()
+
+  override def clone(): SlottedMap =
+    new SlottedMap(layout, util.Arrays.copyOf(values, math.max(values.length, layout.size + SlottedMap.GROWTH)), count)
+
+  override def clear(): Unit = {
+    layout = SlotLayout.empty
+    values = new Array[AnyRef](values.length)
+    count = 0
+  }
+
+  private def set(key: String, value: Any): Unit = {
+    val slot = layout.slotOf(key)
+    if (slot >= 0) {
+      if (values(slot) eq ABSENT) count += 1
+      values(slot) = value.asInstanceOf[AnyRef]
+    } else {
+      layout = layout.withKey(key)
+      val newSlot = layout.size - 1
+      if (newSlot >= values.length) values = util.Arrays.copyOf(values, newSlot + SlottedMap.GROWTH)
+      values(newSlot) = value.asInstanceOf[AnyRef]
+      count += 1
+    }
+  }
+}
+
+object SlottedMap {
+  private val ABSENT = new AnyRef
+
+  private val DEFAULT_CAPACITY = 8
+
+  // Most rows are cloned before a variable or two is added to them, so leave room for that in the clones
+  private val GROWTH = 2
+}
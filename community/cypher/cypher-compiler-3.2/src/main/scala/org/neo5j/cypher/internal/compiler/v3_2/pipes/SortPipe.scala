@@ -19,18 +19,104 @@
  */
 package org.neo5j.cypher.internal.compiler.v3_2.pipes
 
+import org.neo5j.cypher.internal.compiler.v3_2.pipes.MemoryEstimation.rowSize
 import org.neo5j.cypher.internal.compiler.v3_2.planDescription.Id
 import org.neo5j.cypher.internal.compiler.v3_2.{Comparer, ExecutionContext}
 
+import scala.collection.mutable.ArrayBuffer
+
+/**
+  * Sorts all rows in memory, unless they take more memory than the budget of an operator. Rows are then sorted in runs
+  * that fit the budget, which are written to disk and merged back when all rows have been read.
+  */
 case class SortPipe(source: Pipe, orderBy: Seq[SortDescription])
                    (val id: Id = new Id)
                    (implicit monitor: PipeMonitor)
   extends PipeWithSource(source, monitor) {
+
+  import SortPipe._
+
   protected def internalCreateResults(input: Iterator[ExecutionContext], state: QueryState): Iterator[ExecutionContext] = {
-    val array = input.toArray
-    java.util.Arrays.sort(array, new InnerOrdering(orderBy)(state))
-    array.toIterator
+    val ordering = new InnerOrdering(orderBy)(state)
+    val buffer = new ArrayBuffer[ExecutionContext]
+    val memory = new BufferMemory(state)
+    val runs = new ArrayBuffer[SpillFile]
+    input.foreach { row =>
+      memory.allocated(rowSize(row))
+      buffer += row
+      if (state.spillSpace.exceeds(memory.size)) {
+        val run = state.spillSpace.createFile()
+        sort(buffer, ordering).foreach(run.write)
+        runs += run
+        buffer.clear()
+        memory.release()
+      }
+    }
+    val sorted = memory.releasingWhenExhausted(sort(buffer, ordering).toIterator)
+    if (runs.isEmpty) sorted
+    else merge(runs, sorted, ordering, state)
+  }
+
+  private def sort(buffer: ArrayBuffer[ExecutionContext], ordering: InnerOrdering): Array[ExecutionContext] = {
+    val array = buffer.toArray
+    java.util.Arrays.sort(array, ordering)
+    array
+  }
+
+  private def merge(runs: ArrayBuffer[SpillFile], last: Iterator[ExecutionContext], ordering: InnerOrdering,
+                    state: QueryState): Iterator[ExecutionContext] = {
+    // Each pass merges consecutive groups of runs, and the merged run takes the place of its group, so that rows that
+    // sort equal keep the order they came in. Every pass writes each row once, and cuts the number of runs by the
+    // size of a group.
+    var remaining = runs.toIndexedSeq
+    while (remaining.size >= MAX_MERGED_RUNS) {
+      remaining = remaining.grouped(MAX_MERGED_RUNS).map { group =>
+        if (group.size == 1) group.head
+        else {
+          val run = state.spillSpace.createFile()
+          new MergingIterator(group.map(_.read(state)), ordering).foreach(run.write)
+          run
+        }
+      }.toIndexedSeq
+    }
+    new MergingIterator(remaining.map(_.read(state)) :+ last, ordering)
+  }
+}
+
+object SortPipe {
+  // Every run that is merged holds a buffer for reading it, so runs are merged at most this many at a time
+  private val MAX_MERGED_RUNS = 64
+}
+
+/*
+Merges sorted iterators into one, taking rows that sort equal from the earlier iterators first.
+ */
+private class MergingIterator(sources: IndexedSeq[Iterator[ExecutionContext]], ordering: InnerOrdering)
+  extends Iterator[ExecutionContext] {
+
+  private class Head(val row: ExecutionContext, val source: Int)
+
+  private val heads = new java.util.PriorityQueue[Head](math.max(sources.size, 1), new java.util.Comparator[Head] {
+    override def compare(a: Head, b: Head): Int = {
+      val cmp = ordering.compare(a.row, b.row)
+      if (cmp != 0) cmp else Integer.compare(a.source, b.source)
+    }
+  })
+
+  for (source <- sources.indices)
+    advance(source)
+
+  override def hasNext: Boolean = !heads.isEmpty
+
+  override def next(): ExecutionContext = {
+    if (!hasNext) Iterator.empty.next()
+    val head = heads.poll()
+    advance(head.source)
+    head.row
   }
+
+  private def advance(source: Int): Unit =
+    if (sources(source).hasNext) heads.add(new Head(sources(source).next(), source))
 }
 
 private class InnerOrdering(order: Seq[SortDescription])(implicit qtx: QueryState) extends scala.Ordering[ExecutionContext] {
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.cypher.internal.compiler.v3_2.pipes
+
+import java.io._
+import java.nio.charset.StandardCharsets
+import java.nio.file.{Files, Path}
+import java.util
+
+import org.neo5j.cypher.internal.compiler.v3_2.commands.expressions.PathImpl
+import org.neo5j.cypher.internal.compiler.v3_2.{ExecutionContext, TaskCloser}
+import org.neo5j.cypher.internal.frontend.v3_2.CypherExecutionException
+import org.neo5j.graphdb.{Node, PropertyContainer, Relationship}
+
+import scala.collection.mutable.ArrayBuffer
+
+/**
+  * Temporary files for the pipes that hold more rows than the memory budget of an operator allows, such that they can
+  * move rows out of memory and read them back later. Files are created in the given directory, which is created when
+  * the first file is. They are deleted once they have been read back, and at the latest when the query is closed.
+  */
+class SpillSpace(val operatorMemoryBudget: Long, directory: File, closer: TaskCloser) {
+
+  def isEnabled: Boolean = operatorMemoryBudget > 0
+
+  /**
+    * @return true if an operator that holds the given number of bytes of rows should move them to disk.
+    */
+  def exceeds(bytes: Long): Boolean = isEnabled && bytes > operatorMemoryBudget
+
+  def createFile(): SpillFile = {
+    try {
+      Files.createDirectories(directory.toPath)
+      val file = new SpillFile(Files.createTempFile(directory.toPath, "neo5j-cypher-", ".rows"))
+      closer.addTask(_ => file.delete())
+      file
+    } catch {
+      case e: IOException => throw new CypherExecutionException("Could not create a temporary file for query rows", e)
+    }
+  }
+}
+
+object SpillSpace {
+  val NONE = new SpillSpace(0, null, null)
+}
+
+/**
+  * Rows written to a temporary file, to be read back once, in the order they were written.
+  *
+  * Nodes and relationships are written as their ids, and looked up again when read. Values that do not have a compact
+  * form on disk, such as arrays of property values, are kept in memory, and only a reference to them is written.
+  */
+class SpillFile(path: Path) {
+
+  import SpillFile._
+
+  private var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE))
+  private var in: DataInputStream = _
+  private val keyIds = new util.HashMap[String, Integer]()
+  private val retainedValues = new ArrayBuffer[Any]
+  private var rows = 0L
+
+  def rowCount: Long = rows
+
+  def write(row: ExecutionContext): Unit = try {
+    out.writeInt(row.size)
+    row.foreach { case (key, value) =>
+      writeKey(key)
+      writeValue(value)
+    }
+    rows += 1
+  } catch {
+    case e: IOException => throw new CypherExecutionException("Could not write query rows to a temporary file", e)
+  }
+
+  /**
+    * Finishes writing this file. The returned iterator deletes the file once all rows have been read from it.
+    */
+  def read(state: QueryState): Iterator[ExecutionContext] = {
+    try {
+      out.close()
+      out = null
+      in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE))
+    } catch {
+      case e: IOException => throw new CypherExecutionException("Could not read query rows from a temporary file", e)
+    }
+    new RowReader(state)
+  }
+
+  def delete(): Unit = try {
+    try {
+      if (out != null) out.close()
+      if (in != null) in.close()
+    } finally {
+      out = null
+      in = null
+      retainedValues.clear()
+      Files.deleteIfExists(path)
+    }
+  } catch {
+    case e: IOException => throw new CypherExecutionException("Could not delete a temporary file of query rows", e)
+  }
+
+  private def writeKey(key: String): Unit = {
+    val id = keyIds.get(key)
+    if (id == null) {
+      // Rows of a pipe have the same few variables, so each name is only written the first time it is seen
+      out.writeInt(NEW_KEY)
+      out.writeUTF(key)
+      keyIds.put(key, keyIds.size)
+    } else {
+      out.writeInt(id)
+    }
+  }
+
+  private def writeValue(value: Any): Unit = value match {
+    case null => out.writeByte(NULL)
+    case b: Boolean => out.writeByte(if (b) TRUE else FALSE)
+    case l: Long => out.writeByte(LONG); out.writeLong(l)
+    case i: Int => out.writeByte(INT); out.writeInt(i)
+    case s: Short => out.writeByte(SHORT); out.writeShort(s)
+    case b: Byte => out.writeByte(BYTE); out.writeByte(b)
+    case d: Double => out.writeByte(DOUBLE); out.writeDouble(d)
+    case f: Float => out.writeByte(FLOAT); out.writeFloat(f)
+    case c: Char => out.writeByte(CHAR); out.writeChar(c)
+    case s: String =>
+      val bytes = s.getBytes(StandardCharsets.UTF_8)
+      out.writeByte(STRING)
+      out.writeInt(bytes.length)
+      out.write(bytes)
+    case n: Node => out.writeByte(NODE); out.writeLong(n.getId)
+    case r: Relationship => out.writeByte(RELATIONSHIP); out.writeLong(r.getId)
+    case p: PathImpl =>
+      out.writeByte(PATH)
+      out.writeInt(p.pathEntities.size)
+      p.pathEntities.foreach(writeValue)
+    case seq: Seq[_] =>
+      out.writeByte(LIST)
+      out.writeInt(seq.size)
+      seq.foreach(writeValue)
+    case map: scala.collection.Map[_, _] if map.keys.forall(_.isInstanceOf[String]) =>
+      out.writeByte(MAP)
+      out.writeInt(map.size)
+      map.foreach { case (key, v) =>
+        out.writeUTF(key.asInstanceOf[String])
+        writeValue(v)
+      }
+    case other =>
+      out.writeByte(RETAINED)
+      out.writeInt(retainedValues.size)
+      retainedValues += other
+  }
+
+  private class RowReader(state: QueryState) extends Iterator[ExecutionContext] {
+    private val keys = new ArrayBuffer[String]
+    private var remaining = rows
+
+    override def hasNext: Boolean = {
+      if (remaining == 0 && in != null) delete()
+      remaining > 0
+    }
+
+    override def next(): ExecutionContext = {
+      if (!hasNext) Iterator.empty.next()
+      try {
+        val size = in.readInt()
+        val row = ExecutionContext(MutableMaps.create(size))
+        var i = 0
+        while (i < size) {
+          row.update(readKey(), readValue())
+          i += 1
+        }
+        remaining -= 1
+        row
+      } catch {
+        case e: IOException => throw new CypherExecutionException("Could not read query rows from a temporary file", e)
+      }
+    }
+
+    private def readKey(): String = {
+      val id = in.readInt()
+      if (id == NEW_KEY) {
+        val key = in.readUTF()
+        keys += key
+        key
+      } else {
+        keys(id)
+      }
+    }
+
+    private def readValue(): Any = in.readByte() match {
+      case NULL => null
+      case FALSE => false
+      case TRUE => true
+      case LONG => in.readLong()
+      case INT => in.readInt()
+      case SHORT => in.readShort()
+      case BYTE => in.readByte()
+      case DOUBLE => in.readDouble()
+      case FLOAT => in.readFloat()
+      case CHAR => in.readChar()
+      case STRING =>
+        val bytes = new Array[Byte](in.readInt())
+        in.readFully(bytes)
+        new String(bytes, StandardCharsets.UTF_8)
+      case NODE => state.query.nodeOps.getById(in.readLong())
+      case RELATIONSHIP => state.query.relationshipOps.getById(in.readLong())
+      case PATH =>
+        val entities = new Array[PropertyContainer](in.readInt())
+        var i = 0
+        while (i < entities.length) {
+          entities(i) = readValue().asInstanceOf[PropertyContainer]
+          i += 1
+        }
+        PathImpl(entities: _*)
+      case LIST =>
+        val size = in.readInt()
+        val builder = Vector.newBuilder[Any]
+        var i = 0
+        while (i < size) {
+          builder += readValue()
+          i += 1
+        }
+        builder.result()
+      case MAP =>
+        val size = in.readInt()
+        val builder = Map.newBuilder[String, Any]
+        var i = 0
+        while (i < size) {
+          builder += in.readUTF() -> readValue()
+          i += 1
+        }
+        builder.result()
+      case RETAINED => retainedValues(in.readInt())
+    }
+  }
+}
+
+object SpillFile {
+  private val BUFFER_SIZE = 64 * 1024
+
+  private val NEW_KEY = -1
+
+  private final val NULL: Byte = 0
+  private final val FALSE: Byte = 1
+  private final val TRUE: Byte = 2
+  private final val LONG: Byte = 3
+  private final val INT: Byte = 4
+  private final val SHORT: Byte = 5
+  private final val BYTE: Byte = 6
+  private final val DOUBLE: Byte = 7
+  private final val FLOAT: Byte = 8
+  private final val CHAR: Byte = 9
+  private final val STRING: Byte = 10
+  private final val NODE: Byte = 11
+  private final val RELATIONSHIP: Byte = 12
+  private final val PATH: Byte = 13
+  private final val LIST: Byte = 14
+  private final val MAP: Byte = 15
+  private final val RETAINED: Byte = 16
+}
@@ -23,7 +23,7 @@ import org.neo5j.cypher.internal.compiler.v3_2._
 import org.neo5j.cypher.internal.compiler.v3_2.commands.expressions.Expression
 import org.neo5j.cypher.internal.compiler.v3_2.pipes.QueryState
 
-class CountFunction(value: Expression) extends AggregationFunction {
+class CountFunction(value: Expression) extends AggregationFunction with MergeableAggregationFunction {
   var count: Long = 0
 
   def apply(data: ExecutionContext)(implicit state: QueryState) {
@@ -34,4 +34,8 @@ class CountFunction(value: Expression) extends AggregationFunction {
   }
 
   def result(implicit state: QueryState): Long = count
+
+  def merge(other: AggregationFunction)(implicit state: QueryState) {
+    count += other.result.asInstanceOf[Long]
+  }
 }
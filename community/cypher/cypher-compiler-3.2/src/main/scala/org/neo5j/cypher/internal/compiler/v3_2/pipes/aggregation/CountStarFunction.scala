@@ -22,7 +22,7 @@ package org.neo5j.cypher.internal.compiler.v3_2.pipes.aggregation
 import org.neo5j.cypher.internal.compiler.v3_2._
 import org.neo5j.cypher.internal.compiler.v3_2.pipes.QueryState
 
-class CountStarFunction extends AggregationFunction {
+class CountStarFunction extends AggregationFunction with MergeableAggregationFunction {
   var count:Long = 0
 
   def apply(data: ExecutionContext)(implicit state: QueryState) {
@@ -30,5 +30,9 @@ class CountStarFunction extends AggregationFunction {
   }
 
   def result(implicit state: QueryState): Long = count
+
+  def merge(other: AggregationFunction)(implicit state: QueryState) {
+    count += other.result.asInstanceOf[Long]
+  }
 }
 
@@ -24,7 +24,7 @@ import org.neo5j.cypher.internal.compiler.v3_2.commands.expressions.Expression
 import org.neo5j.cypher.internal.compiler.v3_2.pipes.QueryState
 import org.neo5j.cypher.internal.frontend.v3_2.SyntaxException
 
-trait MinMax extends AggregationFunction with Comparer {
+trait MinMax extends AggregationFunction with MergeableAggregationFunction with Comparer {
   def value: Expression
   def keep(comparisonResult: Int): Boolean
   def name: String
@@ -41,6 +41,13 @@ trait MinMax extends AggregationFunction with Comparer {
     }
   }
 
+  def merge(other: AggregationFunction)(implicit state: QueryState) {
+    other.result match {
+      case null =>
+      case x => checkIfLargest(x)
+    }
+  }
+
   private def checkIfLargest(value: Any)(implicit qtx: QueryState) {
     if (biggestSeen == null) {
       biggestSeen = value
@@ -27,7 +27,8 @@ import org.neo5j.cypher.internal.compiler.v3_2.pipes.QueryState
 class SumFunction(val value: Expression)
   extends AggregationFunction
   with TypeSafeMathSupport
-  with NumericExpressionOnly {
+  with NumericExpressionOnly
+  with MergeableAggregationFunction {
 
   def name = "SUM"
 
@@ -39,4 +40,10 @@ class SumFunction(val value: Expression)
       sum = sum.add(number)
     })
   }
+
+  def merge(other: AggregationFunction)(implicit state: QueryState) {
+    actOnNumber(other.result, (number) => {
+      sum = sum.add(number)
+    })
+  }
 }
@@ -20,12 +20,14 @@
 package org.neo5j.cypher.internal.compiler.v3_2.spi
 
 import java.net.URL
+import java.util.concurrent.Executor
 
 import org.neo5j.cypher.internal.compiler.v3_2.IndexDescriptor
 import org.neo5j.cypher.internal.compiler.v3_2.commands.expressions.{Expander, KernelPredicate, UserDefinedAggregator}
 import org.neo5j.cypher.internal.compiler.v3_2.pipes.matching.PatternNode
 import org.neo5j.cypher.internal.frontend.v3_2.SemanticDirection
 import org.neo5j.graphdb.{Node, Path, PropertyContainer, Relationship}
+import org.neo5j.kernel.api.memory.MemoryTracker
 
 import scala.collection.Iterator
 
@@ -137,6 +139,8 @@ class DelegatingQueryContext(val inner: QueryContext) extends QueryContext {
 
   override def withAnyOpenQueryContext[T](work: (QueryContext) => T): T = inner.withAnyOpenQueryContext(work)
 
+  override def beginInNewThread(): QueryContext = inner.beginInNewThread()
+
   override def lockingUniqueIndexSeek(index: IndexDescriptor, value: Any): Option[Node] =
     singleDbHit(inner.lockingUniqueIndexSeek(index, value))
 
@@ -264,5 +268,13 @@ class DelegatingQueryTransactionalContext(val inner: QueryTransactionalContext)
 
   override def isTopLevelTx: Boolean = inner.isTopLevelTx
 
+  override def memoryTracker: MemoryTracker = inner.memoryTracker
+
+  override def hasChanges: Boolean = inner.hasChanges
+
+  override def check(): Unit = inner.check()
+
+  override def workerExecutor: Executor = inner.workerExecutor
+
   override def close(success: Boolean) { inner.close(success) }
 }
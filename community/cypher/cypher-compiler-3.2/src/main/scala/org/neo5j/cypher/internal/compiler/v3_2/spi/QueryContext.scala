@@ -20,12 +20,14 @@
 package org.neo5j.cypher.internal.compiler.v3_2.spi
 
 import java.net.URL
+import java.util.concurrent.Executor
 
 import org.neo5j.cypher.internal.compiler.v3_2.commands.expressions.{Expander, KernelPredicate, UserDefinedAggregator}
 import org.neo5j.cypher.internal.compiler.v3_2.pipes.matching.PatternNode
 import org.neo5j.cypher.internal.compiler.v3_2.{IndexDescriptor, InternalQueryStatistics}
 import org.neo5j.cypher.internal.frontend.v3_2.SemanticDirection
 import org.neo5j.graphdb.{Node, Path, PropertyContainer, Relationship}
+import org.neo5j.kernel.api.memory.MemoryTracker
 
 import scala.collection.Iterator
 
@@ -130,6 +132,13 @@ trait QueryContext extends TokenContext {
    */
   def withAnyOpenQueryContext[T](work: (QueryContext) => T): T
 
+  /**
+   * Begins a context in a transaction of its own, bound to the calling thread, for a worker that runs a part of a
+   * read-only query in parallel. The worker does not see the changes of this transaction, and must close the returned
+   * context from the same thread.
+   */
+  def beginInNewThread(): QueryContext
+
   def relationshipStartNode(rel: Relationship): Node
 
   def relationshipEndNode(rel: Relationship): Node
@@ -224,6 +233,20 @@ trait QueryTransactionalContext {
 
   def isTopLevelTx: Boolean
 
+  def memoryTracker: MemoryTracker
+
+  def hasChanges: Boolean
+
+  /**
+    * Fails if the transaction has been terminated or has run past its timeout.
+    */
+  def check(): Unit
+
+  /**
+    * Runs the workers of queries that are executed in parallel.
+    */
+  def workerExecutor: Executor
+
   def close(success: Boolean)
 
   def commitAndRestartTx()
@@ -19,13 +19,16 @@
  */
 package org.neo5j.cypher.internal.compiler.v3_2.pipes
 
+import org.neo5j.cypher.internal.compiler.v3_2.TaskCloser
 import org.neo5j.cypher.internal.compiler.v3_2.commands.expressions._
 import org.neo5j.cypher.internal.compiler.v3_2.commands.predicates.Equivalent
 import org.neo5j.cypher.internal.compiler.v3_2.commands.values.TokenType.PropertyKey
+import org.neo5j.cypher.internal.compiler.v3_2.test_helpers.CreateTempFileTestSupport
 import org.neo5j.cypher.internal.frontend.v3_2.symbols._
 import org.neo5j.cypher.internal.frontend.v3_2.test_helpers.CypherFunSuite
+import org.neo5j.kernel.impl.api.memory.TransactionMemoryPool
 
-class EagerAggregationPipeTest extends CypherFunSuite {
+class EagerAggregationPipeTest extends CypherFunSuite with CreateTempFileTestSupport {
 
   private implicit val monitor = mock[PipeMonitor]
 
@@ -143,6 +146,45 @@ class EagerAggregationPipeTest extends CypherFunSuite {
     getResults(aggregationPipe) should equal(List(Map("count(name)" -> 3)))
   }
 
+  test("should aggregate the groups that were moved to disk when the groups exceed the memory budget") {
+    val source = new FakePipe((0 until 100).map(i => Map[String, Any]("name" -> s"name ${i % 10}", "age" -> i)),
+      createSymbolTableFor("name"))
+
+    val returnItems = createReturnItemsFor("name")
+    val grouping = Map("count(*)" -> CountStar(), "sum(age)" -> Sum(Variable("age")))
+    val aggregationPipe = EagerAggregationPipe(source, returnItems, grouping)()
+    val closer = new TaskCloser
+    val state = QueryStateHelper.emptyWith(spillSpace = new SpillSpace(1, createTempDirectory("spill").toFile, closer))
+
+    val results = aggregationPipe.createResults(state).map(_.m.toMap).toList
+    closer.close(success = true)
+
+    results should have size 10
+    results should contain allOf(
+      Map[String, Any]("name" -> "name 0", "count(*)" -> 10, "sum(age)" -> 450),
+      Map[String, Any]("name" -> "name 3", "count(*)" -> 10, "sum(age)" -> 480),
+      Map[String, Any]("name" -> "name 9", "count(*)" -> 10, "sum(age)" -> 540)
+    )
+  }
+
+  test("should release the memory of the groups when the query is closed after its source failed") {
+    val rows = (0 until 10).iterator.map { i =>
+      if (i == 5) throw new IllegalStateException("failed source")
+      Map[String, Any]("name" -> s"name $i")
+    }
+    val source = new FakePipe(rows, createSymbolTableFor("name"))
+    val aggregationPipe = EagerAggregationPipe(source, createReturnItemsFor("name"), Map("count(*)" -> CountStar()))()
+    val tracker = new TransactionMemoryPool(0, 0).newTracker()
+    val closer = new TaskCloser
+    val state = QueryStateHelper.emptyWith(memoryTracker = tracker, closer = closer)
+
+    an[IllegalStateException] should be thrownBy aggregationPipe.createResults(state)
+    tracker.usedMemory should be > 0L
+
+    closer.close(success = false)
+    tracker.usedMemory should equal(0L)
+  }
+
   private def createSymbolTableFor(name: String): (String, CypherType) = name -> CTNode
 
   private def getResults(p: Pipe) = p.createResults(QueryStateHelper.empty).map(_.m.toMap).toList
@@ -20,14 +20,15 @@
 package org.neo5j.cypher.internal.compiler.v3_2.pipes
 
 import org.mockito.Matchers._
-import org.neo5j.cypher.internal.compiler.v3_2.ExecutionContext
+import org.neo5j.cypher.internal.compiler.v3_2.spi.{Operations, QueryContext}
+import org.neo5j.cypher.internal.compiler.v3_2.{ExecutionContext, TaskCloser}
 import org.neo5j.cypher.internal.compiler.v3_2.symbols.SymbolTable
-import org.neo5j.cypher.internal.compiler.v3_2.test_helpers.TestableIterator
+import org.neo5j.cypher.internal.compiler.v3_2.test_helpers.{CreateTempFileTestSupport, TestableIterator}
 import org.neo5j.cypher.internal.frontend.v3_2.symbols._
 import org.neo5j.cypher.internal.frontend.v3_2.test_helpers.CypherFunSuite
 import org.neo5j.graphdb.Node
 
-class NodeHashJoinPipeTest extends CypherFunSuite {
+class NodeHashJoinPipeTest extends CypherFunSuite with CreateTempFileTestSupport {
 
   implicit val monitor = mock[PipeMonitor]
   import org.mockito.Mockito._
@@ -209,6 +210,64 @@ class NodeHashJoinPipeTest extends CypherFunSuite {
     lhsIterator.fetched should equal(0)
   }
 
+  test("should join rows that were moved to disk when the left side exceeds the memory budget") {
+    // given
+    val nodes = (0 until 10).map(newMockedNode)
+    val nodeOps = mock[Operations[Node]]
+    nodes.indices.foreach(id => when(nodeOps.getById(id.toLong)).thenReturn(nodes(id)))
+    val query = mock[QueryContext]
+    when(query.nodeOps).thenReturn(nodeOps)
+    val closer = new TaskCloser
+    val queryState = QueryStateHelper.emptyWith(query = query, spillSpace = new SpillSpace(1, createTempDirectory("spill").toFile, closer))
+
+    val left = newMockedPipe(SymbolTable(Map("b" -> CTNode)))
+    when(left.createResults(queryState)).thenReturn(nodes.indices.iterator.map(id => row("b" -> nodes(id), "a" -> id)))
+
+    val right = newMockedPipe(SymbolTable(Map("b" -> CTNode)))
+    when(right.createResults(queryState)).thenReturn(
+      Iterator(row("b" -> nodes(2), "c" -> "x"), row("b" -> null, "c" -> "y"), row("b" -> nodes(7), "c" -> "z")))
+
+    // when
+    val result = NodeHashJoinPipe(Set("b"), left, right)().createResults(queryState).toList
+    closer.close(success = true)
+
+    // then
+    result.toSet should equal(Set(
+      Map("a" -> 2, "b" -> nodes(2), "c" -> "x"),
+      Map("a" -> 7, "b" -> nodes(7), "c" -> "z")
+    ))
+  }
+
+  test("should join on several nodes with rows that were moved to disk") {
+    // given
+    val nodes = (0 until 4).map(newMockedNode)
+    val nodeOps = mock[Operations[Node]]
+    nodes.indices.foreach(id => when(nodeOps.getById(id.toLong)).thenReturn(nodes(id)))
+    val query = mock[QueryContext]
+    when(query.nodeOps).thenReturn(nodeOps)
+    val closer = new TaskCloser
+    val queryState = QueryStateHelper.emptyWith(query = query, spillSpace = new SpillSpace(1, createTempDirectory("spill").toFile, closer))
+
+    val left = newMockedPipe(SymbolTable(Map("a" -> CTNode, "b" -> CTNode)))
+    val leftRows = for (a <- nodes; b <- nodes) yield row("a" -> a, "b" -> b, "c" -> List(a, b))
+    when(left.createResults(queryState)).thenReturn(leftRows.iterator)
+
+    val right = newMockedPipe(SymbolTable(Map("a" -> CTNode, "b" -> CTNode)))
+    when(right.createResults(queryState)).thenReturn(
+      Iterator(row("a" -> nodes(1), "b" -> nodes(3)), row("a" -> nodes(3), "b" -> nodes(1)), row("a" -> nodes(2), "b" -> nodes(2))))
+
+    // when
+    val result = NodeHashJoinPipe(Set("a", "b"), left, right)().createResults(queryState).toList
+    closer.close(success = true)
+
+    // then
+    result.toSet should equal(Set(
+      Map("a" -> nodes(1), "b" -> nodes(3), "c" -> List(nodes(1), nodes(3))),
+      Map("a" -> nodes(3), "b" -> nodes(1), "c" -> List(nodes(3), nodes(1))),
+      Map("a" -> nodes(2), "b" -> nodes(2), "c" -> List(nodes(2), nodes(2)))
+    ))
+  }
+
   private def row(values: (String, Any)*) = ExecutionContext.from(values: _*)
 
   private def newMockedNode(id: Int) = {
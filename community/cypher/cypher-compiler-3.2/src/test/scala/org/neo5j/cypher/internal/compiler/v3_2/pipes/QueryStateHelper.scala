@@ -19,8 +19,9 @@
  */
 package org.neo5j.cypher.internal.compiler.v3_2.pipes
 
-import org.neo5j.cypher.internal.compiler.v3_2.ExecutionContext
 import org.neo5j.cypher.internal.compiler.v3_2.spi.QueryContext
+import org.neo5j.cypher.internal.compiler.v3_2.{ExecutionContext, TaskCloser}
+import org.neo5j.kernel.api.memory.MemoryTracker
 
 import scala.collection.mutable
 
@@ -29,7 +30,9 @@ object QueryStateHelper {
 
   def emptyWith(query: QueryContext = null, resources: ExternalCSVResource = null,
                 params: Map[String, Any] = Map.empty, decorator: PipeDecorator = NullPipeDecorator,
-                initialContext: Option[ExecutionContext] = None) =
+                initialContext: Option[ExecutionContext] = None, spillSpace: SpillSpace = SpillSpace.NONE,
+                memoryTracker: MemoryTracker = MemoryTracker.NONE, closer: TaskCloser = new TaskCloser) =
     new QueryState(query = query, resources = resources, params = params, decorator = decorator,
-      initialContext = initialContext, triadicState = mutable.Map.empty, repeatableReads = mutable.Map.empty)
+      initialContext = initialContext, triadicState = mutable.Map.empty, repeatableReads = mutable.Map.empty,
+      memoryTracker = memoryTracker, spillSpace = spillSpace, closer = closer)
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.cypher.internal.compiler.v3_2.pipes
+
+import org.neo5j.cypher.internal.compiler.v3_2.ExecutionContext
+import org.neo5j.cypher.internal.frontend.v3_2.test_helpers.CypherFunSuite
+
+class SlottedMapTest extends CypherFunSuite {
+
+  test("should store, overwrite and remove values") {
+    val map = new SlottedMap()
+    map.put("a", 1)
+    map("b") = null
+    map += "a" -> 2
+
+    map.get("a") should equal(Some(2))
+    map.get("b") should equal(Some(null))
+    map.get("c") should equal(None)
+    map.size should equal(2)
+
+    map -= "a"
+
+    map.contains("a") should equal(false)
+    map.size should equal(1)
+    map.toMap should equal(Map("b" -> null))
+  }
+
+  test("should not let clones see each others changes") {
+    val original = new SlottedMap()
+    original.put("a", 1)
+
+    val clone = original.clone()
+    clone.put("a", 2)
+    clone.put("b", 3)
+    original.put("c", 4)
+
+    original.toMap should equal(Map("a" -> 1, "c" -> 4))
+    clone.toMap should equal(Map("a" -> 2, "b" -> 3))
+  }
+
+  test("should find values of clones that added the same variables in a different order") {
+    val first = new SlottedMap()
+    first.put("a", 1)
+    first.put("b", 2)
+    val second = new SlottedMap()
+    second.put("b", 3)
+    second.put("a", 4)
+
+    first.get("b") should equal(Some(2))
+    second.get("b") should equal(Some(3))
+    first ++ second should equal(Map("a" -> 4, "b" -> 3))
+  }
+
+  test("should handle rows with many variables") {
+    val map = new SlottedMap(0)
+    (0 until 100).foreach(i => map.put(s"v$i", i))
+    map -= "v50"
+
+    map.size should equal(99)
+    map.get("v99") should equal(Some(99))
+    map.get("v50") should equal(None)
+    map.clone().toMap should equal((0 until 100).filter(_ != 50).map(i => s"v$i" -> i).toMap)
+  }
+
+  test("should iterate in the order that variables were added") {
+    val map = new SlottedMap()
+    map.put("z", 1)
+    map.put("y", 2)
+    map.put("x", 3)
+    map -= "y"
+
+    map.iterator.toList should equal(List("z" -> 1, "x" -> 3))
+  }
+
+  test("should be equal to other maps with the same entries") {
+    val map = new SlottedMap()
+    map.put("a", 1)
+
+    map should equal(scala.collection.mutable.Map("a" -> 1))
+    ExecutionContext.from("a" -> 1) should equal(ExecutionContext(scala.collection.mutable.Map("a" -> 1)))
+  }
+}
@@ -20,13 +20,16 @@
 package org.neo5j.cypher.internal.compiler.v3_2.pipes
 
 import org.junit.Assert._
+import org.neo5j.cypher.internal.compiler.v3_2.TaskCloser
+import org.neo5j.cypher.internal.compiler.v3_2.test_helpers.CreateTempFileTestSupport
 import org.neo5j.cypher.internal.frontend.v3_2.symbols._
 import org.neo5j.cypher.internal.frontend.v3_2.test_helpers.CypherFunSuite
+import org.neo5j.kernel.impl.api.memory.TransactionMemoryPool
 import org.scalatest.mock.MockitoSugar
 
 import scala.collection.mutable.{Map => MutableMap}
 
-class SortPipeTest extends CypherFunSuite with MockitoSugar {
+class SortPipeTest extends CypherFunSuite with MockitoSugar with CreateTempFileTestSupport {
 
   private implicit val monitor = mock[PipeMonitor]
 
@@ -91,4 +94,57 @@ class SortPipeTest extends CypherFunSuite with MockitoSugar {
       MutableMap("y" -> 2),
       MutableMap("y" -> null)), sortPipe.createResults(QueryStateHelper.empty).toList)
   }
+
+  test("should merge sorted runs when the rows exceed the memory budget") {
+    // Enough runs of a single row each to need more than one round of merging
+    val list: Seq[MutableMap[String, Any]] = (0 until 200).map(i => (i * 37) % 200).map(x => MutableMap[String, Any]("x" -> x, "y" -> s"row $x"))
+    val source = new FakePipe(list, "x" -> CTNumber, "y" -> CTString)
+    val sortPipe = new SortPipe(source, List(Ascending("x")))()
+    val closer = new TaskCloser
+    val state = QueryStateHelper.emptyWith(spillSpace = new SpillSpace(1, createTempDirectory("spill").toFile, closer))
+
+    val result = sortPipe.createResults(state).toList
+    closer.close(success = true)
+
+    assertEquals((0 until 200).map(x => MutableMap[String, Any]("x" -> x, "y" -> s"row $x")).toList, result)
+  }
+
+  test("should keep rows that sort equal in the order they came in when merging runs in several passes") {
+    val list: Seq[MutableMap[String, Any]] = (0 until 300).map(i => MutableMap[String, Any]("x" -> i % 3, "y" -> i))
+    val source = new FakePipe(list, "x" -> CTNumber, "y" -> CTNumber)
+    val sortPipe = new SortPipe(source, List(Ascending("x")))()
+    val closer = new TaskCloser
+    val state = QueryStateHelper.emptyWith(spillSpace = new SpillSpace(1, createTempDirectory("spill").toFile, closer))
+
+    val result = sortPipe.createResults(state).toList
+    closer.close(success = true)
+
+    assertEquals(list.sortBy(_("x").asInstanceOf[Int]).toList, result)
+  }
+
+  test("should release the memory of the sorted rows once they have all been read") {
+    val source = new FakePipe((0 until 10).map(x => MutableMap[String, Any]("x" -> x)), "x" -> CTNumber)
+    val sortPipe = new SortPipe(source, List(Ascending("x")))()
+    val tracker = new TransactionMemoryPool(0, 0).newTracker()
+    val state = QueryStateHelper.emptyWith(memoryTracker = tracker)
+
+    val result = sortPipe.createResults(state)
+    tracker.usedMemory should be > 0L
+
+    result.toList should have size 10
+    tracker.usedMemory should equal(0L)
+  }
+
+  test("should release the memory of the sorted rows when the query is closed before they have all been read") {
+    val source = new FakePipe((0 until 10).map(x => MutableMap[String, Any]("x" -> x)), "x" -> CTNumber)
+    val sortPipe = new SortPipe(source, List(Ascending("x")))()
+    val tracker = new TransactionMemoryPool(0, 0).newTracker()
+    val closer = new TaskCloser
+    val state = QueryStateHelper.emptyWith(memoryTracker = tracker, closer = closer)
+
+    sortPipe.createResults(state).next()
+    closer.close(success = true)
+
+    tracker.usedMemory should equal(0L)
+  }
 }
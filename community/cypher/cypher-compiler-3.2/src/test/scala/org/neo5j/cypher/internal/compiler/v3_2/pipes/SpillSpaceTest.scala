@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.cypher.internal.compiler.v3_2.pipes
+
+import org.neo5j.cypher.internal.compiler.v3_2.test_helpers.CreateTempFileTestSupport
+import org.neo5j.cypher.internal.compiler.v3_2.{ExecutionContext, TaskCloser}
+import org.neo5j.cypher.internal.frontend.v3_2.test_helpers.CypherFunSuite
+
+class SpillSpaceTest extends CypherFunSuite with CreateTempFileTestSupport {
+
+  test("should create files in its directory, and the directory if it does not exist") {
+    val directory = createTempDirectory("spill").resolve("rows").toFile
+    val space = new SpillSpace(1, directory, new TaskCloser)
+
+    space.createFile()
+
+    directory.list() should have size 1
+  }
+
+  test("should delete a file once all of its rows have been read") {
+    val directory = createTempDirectory("spill").toFile
+    val file = new SpillSpace(1, directory, new TaskCloser).createFile()
+    file.write(ExecutionContext.from("x" -> 1))
+    file.write(ExecutionContext.from("x" -> 2))
+
+    val rows = file.read(QueryStateHelper.empty)
+    rows.next() should equal(ExecutionContext.from("x" -> 1))
+    directory.list() should have size 1
+
+    rows.next() should equal(ExecutionContext.from("x" -> 2))
+    rows.hasNext should equal(false)
+    directory.list() shouldBe empty
+  }
+
+  test("should delete the files that have not been read when the query is closed") {
+    val directory = createTempDirectory("spill").toFile
+    val closer = new TaskCloser
+    val space = new SpillSpace(1, directory, closer)
+    space.createFile().write(ExecutionContext.from("x" -> 1))
+    val partlyRead = space.createFile()
+    partlyRead.write(ExecutionContext.from("x" -> 1))
+    partlyRead.write(ExecutionContext.from("x" -> 2))
+    partlyRead.read(QueryStateHelper.empty).next()
+    directory.list() should have size 2
+
+    closer.close(success = false)
+
+    directory.list() shouldBe empty
+  }
+}
@@ -33,4 +33,16 @@ trait AggregateTest {
     values.foreach(value => func(ExecutionContext.from("x" -> value)))
     func.result
   }
+
+  def aggregateInPartsOn(parts: Seq[Any]*): Any = {
+    implicit val state = QueryStateHelper.empty
+
+    val funcs = parts.map { values =>
+      val func: AggregationFunction = createAggregator(Variable("x"))
+      values.foreach(value => func(ExecutionContext.from("x" -> value)))
+      func
+    }
+    funcs.tail.foreach(func => funcs.head.asInstanceOf[MergeableAggregationFunction].merge(func))
+    funcs.head.result
+  }
 }
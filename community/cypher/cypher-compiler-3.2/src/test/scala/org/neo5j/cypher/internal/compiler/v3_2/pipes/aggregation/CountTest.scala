@@ -31,4 +31,11 @@ class CountTest extends CypherFunSuite with AggregateTest {
     result should equal(2L)
     result shouldBe a [java.lang.Long]
   }
+
+  test("mergesCountsOfParts") {
+    val result = aggregateInPartsOn(Seq(1, null), Seq(), Seq("foo", 2))
+
+    result should equal(3L)
+    result shouldBe a [java.lang.Long]
+  }
 }
@@ -71,4 +71,9 @@ class MaxFunctionTest extends CypherFunSuite with AggregateTest {
 
     result should equal("abc1")
   }
+
+  test("merges largest values of parts") {
+    aggregateInPartsOn(Seq(1, 5), Seq(null), Seq(3)) should equal(5)
+    aggregateInPartsOn(Seq(null), Seq()).asInstanceOf[AnyRef] should be(null)
+  }
 }
@@ -86,4 +86,10 @@ class SumFunctionTest extends CypherFunSuite with AggregateTest {
     result should equal(expected)
     result shouldBe a [java.lang.Long]
   }
+
+  test("mergesSumsOfParts") {
+    aggregateInPartsOn(Seq(1, 2), Seq(null), Seq(3)) should equal(6)
+    aggregateInPartsOn(Seq(1), Seq(1.5d)) should equal(2.5)
+    aggregateInPartsOn(Seq(Long.MaxValue), Seq(Long.MaxValue)) should equal(2.0 * Long.MaxValue)
+  }
 }
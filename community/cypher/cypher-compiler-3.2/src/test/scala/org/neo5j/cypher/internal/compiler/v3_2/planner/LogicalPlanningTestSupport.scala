@@ -19,6 +19,8 @@
  */
 package org.neo5j.cypher.internal.compiler.v3_2.planner
 
+import java.io.File
+
 import org.mockito.Matchers._
 import org.mockito.Mockito._
 import org.neo5j.cypher.internal.compiler.v3_2._
@@ -172,7 +174,10 @@ trait LogicalPlanningTestSupport extends CypherTestSupport with AstConstructionT
     errorIfShortestPathFallbackUsedAtRuntime = false,
     errorIfShortestPathHasCommonNodesAtRuntime = true,
     legacyCsvQuoteEscaping = false,
-    nonIndexedLabelWarningThreshold = 10000
+    nonIndexedLabelWarningThreshold = 10000,
+    parallelWorkers = 0,
+    operatorMemoryBudget = 0,
+    spillDirectory = new File("cypher-spill")
   )
 
   def buildPlannerQuery(query: String, lookup: Option[QualifiedName => ProcedureSignature] = None) = {
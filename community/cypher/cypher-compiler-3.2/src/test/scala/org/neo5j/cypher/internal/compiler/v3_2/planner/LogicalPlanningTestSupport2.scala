@@ -19,6 +19,8 @@
  */
 package org.neo5j.cypher.internal.compiler.v3_2.planner
 
+import java.io.File
+
 import org.neo5j.cypher.internal.compiler.v3_2._
 import org.neo5j.cypher.internal.compiler.v3_2.ast.rewriters._
 import org.neo5j.cypher.internal.compiler.v3_2.phases._
@@ -71,7 +73,10 @@ trait LogicalPlanningTestSupport2 extends CypherTestSupport with AstConstruction
     errorIfShortestPathFallbackUsedAtRuntime = false,
     errorIfShortestPathHasCommonNodesAtRuntime = true,
     legacyCsvQuoteEscaping = false,
-    nonIndexedLabelWarningThreshold = 10000
+    nonIndexedLabelWarningThreshold = 10000,
+    parallelWorkers = 0,
+    operatorMemoryBudget = 0,
+    spillDirectory = new File("cypher-spill")
   )
   def solvedWithEstimation(cardinality: Cardinality) = CardinalityEstimation.lift(PlannerQuery.empty, cardinality)
 
@@ -59,6 +59,8 @@ trait QueryContextAdaptation {
     */
   override def withAnyOpenQueryContext[T](work: (QueryContext) => T): T = ???
 
+  override def beginInNewThread(): QueryContext = ???
+
   // Legacy dependency between kernel and compiler
   override def variableLengthPathExpand(node: PatternNode, realNode: Node, minHops: Option[Int], maxHops: Option[Int], direction: SemanticDirection, relTypes: Seq[String]): scala.Iterator[Path] = ???
 
@@ -19,6 +19,7 @@
  */
 package org.neo5j.cypher.internal
 
+import java.io.File
 import java.time.Clock
 
 import org.neo5j.cypher.internal.compatibility.v3_2.exceptionHandler
@@ -33,6 +34,7 @@ import org.neo5j.graphdb.impl.notification.NotificationCode.{CREATE_UNIQUE_UNAVA
 import org.neo5j.kernel.GraphDatabaseQueryService
 import org.neo5j.kernel.api.KernelAPI
 import org.neo5j.kernel.configuration.Config
+import org.neo5j.kernel.impl.factory.GraphDatabaseFacade
 import org.neo5j.kernel.monitoring.{Monitors => KernelMonitors}
 import org.neo5j.logging.{Log, LogProvider}
 
@@ -42,6 +44,9 @@ object CompilerEngineDelegator {
   val CLOCK: Clock = Clock.systemUTC()
   val DEFAULT_STATISTICS_DIVERGENCE_THRESHOLD = 0.5
   val DEFAULT_NON_INDEXED_LABEL_WARNING_THRESHOLD = 10000
+  val DEFAULT_PARALLEL_WORKERS = 0
+  val DEFAULT_OPERATOR_MEMORY_BUDGET = 0L
+  val DEFAULT_SPILL_DIRECTORY = "cypher-spill"
 }
 
 case class PreParsedQuery(statement: String, rawStatement: String, version: CypherVersion,
@@ -100,7 +105,10 @@ class CompilerEngineDelegator(graph: GraphDatabaseQueryService,
     errorIfShortestPathFallbackUsedAtRuntime = errorIfShortestPathFallbackUsedAtRuntime,
     errorIfShortestPathHasCommonNodesAtRuntime = errorIfShortestPathHasCommonNodesAtRuntime,
     legacyCsvQuoteEscaping = legacyCsvQuoteEscaping,
-    nonIndexedLabelWarningThreshold = getNonIndexedLabelWarningThreshold
+    nonIndexedLabelWarningThreshold = getNonIndexedLabelWarningThreshold,
+    parallelWorkers = getParallelWorkers,
+    operatorMemoryBudget = getOperatorMemoryBudget,
+    spillDirectory = getSpillDirectory
   )
 
   private final val ILLEGAL_PLANNER_RUNTIME_COMBINATIONS: Set[(CypherPlanner, CypherRuntime)] = Set((CypherPlanner.rule, CypherRuntime.compiled))
@@ -213,6 +221,22 @@ class CompilerEngineDelegator(graph: GraphDatabaseQueryService,
     getSetting(graph, setting, DEFAULT_NON_INDEXED_LABEL_WARNING_THRESHOLD)
   }
 
+  private def getParallelWorkers: Int = {
+    val setting: (Config) => Int = config => config.get(GraphDatabaseSettings.cypher_parallel_workers).intValue()
+    getSetting(graph, setting, DEFAULT_PARALLEL_WORKERS)
+  }
+
+  private def getOperatorMemoryBudget: Long = {
+    val setting: (Config) => Long = config => config.get(GraphDatabaseSettings.cypher_operator_memory_budget).longValue()
+    getSetting(graph, setting, DEFAULT_OPERATOR_MEMORY_BUDGET)
+  }
+
+  private def getSpillDirectory: File = {
+    val setting: (Config) => File = config => config.get(GraphDatabaseSettings.cypher_spill_directory)
+    Option(getSetting(graph, setting, null)).getOrElse(
+      new File(graph.getDependencyResolver.resolveDependency(classOf[GraphDatabaseFacade]).getStoreDir, DEFAULT_SPILL_DIRECTORY))
+  }
+
   private def getMinimumTimeBeforeReplanning: Long = {
     val setting: (Config) => Long = config => config.get(GraphDatabaseSettings.cypher_min_replan_interval).longValue()
     getSetting(graph, setting, DEFAULT_QUERY_PLAN_TTL)
@@ -164,6 +164,9 @@ class ExceptionTranslatingQueryContext(val inner: QueryContext) extends QueryCon
         work(new ExceptionTranslatingQueryContext(qc))
       ))
 
+  override def beginInNewThread(): QueryContext =
+    new ExceptionTranslatingQueryContext(translateException(inner.beginInNewThread()))
+
   override def isLabelSetOnNode(label: Int, node: Long): Boolean =
     translateException(inner.isLabelSetOnNode(label, node))
 
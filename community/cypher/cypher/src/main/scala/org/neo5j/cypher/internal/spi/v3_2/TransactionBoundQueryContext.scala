@@ -93,6 +93,9 @@ final class TransactionBoundQueryContext(val transactionalContext: Transactional
     }
   }
 
+  override def beginInNewThread(): QueryContext =
+    new TransactionBoundQueryContext(transactionalContext.beginInNewThread())
+
   override def createNode(): Node =
     transactionalContext.graph.createNode()
 
@@ -19,16 +19,20 @@
  */
 package org.neo5j.cypher.internal.spi.v3_2
 
+import java.util.concurrent.Executor
+
 import org.neo5j.cypher.internal.ExecutionPlan
 import org.neo5j.cypher.internal.compiler.v3_2.spi.QueryTransactionalContext
 import org.neo5j.graphdb.{Lock, PropertyContainer}
 import org.neo5j.kernel.GraphDatabaseQueryService
 import org.neo5j.kernel.api.KernelTransaction.Revertable
 import org.neo5j.kernel.api.dbms.DbmsOperations
+import org.neo5j.kernel.api.memory.MemoryTracker
 import org.neo5j.kernel.api.security.SecurityContext
 import org.neo5j.kernel.api.txstate.TxStateHolder
 import org.neo5j.kernel.api.{ReadOperations, Statement}
 import org.neo5j.kernel.impl.query.TransactionalContext
+import org.neo5j.kernel.impl.util.JobScheduler
 
 case class TransactionalContextWrapper(tc: TransactionalContext) extends QueryTransactionalContext {
 
@@ -38,6 +42,8 @@ case class TransactionalContextWrapper(tc: TransactionalContext) extends QueryTr
 
   def getOrBeginNewIfClosed(): TransactionalContextWrapper = TransactionalContextWrapper(tc.getOrBeginNewIfClosed())
 
+  def beginInNewThread(): TransactionalContextWrapper = TransactionalContextWrapper(tc.beginInNewThread())
+
   def isOpen: Boolean = tc.isOpen
 
   def graph: GraphDatabaseQueryService = tc.graph()
@@ -59,6 +65,15 @@ case class TransactionalContextWrapper(tc: TransactionalContext) extends QueryTr
 
   override def isTopLevelTx: Boolean = tc.isTopLevelTx
 
+  override def memoryTracker: MemoryTracker = tc.memoryTracker()
+
+  override def hasChanges: Boolean = tc.stateView().hasTxStateWithChanges
+
+  override def check(): Unit = tc.check()
+
+  override def workerExecutor: Executor =
+    tc.graph().getDependencyResolver.resolveDependency(classOf[JobScheduler]).executor(JobScheduler.Groups.cypherWorker)
+
   override def close(success: Boolean) { tc.close(success) }
 
   def restrictCurrentTransaction(context: SecurityContext): Revertable = tc.restrictCurrentTransaction(context)
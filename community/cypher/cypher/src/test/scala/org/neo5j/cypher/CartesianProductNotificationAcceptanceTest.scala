@@ -19,6 +19,7 @@
  */
 package org.neo5j.cypher
 
+import java.io.File
 import java.time.Clock
 
 import org.mockito.Matchers._
@@ -108,7 +109,10 @@ class CartesianProductNotificationAcceptanceTest extends CypherFunSuite with Gra
         errorIfShortestPathFallbackUsedAtRuntime = false,
         errorIfShortestPathHasCommonNodesAtRuntime = true,
         legacyCsvQuoteEscaping = false,
-        nonIndexedLabelWarningThreshold = 10000L
+        nonIndexedLabelWarningThreshold = 10000L,
+        parallelWorkers = 0,
+        operatorMemoryBudget = 0,
+        spillDirectory = new File("cypher-spill")
       ),
       Clock.systemUTC(),
       WrappedMonitors(kernelMonitors),
@@ -19,6 +19,8 @@
  */
 package org.neo5j.cypher
 
+import java.io.File
+
 import org.mockito.Mockito.when
 import org.neo5j.cypher.internal.compiler.v3_2.planner.logical.idp.DefaultIDPSolverConfig
 import org.neo5j.cypher.internal.compiler.v3_2.spi.PlanContext
@@ -279,6 +281,9 @@ trait GraphDatabaseTestSupport extends CypherTestSupport with GraphIcing {
     queryPlanTTL = 1000,
     useErrorsOverWarnings = false,
     nonIndexedLabelWarningThreshold = 10000,
+    parallelWorkers = 0,
+    operatorMemoryBudget = 0,
+    spillDirectory = new File("cypher-spill"),
     idpMaxTableSize = DefaultIDPSolverConfig.maxTableSize,
     idpIterationDuration = DefaultIDPSolverConfig.iterationDurationLimit,
     errorIfShortestPathFallbackUsedAtRuntime = false,
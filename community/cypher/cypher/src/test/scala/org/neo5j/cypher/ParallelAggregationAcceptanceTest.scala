@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.cypher
+
+import org.neo5j.graphdb.config.Setting
+import org.neo5j.graphdb.factory.GraphDatabaseSettings
+
+import scala.collection.JavaConverters._
+
+class ParallelAggregationAcceptanceTest extends ExecutionEngineFunSuite with RunWithConfigTestSupport {
+
+  override def databaseConfig(): Map[Setting[_], String] = Map(GraphDatabaseSettings.cypher_parallel_workers -> "4")
+
+  // Enough nodes for every worker to get several batches
+  private val createGraph =
+    """UNWIND range(0, 19999) AS i
+      |CREATE (:Person {age: CASE WHEN i % 10 = 0 THEN null ELSE i % 97 END, city: 'c' + (i % 13)})
+      |       -[:KNOWS]->(:Friend {age: i % 31})""".stripMargin
+
+  test("should aggregate on parallel workers the same as on a single thread") {
+    val queries = Seq(
+      "MATCH (n:Person) RETURN count(*), count(n.age), sum(n.age), min(n.age), max(n.age)",
+      "MATCH (n:Person) RETURN n.city AS city, count(*), count(n.age), sum(n.age), min(n.age), max(n.age)",
+      "MATCH (n) WHERE n.age > 20 RETURN count(n), sum(n.age), min(n.age), max(n.age)",
+      "MATCH (n:Person)-[:KNOWS]->(m) WHERE m.age > 5 RETURN n.city AS city, count(m), sum(m.age), min(m.age), max(m.age)")
+
+    val parallel = resultsOf(queries, workers = "4")
+    val sequential = resultsOf(queries, workers = "0")
+
+    parallel should equal(sequential)
+  }
+
+  test("should fail the query when a worker fails, and run queries after it") {
+    execute(createGraph)
+
+    intercept[ArithmeticException] {
+      execute("MATCH (n:Person) WHERE n.age IS NOT NULL AND 100 / (n.age - 50) > 0 RETURN n.city, count(*)").toList
+    }
+
+    execute("MATCH (n:Person) RETURN count(*), sum(n.age)").toList should equal(
+      List(Map("count(*)" -> 20000L, "sum(n.age)" -> 863310L)))
+  }
+
+  private def resultsOf(queries: Seq[String], workers: String): Seq[Set[Map[String, Any]]] = {
+    var results: Seq[Set[Map[String, Any]]] = null
+    runWithConfig(GraphDatabaseSettings.cypher_parallel_workers -> workers) { db =>
+      val database = db.getGraphDatabaseService
+      database.execute(createGraph).close()
+      results = queries.map(query => database.execute(query).asScala.map(_.asScala.toMap[String, Any]).toSet)
+    }
+    results
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.cypher
+
+class SlottedRowsAcceptanceTest extends ExecutionEngineFunSuite {
+
+  test("should keep the values of all variables when rows grow beyond their initial slots") {
+    execute("UNWIND range(1, 3) AS i CREATE (:A {id: i})-[:R]->(:B {id: i * 10})")
+
+    // Rows start out with room for 8 variables, and grow one pipe at a time past that
+    val result = execute(
+      """CYPHER runtime=interpreted
+        |MATCH (a:A)-[:R]->(b:B)
+        |WITH b, a.id AS v1, b.id AS v2, a.id + 1 AS v3, a.id + 2 AS v4, a.id + 3 AS v5, a.id + 4 AS v6,
+        |     a.id + 5 AS v7, a.id + 6 AS v8, a.id + 7 AS v9, a.id + 8 AS v10
+        |MATCH (b)<-[:R]-(c:A)
+        |WITH v1, v2, v3, v4, v5, v6, v7, v8, v9, v10, c.id AS v11, b.id + c.id AS v12
+        |RETURN v1, v2, v3, v4, v5, v6, v7, v8, v9, v10, v11, v12
+        |ORDER BY v1""".stripMargin).toList
+
+    result should equal((1 to 3).toList.map { i =>
+      Map("v1" -> i.toLong, "v2" -> 10L * i, "v11" -> i.toLong, "v12" -> 11L * i) ++
+        (3 to 10).map(k => s"v$k" -> (i + k - 2).toLong)
+    })
+  }
+}
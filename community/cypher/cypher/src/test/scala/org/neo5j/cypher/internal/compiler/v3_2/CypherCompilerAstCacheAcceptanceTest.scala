@@ -19,6 +19,7 @@
  */
 package org.neo5j.cypher.internal.compiler.v3_2
 
+import java.io.File
 import java.time.{Clock, Instant, ZoneOffset}
 
 import org.neo5j.cypher.GraphDatabaseTestSupport
@@ -52,7 +53,10 @@ class CypherCompilerAstCacheAcceptanceTest extends CypherFunSuite with GraphData
         errorIfShortestPathFallbackUsedAtRuntime = false,
         errorIfShortestPathHasCommonNodesAtRuntime = true,
         legacyCsvQuoteEscaping = false,
-        nonIndexedLabelWarningThreshold = 10000L
+        nonIndexedLabelWarningThreshold = 10000L,
+        parallelWorkers = 0,
+        operatorMemoryBudget = 0,
+        spillDirectory = new File("cypher-spill")
       ),
       clock,
       WrappedMonitors(kernelMonitors),
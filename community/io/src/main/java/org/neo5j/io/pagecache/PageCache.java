@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.OpenOption;
 import java.nio.file.StandardOpenOption;
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
 
@@ -78,6 +79,19 @@ public interface PageCache extends AutoCloseable
      */
     Optional<PagedFile> getExistingMapping( File file ) throws IOException;
 
+    /**
+     * List a snapshot of the current file mappings.
+     * <p>
+     * The mappings can change as soon as this method returns. However, the returned {@link PagedFile}s will remain
+     * valid even if they are closed by other means than through the returned references.
+     * <p>
+     * NOTE! User is responsible for closing the returned paged files.
+     *
+     * @return A list of all the {@link PagedFile}s currently mapped by this {@link PageCache}.
+     * @throws IOException if page cache has been closed or page eviction problems occur.
+     */
+    List<PagedFile> listExistingMappings() throws IOException;
+
     /** Flush all dirty pages */
     void flushAndForce() throws IOException;
 
@@ -25,6 +25,8 @@ import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.file.OpenOption;
 
+import org.neo5j.io.pagecache.monitoring.PagedFileCounters;
+
 /**
  * The representation of a file that has been mapped into the associated page cache.
  */
@@ -63,17 +65,30 @@ public interface PagedFile extends AutoCloseable
     int PF_NO_GROW = 1 << 2;
     /**
      * Read-ahead hint for sequential forward scanning.
+     * <p>
+     * When a cursor with this flag moves sequentially forward through the file with {@link PageCursor#next()}, the
+     * page cache may fault in the pages ahead of it in the background, using memory that is not otherwise needed.
      */
-    int PF_READ_AHEAD = 1 << 3; // TBD
+    int PF_READ_AHEAD = 1 << 3;
     /**
-     * Do not load in the page if it is not loaded already. Only useful with
-     * exclusive locking when you want to overwrite the whole page anyway.
+     * Do not load in the page if it is not loaded already.
+     * <p>
+     * The {@link PageCursor#next()} and {@link PageCursor#next(long)} methods will still return {@code true} for
+     * pages that are within the range of the file, but {@link PageCursor#getCurrentPageId()} will return
+     * {@link PageCursor#UNBOUND_PAGE_ID} for the pages that are not in memory. Since a read cursor can also lose its
+     * page to eviction, the current page id must be checked in every {@link PageCursor#shouldRetry()} loop iteration.
+     * <p>
+     * This implies {@link #PF_NO_GROW}, since a page fault is necessary to be able to extend a file.
      */
-    int PF_NO_FAULT = 1 << 4; // TBD
+    int PF_NO_FAULT = 1 << 4;
     /**
      * Do not update page access statistics.
+     * <p>
+     * This is a hint for large sequential scans, that are unlikely to revisit the pages they touch. Pages that are
+     * only accessed with this flag are left as early candidates for eviction, so the scan does not push the
+     * frequently used pages out of the cache.
      */
-    int PF_TRANSIENT = 1 << 5; // TBD
+    int PF_TRANSIENT = 1 << 5;
 
     /**
      * Initiate an IO interaction with the contents of the paged file.
@@ -140,6 +155,16 @@ public interface PagedFile extends AutoCloseable
      */
     long fileSize() throws IOException;
 
+    /**
+     * Get the file that is mapped by this paged file.
+     */
+    File file();
+
+    /**
+     * Get the {@link PagedFileCounters} that count the page cache activity on this file.
+     */
+    PagedFileCounters counters();
+
     /**
      * Flush all dirty pages into the file channel, and force the file channel to disk.
      */
@@ -154,6 +179,21 @@ public interface PagedFile extends AutoCloseable
      */
     void flushAndForce( IOLimiter limiter ) throws IOException;
 
+    /**
+     * Write the dirty pages in the given range of file pages into the file channel, without forcing the file channel
+     * to disk, and limit the rate of IO as advised by the given IOPSLimiter.
+     * <p>
+     * This allows dirty pages to be written back incrementally, such that a subsequent
+     * {@link #flushAndForce(IOLimiter)} has fewer pages to flush.
+     *
+     * @param startPageId The file page id of the first page in the range.
+     * @param pageCount The number of pages in the range.
+     * @param limiter The {@link IOLimiter} that determines if pauses or sleeps should be injected into the flushing
+     * process to keep the IO rate down.
+     * @return The number of dirty pages that were written.
+     */
+    long flushDirtyPages( long startPageId, long pageCount, IOLimiter limiter ) throws IOException;
+
     /**
      * Get the file-page-id of the last page in the file.
      * <p>
@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.io.pagecache.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.neo5j.io.fs.FileSystemAbstraction;
+import org.neo5j.io.fs.StoreChannel;
+import org.neo5j.io.fs.StoreFileChannel;
+import org.neo5j.io.fs.StoreFileChannelUnwrapper;
+import org.neo5j.io.pagecache.Page;
+import org.neo5j.io.pagecache.PageSwapper;
+import org.neo5j.unsafe.impl.internal.dragons.UnsafeUtil;
+
+import static org.neo5j.unsafe.impl.internal.dragons.FeatureToggles.getInteger;
+
+/**
+ * A PageSwapper implementation that swaps pages in by copying them straight out of read-only memory mapped regions
+ * of the file, instead of issuing a read system call for every page fault.
+ * <p>
+ * The file is mapped in segments of a fixed number of file pages, and the segments are mapped lazily, as the pages
+ * in them are first faulted in. Only the whole file pages that exist in the file at the time of mapping are included
+ * in a segment, so a segment is re-mapped if the file has grown beyond it, when a page beyond its end is read.
+ * <p>
+ * Everything other than swapping in, such as writing, forcing, truncating and file locking, is delegated to a
+ * channel based PageSwapper, which is also used for reading pages that cannot be mapped. This is for instance the
+ * case for the partial page at the end of the file, or when the file system does not give access to a real
+ * {@link FileChannel}.
+ * <p>
+ * The mapped regions are never explicitly unmapped, but are instead released once they are garbage collected.
+ * This is because concurrent page faults might still be reading from them. Reading a mapped region beyond the end of
+ * the file is a fatal error, however, so page faults copy out of the segments under a shared lock, and truncation
+ * waits for them to finish by taking the lock exclusively.
+ */
+public class MemoryMappedPageSwapper implements PageSwapper
+{
+    // The maximum size of a mapped segment. This is rounded down to a multiple of the file page size.
+    private static final int maxSegmentSize = getInteger(
+            MemoryMappedPageSwapper.class, "maxSegmentSize", 1 << 30 );
+
+    private static final MappedByteBuffer[] NO_SEGMENTS = new MappedByteBuffer[0];
+
+    private final File file;
+    private final int filePageSize;
+    private final int pagesPerSegment;
+    private final PageSwapper channelSwapper;
+    private final FileSystemAbstraction fs;
+    // Whether the file system gives us access to a real FileChannel that we can map.
+    private final boolean mappable;
+
+    // Replaced, rather than modified, under synchronized(this).
+    private volatile MappedByteBuffer[] segments = NO_SEGMENTS;
+
+    // Held shared while copying out of a segment, and exclusively while the file shrinks underneath the segments.
+    // Always taken before the monitor of this object, never while holding it.
+    private final ReadWriteLock truncationLock = new ReentrantReadWriteLock();
+
+    // Guarded by synchronized(this). See mapSegment() and close().
+    private StoreChannel mappingChannel;
+    private boolean closed;
+
+    public MemoryMappedPageSwapper(
+            File file,
+            FileSystemAbstraction fs,
+            int filePageSize,
+            PageSwapper channelSwapper ) throws IOException
+    {
+        this.file = file;
+        this.filePageSize = filePageSize;
+        this.pagesPerSegment = Math.max( 1, maxSegmentSize / filePageSize );
+        this.channelSwapper = channelSwapper;
+        this.fs = fs;
+        try
+        {
+            mappingChannel = fs.open( file, "r" );
+        }
+        catch ( IOException e )
+        {
+            try
+            {
+                channelSwapper.close();
+            }
+            catch ( IOException ce )
+            {
+                e.addSuppressed( ce );
+            }
+            throw e;
+        }
+        this.mappable = mappingChannel instanceof StoreFileChannel;
+    }
+
+    @Override
+    public long read( long filePageId, Page page ) throws IOException
+    {
+        if ( mappable && swapInMapped( filePageId, page ) )
+        {
+            return filePageSize;
+        }
+        return channelSwapper.read( filePageId, page );
+    }
+
+    @Override
+    public long read( long startFilePageId, Page[] pages, int arrayOffset, int length ) throws IOException
+    {
+        long bytes = 0;
+        for ( int i = 0; i < length; i++ )
+        {
+            bytes += read( startFilePageId + i, pages[arrayOffset + i] );
+        }
+        return bytes;
+    }
+
+    private boolean swapInMapped( long filePageId, Page page ) throws IOException
+    {
+        Lock lock = truncationLock.readLock();
+        lock.lock();
+        try
+        {
+            return copyFromSegment( filePageId, page );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private boolean copyFromSegment( long filePageId, Page page ) throws IOException
+    {
+        int segmentIndex = (int) (filePageId / pagesPerSegment);
+        long offsetInSegment = (filePageId % pagesPerSegment) * filePageSize;
+        long requiredCapacity = offsetInSegment + filePageSize;
+        MappedByteBuffer[] segs = segments;
+        MappedByteBuffer segment = segmentIndex < segs.length ? segs[segmentIndex] : null;
+        if ( segment == null || segment.capacity() < requiredCapacity )
+        {
+            segment = mapSegment( segmentIndex, requiredCapacity );
+            if ( segment == null )
+            {
+                return false;
+            }
+        }
+        // Our local reference to the segment keeps it from being unmapped while we copy, and the truncation lock
+        // keeps the file from shrinking underneath it.
+        long address = UnsafeUtil.getDirectByteBufferAddress( segment ) + offsetInSegment;
+        UnsafeUtil.copyMemory( address, page.address(), filePageSize );
+        return true;
+    }
+
+    private synchronized MappedByteBuffer mapSegment( int segmentIndex, long requiredCapacity ) throws IOException
+    {
+        if ( closed )
+        {
+            return null;
+        }
+        MappedByteBuffer[] segs = segments;
+        if ( segmentIndex < segs.length && segs[segmentIndex] != null &&
+             segs[segmentIndex].capacity() >= requiredCapacity )
+        {
+            // Someone got ahead of us.
+            return segs[segmentIndex];
+        }
+
+        long segmentSize = pagesPerSegment * (long) filePageSize;
+        long segmentStart = segmentIndex * segmentSize;
+        MappedByteBuffer segment;
+        try
+        {
+            FileChannel channel = StoreFileChannelUnwrapper.unwrap( mappingChannel );
+            long available = channel.size() - segmentStart;
+            long mappedSize = Math.min( segmentSize, available - available % filePageSize );
+            if ( mappedSize < requiredCapacity )
+            {
+                // The page is beyond the end of the file, or is only partially written, so we leave it to the
+                // channel swapper.
+                return null;
+            }
+            segment = channel.map( FileChannel.MapMode.READ_ONLY, segmentStart, mappedSize );
+        }
+        catch ( ClosedChannelException e )
+        {
+            // The mapping channel was closed by an interrupt or the like. We reopen it for the next page fault,
+            // and leave this one to the channel swapper, which deals with interrupts in its own way.
+            mappingChannel = fs.open( file, "r" );
+            return null;
+        }
+        if ( segmentIndex >= segs.length )
+        {
+            segs = Arrays.copyOf( segs, segmentIndex + 1 );
+        }
+        else
+        {
+            segs = segs.clone();
+        }
+        segs[segmentIndex] = segment;
+        segments = segs;
+        return segment;
+    }
+
+    @Override
+    public long write( long filePageId, Page page ) throws IOException
+    {
+        return channelSwapper.write( filePageId, page );
+    }
+
+    @Override
+    public long write( long startFilePageId, Page[] pages, int arrayOffset, int length ) throws IOException
+    {
+        return channelSwapper.write( startFilePageId, pages, arrayOffset, length );
+    }
+
+    @Override
+    public void evicted( long pageId, Page page )
+    {
+        channelSwapper.evicted( pageId, page );
+    }
+
+    @Override
+    public File file()
+    {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        closed = true;
+        segments = NO_SEGMENTS;
+        try
+        {
+            mappingChannel.close();
+        }
+        finally
+        {
+            channelSwapper.close();
+        }
+    }
+
+    @Override
+    public synchronized void closeAndDelete() throws IOException
+    {
+        closed = true;
+        segments = NO_SEGMENTS;
+        try
+        {
+            mappingChannel.close();
+        }
+        finally
+        {
+            channelSwapper.closeAndDelete();
+        }
+    }
+
+    @Override
+    public void force() throws IOException
+    {
+        channelSwapper.force();
+    }
+
+    @Override
+    public long getLastPageId() throws IOException
+    {
+        return channelSwapper.getLastPageId();
+    }
+
+    @Override
+    public void truncate() throws IOException
+    {
+        // Wait for the page faults that are copying out of the segments, and drop the segments before releasing the
+        // lock, so no page fault will read from the regions that are about to go away.
+        Lock lock = truncationLock.writeLock();
+        lock.lock();
+        try
+        {
+            synchronized ( this )
+            {
+                segments = NO_SEGMENTS;
+            }
+            channelSwapper.truncate();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        { return true; }
+        if ( o == null || getClass() != o.getClass() )
+        { return false; }
+
+        MemoryMappedPageSwapper that = (MemoryMappedPageSwapper) o;
+
+        return file.equals( that.file );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return file.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "MemoryMappedPageSwapper{" +
+                "filePageSize=" + filePageSize +
+                ", file=" + file +
+                '}';
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.io.pagecache.impl;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.neo5j.io.fs.FileSystemAbstraction;
+import org.neo5j.io.pagecache.PageEvictionCallback;
+import org.neo5j.io.pagecache.PageSwapper;
+
+/**
+ * A factory for MemoryMappedPageSwapper instances.
+ * <p>
+ * This is mostly useful for read-mostly deployments where the store files fit in the memory of the machine,
+ * since it saves the page faults a read system call each.
+ *
+ * @see org.neo5j.io.pagecache.impl.MemoryMappedPageSwapper
+ */
+public class MemoryMappedPageSwapperFactory extends SingleFilePageSwapperFactory
+{
+    private FileSystemAbstraction fs;
+
+    @Override
+    public void setFileSystemAbstraction( FileSystemAbstraction fs )
+    {
+        super.setFileSystemAbstraction( fs );
+        this.fs = fs;
+    }
+
+    @Override
+    public PageSwapper createPageSwapper(
+            File file,
+            int filePageSize,
+            PageEvictionCallback onEviction,
+            boolean createIfNotExist ) throws IOException
+    {
+        PageSwapper channelSwapper = super.createPageSwapper( file, filePageSize, onEviction, createIfNotExist );
+        return new MemoryMappedPageSwapper( file, fs, filePageSize, channelSwapper );
+    }
+
+    @Override
+    public String implementationName()
+    {
+        return "mmap";
+    }
+}
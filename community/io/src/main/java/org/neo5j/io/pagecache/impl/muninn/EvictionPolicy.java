@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.io.pagecache.impl.muninn;
+
+/**
+ * The eviction policy decides how the clock sweep of the {@link MuninnPageCache} treats the usage stamps of the pages
+ * it passes over, while looking for pages to evict.
+ */
+public enum EvictionPolicy
+{
+    /**
+     * The plain clock sweep. Every page the clock arm passes over has its usage stamp decremented, and the page is
+     * evicted once the usage stamp reaches zero. This means that a large sequential scan, which faults in many pages
+     * and forces the clock arm to go around many times, will also age and eventually evict the pages that are
+     * frequently used by other accesses.
+     */
+    CLOCK,
+
+    /**
+     * A segmented clock sweep, where pages that have been used at most once since the clock arm last passed them
+     * are considered probationary, and are evicted as usual. Pages that have been used more than that are
+     * considered protected, and are only aged on every {@code scanResistantAgingInterval} revolution of the clock
+     * arm. This way, the pages faulted in by a large scan are evicted before the frequently used pages, which are
+     * kept in memory for longer.
+     */
+    SCAN_RESISTANT
+}
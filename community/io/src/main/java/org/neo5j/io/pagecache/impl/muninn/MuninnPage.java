@@ -60,6 +60,11 @@ final class MuninnPage extends SequenceLock implements Page
     private PageSwapper swapper;
     private long filePageId = PageCursor.UNBOUND_PAGE_ID;
 
+    // The number of bytes that were written when this page was flushed as part of its last eviction, or zero if it
+    // was clean. The eviction callback uses this to count the flush on the paged file that the page belonged to.
+    // This fits in the alignment padding of the object, so it costs no memory per page.
+    private int evictionBytesFlushed;
+
     MuninnPage( int cachePageSize, MemoryManager memoryManager )
     {
         this.cachePageHeader = (byte) (31 - Integer.numberOfLeadingZeros( cachePageSize ));
@@ -126,6 +131,15 @@ final class MuninnPage extends SequenceLock implements Page
         return usage == 0;
     }
 
+    /**
+     * Returns true if the page has been used at most once since its usage stamp was last decremented.
+     * This is intentionally left benignly racy for performance, just like the other usage stamp accesses.
+     */
+    public boolean isProbationary()
+    {
+        return getUsageCounter() <= 1;
+    }
+
     private byte getUsageCounter()
     {
         return UnsafeUtil.getByteVolatile( this, usageStampOffset );
@@ -134,16 +148,17 @@ final class MuninnPage extends SequenceLock implements Page
     /**
      * NOTE: This method must be called while holding an exclusive lock on the page.
      */
-    public void flush( FlushEventOpportunity flushOpportunity ) throws IOException
+    public long flush( FlushEventOpportunity flushOpportunity ) throws IOException
     {
         if ( swapper != null && isDirty() )
         {
             // The page is bound and has stuff to flush
-            doFlush( swapper, filePageId, flushOpportunity );
+            return doFlush( swapper, filePageId, flushOpportunity );
         }
+        return 0;
     }
 
-    private void doFlush(
+    private long doFlush(
             PageSwapper swapper,
             long filePageId,
             FlushEventOpportunity flushOpportunity ) throws IOException
@@ -155,6 +170,7 @@ final class MuninnPage extends SequenceLock implements Page
             markAsClean();
             event.addBytesWritten( bytesWritten );
             event.done();
+            return bytesWritten;
         }
         catch ( IOException e )
         {
@@ -166,10 +182,26 @@ final class MuninnPage extends SequenceLock implements Page
     /**
      * NOTE: This method MUST be called while holding the exclusive page lock.
      */
-    public void fault(
+    public long fault(
             PageSwapper swapper,
             long filePageId,
             PageFaultEvent faultEvent ) throws IOException
+    {
+        beginFault( swapper, filePageId );
+        long bytesRead = swapper.read( filePageId, this );
+        faultEvent.addBytesRead( bytesRead );
+        faultEvent.setCachePageId( getCachePageId() );
+        completeFault( swapper );
+        return bytesRead;
+    }
+
+    /**
+     * Assign the given filePageId to this page, before its contents are swapped in, possibly as part of a vectored
+     * read that faults in many pages at once. The fault is concluded with {@link #completeFault(PageSwapper)}.
+     * <p>
+     * NOTE: This method MUST be called while holding the exclusive page lock.
+     */
+    void beginFault( PageSwapper swapper, long filePageId )
     {
         if ( this.swapper != null || this.filePageId != PageCursor.UNBOUND_PAGE_ID )
         {
@@ -189,9 +221,15 @@ final class MuninnPage extends SequenceLock implements Page
         // the file page, so any subsequent thread that finds the page in their
         // translation table will re-do the page fault.
         this.filePageId = filePageId; // Page now considered isLoaded()
-        long bytesRead = swapper.read( filePageId, this );
-        faultEvent.addBytesRead( bytesRead );
-        faultEvent.setCachePageId( getCachePageId() );
+    }
+
+    /**
+     * Bind this page to the given swapper, once its contents have been successfully swapped in.
+     * <p>
+     * NOTE: This method MUST be called while holding the exclusive page lock.
+     */
+    void completeFault( PageSwapper swapper )
+    {
         this.swapper = swapper; // Page now considered isBoundTo( swapper, filePageId )
     }
 
@@ -206,7 +244,7 @@ final class MuninnPage extends SequenceLock implements Page
         PageSwapper swapper = this.swapper;
         evictionEvent.setSwapper( swapper );
 
-        flush( evictionEvent.flushEventOpportunity() );
+        evictionBytesFlushed = (int) flush( evictionEvent.flushEventOpportunity() );
         this.filePageId = PageCursor.UNBOUND_PAGE_ID;
 
         this.swapper = null;
@@ -218,6 +256,15 @@ final class MuninnPage extends SequenceLock implements Page
         }
     }
 
+    /**
+     * NOTE: This method MUST be called while holding the page write lock.
+     * @return The number of bytes that were flushed when this page was last evicted, or zero if it was clean.
+     */
+    int getEvictionBytesFlushed()
+    {
+        return evictionBytesFlushed;
+    }
+
     public boolean isLoaded()
     {
         return filePageId != PageCursor.UNBOUND_PAGE_ID;
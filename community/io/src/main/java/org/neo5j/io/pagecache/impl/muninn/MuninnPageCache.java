@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.nio.file.CopyOption;
 import java.nio.file.OpenOption;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -48,6 +49,7 @@ import org.neo5j.io.pagecache.tracing.MajorFlushEvent;
 import org.neo5j.io.pagecache.tracing.PageCacheTracer;
 import org.neo5j.io.pagecache.tracing.PageFaultEvent;
 import org.neo5j.io.pagecache.tracing.cursor.PageCursorTracerSupplier;
+import org.neo5j.unsafe.impl.internal.dragons.HugePages;
 import org.neo5j.unsafe.impl.internal.dragons.MemoryManager;
 import org.neo5j.unsafe.impl.internal.dragons.UnsafeUtil;
 
@@ -119,6 +121,25 @@ public class MuninnPageCache implements PageCache
     private static final int cooperativeEvictionLiveLockThreshold = getInteger(
             MuninnPageCache.class, "cooperativeEvictionLiveLockThreshold", 100 );
 
+    // When using the SCAN_RESISTANT eviction policy, this is how many revolutions the clock arm must make, before the
+    // usage stamps of the protected pages are decremented. This MUST be at least 1.
+    private static final int scanResistantAgingInterval = getInteger(
+            MuninnPageCache.class, "scanResistantAgingInterval", 4 );
+
+    // This is the maximum number of read-ahead tasks, from all the files mapped by a page cache, that may be in flight
+    // at any one time. Read-ahead requests beyond this limit are dropped, since they are only hints.
+    private static final int maxConcurrentReadAheads = getInteger(
+            MuninnPageCache.class, "maxConcurrentReadAheads", 8 );
+
+    // This is the maximum number of threads that flush the mapped files in parallel, when the whole page cache is
+    // flushed, e.g. by a check point. A value of 1 makes such flushes single threaded.
+    private static final int flushParallelism = getInteger(
+            MuninnPageCache.class, "flushParallelism", Math.min( 8, Runtime.getRuntime().availableProcessors() ) );
+
+    // When flushing in parallel, this is how many translation table chunks of a file each thread flushes at a time.
+    private static final int flushChunksPerRange = getInteger(
+            MuninnPageCache.class, "flushChunksPerRange", 4 );
+
     // This is a pre-allocated constant, so we can throw it without allocating any objects:
     @SuppressWarnings( "ThrowableInstanceNeverThrown" )
     private static final IOException oomException = new IOException(
@@ -152,6 +173,9 @@ public class MuninnPageCache implements PageCache
     private final PageSwapperFactory swapperFactory;
     private final int cachePageSize;
     private final int keepFree;
+    // The number of clock arm revolutions between each aging of the protected pages. This is 1 for the CLOCK
+    // eviction policy, which means that all pages are aged on every revolution.
+    private final int agingInterval;
     private final PageCacheTracer pageCacheTracer;
     private final MuninnPage[] pages;
     // All PageCursors are initialised with their pointers pointing to the victim page. This way, we can do branch-free
@@ -186,6 +210,15 @@ public class MuninnPageCache implements PageCache
     // threads scheduling meta-data in the OS kernel.
     private volatile boolean evictorParked;
     private volatile IOException evictorException;
+    // The number of times the clock arm of the background eviction thread has gone around. Only accessed by the
+    // eviction thread.
+    private int evictorRevolution;
+    // The number of times the clock arms of page faulting threads have gone around, while cooperatively evicting.
+    // This is kept across page faults, so that protected pages also age when each fault only sweeps a few pages.
+    private final AtomicInteger cooperativeRevolution = new AtomicInteger();
+
+    // The number of read-ahead tasks that have been submitted to the background thread executor, and not yet finished.
+    private final AtomicInteger readAheadsInFlight = new AtomicInteger();
 
     // Flag for when page cache is closed - writes guarded by synchronized(this), reads can be unsynchronized
     private volatile boolean closed;
@@ -208,6 +241,41 @@ public class MuninnPageCache implements PageCache
      */
     public MuninnPageCache( PageSwapperFactory swapperFactory, int maxPages, int cachePageSize, PageCacheTracer pageCacheTracer,
             PageCursorTracerSupplier pageCursorTracerSupplier )
+    {
+        this( swapperFactory, maxPages, cachePageSize, pageCacheTracer, pageCursorTracerSupplier,
+                EvictionPolicy.CLOCK );
+    }
+
+    /**
+     * Create page cache
+     * @param swapperFactory page cache swapper factory
+     * @param maxPages maximum number of pages
+     * @param cachePageSize page cache size
+     * @param pageCacheTracer global page cache tracer
+     * @param pageCursorTracerSupplier supplier of thread local (transaction local) page cursor tracer that will provide
+     * thread local page cache statistics
+     * @param evictionPolicy the policy used by the clock sweep when looking for pages to evict
+     */
+    public MuninnPageCache( PageSwapperFactory swapperFactory, int maxPages, int cachePageSize, PageCacheTracer pageCacheTracer,
+            PageCursorTracerSupplier pageCursorTracerSupplier, EvictionPolicy evictionPolicy )
+    {
+        this( swapperFactory, maxPages, cachePageSize, pageCacheTracer, pageCursorTracerSupplier, evictionPolicy,
+                HugePages.disabled() );
+    }
+
+    /**
+     * Create page cache
+     * @param swapperFactory page cache swapper factory
+     * @param maxPages maximum number of pages
+     * @param cachePageSize page cache size
+     * @param pageCacheTracer global page cache tracer
+     * @param pageCursorTracerSupplier supplier of thread local (transaction local) page cursor tracer that will provide
+     * thread local page cache statistics
+     * @param evictionPolicy the policy used by the clock sweep when looking for pages to evict
+     * @param hugePages whether, and how, the memory of the cache pages should be backed by huge pages
+     */
+    public MuninnPageCache( PageSwapperFactory swapperFactory, int maxPages, int cachePageSize, PageCacheTracer pageCacheTracer,
+            PageCursorTracerSupplier pageCursorTracerSupplier, EvictionPolicy evictionPolicy, HugePages hugePages )
     {
         verifyHacks();
         verifyCachePageSizeIsPowerOfTwo( cachePageSize );
@@ -217,6 +285,8 @@ public class MuninnPageCache implements PageCache
         this.swapperFactory = swapperFactory;
         this.cachePageSize = cachePageSize;
         this.keepFree = Math.min( pagesToKeepFree, maxPages / 2 );
+        this.agingInterval =
+                evictionPolicy == EvictionPolicy.SCAN_RESISTANT ? Math.max( 1, scanResistantAgingInterval ) : 1;
         this.pageCacheTracer = pageCacheTracer;
         this.pageCursorTracerSupplier = pageCursorTracerSupplier;
         this.pages = new MuninnPage[maxPages];
@@ -224,7 +294,7 @@ public class MuninnPageCache implements PageCache
 
         long alignment = swapperFactory.getRequiredBufferAlignment();
         long expectedMaxMemory = ((long) maxPages) * cachePageSize; // cast to long prevents overflow
-        MemoryManager memoryManager = new MemoryManager( expectedMaxMemory, alignment );
+        MemoryManager memoryManager = new MemoryManager( expectedMaxMemory, alignment, hugePages );
         this.victimPage = VictimPageReference.getVictimPage( cachePageSize );
         Object pageList = null;
         int pageIndex = maxPages;
@@ -391,6 +461,22 @@ public class MuninnPageCache implements PageCache
         return Optional.empty();
     }
 
+    @Override
+    public synchronized List<PagedFile> listExistingMappings() throws IOException
+    {
+        assertHealthy();
+        ensureThreadsInitialised();
+
+        List<PagedFile> list = new ArrayList<>();
+        for ( FileMapping current = mappedFiles; current != null; current = current.next )
+        {
+            MuninnPagedFile pagedFile = current.pagedFile;
+            pagedFile.incrementRefCount();
+            list.add( pagedFile );
+        }
+        return list;
+    }
+
     private MuninnPagedFile tryGetMappingOrNull( File file ) throws IOException
     {
         FileMapping current = mappedFiles;
@@ -590,12 +676,13 @@ public class MuninnPageCache implements PageCache
         try ( MajorFlushEvent cacheFlush = pageCacheTracer.beginCacheFlush() )
         {
             FlushEventOpportunity flushOpportunity = cacheFlush.flushEventOpportunity();
-            FileMapping fileMapping = mappedFiles;
-            while ( fileMapping != null )
+            List<MuninnPagedFile> files = new ArrayList<>();
+            for ( FileMapping fileMapping = mappedFiles; fileMapping != null; fileMapping = fileMapping.next )
             {
-                fileMapping.pagedFile.flushAndForceInternal( flushOpportunity, false, limiter );
-                fileMapping = fileMapping.next;
+                files.add( fileMapping.pagedFile );
             }
+            new ParallelFlush( files, flushChunksPerRange, flushOpportunity, limiter )
+                    .flushAndForce( this, backgroundThreadExecutor, flushParallelism );
             syncDevice();
         }
     }
@@ -754,9 +841,77 @@ public class MuninnPageCache implements PageCache
         }
     }
 
+    /**
+     * Grab a free page, like {@link #grabFreeAndExclusivelyLockedPage(PageFaultEvent)} does, but return {@code null}
+     * instead of evicting a page if the freelist is empty, or if the page cache has been shut down. This is used by
+     * read-ahead, which should only make use of memory that is not needed by anyone else.
+     */
+    MuninnPage tryGrabFreeAndExclusivelyLockedPage()
+    {
+        Object current;
+        for (;;)
+        {
+            current = getFreelistHead();
+            if ( current == null )
+            {
+                unparkEvictor();
+                return null;
+            }
+            else if ( current instanceof MuninnPage )
+            {
+                MuninnPage page = (MuninnPage) current;
+                if ( compareAndSetFreelistHead( page, page.nextFree ) )
+                {
+                    return page;
+                }
+            }
+            else if ( current instanceof FreePage )
+            {
+                FreePage freePage = (FreePage) current;
+                if ( freePage == shutdownSignal )
+                {
+                    return null;
+                }
+
+                if ( compareAndSetFreelistHead( freePage, freePage.next ) )
+                {
+                    return freePage.page;
+                }
+            }
+        }
+    }
+
+    /**
+     * Asynchronously fault in the given range of pages from the given file, unless too many read-aheads are already
+     * in flight, in which case the request is ignored.
+     */
+    void readAheadInBackground( MuninnPagedFile pagedFile, long startFilePageId, int pageCount )
+    {
+        if ( closed || readAheadsInFlight.incrementAndGet() > maxConcurrentReadAheads )
+        {
+            readAheadsInFlight.decrementAndGet();
+            return;
+        }
+        try
+        {
+            backgroundThreadExecutor.execute( new ReadAheadTask( this, pagedFile, startFilePageId, pageCount ) );
+        }
+        catch ( Exception e )
+        {
+            // The read-ahead is only a hint, so we just give up on it.
+            readAheadsInFlight.decrementAndGet();
+        }
+    }
+
+    void readAheadFinished()
+    {
+        readAheadsInFlight.decrementAndGet();
+    }
+
     private MuninnPage cooperativelyEvict( PageFaultEvent faultEvent ) throws IOException
     {
         int iterations = 0;
+        int revolution = cooperativeRevolution.get() & Integer.MAX_VALUE;
         int clockArm = ThreadLocalRandom.current().nextInt( pages.length );
         MuninnPage page;
         boolean evicted = false;
@@ -775,6 +930,7 @@ public class MuninnPageCache implements PageCache
                     throw cooperativeEvictionLiveLock();
                 }
                 iterations++;
+                revolution = cooperativeRevolution.incrementAndGet() & Integer.MAX_VALUE;
                 clockArm = 0;
             }
 
@@ -785,7 +941,7 @@ public class MuninnPageCache implements PageCache
                         "The PageCache has been shut down" );
             }
 
-            if ( page.isLoaded() && page.decrementUsage() )
+            if ( isEvictionCandidate( page, revolution ) )
             {
                 if ( page.tryExclusiveLock() )
                 {
@@ -921,6 +1077,7 @@ public class MuninnPageCache implements PageCache
             if ( clockArm == pages.length )
             {
                 clockArm = 0;
+                evictorRevolution++;
             }
             MuninnPage page = pages[clockArm];
 
@@ -930,7 +1087,7 @@ public class MuninnPageCache implements PageCache
                 return 0;
             }
 
-            if ( page.isLoaded() && page.decrementUsage() )
+            if ( isEvictionCandidate( page, evictorRevolution ) )
             {
                 if ( page.tryExclusiveLock() )
                 {
@@ -982,6 +1139,19 @@ public class MuninnPageCache implements PageCache
         return clockArm;
     }
 
+    /**
+     * Decrement the usage stamp of the given page, if the eviction policy allows it on this revolution of the clock
+     * arm, and return {@code true} if the page is loaded and its usage stamp reached zero.
+     * Probationary pages are always aged, but protected pages are only aged on every {@link #agingInterval}
+     * revolution, which is always the case for the {@link EvictionPolicy#CLOCK} policy.
+     */
+    private boolean isEvictionCandidate( MuninnPage page, int revolution )
+    {
+        return page.isLoaded()
+               && ((revolution + 1) % agingInterval == 0 || page.isProbationary())
+               && page.decrementUsage();
+    }
+
     /**
      * Evict the given page, or return {@code false} if the eviction failed for any reason.
      * This method will never throw an exception!
@@ -32,8 +32,12 @@ import org.neo5j.io.pagecache.tracing.PinEvent;
 import org.neo5j.io.pagecache.tracing.cursor.PageCursorTracer;
 import org.neo5j.unsafe.impl.internal.dragons.UnsafeUtil;
 
+import static org.neo5j.io.pagecache.PagedFile.PF_NO_FAULT;
+import static org.neo5j.io.pagecache.PagedFile.PF_READ_AHEAD;
 import static org.neo5j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
+import static org.neo5j.io.pagecache.PagedFile.PF_TRANSIENT;
 import static org.neo5j.unsafe.impl.internal.dragons.FeatureToggles.flag;
+import static org.neo5j.unsafe.impl.internal.dragons.FeatureToggles.getInteger;
 
 abstract class MuninnPageCursor extends PageCursor
 {
@@ -45,6 +49,10 @@ abstract class MuninnPageCursor extends PageCursor
 
     private static final boolean boundsCheck = flag( MuninnPageCursor.class, "boundsCheck", true );
 
+    // The number of pages that PF_READ_AHEAD cursors will ask to have faulted in ahead of them, when they move
+    // sequentially through a file.
+    private static final int readAheadPageCount = getInteger( MuninnPageCursor.class, "readAheadPageCount", 32 );
+
     // Size of the respective primitive types in bytes.
     private static final int SIZE_OF_BYTE = Byte.BYTES;
     private static final int SIZE_OF_SHORT = Short.BYTES;
@@ -71,6 +79,16 @@ abstract class MuninnPageCursor extends PageCursor
     // CursorExceptionWithPreciseStackTrace with the message and stack trace pointing more or less directly at the
     // offending code.
     private Object cursorException;
+    // Read-ahead state for PF_READ_AHEAD cursors: the previously pinned page, the first page after the range that
+    // was last read ahead, and the page that will trigger the next read-ahead when we move sequentially past it.
+    private long readAheadPreviousPageId;
+    private long readAheadNextPageId;
+    private long readAheadTriggerPageId;
+    // Statistics for the paged file, which are gathered locally and added to its counters when this cursor is closed.
+    private long filePins;
+    private long fileHits;
+    private long fileFaults;
+    private long fileBytesRead;
 
     MuninnPageCursor( long victimPage, PageCursorTracer tracer )
     {
@@ -90,6 +108,9 @@ abstract class MuninnPageCursor extends PageCursor
         this.pageId = pageId;
         this.pf_flags = pf_flags;
         this.filePageSize = pagedFile.filePageSize;
+        this.readAheadPreviousPageId = UNBOUND_PAGE_ID;
+        this.readAheadNextPageId = UNBOUND_PAGE_ID;
+        this.readAheadTriggerPageId = UNBOUND_PAGE_ID;
     }
 
     @Override
@@ -131,6 +152,7 @@ abstract class MuninnPageCursor extends PageCursor
             if ( cursor.pagedFile != null )
             {
                 cursor.unpinCurrentPage();
+                cursor.reportFileCounters();
                 cursor.releaseCursor();
                 // We null out the pagedFile field to allow it and its (potentially big) translation table to be garbage
                 // collected when the file is unmapped, since the cursors can stick around in thread local caches, etc.
@@ -140,6 +162,15 @@ abstract class MuninnPageCursor extends PageCursor
         while ( (cursor = cursor.getAndClearLinkedCursor()) != null );
     }
 
+    private void reportFileCounters()
+    {
+        pagedFile.counters.cursorClosed( filePins, fileHits, fileFaults, fileBytesRead );
+        filePins = 0;
+        fileHits = 0;
+        fileFaults = 0;
+        fileBytesRead = 0;
+    }
+
     private MuninnPageCursor getAndClearLinkedCursor()
     {
         MuninnPageCursor cursor = linkedCursor;
@@ -201,15 +232,53 @@ abstract class MuninnPageCursor extends PageCursor
         return currentPageId == UNBOUND_PAGE_ID? null : pagedFile.file();
     }
 
+    /**
+     * If this is a {@link org.neo5j.io.pagecache.PagedFile#PF_READ_AHEAD} cursor, and it is moving sequentially
+     * through the file, then ask the page cache to fault in the next range of pages in the background, so they are
+     * hopefully already in memory by the time we get to them. The next range is requested when we get half way
+     * through the range that was last read ahead, such that the read-aheads stay ahead of the cursor.
+     * @param filePageId The file page id we are about to pin.
+     * @param lastPageId The id of the last page in the file.
+     */
+    final void readAheadIfSequential( long filePageId, long lastPageId )
+    {
+        if ( (pf_flags & PF_READ_AHEAD) == 0 )
+        {
+            return;
+        }
+        long previousPageId = readAheadPreviousPageId;
+        readAheadPreviousPageId = filePageId;
+        if ( filePageId != previousPageId + 1 || filePageId < readAheadTriggerPageId || filePageId >= lastPageId )
+        {
+            return;
+        }
+        long startFilePageId = readAheadNextPageId;
+        if ( startFilePageId <= filePageId || startFilePageId > filePageId + readAheadPageCount )
+        {
+            // We have either caught up with the last read-ahead, or jumped away from it.
+            startFilePageId = filePageId + 1;
+        }
+        int pageCount = (int) Math.min( readAheadPageCount, lastPageId - startFilePageId + 1 );
+        if ( pageCount > 0 )
+        {
+            pagedFile.pageCache.readAheadInBackground( pagedFile, startFilePageId, pageCount );
+            readAheadNextPageId = startFilePageId + pageCount;
+            readAheadTriggerPageId = startFilePageId + pageCount / 2;
+        }
+    }
+
     /**
      * Pin the desired file page to this cursor, page faulting it into memory if it isn't there already.
      * @param filePageId The file page id we want to pin this cursor to.
      * @param writeLock 'true' if we will be taking a write lock on the page as part of the pin.
+     * @return {@code true} if the cursor got pinned to the page, or {@code false} if the page was not in memory and
+     * this is a {@link org.neo5j.io.pagecache.PagedFile#PF_NO_FAULT} cursor, in which case the cursor is left unbound.
      * @throws IOException if anything goes wrong with the pin, most likely during a page fault.
      */
-    protected void pin( long filePageId, boolean writeLock ) throws IOException
+    protected boolean pin( long filePageId, boolean writeLock ) throws IOException
     {
         pinEvent = tracer.beginPin( writeLock, filePageId, swapper );
+        filePins++;
         int chunkId = MuninnPagedFile.computeChunkId( filePageId );
         // The chunkOffset is the addressing offset into the chunk array object for the relevant array slot. Using
         // this, we can access the array slot with Unsafe.
@@ -243,7 +312,8 @@ abstract class MuninnPageCursor extends PageCursor
                 {
                     pinCursorToPage( page, filePageId, swapper );
                     pinEvent.hit();
-                    return;
+                    fileHits++;
+                    return true;
                 }
                 if ( locked )
                 {
@@ -251,6 +321,13 @@ abstract class MuninnPageCursor extends PageCursor
                 }
                 item = null;
             }
+            else if ( item == null && (pf_flags & PF_NO_FAULT) != 0 )
+            {
+                // The page is not in memory, and we have been asked not to fault it in.
+                pinEvent.done();
+                clearPageState();
+                return false;
+            }
             else
             {
                 item = uncommonPin( item, filePageId, chunkOffset, chunk );
@@ -258,6 +335,7 @@ abstract class MuninnPageCursor extends PageCursor
         }
         while ( item == null );
         pinCursorToPage( (MuninnPage) item, filePageId, swapper );
+        return true;
     }
 
     private Object[][] expandTranslationTableCapacity( int chunkId )
@@ -338,7 +416,7 @@ abstract class MuninnPageCursor extends PageCursor
             // the file channel.
             assertPagedFileStillMappedAndGetIdOfLastPage();
             page.initBuffer();
-            page.fault( swapper, filePageId, faultEvent );
+            fileBytesRead += page.fault( swapper, filePageId, faultEvent );
         }
         catch ( Throwable throwable )
         {
@@ -356,6 +434,7 @@ abstract class MuninnPageCursor extends PageCursor
         convertPageFaultLock( page );
         latch.release();
         faultEvent.done();
+        fileFaults++;
         return page;
     }
 
@@ -369,6 +448,19 @@ abstract class MuninnPageCursor extends PageCursor
         pinEvent.done();
     }
 
+    /**
+     * Update the usage stamp of the given page, unless this cursor was opened with
+     * {@link org.neo5j.io.pagecache.PagedFile#PF_TRANSIENT}, in which case the access leaves no trace in the page
+     * access statistics, and the page is left as an early candidate for eviction.
+     */
+    final void recordUsage( MuninnPage page )
+    {
+        if ( (pf_flags & PF_TRANSIENT) == 0 )
+        {
+            page.incrementUsage();
+        }
+    }
+
     long assertPagedFileStillMappedAndGetIdOfLastPage()
     {
         return pagedFile.getLastPageId();
@@ -34,7 +34,7 @@ final class MuninnPageEvictionCallback implements PageEvictionCallback
     @Override
     public void onEvict( long filePageId, Page page )
     {
-        MuninnPage removed = file.evictPage( filePageId );
+        MuninnPage removed = file.evictPage( filePageId, ((MuninnPage) page).getEvictionBytesFlushed() );
         assert removed == page:
                 "Removed unexpected page when cleaning up translation table for filePageId " + filePageId + ". " +
                 "Evicted " + page + " but removed " + removed + " from the translation table.";
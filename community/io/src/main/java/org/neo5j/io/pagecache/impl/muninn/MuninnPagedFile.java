@@ -24,7 +24,10 @@ import java.io.Flushable;
 import java.io.IOException;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.neo5j.concurrent.BinaryLatch;
 import org.neo5j.io.pagecache.IOLimiter;
 import org.neo5j.io.pagecache.PageCursor;
 import org.neo5j.io.pagecache.PageEvictionCallback;
@@ -33,6 +36,7 @@ import org.neo5j.io.pagecache.PageSwapperFactory;
 import org.neo5j.io.pagecache.PagedFile;
 import org.neo5j.io.pagecache.impl.PagedReadableByteChannel;
 import org.neo5j.io.pagecache.impl.PagedWritableByteChannel;
+import org.neo5j.io.pagecache.monitoring.PagedFileCounters;
 import org.neo5j.io.pagecache.tracing.FlushEvent;
 import org.neo5j.io.pagecache.tracing.FlushEventOpportunity;
 import org.neo5j.io.pagecache.tracing.MajorFlushEvent;
@@ -50,6 +54,11 @@ final class MuninnPagedFile implements PagedFile, Flushable
     private static final int translationTableChunkArrayBase = UnsafeUtil.arrayBaseOffset( MuninnPage[].class );
     private static final int translationTableChunkArrayScale = UnsafeUtil.arrayIndexScale( MuninnPage[].class );
 
+    // Each translation table chunk has a bitmap of up to 64 bits, where each bit covers a group of pages, and is set
+    // when any of the pages in the group has been written to since the group was last flushed.
+    private static final int dirtyGroupSizePower = Math.max( 0, translationTableChunkSizePower - 6 );
+    private static final long dirtyGroupSizeMask = (1L << dirtyGroupSizePower) - 1;
+
     private static final long headerStateOffset =
             UnsafeUtil.getFieldOffset( MuninnPagedFile.class, "headerState" );
     private static final int headerStateRefCountShift = 48;
@@ -60,11 +69,16 @@ final class MuninnPagedFile implements PagedFile, Flushable
     final MuninnPageCache pageCache;
     final int filePageSize;
     final PageCacheTracer pageCacheTracer;
+    final MuninnPagedFileCounters counters;
 
     // This is the table where we translate file-page-ids to cache-page-ids. Only one thread can perform a resize at
     // a time, and we ensure this mutual exclusion using the monitor lock on this MuninnPagedFile object.
     volatile Object[][] translationTable;
 
+    // The dirty page group bitmaps, with one bitmap for each chunk in the translation table. This array is always
+    // assigned before the translation table when the table is expanded, so it is never shorter than the table.
+    private volatile AtomicLong[] dirtyGroups;
+
     final PageSwapper swapper;
     private final CursorPool cursorPool;
 
@@ -118,6 +132,7 @@ final class MuninnPagedFile implements PagedFile, Flushable
         this.filePageSize = filePageSize;
         this.cursorPool = new CursorPool( this, pageCursorTracerSupplier, pageCacheTracer );
         this.pageCacheTracer = pageCacheTracer;
+        this.counters = new MuninnPagedFileCounters();
 
         // The translation table is an array of arrays of references to either null, MuninnPage objects, or Latch
         // objects. The table only grows the outer array, and all the inner "chunks" all stay the same size. This
@@ -145,6 +160,7 @@ final class MuninnPagedFile implements PagedFile, Flushable
         {
             tt[i] = new Object[translationTableChunkSize];
         }
+        dirtyGroups = newDirtyGroups( new AtomicLong[0], initialChunks );
         translationTable = tt;
 
         initialiseLastPageId( lastPageId );
@@ -201,11 +217,18 @@ final class MuninnPagedFile implements PagedFile, Flushable
         return (lastPageId + 1) * pageSize();
     }
 
-    File file()
+    @Override
+    public File file()
     {
         return swapper.file();
     }
 
+    @Override
+    public PagedFileCounters counters()
+    {
+        return counters;
+    }
+
     public void close() throws IOException
     {
         pageCache.unmap( this );
@@ -270,22 +293,86 @@ final class MuninnPagedFile implements PagedFile, Flushable
 
     void flushAndForceInternal( FlushEventOpportunity flushOpportunity, boolean forClosing, IOLimiter limiter )
             throws IOException
+    {
+        flushChunks( flushOpportunity, limiter, forClosing, 0, translationTableChunks() );
+        force();
+    }
+
+    @Override
+    public long flushDirtyPages( long startPageId, long pageCount, IOLimiter limiter ) throws IOException
+    {
+        if ( limiter == null )
+        {
+            throw new IllegalArgumentException( "IOPSLimiter cannot be null" );
+        }
+        try ( MajorFlushEvent flushEvent = pageCacheTracer.beginFileFlush( swapper ) )
+        {
+            return flushPages( flushEvent.flushEventOpportunity(), limiter, false,
+                    startPageId, startPageId + pageCount );
+        }
+    }
+
+    /**
+     * @return The number of chunks in the translation table, which is the unit of work that flushes can be divided
+     * into with {@link #flushChunks(FlushEventOpportunity, IOLimiter, boolean, int, int)}.
+     */
+    int translationTableChunks()
+    {
+        return translationTable.length;
+    }
+
+    /**
+     * Flush the dirty pages in the given range of translation table chunks, without forcing the file.
+     */
+    void flushChunks( FlushEventOpportunity flushOpportunity, IOLimiter limiter, boolean forClosing,
+            int fromChunk, int toChunk ) throws IOException
+    {
+        flushPages( flushOpportunity, limiter, forClosing,
+                ((long) fromChunk) << translationTableChunkSizePower,
+                ((long) toChunk) << translationTableChunkSizePower );
+    }
+
+    /**
+     * Flush the dirty pages in the given range of file pages, without forcing the file. Adjacent dirty pages are
+     * coalesced into vectored writes, also across translation table chunk boundaries. Disjoint ranges of the same
+     * file can be flushed concurrently.
+     * @return The number of pages that were flushed.
+     */
+    private long flushPages( FlushEventOpportunity flushOpportunity, IOLimiter limiter, boolean forClosing,
+            long fromPageId, long toPageId ) throws IOException
     {
         // TODO it'd be awesome if, on Linux, we'd call sync_file_range(2) instead of fsync
         MuninnPage[] pages = new MuninnPage[translationTableChunkSize];
-        long filePageId = -1; // Start at -1 because we increment at the *start* of the chunk-loop iteration.
         long limiterStamp = IOLimiter.INITIAL_STAMP;
         Object[][] tt = this.translationTable;
-        for ( Object[] chunk : tt )
+        AtomicLong[] dirtyGroups = this.dirtyGroups;
+        toPageId = Math.min( toPageId, ((long) tt.length) << translationTableChunkSizePower );
+        int pagesGrabbed = 0;
+        long pagesFlushed = 0;
+        long filePageId = Math.max( 0, fromPageId );
+        while ( filePageId < toPageId )
         {
+            int chunkId = computeChunkId( filePageId );
+            long groupEnd = Math.min( toPageId, (filePageId | dirtyGroupSizeMask) + 1 );
+            if ( !claimDirtyGroup( dirtyGroups[chunkId], filePageId, groupEnd ) )
+            {
+                // None of the pages in this group have been written to since they were last flushed.
+                if ( pagesGrabbed > 0 )
+                {
+                    vectoredFlush( pages, pagesGrabbed, flushOpportunity, forClosing );
+                    limiterStamp = limiter.maybeLimitIO( limiterStamp, pagesGrabbed, this );
+                    pagesFlushed += pagesGrabbed;
+                    pagesGrabbed = 0;
+                }
+                filePageId = groupEnd;
+                continue;
+            }
+            Object[] chunk = tt[chunkId];
             // TODO Look into if we can tolerate flushing a few clean pages if it means we can use larger vectors.
             // TODO The clean pages in question must still be loaded, though. Otherwise we'll end up writing
             // TODO garbage to the file.
-            int pagesGrabbed = 0;
-            chunkLoop:for ( int i = 0; i < chunk.length; i++ )
+            pageLoop:for ( ; filePageId < groupEnd; filePageId++ )
             {
-                filePageId++;
-
                 long offset = computeChunkOffset( filePageId );
                 // We might race with eviction, but we also mustn't miss a dirty page, so we loop until we succeed
                 // in getting a lock on all available pages.
@@ -296,7 +383,14 @@ final class MuninnPagedFile implements PagedFile, Flushable
                     {
                         MuninnPage page = (MuninnPage) element;
                         long stamp = page.tryOptimisticReadLock();
-                        if ( (!page.isDirty()) && page.validateReadLock( stamp ) )
+                        boolean clean = !page.isDirty();
+                        if ( !page.validateReadLock( stamp ) )
+                        {
+                            // The page is concurrently locked, possibly by a writer that found the group already
+                            // marked as dirty, so we make sure that the next flush will visit this group again.
+                            markDirty( filePageId );
+                        }
+                        else if ( clean )
                         {
                             break;
                         }
@@ -309,10 +403,13 @@ final class MuninnPagedFile implements PagedFile, Flushable
                         {
                             // The page is still bound to the expected file and file page id after we locked it,
                             // so we didn't race with eviction and faulting, and the page is dirty.
-                            // So we add it to our IO vector.
+                            // So we add it to our IO vector, and keep growing the vector until it is full.
                             pages[pagesGrabbed] = page;
                             pagesGrabbed++;
-                            continue chunkLoop;
+                            if ( pagesGrabbed < pages.length )
+                            {
+                                continue pageLoop;
+                            }
                         }
                         else if ( forClosing )
                         {
@@ -329,16 +426,25 @@ final class MuninnPagedFile implements PagedFile, Flushable
                 {
                     vectoredFlush( pages, pagesGrabbed, flushOpportunity, forClosing );
                     limiterStamp = limiter.maybeLimitIO( limiterStamp, pagesGrabbed, this );
+                    pagesFlushed += pagesGrabbed;
                     pagesGrabbed = 0;
                 }
             }
-            if ( pagesGrabbed > 0 )
-            {
-                vectoredFlush( pages, pagesGrabbed, flushOpportunity, forClosing );
-                limiterStamp = limiter.maybeLimitIO( limiterStamp, pagesGrabbed, this );
-            }
         }
+        if ( pagesGrabbed > 0 )
+        {
+            vectoredFlush( pages, pagesGrabbed, flushOpportunity, forClosing );
+            limiter.maybeLimitIO( limiterStamp, pagesGrabbed, this );
+            pagesFlushed += pagesGrabbed;
+        }
+        return pagesFlushed;
+    }
 
+    /**
+     * Force the changes that have been written to the file, down to the storage device.
+     */
+    void force() throws IOException
+    {
         swapper.force();
     }
 
@@ -368,6 +474,7 @@ final class MuninnPagedFile implements PagedFile, Flushable
             flush.addBytesWritten( bytesWritten );
             flush.addPagesFlushed( pagesGrabbed );
             flush.done();
+            counters.flushed( pagesGrabbed, bytesWritten );
 
             // There are now 0 'grabbed' pages
         }
@@ -377,6 +484,7 @@ final class MuninnPagedFile implements PagedFile, Flushable
             for ( int j = 0; j < pagesGrabbed; j++ )
             {
                 pages[j].markAsDirty();
+                markDirty( pages[j].getFilePageId() );
             }
             if ( flush != null )
             {
@@ -536,13 +644,112 @@ final class MuninnPagedFile implements PagedFile, Flushable
         return pageCache.grabFreeAndExclusivelyLockedPage( faultEvent );
     }
 
+    /**
+     * Fault in the pages in the given range that are not already in memory, with a vectored read for each run of
+     * contiguous pages. Read-ahead never evicts any pages, so it stops when there are no more free pages to fault
+     * into. Failures are not reported, since the pages will just be faulted in by the cursors that need them.
+     * @param startFilePageId The id of the first file page to read ahead.
+     * @param pageCount The maximum number of pages to read ahead.
+     */
+    void readAhead( long startFilePageId, int pageCount )
+    {
+        MuninnPage[] pages = new MuninnPage[pageCount];
+        BinaryLatch[] latches = new BinaryLatch[pageCount];
+        long runStartFilePageId = startFilePageId;
+        int runLength = 0;
+        try
+        {
+            long endFilePageId = Math.min( startFilePageId + pageCount, getLastPageId() + 1 );
+            for ( long filePageId = startFilePageId; filePageId < endFilePageId; filePageId++ )
+            {
+                int chunkId = computeChunkId( filePageId );
+                Object[][] tt = translationTable;
+                if ( tt.length <= chunkId )
+                {
+                    tt = expandCapacity( chunkId );
+                }
+                Object[] chunk = tt[chunkId];
+                long chunkOffset = computeChunkOffset( filePageId );
+                BinaryLatch latch = new BinaryLatch();
+                if ( !UnsafeUtil.compareAndSwapObject( chunk, chunkOffset, null, latch ) )
+                {
+                    // The page is already in memory, or someone else is faulting it in, so this ends the current run.
+                    readAheadRun( runStartFilePageId, pages, latches, runLength );
+                    runLength = 0;
+                    continue;
+                }
+                MuninnPage page = pageCache.tryGrabFreeAndExclusivelyLockedPage();
+                if ( page == null )
+                {
+                    UnsafeUtil.putObjectVolatile( chunk, chunkOffset, null );
+                    latch.release();
+                    break;
+                }
+                if ( runLength == 0 )
+                {
+                    runStartFilePageId = filePageId;
+                }
+                pages[runLength] = page;
+                latches[runLength] = latch;
+                runLength++;
+                page.initBuffer();
+                page.beginFault( swapper, filePageId );
+            }
+            readAheadRun( runStartFilePageId, pages, latches, runLength );
+        }
+        catch ( Throwable ignore )
+        {
+            // Make sure to unstuck the page fault latches, and to unlock the pages so the eviction thread can pick up
+            // our trash.
+            for ( int i = 0; i < runLength; i++ )
+            {
+                long filePageId = runStartFilePageId + i;
+                Object[] chunk = translationTable[computeChunkId( filePageId )];
+                UnsafeUtil.putObjectVolatile( chunk, computeChunkOffset( filePageId ), null );
+                pages[i].unlockExclusive();
+                latches[i].release();
+            }
+        }
+    }
+
+    private void readAheadRun( long startFilePageId, MuninnPage[] pages, BinaryLatch[] latches, int length )
+            throws IOException
+    {
+        if ( length == 0 )
+        {
+            return;
+        }
+        // Check if we're racing with unmapping, before we risk reopening the file channel.
+        getLastPageId();
+        long bytesRead = swapper.read( startFilePageId, pages, 0, length );
+        for ( int i = 0; i < length; i++ )
+        {
+            long filePageId = startFilePageId + i;
+            MuninnPage page = pages[i];
+            page.completeFault( swapper );
+            Object[] chunk = translationTable[computeChunkId( filePageId )];
+            UnsafeUtil.putObjectVolatile( chunk, computeChunkOffset( filePageId ), page );
+            page.unlockExclusive();
+            latches[i].release();
+        }
+        pageCacheTracer.faults( length );
+        pageCacheTracer.bytesRead( bytesRead );
+        counters.faulted( length, bytesRead );
+    }
+
     /**
      * Remove the mapping of the given filePageId from the translation table, and return the evicted page object.
      * @param filePageId The id of the file page to evict.
+     * @param bytesFlushed The number of bytes that were flushed as part of the eviction, or zero if the page was clean.
      * @return The page object of the evicted file page.
      */
-    MuninnPage evictPage( long filePageId )
+    MuninnPage evictPage( long filePageId, long bytesFlushed )
     {
+        counters.evicted();
+        if ( bytesFlushed > 0 )
+        {
+            counters.flushed( 1, bytesFlushed );
+        }
         int chunkId = computeChunkId( filePageId );
         long chunkOffset = computeChunkOffset( filePageId );
         Object[] chunk = translationTable[chunkId];
@@ -569,11 +776,61 @@ final class MuninnPagedFile implements PagedFile, Flushable
                 ntt[i] = new Object[translationTableChunkSize];
             }
             tt = ntt;
+            dirtyGroups = newDirtyGroups( dirtyGroups, newLength );
             translationTable = tt;
         }
         return tt;
     }
 
+    private static AtomicLong[] newDirtyGroups( AtomicLong[] dirtyGroups, int length )
+    {
+        // The existing bitmaps are shared with the new array, so no concurrent marking of dirty pages is lost.
+        AtomicLong[] newDirtyGroups = Arrays.copyOf( dirtyGroups, length );
+        for ( int i = dirtyGroups.length; i < length; i++ )
+        {
+            newDirtyGroups[i] = new AtomicLong();
+        }
+        return newDirtyGroups;
+    }
+
+    /**
+     * Record that the given page has been written to, such that it will be visited by the next flush. This must be
+     * called after the page has been marked as dirty.
+     */
+    void markDirty( long filePageId )
+    {
+        AtomicLong bitmap = dirtyGroups[computeChunkId( filePageId )];
+        long bit = dirtyGroupBit( filePageId );
+        if ( (bitmap.get() & bit) == 0 )
+        {
+            bitmap.getAndAccumulate( bit, ( bits, b ) -> bits | b );
+        }
+    }
+
+    /**
+     * Check if any page in the dirty page group of the given page range has been written to since it was last
+     * flushed. The range must lie within a single group. If the range covers the whole group, then the group is
+     * marked as clean, before its pages are flushed, so that concurrent writes will mark it as dirty again.
+     */
+    private static boolean claimDirtyGroup( AtomicLong bitmap, long fromPageId, long toPageId )
+    {
+        long bit = dirtyGroupBit( fromPageId );
+        if ( (bitmap.get() & bit) == 0 )
+        {
+            return false;
+        }
+        if ( (fromPageId & dirtyGroupSizeMask) == 0 && toPageId - fromPageId > dirtyGroupSizeMask )
+        {
+            bitmap.getAndAccumulate( bit, ( bits, b ) -> bits & ~b );
+        }
+        return true;
+    }
+
+    private static long dirtyGroupBit( long filePageId )
+    {
+        return 1L << ((filePageId & translationTableChunkSizeMask) >>> dirtyGroupSizePower);
+    }
+
     private int computeNewRootTableLength( int maxChunkId )
     {
         // Grow by approx. 10% but always by at least one full chunk.
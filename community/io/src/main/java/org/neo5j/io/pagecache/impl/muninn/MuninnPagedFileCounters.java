@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.io.pagecache.impl.muninn;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.neo5j.io.pagecache.monitoring.PagedFileCounters;
+
+/**
+ * The counters of a {@link MuninnPagedFile}. Page cursors count their pins, hits and faults locally, and add them to
+ * these counters when they are closed, so the pin path does not have to touch any shared state.
+ */
+final class MuninnPagedFileCounters implements PagedFileCounters
+{
+    private final LongAdder pins = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder faults = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+
+    void cursorClosed( long pins, long hits, long faults, long bytesRead )
+    {
+        if ( pins > 0 )
+        {
+            this.pins.add( pins );
+        }
+        if ( hits > 0 )
+        {
+            this.hits.add( hits );
+        }
+        if ( faults > 0 )
+        {
+            faulted( faults, bytesRead );
+        }
+    }
+
+    void faulted( long faults, long bytesRead )
+    {
+        this.faults.add( faults );
+        this.bytesRead.add( bytesRead );
+    }
+
+    void evicted()
+    {
+        evictions.increment();
+    }
+
+    void flushed( long pages, long bytesWritten )
+    {
+        this.flushes.add( pages );
+        this.bytesWritten.add( bytesWritten );
+    }
+
+    @Override
+    public long pins()
+    {
+        return pins.sum();
+    }
+
+    @Override
+    public long hits()
+    {
+        return hits.sum();
+    }
+
+    @Override
+    public long faults()
+    {
+        return faults.sum();
+    }
+
+    @Override
+    public long evictions()
+    {
+        return evictions.sum();
+    }
+
+    @Override
+    public long flushes()
+    {
+        return flushes.sum();
+    }
+
+    @Override
+    public long bytesRead()
+    {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long bytesWritten()
+    {
+        return bytesWritten.sum();
+    }
+}
@@ -58,8 +58,11 @@ final class MuninnReadPageCursor extends MuninnPageCursor
         {
             return false;
         }
-        pin( nextPageId, false );
-        currentPageId = nextPageId;
+        readAheadIfSequential( nextPageId, lastPageId );
+        if ( pin( nextPageId, false ) )
+        {
+            currentPageId = nextPageId;
+        }
         nextPageId++;
         return true;
     }
@@ -80,7 +83,7 @@ final class MuninnReadPageCursor extends MuninnPageCursor
     protected void pinCursorToPage( MuninnPage page, long filePageId, PageSwapper swapper )
     {
         reset( page );
-        page.incrementUsage();
+        recordUsage( page );
     }
 
     @Override
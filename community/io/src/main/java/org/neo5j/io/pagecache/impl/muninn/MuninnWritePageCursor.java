@@ -44,6 +44,8 @@ final class MuninnWritePageCursor extends MuninnPageCursor
             // Mark the page as dirty *after* our write access, to make sure it's dirty even if it was concurrently
             // flushed
             page.markAsDirty();
+            // And tell the paged file about it, while we still hold the write lock, so the next flush visits it
+            pagedFile.markDirty( currentPageId );
             pinEvent.done();
             unlockPage( page );
         }
@@ -61,7 +63,7 @@ final class MuninnWritePageCursor extends MuninnPageCursor
         }
         if ( nextPageId > lastPageId )
         {
-            if ( (pf_flags & PagedFile.PF_NO_GROW) != 0 )
+            if ( (pf_flags & (PagedFile.PF_NO_GROW | PagedFile.PF_NO_FAULT)) != 0 )
             {
                 return false;
             }
@@ -70,8 +72,10 @@ final class MuninnWritePageCursor extends MuninnPageCursor
                 pagedFile.increaseLastPageIdTo( nextPageId );
             }
         }
-        pin( nextPageId, true );
-        currentPageId = nextPageId;
+        if ( pin( nextPageId, true ) )
+        {
+            currentPageId = nextPageId;
+        }
         nextPageId++;
         return true;
     }
@@ -100,7 +104,7 @@ final class MuninnWritePageCursor extends MuninnPageCursor
         // after the reset() call, which means that if we throw, the cursor will
         // be closed and the page lock will be released.
         assertPagedFileStillMappedAndGetIdOfLastPage();
-        page.incrementUsage();
+        recordUsage( page );
     }
 
     @Override
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.io.pagecache.impl.muninn;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.neo5j.io.pagecache.IOLimiter;
+import org.neo5j.io.pagecache.tracing.FlushEventOpportunity;
+
+/**
+ * Flushes a set of files with a number of threads in parallel.
+ * <p>
+ * The translation tables of the files are divided into ranges of chunks, and the ranges are flushed by the calling
+ * thread and a number of background helper threads, that all take ranges off of a shared queue. Once all the ranges
+ * have been flushed, the files are forced by the calling thread.
+ * <p>
+ * All the threads account their IO against a single shared {@link IOLimiter} stamp, such that the IO rate of the
+ * parallel flush as a whole is limited the same way as a single threaded flush would have been.
+ */
+final class ParallelFlush
+{
+    private final List<MuninnPagedFile> files;
+    private final FlushEventOpportunity flushOpportunity;
+    private final IOLimiter limiter;
+    private final Queue<Range> ranges = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    ParallelFlush( List<MuninnPagedFile> files, int chunksPerRange, FlushEventOpportunity flushOpportunity,
+            IOLimiter limiter )
+    {
+        this.files = files;
+        this.flushOpportunity = flushOpportunity;
+        this.limiter = new SharedStampIOLimiter( limiter );
+        for ( MuninnPagedFile file : files )
+        {
+            int chunks = file.translationTableChunks();
+            for ( int fromChunk = 0; fromChunk < chunks; fromChunk += chunksPerRange )
+            {
+                ranges.add( new Range( file, fromChunk, Math.min( chunks, fromChunk + chunksPerRange ) ) );
+            }
+        }
+    }
+
+    /**
+     * Flush all the ranges, using the calling thread and up to {@code parallelism - 1} threads from the given
+     * executor, and then force all the files. This method does not return until all the helper threads are done.
+     */
+    void flushAndForce( MuninnPageCache pageCache, Executor executor, int parallelism ) throws IOException
+    {
+        int helpers = Math.max( 0, Math.min( parallelism, ranges.size() ) - 1 );
+        CountDownLatch helpersDone = new CountDownLatch( helpers );
+        int helpersStarted = 0;
+        try
+        {
+            for ( ; helpersStarted < helpers; helpersStarted++ )
+            {
+                executor.execute( new FlushTask( pageCache, this, helpersDone ) );
+            }
+        }
+        catch ( RuntimeException ignore )
+        {
+            // We could not start as many helpers as we wanted, so we have to do more of the work ourselves.
+            for ( int i = helpersStarted; i < helpers; i++ )
+            {
+                helpersDone.countDown();
+            }
+        }
+        flushRanges();
+        awaitHelpers( helpersDone );
+        rethrowFailure();
+
+        for ( MuninnPagedFile file : files )
+        {
+            file.force();
+        }
+    }
+
+    private void flushRanges()
+    {
+        Range range;
+        while ( failure.get() == null && (range = ranges.poll()) != null )
+        {
+            try
+            {
+                range.file.flushChunks( flushOpportunity, limiter, false, range.fromChunk, range.toChunk );
+            }
+            catch ( Throwable e )
+            {
+                if ( !failure.compareAndSet( null, e ) )
+                {
+                    failure.get().addSuppressed( e );
+                }
+            }
+        }
+    }
+
+    private static void awaitHelpers( CountDownLatch helpersDone )
+    {
+        // The helpers may still be holding flush locks on pages, and the flush is not complete until they are done,
+        // so we wait for them even if we are interrupted.
+        boolean interrupted = false;
+        for (;;)
+        {
+            try
+            {
+                helpersDone.await();
+                break;
+            }
+            catch ( InterruptedException e )
+            {
+                interrupted = true;
+            }
+        }
+        if ( interrupted )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void rethrowFailure() throws IOException
+    {
+        Throwable e = failure.get();
+        if ( e == null )
+        {
+            return;
+        }
+        if ( e instanceof IOException )
+        {
+            throw (IOException) e;
+        }
+        if ( e instanceof RuntimeException )
+        {
+            throw (RuntimeException) e;
+        }
+        if ( e instanceof Error )
+        {
+            throw (Error) e;
+        }
+        throw new IOException( e );
+    }
+
+    private static final class Range
+    {
+        private final MuninnPagedFile file;
+        private final int fromChunk;
+        private final int toChunk;
+
+        Range( MuninnPagedFile file, int fromChunk, int toChunk )
+        {
+            this.file = file;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+    }
+
+    private static final class FlushTask extends BackgroundTask
+    {
+        private final ParallelFlush flush;
+        private final CountDownLatch done;
+
+        FlushTask( MuninnPageCache pageCache, ParallelFlush flush, CountDownLatch done )
+        {
+            super( pageCache );
+            this.flush = flush;
+            this.done = done;
+        }
+
+        @Override
+        protected void run( MuninnPageCache pageCache )
+        {
+            try
+            {
+                flush.flushRanges();
+            }
+            finally
+            {
+                done.countDown();
+            }
+        }
+    }
+
+    /**
+     * Serialises the calls to the given limiter, and threads a single stamp through all of them, regardless of which
+     * thread makes the call. A limiter that pauses will thus hold up all the flushing threads.
+     */
+    private static final class SharedStampIOLimiter implements IOLimiter
+    {
+        private final IOLimiter limiter;
+        private long stamp = INITIAL_STAMP;
+
+        SharedStampIOLimiter( IOLimiter limiter )
+        {
+            this.limiter = limiter;
+        }
+
+        @Override
+        public synchronized long maybeLimitIO( long previousStamp, int recentlyCompletedIOs, Flushable flushable )
+                throws IOException
+        {
+            stamp = limiter.maybeLimitIO( stamp, recentlyCompletedIOs, flushable );
+            return stamp;
+        }
+
+        @Override
+        public void disableLimit()
+        {
+            limiter.disableLimit();
+        }
+
+        @Override
+        public void enableLimit()
+        {
+            limiter.enableLimit();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.io.pagecache.impl.muninn;
+
+/**
+ * This Runnable faults in a range of pages of a file, ahead of a cursor that is scanning through that file.
+ *
+ * @see MuninnPagedFile#readAhead(long, int)
+ */
+final class ReadAheadTask extends BackgroundTask
+{
+    private final MuninnPagedFile pagedFile;
+    private final long startFilePageId;
+    private final int pageCount;
+
+    ReadAheadTask( MuninnPageCache pageCache, MuninnPagedFile pagedFile, long startFilePageId, int pageCount )
+    {
+        super( pageCache );
+        this.pagedFile = pagedFile;
+        this.startFilePageId = startFilePageId;
+        this.pageCount = pageCount;
+    }
+
+    @Override
+    protected void run( MuninnPageCache pageCache )
+    {
+        try
+        {
+            pagedFile.readAhead( startFilePageId, pageCount );
+        }
+        finally
+        {
+            pageCache.readAheadFinished();
+        }
+    }
+}
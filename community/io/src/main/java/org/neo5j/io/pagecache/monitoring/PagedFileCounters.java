@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.io.pagecache.monitoring;
+
+/**
+ * The PagedFileCounters exposes internal counters for a single file mapped by the page cache, such that the files
+ * that are causing the most IO can be told apart. Unlike the {@link PageCacheCounters}, these counters are not
+ * sourced through the PageCacheTracer API, but are maintained by the paged file itself. Counts from page cursors are
+ * only added to these counters when the cursors are closed.
+ */
+public interface PagedFileCounters
+{
+    /**
+     * @return The number of page pins observed on this file thus far.
+     */
+    long pins();
+
+    /**
+     * @return The number of page cache hits on this file thus far.
+     */
+    long hits();
+
+    /**
+     * @return The number of page faults observed on this file thus far.
+     */
+    long faults();
+
+    /**
+     * @return The number of evictions of pages that belonged to this file thus far.
+     */
+    long evictions();
+
+    /**
+     * @return The number of pages of this file that have been flushed thus far. A flush that writes several
+     * consecutive pages at once counts each of them.
+     */
+    long flushes();
+
+    /**
+     * @return The sum total of bytes read in from this file through page faults thus far.
+     */
+    long bytesRead();
+
+    /**
+     * @return The sum total of bytes written to this file through flushes thus far.
+     */
+    long bytesWritten();
+
+    /**
+     * @return The ratio of pins that were page cache hits, or 1.0 if no pins have been observed yet.
+     */
+    default double hitRatio()
+    {
+        long pins = pins();
+        return pins == 0 ? 1.0 : ((double) hits()) / pins;
+    }
+}
@@ -27,8 +27,10 @@ import java.io.IOException;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.OpenOption;
 import java.nio.file.StandardOpenOption;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.neo5j.adversaries.Adversary;
@@ -83,6 +85,15 @@ public class AdversarialPageCache implements PageCache
         return optional;
     }
 
+    @Override
+    public List<PagedFile> listExistingMappings() throws IOException
+    {
+        adversary.injectFailure( IOException.class, SecurityException.class );
+        return delegate.listExistingMappings().stream()
+                .map( pagedFile -> new AdversarialPagedFile( pagedFile, adversary ) )
+                .collect( Collectors.toList() );
+    }
+
     @Override
     public void flushAndForce() throws IOException
     {
@@ -19,6 +19,7 @@
  */
 package org.neo5j.adversaries.pagecache;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.channels.ReadableByteChannel;
@@ -31,6 +32,7 @@ import org.neo5j.io.pagecache.PageCursor;
 import org.neo5j.io.pagecache.PagedFile;
 import org.neo5j.io.pagecache.impl.PagedReadableByteChannel;
 import org.neo5j.io.pagecache.impl.PagedWritableByteChannel;
+import org.neo5j.io.pagecache.monitoring.PagedFileCounters;
 
 /**
  * A {@linkplain PagedFile paged file} that wraps another paged file and an {@linkplain Adversary adversary} to provide
@@ -76,6 +78,18 @@ public class AdversarialPagedFile implements PagedFile
         return delegate.fileSize();
     }
 
+    @Override
+    public File file()
+    {
+        return delegate.file();
+    }
+
+    @Override
+    public PagedFileCounters counters()
+    {
+        return delegate.counters();
+    }
+
     @Override
     public void flushAndForce() throws IOException
     {
@@ -90,6 +104,13 @@ public class AdversarialPagedFile implements PagedFile
         delegate.flushAndForce( limiter );
     }
 
+    @Override
+    public long flushDirtyPages( long startPageId, long pageCount, IOLimiter limiter ) throws IOException
+    {
+        adversary.injectFailure( FileNotFoundException.class, IOException.class, SecurityException.class );
+        return delegate.flushDirtyPages( startPageId, pageCount, limiter );
+    }
+
     @Override
     public long getLastPageId() throws IOException
     {
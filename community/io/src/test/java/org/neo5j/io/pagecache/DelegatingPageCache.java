@@ -22,6 +22,7 @@ package org.neo5j.io.pagecache;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.OpenOption;
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
 
@@ -45,6 +46,12 @@ public class DelegatingPageCache implements PageCache
         return delegate.getExistingMapping( file );
     }
 
+    @Override
+    public List<PagedFile> listExistingMappings() throws IOException
+    {
+        return delegate.listExistingMappings();
+    }
+
     public int pageSize()
     {
         return delegate.pageSize();
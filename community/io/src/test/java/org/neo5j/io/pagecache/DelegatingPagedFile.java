@@ -19,10 +19,13 @@
  */
 package org.neo5j.io.pagecache;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 
+import org.neo5j.io.pagecache.monitoring.PagedFileCounters;
+
 public class DelegatingPagedFile implements PagedFile
 {
     private final PagedFile delegate;
@@ -58,6 +61,16 @@ public class DelegatingPagedFile implements PagedFile
         return delegate.fileSize();
     }
 
+    public File file()
+    {
+        return delegate.file();
+    }
+
+    public PagedFileCounters counters()
+    {
+        return delegate.counters();
+    }
+
     public void close() throws IOException
     {
         delegate.close();
@@ -79,4 +92,10 @@ public class DelegatingPagedFile implements PagedFile
     {
         delegate.flushAndForce( limiter );
     }
+
+    @Override
+    public long flushDirtyPages( long startPageId, long pageCount, IOLimiter limiter ) throws IOException
+    {
+        return delegate.flushDirtyPages( startPageId, pageCount, limiter );
+    }
 }
@@ -19,15 +19,20 @@
  */
 package org.neo5j.io.pagecache;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 
+import org.neo5j.io.pagecache.monitoring.PagedFileCounters;
+
 public class StubPagedFile implements PagedFile
 {
     private final int pageSize;
     public final int exposedPageSize;
     public long lastPageId = 1;
+    public File file = new File( "stub" );
+    public final Counters counters = new Counters();
 
     public StubPagedFile( int pageSize )
     {
@@ -64,6 +69,18 @@ public class StubPagedFile implements PagedFile
         return (lastPageId + 1) * pageSize();
     }
 
+    @Override
+    public File file()
+    {
+        return file;
+    }
+
+    @Override
+    public PagedFileCounters counters()
+    {
+        return counters;
+    }
+
     @Override
     public void flushAndForce() throws IOException
     {
@@ -74,6 +91,12 @@ public class StubPagedFile implements PagedFile
     {
     }
 
+    @Override
+    public long flushDirtyPages( long startPageId, long pageCount, IOLimiter limiter ) throws IOException
+    {
+        return 0;
+    }
+
     @Override
     public long getLastPageId() throws IOException
     {
@@ -96,4 +119,60 @@ public class StubPagedFile implements PagedFile
     {
         throw new UnsupportedOperationException( "Not implemented for StubPagedFile" );
     }
+
+    /**
+     * Counters that tests can set to whatever values they need.
+     */
+    public static class Counters implements PagedFileCounters
+    {
+        public long pins;
+        public long hits;
+        public long faults;
+        public long evictions;
+        public long flushes;
+        public long bytesRead;
+        public long bytesWritten;
+
+        @Override
+        public long pins()
+        {
+            return pins;
+        }
+
+        @Override
+        public long hits()
+        {
+            return hits;
+        }
+
+        @Override
+        public long faults()
+        {
+            return faults;
+        }
+
+        @Override
+        public long evictions()
+        {
+            return evictions;
+        }
+
+        @Override
+        public long flushes()
+        {
+            return flushes;
+        }
+
+        @Override
+        public long bytesRead()
+        {
+            return bytesRead;
+        }
+
+        @Override
+        public long bytesWritten()
+        {
+            return bytesWritten;
+        }
+    }
 }
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.io.pagecache.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.neo5j.io.fs.DefaultFileSystemAbstraction;
+import org.neo5j.io.fs.StoreChannel;
+import org.neo5j.io.pagecache.PageSwapper;
+import org.neo5j.io.pagecache.PageSwapperFactory;
+import org.neo5j.io.pagecache.PageSwapperTest;
+
+import static org.hamcrest.Matchers.anyOf;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.neo5j.test.matchers.ByteArrayMatcher.byteArray;
+
+public class MemoryMappedPageSwapperTest extends PageSwapperTest
+{
+    private DefaultFileSystemAbstraction fs;
+
+    @Before
+    public void setUp()
+    {
+        fs = new DefaultFileSystemAbstraction();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        fs.close();
+    }
+
+    @Override
+    protected PageSwapperFactory swapperFactory()
+    {
+        MemoryMappedPageSwapperFactory factory = new MemoryMappedPageSwapperFactory();
+        factory.setFileSystemAbstraction( fs );
+        return factory;
+    }
+
+    @Override
+    protected void mkdirs( File dir ) throws IOException
+    {
+        fs.mkdirs( dir );
+    }
+
+    @Override
+    protected File baseDirectory() throws IOException
+    {
+        return testDir.directory();
+    }
+
+    @Override
+    protected boolean isRootAccessible()
+    {
+        return false;
+    }
+
+    @Test
+    public void factoryMustCreateMemoryMappedSwappers() throws Exception
+    {
+        PageSwapper swapper = createSwapperAndFile( createSwapperFactory(), testDir.file( "file" ) );
+        assertThat( swapper, instanceOf( MemoryMappedPageSwapper.class ) );
+    }
+
+    @Test
+    public void swappingInMustReadPagesWrittenAfterTheFileWasMapped() throws Exception
+    {
+        File file = testDir.file( "file" );
+        writeFile( file, new byte[] { 1, 2, 3, 4 } );
+
+        PageSwapper swapper = createSwapper( createSwapperFactory(), file, 4, NO_CALLBACK, false );
+        ByteBufferPage page = new ByteBufferPage( ByteBuffer.allocateDirect( 4 ) );
+        assertThat( swapper.read( 0, page ), is( 4L ) );
+        assertThat( array( page ), byteArray( new byte[] { 1, 2, 3, 4 } ) );
+
+        swapper.write( 1, new ByteBufferPage( wrap( new byte[] { 5, 6, 7, 8 } ) ) );
+        assertThat( swapper.read( 1, page ), is( 4L ) );
+        assertThat( array( page ), byteArray( new byte[] { 5, 6, 7, 8 } ) );
+
+        swapper.write( 0, new ByteBufferPage( wrap( new byte[] { 9, 10, 11, 12 } ) ) );
+        assertThat( swapper.read( 0, page ), is( 4L ) );
+        assertThat( array( page ), byteArray( new byte[] { 9, 10, 11, 12 } ) );
+    }
+
+    @Test
+    public void mustZeroFillPartialPageAtEndOfFile() throws Exception
+    {
+        File file = testDir.file( "file" );
+        writeFile( file, new byte[] { 1, 2, 3, 4, 5, 6 } );
+
+        PageSwapper swapper = createSwapper( createSwapperFactory(), file, 4, NO_CALLBACK, false );
+        ByteBufferPage page = new ByteBufferPage( ByteBuffer.allocateDirect( 4 ) );
+        swapper.read( 1, page );
+        assertThat( array( page ), byteArray( new byte[] { 5, 6, 0, 0 } ) );
+        swapper.read( 0, page );
+        assertThat( array( page ), byteArray( new byte[] { 1, 2, 3, 4 } ) );
+    }
+
+    @Test
+    public void truncatingMustWaitForConcurrentSwapInsFromMappedSegments() throws Exception
+    {
+        int filePageSize = 4096;
+        int pageCount = 64;
+        File file = testDir.file( "file" );
+        PageSwapper swapper = createSwapper( createSwapperFactory(), file, filePageSize, NO_CALLBACK, true );
+        writePages( swapper, filePageSize, pageCount );
+
+        AtomicBoolean stop = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        try
+        {
+            List<Future<?>> readers = new ArrayList<>();
+            for ( int i = 0; i < 4; i++ )
+            {
+                readers.add( executor.submit( () ->
+                {
+                    ByteBufferPage page = new ByteBufferPage( ByteBuffer.allocateDirect( filePageSize ) );
+                    ThreadLocalRandom rng = ThreadLocalRandom.current();
+                    while ( !stop.get() )
+                    {
+                        int pageId = rng.nextInt( pageCount );
+                        swapper.read( pageId, page );
+                        // Either the page was read before the truncation, or it was read after it, as zeros.
+                        assertThat( page.getInt( 0 ), anyOf( is( 0 ), is( pageId + 1 ) ) );
+                    }
+                    return null;
+                } ) );
+            }
+
+            for ( int i = 0; i < 200; i++ )
+            {
+                swapper.truncate();
+                writePages( swapper, filePageSize, pageCount );
+            }
+            stop.set( true );
+            for ( Future<?> reader : readers )
+            {
+                reader.get();
+            }
+        }
+        finally
+        {
+            stop.set( true );
+            executor.shutdown();
+            swapper.close();
+        }
+    }
+
+    private void writePages( PageSwapper swapper, int filePageSize, int pageCount ) throws IOException
+    {
+        ByteBufferPage page = new ByteBufferPage( ByteBuffer.allocateDirect( filePageSize ) );
+        for ( int pageId = 0; pageId < pageCount; pageId++ )
+        {
+            page.putInt( pageId + 1, 0 );
+            swapper.write( pageId, page );
+        }
+    }
+
+    private void writeFile( File file, byte[] bytes ) throws IOException
+    {
+        try ( StoreChannel channel = fs.create( file ) )
+        {
+            channel.writeAll( wrap( bytes ) );
+        }
+    }
+
+    private byte[] array( ByteBufferPage page )
+    {
+        byte[] array = new byte[page.size()];
+        for ( int i = 0; i < array.length; i++ )
+        {
+            array[i] = page.getByte( i );
+        }
+        return array;
+    }
+
+    private ByteBuffer wrap( byte[] bytes )
+    {
+        ByteBuffer buffer = ByteBuffer.allocateDirect( bytes.length );
+        buffer.put( bytes );
+        buffer.clear();
+        return buffer;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.io.pagecache.impl;
+
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.neo5j.io.fs.DefaultFileSystemAbstraction;
+import org.neo5j.io.fs.FileSystemAbstraction;
+import org.neo5j.io.fs.StoreChannel;
+import org.neo5j.io.pagecache.PageCursor;
+import org.neo5j.io.pagecache.PageSwapperFactory;
+import org.neo5j.io.pagecache.PagedFile;
+import org.neo5j.io.pagecache.impl.muninn.MuninnPageCache;
+import org.neo5j.io.pagecache.tracing.PageCacheTracer;
+import org.neo5j.io.pagecache.tracing.cursor.DefaultPageCursorTracerSupplier;
+import org.neo5j.test.rule.TestDirectory;
+
+import static org.neo5j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
+
+/**
+ * Compares the page fault throughput of the page swappers, by reading random pages from a file that is much bigger
+ * than the page cache, but small enough to stay in the OS file cache.
+ */
+@Ignore( "Not a test. A benchmark" )
+public class PageSwapperBenchmark
+{
+    private static final int cachePageSize = 8192;
+    private static final int cachePages = 1000;
+    private static final int filePages = 100_000;
+    private static final int faultsPerRound = 1_000_000;
+    private static final int rounds = 5;
+
+    @Rule
+    public final TestDirectory testDir = TestDirectory.testDirectory();
+
+    @Test
+    public void compareRandomPageFaultThroughput() throws Exception
+    {
+        FileSystemAbstraction fs = new DefaultFileSystemAbstraction();
+        File file = testDir.file( "store" );
+        writeFile( fs, file );
+
+        for ( int i = 0; i < rounds; i++ )
+        {
+            benchmark( fs, file, new SingleFilePageSwapperFactory() );
+            benchmark( fs, file, new MemoryMappedPageSwapperFactory() );
+        }
+    }
+
+    private void writeFile( FileSystemAbstraction fs, File file ) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( cachePageSize );
+        try ( StoreChannel channel = fs.create( file ) )
+        {
+            for ( int i = 0; i < filePages; i++ )
+            {
+                buffer.clear();
+                while ( buffer.hasRemaining() )
+                {
+                    buffer.putInt( i );
+                }
+                buffer.flip();
+                channel.writeAll( buffer );
+            }
+        }
+    }
+
+    private void benchmark( FileSystemAbstraction fs, File file, PageSwapperFactory swapperFactory ) throws IOException
+    {
+        swapperFactory.setFileSystemAbstraction( fs );
+        ThreadLocalRandom rng = ThreadLocalRandom.current();
+        try ( MuninnPageCache pageCache = new MuninnPageCache( swapperFactory, cachePages, cachePageSize,
+                PageCacheTracer.NULL, DefaultPageCursorTracerSupplier.INSTANCE );
+              PagedFile pagedFile = pageCache.map( file, cachePageSize );
+              PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK ) )
+        {
+            long checksum = 0;
+            long start = System.nanoTime();
+            for ( int i = 0; i < faultsPerRound; i++ )
+            {
+                if ( cursor.next( rng.nextInt( filePages ) ) )
+                {
+                    int value;
+                    do
+                    {
+                        value = cursor.getInt();
+                    }
+                    while ( cursor.shouldRetry() );
+                    checksum += value;
+                }
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            System.out.printf( "%s: %s page reads in %s ms, %.0f reads/s (checksum %s)%n",
+                    swapperFactory.implementationName(), faultsPerRound, millis,
+                    faultsPerRound * 1000.0 / Math.max( 1, millis ), checksum );
+        }
+    }
+}
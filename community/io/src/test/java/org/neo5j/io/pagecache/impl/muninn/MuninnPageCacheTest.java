@@ -24,16 +24,23 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.neo5j.graphdb.mockfs.DelegatingFileSystemAbstraction;
 import org.neo5j.graphdb.mockfs.DelegatingStoreChannel;
 import org.neo5j.io.fs.FileSystemAbstraction;
 import org.neo5j.io.fs.StoreChannel;
+import org.neo5j.io.pagecache.IOLimiter;
 import org.neo5j.io.pagecache.PageCacheTest;
 import org.neo5j.io.pagecache.PageCursor;
 import org.neo5j.io.pagecache.PagedFile;
+import org.neo5j.io.pagecache.impl.SingleFilePageSwapperFactory;
+import org.neo5j.io.pagecache.monitoring.PagedFileCounters;
 import org.neo5j.io.pagecache.tracing.ConfigurablePageCursorTracerSupplier;
 import org.neo5j.io.pagecache.tracing.DelegatingPageCacheTracer;
 import org.neo5j.io.pagecache.tracing.EvictionRunEvent;
@@ -44,6 +51,7 @@ import org.neo5j.io.pagecache.tracing.recording.RecordingPageCacheTracer;
 import org.neo5j.io.pagecache.tracing.recording.RecordingPageCursorTracer;
 import org.neo5j.io.pagecache.tracing.recording.RecordingPageCursorTracer.Fault;
 
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -52,8 +60,10 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.neo5j.io.pagecache.PagedFile.PF_NO_GROW;
+import static org.neo5j.io.pagecache.PagedFile.PF_READ_AHEAD;
 import static org.neo5j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
 import static org.neo5j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
+import static org.neo5j.io.pagecache.PagedFile.PF_TRANSIENT;
 import static org.neo5j.io.pagecache.tracing.recording.RecordingPageCacheTracer.Evict;
 
 public class MuninnPageCacheTest extends PageCacheTest<MuninnPageCache>
@@ -231,6 +241,136 @@ public class MuninnPageCacheTest extends PageCacheTest<MuninnPageCache>
         assertThat( buf.getLong(), is( 0L ) );
     }
 
+    @Test
+    public void transientCursorsMustNotUpdatePageAccessStatistics() throws Exception
+    {
+        writeInitialDataTo( file( "a" ) );
+        RecordingPageCursorTracer cursorTracer = new RecordingPageCursorTracer( Fault.class );
+        ConfigurablePageCursorTracerSupplier cursorTracerSupplier = new ConfigurablePageCursorTracerSupplier( cursorTracer );
+
+        MuninnPageCache pageCache = createPageCache( fs, 4, 8, PageCacheTracer.NULL, cursorTracerSupplier );
+        PagedFile pagedFile = pageCache.map( file( "a" ), 8 );
+
+        pinPage( pagedFile, 0, PF_SHARED_READ_LOCK, 3 );
+        pinPage( pagedFile, 1, PF_SHARED_READ_LOCK | PF_TRANSIENT, 3 );
+        assertEquals( 2, cursorTracer.faults() );
+
+        // Only the page that was accessed through transient cursors can be evicted in the first sweep
+        int clockArm = pageCache.evictPages( 1, 0, EvictionRunEvent.NULL );
+        assertThat( clockArm, is( 2 ) );
+        pinPage( pagedFile, 0, PF_SHARED_READ_LOCK, 1 );
+        assertEquals( 2, cursorTracer.faults() );
+        pinPage( pagedFile, 1, PF_SHARED_READ_LOCK, 1 );
+        assertEquals( 3, cursorTracer.faults() );
+
+        pagedFile.close();
+        pageCache.close();
+    }
+
+    @Test
+    public void scanResistantEvictionPolicyMustEvictProbationaryPagesBeforeAgingProtectedPages() throws Exception
+    {
+        StoreChannel channel = fs.create( file( "a" ) );
+        channel.writeAll( ByteBuffer.allocate( 32 ) );
+        channel.close();
+        RecordingPageCursorTracer cursorTracer = new RecordingPageCursorTracer( Fault.class );
+        ConfigurablePageCursorTracerSupplier cursorTracerSupplier = new ConfigurablePageCursorTracerSupplier( cursorTracer );
+
+        SingleFilePageSwapperFactory swapperFactory = new SingleFilePageSwapperFactory();
+        swapperFactory.setFileSystemAbstraction( fs );
+        MuninnPageCache pageCache = new MuninnPageCache( swapperFactory, 6, 8, PageCacheTracer.NULL,
+                cursorTracerSupplier, EvictionPolicy.SCAN_RESISTANT );
+        PagedFile pagedFile = pageCache.map( file( "a" ), 8 );
+
+        // Page 0 and 1 are frequently used, while page 2 and 3 are only touched once, like a scan would do
+        pinPage( pagedFile, 0, PF_SHARED_READ_LOCK, 2 );
+        pinPage( pagedFile, 1, PF_SHARED_READ_LOCK, 2 );
+        pinPage( pagedFile, 2, PF_SHARED_READ_LOCK, 1 );
+        int clockArm = pageCache.evictPages( 1, 0, EvictionRunEvent.NULL );
+        assertThat( clockArm, is( 3 ) );
+        pinPage( pagedFile, 3, PF_SHARED_READ_LOCK, 1 );
+        assertEquals( 4, cursorTracer.faults() );
+
+        // The plain clock would have aged page 0 to the point of evicting it on this revolution
+        clockArm = pageCache.evictPages( 1, clockArm, EvictionRunEvent.NULL );
+        assertThat( clockArm, is( 3 ) );
+        pinPage( pagedFile, 0, PF_SHARED_READ_LOCK, 1 );
+        pinPage( pagedFile, 1, PF_SHARED_READ_LOCK, 1 );
+        assertEquals( 4, cursorTracer.faults() );
+
+        pagedFile.close();
+        pageCache.close();
+    }
+
+    @Test( timeout = SEMI_LONG_TIMEOUT_MILLIS )
+    public void cooperativeEvictionMustAgeProtectedPagesAcrossPageFaults() throws Exception
+    {
+        StoreChannel channel = fs.create( file( "a" ) );
+        channel.writeAll( ByteBuffer.allocate( 8 * 16 ) );
+        channel.close();
+        RecordingPageCursorTracer cursorTracer = new RecordingPageCursorTracer( Fault.class );
+        ConfigurablePageCursorTracerSupplier cursorTracerSupplier = new ConfigurablePageCursorTracerSupplier( cursorTracer );
+
+        // Keep the background eviction thread out of the way, so that every page fault evicts cooperatively
+        CountDownLatch evictorLatch = new CountDownLatch( 1 );
+        PageCacheTracer tracer = new DelegatingPageCacheTracer( PageCacheTracer.NULL )
+        {
+            @Override
+            public EvictionRunEvent beginPageEvictions( int pageCountToEvict )
+            {
+                try
+                {
+                    evictorLatch.await();
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+                return super.beginPageEvictions( pageCountToEvict );
+            }
+        };
+        SingleFilePageSwapperFactory swapperFactory = new SingleFilePageSwapperFactory();
+        swapperFactory.setFileSystemAbstraction( fs );
+        MuninnPageCache pageCache = new MuninnPageCache( swapperFactory, 4, 8, tracer,
+                cursorTracerSupplier, EvictionPolicy.SCAN_RESISTANT );
+        PagedFile pagedFile = pageCache.map( file( "a" ), 8 );
+        try
+        {
+            // Page 0 and 1 are protected, but are never used again
+            pinPage( pagedFile, 0, PF_SHARED_READ_LOCK, 3 );
+            pinPage( pagedFile, 1, PF_SHARED_READ_LOCK, 3 );
+
+            // Each page fault of the scan finds a probationary page to evict within a single revolution of the clock
+            for ( int i = 0; i < 1000; i++ )
+            {
+                pinPage( pagedFile, 2 + i % 14, PF_SHARED_READ_LOCK, 1 );
+            }
+            int faults = cursorTracer.faults();
+
+            // The protected pages aged over the many short evictions, until they were evicted as well
+            pinPage( pagedFile, 0, PF_SHARED_READ_LOCK, 1 );
+            pinPage( pagedFile, 1, PF_SHARED_READ_LOCK, 1 );
+            assertEquals( faults + 2, cursorTracer.faults() );
+        }
+        finally
+        {
+            evictorLatch.countDown();
+            pagedFile.close();
+            pageCache.close();
+        }
+    }
+
+    private void pinPage( PagedFile pagedFile, long pageId, int pf_flags, int times ) throws IOException
+    {
+        for ( int i = 0; i < times; i++ )
+        {
+            try ( PageCursor cursor = pagedFile.io( pageId, pf_flags ) )
+            {
+                assertTrue( cursor.next() );
+            }
+        }
+    }
+
     @Test
     public void closingTheCursorMustUnlockModifiedPage() throws Exception
     {
@@ -315,6 +455,185 @@ public class MuninnPageCacheTest extends PageCacheTest<MuninnPageCache>
         }
     }
 
+    @Test( timeout = SEMI_LONG_TIMEOUT_MILLIS )
+    public void readAheadCursorsMustFaultInSubsequentPagesInTheBackground() throws Exception
+    {
+        int filePages = 10;
+        generateFileWithRecords( file( "a" ), filePages * recordsPerFilePage, recordSize );
+        RecordingPageCacheTracer tracer = new RecordingPageCacheTracer();
+        RecordingPageCursorTracer cursorTracer = new RecordingPageCursorTracer();
+        ConfigurablePageCursorTracerSupplier cursorTracerSupplier =
+                new ConfigurablePageCursorTracerSupplier( cursorTracer );
+
+        MuninnPageCache pageCache = createPageCache( fs, maxPages, pageCachePageSize, tracer, cursorTracerSupplier );
+        PagedFile pagedFile = pageCache.map( file( "a" ), filePageSize );
+
+        try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK | PF_READ_AHEAD ) )
+        {
+            assertTrue( cursor.next() );
+            while ( tracer.faults() < filePages - 1 )
+            {
+                Thread.sleep( 10 );
+            }
+            for ( int i = 1; i < filePages; i++ )
+            {
+                assertTrue( cursor.next() );
+                verifyRecordsMatchExpected( cursor );
+            }
+            assertFalse( cursor.next() );
+        }
+        cursorTracer.reportEvents();
+        assertEquals( 1, cursorTracer.faults() );
+        assertEquals( filePages, tracer.faults() );
+        pagedFile.close();
+    }
+
+    @Test( timeout = SEMI_LONG_TIMEOUT_MILLIS )
+    public void pagedFileCountersMustBeKeptSeparatelyForEachFile() throws Exception
+    {
+        int filePages = 10;
+        generateFileWithRecords( file( "a" ), filePages * recordsPerFilePage, recordSize );
+        MuninnPageCache pageCache = createPageCache( fs, maxPages, pageCachePageSize, PageCacheTracer.NULL,
+                DefaultPageCursorTracerSupplier.NULL );
+        PagedFile pagedFileA = pageCache.map( file( "a" ), filePageSize );
+        PagedFile pagedFileB = pageCache.map( file( "b" ), filePageSize, StandardOpenOption.CREATE );
+
+        for ( int pass = 0; pass < 2; pass++ )
+        {
+            try ( PageCursor cursor = pagedFileA.io( 0, PF_SHARED_READ_LOCK ) )
+            {
+                while ( cursor.next() )
+                {
+                    verifyRecordsMatchExpected( cursor );
+                }
+            }
+        }
+        try ( PageCursor cursor = pagedFileB.io( 0, PF_SHARED_WRITE_LOCK ) )
+        {
+            assertTrue( cursor.next() );
+            cursor.putLong( 42 );
+        }
+        pagedFileB.flushAndForce();
+
+        PagedFileCounters countersA = pagedFileA.counters();
+        assertEquals( 2 * filePages, countersA.pins() );
+        assertEquals( filePages, countersA.hits() );
+        assertEquals( filePages, countersA.faults() );
+        assertEquals( filePages * filePageSize, countersA.bytesRead() );
+        assertEquals( 0, countersA.flushes() );
+        assertEquals( 0.5, countersA.hitRatio(), 0.0 );
+
+        PagedFileCounters countersB = pagedFileB.counters();
+        assertEquals( 1, countersB.pins() );
+        assertEquals( 1, countersB.flushes() );
+        assertEquals( filePageSize, countersB.bytesWritten() );
+
+        List<PagedFile> mappings = pageCache.listExistingMappings();
+        assertThat( mappings, containsInAnyOrder( pagedFileA, pagedFileB ) );
+        for ( PagedFile mapping : mappings )
+        {
+            mapping.close();
+        }
+        pagedFileA.close();
+        pagedFileB.close();
+    }
+
+    @Test( timeout = SEMI_LONG_TIMEOUT_MILLIS )
+    public void flushAndForceMustCoalesceDirtyPagesAndShareTheLimiterStampAcrossFiles() throws Exception
+    {
+        int files = 4;
+        int filePages = 5;
+        MuninnPageCache pageCache = createPageCache( fs, maxPages, pageCachePageSize, PageCacheTracer.NULL,
+                DefaultPageCursorTracerSupplier.NULL );
+        PagedFile[] pagedFiles = new PagedFile[files];
+        for ( int i = 0; i < files; i++ )
+        {
+            pagedFiles[i] = pageCache.map( file( "f" + i ), filePageSize, StandardOpenOption.CREATE );
+            try ( PageCursor cursor = pagedFiles[i].io( 0, PF_SHARED_WRITE_LOCK ) )
+            {
+                for ( int j = 0; j < filePages; j++ )
+                {
+                    assertTrue( cursor.next() );
+                    cursor.putLong( j );
+                }
+            }
+        }
+
+        AtomicLong lastStamp = new AtomicLong( IOLimiter.INITIAL_STAMP );
+        AtomicInteger completedIOs = new AtomicInteger();
+        pageCache.flushAndForce( ( previousStamp, recentlyCompletedIOs, flushable ) ->
+        {
+            // Calls from all the flushing threads must form a single chain of stamps.
+            assertEquals( lastStamp.get(), previousStamp );
+            completedIOs.addAndGet( recentlyCompletedIOs );
+            lastStamp.set( previousStamp + 1 );
+            return previousStamp + 1;
+        } );
+
+        assertEquals( files * filePages, completedIOs.get() );
+        for ( PagedFile pagedFile : pagedFiles )
+        {
+            // The adjacent dirty pages of each file are written with a single vectored write.
+            assertEquals( 1, pagedFile.counters().flushes() );
+            pagedFile.close();
+        }
+    }
+
+    @Test( timeout = SEMI_LONG_TIMEOUT_MILLIS )
+    public void flushMustOnlyWritePagesThatHaveBeenWrittenToSinceTheLastFlush() throws Exception
+    {
+        int filePages = maxPages / 2;
+        MuninnPageCache pageCache = createPageCache( fs, maxPages, pageCachePageSize, PageCacheTracer.NULL,
+                DefaultPageCursorTracerSupplier.NULL );
+        AtomicInteger completedIOs = new AtomicInteger();
+        IOLimiter countingLimiter = ( previousStamp, recentlyCompletedIOs, flushable ) ->
+        {
+            completedIOs.addAndGet( recentlyCompletedIOs );
+            return previousStamp;
+        };
+        try ( PagedFile pagedFile = pageCache.map( file( "a" ), filePageSize, StandardOpenOption.CREATE ) )
+        {
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+            {
+                for ( int i = 0; i < filePages; i++ )
+                {
+                    assertTrue( cursor.next() );
+                    cursor.putLong( i );
+                }
+            }
+            pagedFile.flushAndForce( countingLimiter );
+            assertEquals( filePages, completedIOs.getAndSet( 0 ) );
+
+            pagedFile.flushAndForce( countingLimiter );
+            assertEquals( 0, completedIOs.get() );
+
+            long pageId = filePages / 2;
+            try ( PageCursor cursor = pagedFile.io( pageId, PF_SHARED_WRITE_LOCK ) )
+            {
+                assertTrue( cursor.next() );
+                cursor.putLong( -1 );
+            }
+            pagedFile.flushAndForce( countingLimiter );
+            assertEquals( 1, completedIOs.getAndSet( 0 ) );
+
+            try ( PageCursor cursor = pagedFile.io( pageId, PF_SHARED_WRITE_LOCK ) )
+            {
+                assertTrue( cursor.next() );
+                cursor.putLong( -2 );
+            }
+            pagedFile.flushAndForce( countingLimiter );
+            assertEquals( 1, completedIOs.get() );
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate( Long.BYTES );
+        try ( StoreChannel channel = fs.open( file( "a" ), "r" ) )
+        {
+            channel.read( buffer, (filePages / 2) * filePageSize );
+        }
+        buffer.flip();
+        assertEquals( -2, buffer.getLong() );
+    }
+
     @Test( timeout = SEMI_LONG_TIMEOUT_MILLIS )
     public void mustThrowIfMappingFileWouldOverflowReferenceCount() throws Exception
     {
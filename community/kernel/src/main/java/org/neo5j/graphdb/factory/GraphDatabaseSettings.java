@@ -31,6 +31,7 @@ import org.neo5j.graphdb.config.Setting;
 import org.neo5j.helpers.AdvertisedSocketAddress;
 import org.neo5j.helpers.ListenSocketAddress;
 import org.neo5j.io.ByteUnit;
+import org.neo5j.io.pagecache.impl.muninn.EvictionPolicy;
 import org.neo5j.kernel.configuration.BoltConnectorValidator;
 import org.neo5j.kernel.configuration.ConfigurationMigrator;
 import org.neo5j.kernel.configuration.GraphDatabaseConfigurationMigrator;
@@ -214,6 +215,26 @@ public class GraphDatabaseSettings implements LoadableConfig
     public static Setting<Long> cypher_idp_solver_duration_threshold = setting(
             "unsupported.cypher.idp_solver_duration_threshold", LONG, "1000", min( 10L ) );
 
+    @Description( "The number of worker threads that aggregations over node scans, in read-only queries of the " +
+                  "interpreted runtime, are split across. Each worker reads in a transaction of its own, so this is " +
+                  "only done when the transaction of the query has no changes. A value of 0 or 1 runs every query " +
+                  "on a single thread." )
+    @Internal
+    public static Setting<Integer> cypher_parallel_workers = setting(
+            "unsupported.cypher.parallel_workers", INTEGER, "0", min( 0 ) );
+
+    @Description( "The amount of memory that a single operator of the interpreted runtime, such as a sort, an " +
+                  "aggregation or a hash join, may use for the rows that it holds, before it moves them to temporary " +
+                  "files on disk. This is only done in read-only queries. A value of 0 keeps all rows in memory." )
+    @Internal
+    public static Setting<Long> cypher_operator_memory_budget = setting(
+            "unsupported.cypher.operator_memory_budget", BYTES, "0", min( 0L ) );
+
+    @Description( "The directory of the temporary files that operators of the interpreted runtime move rows to, when " +
+                  "they hold more than their memory budget. Defaults to a directory inside the database directory." )
+    @Internal
+    public static Setting<File> cypher_spill_directory = pathSetting( "unsupported.cypher.spill_directory", NO_DEFAULT );
+
     @Description("The minimum lifetime of a query plan before a query is considered for replanning")
     public static Setting<Long> cypher_min_replan_interval = setting( "cypher.min_replan_interval", DURATION, "10s" );
 
@@ -320,6 +341,21 @@ public class GraphDatabaseSettings implements LoadableConfig
                   "Set this to -1 to disable the IOPS limit.")
     public static final Setting<Integer> check_point_iops_limit = setting( "dbms.checkpoint.iops.limit", INTEGER, "300" );
 
+    @Description( "Continuously write back dirty pages from the page cache in the background, at a pace set by the " +
+                  "number of transactions and the amount of time since the last check point, relative to " +
+                  "`dbms.checkpoint.interval.tx` and `dbms.checkpoint.interval.time`. This spreads the IO of check " +
+                  "pointing out over time, such that the check points themselves only need a small final flush. " +
+                  "The background writes are limited by `dbms.checkpoint.iops.limit`, like the check points." )
+    public static final Setting<Boolean> check_point_continuous =
+            setting( "dbms.checkpoint.continuous.enabled", BOOLEAN, FALSE );
+
+    @Description( "The number of threads that apply the changes to the node, relationship and property records, " +
+                  "when recovering transactions from the transaction log after a crash. Changes to the same record " +
+                  "are always applied in the order they were committed. Set this to 1 to recover on a single thread." )
+    @Internal
+    public static final Setting<Integer> recovery_parallelism =
+            setting( "unsupported.dbms.recovery.parallelism", INTEGER, "1", min( 1 ) );
+
     // Auto Indexing
     @Description("Controls the auto indexing feature for nodes. Setting it to `false` shuts it down, " +
             "while `true` enables it by default for properties listed in the dbms.auto_index.nodes.keys setting.")
@@ -390,11 +426,79 @@ public class GraphDatabaseSettings implements LoadableConfig
                   "`0` means that no rotation will automatically occur based on file size. " )
     public static final Setting<Long> logical_log_rotation_threshold = setting( "dbms.tx_log.rotation.size", BYTES, "250M", min( 1024*1024L /*1Mb*/ ) );
 
+    @Description( "Preallocate logical log files to the size at which they are rotated, by filling them with " +
+                  "zeros when they are created. This keeps the log files from growing on every append, so that " +
+                  "forcing them does not also have to make their new sizes durable." )
+    @Internal
+    public static final Setting<Boolean> preallocate_logical_logs =
+            setting( "unsupported.dbms.tx_log.preallocate", BOOLEAN, FALSE );
+
+    @Description( "The number of transactions in each segment of a pipelined commit. Batches of more than this many " +
+                  "transactions, such as the ones applied by cluster members, are split into segments, and the next " +
+                  "segment is appended to and forced in the transaction log while the previous one is applied to " +
+                  "the store. Zero means that batches are appended and then applied as a whole." )
+    @Internal
+    public static final Setting<Integer> commit_pipeline_segment_size =
+            setting( "unsupported.dbms.tx_log.commit_pipeline.segment_size", INTEGER, "0", min( 0 ) );
+
     @Description("Use a quick approach for rebuilding the ID generators. This give quicker recovery time, " +
             "but will limit the ability to reuse the space of deleted entities.")
     @Internal
     public static final Setting<Boolean> rebuild_idgenerators_fast = setting("unsupported.dbms.id_generator_fast_rebuild_enabled", BOOLEAN, TRUE );
 
+    @Description( "The number of node, relationship and property ids that each thread takes from the id generators " +
+                  "at a time, and then allocates without synchronizing with other threads. This helps when many " +
+                  "transactions create records concurrently. Ids that are left unused are reused after a restart. " +
+                  "Set this to 0 to allocate every id directly from the id generators." )
+    @Internal
+    public static final Setting<Integer> id_lease_size =
+            setting( "unsupported.dbms.id_generator.lease_size", INTEGER, "0", min( 0 ) );
+
+    // Transaction state memory settings
+    public enum TransactionStateMemoryAllocation
+    {
+        /**
+         * Keep all transaction state on the Java heap.
+         */
+        ON_HEAP,
+
+        /**
+         * Keep the large collections of transaction state in native memory.
+         */
+        OFF_HEAP
+    }
+
+    @Description( "Where transactions keep their state. `ON_HEAP` keeps it all on the Java heap. `OFF_HEAP` keeps " +
+                  "the large collections of transaction state, such as the ids of the nodes and relationships that " +
+                  "a transaction creates, in native memory, such that transactions that create tens of millions of " +
+                  "entities do not need a correspondingly large heap." )
+    @Internal
+    public static final Setting<TransactionStateMemoryAllocation> tx_state_memory_allocation =
+            setting( "unsupported.dbms.tx_state.memory_allocation", options( TransactionStateMemoryAllocation.class ),
+                    TransactionStateMemoryAllocation.ON_HEAP.name() );
+
+    @Description( "The amount of native memory that each transaction may use for its state, when " +
+                  "`unsupported.dbms.tx_state.memory_allocation` is `OFF_HEAP`. Transactions that need more than " +
+                  "this fail, and are rolled back." )
+    @Internal
+    public static final Setting<Long> tx_state_max_off_heap_memory =
+            setting( "unsupported.dbms.tx_state.max_off_heap_memory", BYTES, "2g", min( 0L ) );
+
+    @Description( "The amount of memory that each transaction may use for its state, and for the state of the " +
+                  "queries that run in it, such as rows that are being sorted or aggregated. The memory use is " +
+                  "estimated. Transactions that need more than this fail, and are rolled back. Zero means that there " +
+                  "is no limit." )
+    @Internal
+    public static final Setting<Long> transaction_max_memory =
+            setting( "unsupported.dbms.memory.transaction.max_size", BYTES, "0", min( 0L ) );
+
+    @Description( "The amount of memory that all running transactions may use together, counted the same way as " +
+                  "for `unsupported.dbms.memory.transaction.max_size`. Transactions that would take the total " +
+                  "beyond this fail with a transient error, and are rolled back. Zero means that there is no limit." )
+    @Internal
+    public static final Setting<Long> transactions_global_max_memory =
+            setting( "unsupported.dbms.memory.transaction.global_max_size", BYTES, "0", min( 0L ) );
+
     // Store memory settings
     @Description("Target size for pages of mapped memory. If set to 0, then a reasonable default is chosen, " +
                  "depending on the storage device used.")
@@ -412,11 +516,49 @@ public class GraphDatabaseSettings implements LoadableConfig
     public static final Setting<Long> pagecache_memory =
             setting( "dbms.memory.pagecache.size", BYTES, null, min( 8192 * 30L ) );
 
-    @Description( "Specify which page swapper to use for doing paged IO. " +
-                  "This is only used when integrating with proprietary storage technology." )
+    @Description( "Specify which page swapper to use for doing paged IO. The built-in `mmap` swapper reads pages " +
+                  "out of memory mapped store files, which can benefit read-mostly databases whose store files fit " +
+                  "in memory. Other swappers are only used when integrating with proprietary storage technology." )
     public static final Setting<String> pagecache_swapper =
             setting( "dbms.memory.pagecache.swapper", STRING, (String) null );
 
+    @Description( "Specify the eviction policy used by the page cache. The `CLOCK` policy ages all cached pages " +
+                  "evenly, while the `SCAN_RESISTANT` policy protects frequently used pages from being evicted by " +
+                  "large sequential scans, such as all-nodes scans and consistency checks." )
+    @Internal
+    public static final Setting<EvictionPolicy> pagecache_eviction_policy =
+            setting( "unsupported.dbms.memory.pagecache.eviction_policy", options( EvictionPolicy.class ),
+                    EvictionPolicy.CLOCK.name() );
+
+    @Description( "Allocate the page cache memory in large slabs that are aligned to the huge page size, such that " +
+                  "the operating system can back them with transparent huge pages. This reduces the number of TLB " +
+                  "misses for large page caches. Transparent huge pages must be enabled for the process, e.g. by " +
+                  "setting `/sys/kernel/mm/transparent_hugepage/enabled` to `always`." )
+    @Internal
+    public static final Setting<Boolean> pagecache_transparent_huge_pages =
+            setting( "unsupported.dbms.memory.pagecache.transparent_huge_pages", BOOLEAN, FALSE );
+
+    @Description( "A directory in a mounted hugetlbfs file system, from which the page cache memory will be memory " +
+                  "mapped, such that it is backed by explicitly reserved huge pages. Enough huge pages for the " +
+                  "whole page cache must be reserved in `/proc/sys/vm/nr_hugepages`. This takes precedence over " +
+                  "`unsupported.dbms.memory.pagecache.transparent_huge_pages`." )
+    @Internal
+    public static final Setting<File> pagecache_hugetlbfs_directory =
+            pathSetting( "unsupported.dbms.memory.pagecache.hugetlbfs_directory", NO_DEFAULT );
+
+    @Description( "Page cache warmup periodically records which pages of the store files are in the page cache, and " +
+                  "loads those pages back into the page cache when the database starts, so the database does not " +
+                  "have to warm up the page cache one page fault at a time after a restart. The profiles are " +
+                  "not recorded when the database is read only." )
+    @Internal
+    public static final Setting<Boolean> pagecache_warmup_enabled =
+            setting( "unsupported.dbms.memory.pagecache.warmup.enable", BOOLEAN, FALSE );
+
+    @Description( "The interval at which the page cache warmup records which pages are in the page cache." )
+    @Internal
+    public static final Setting<Long> pagecache_warmup_profiling_interval =
+            setting( "unsupported.dbms.memory.pagecache.warmup.profiling_interval", DURATION, "1m" );
+
     /**
      * Block size properties values depends from selected record format.
      * We can't figured out record format until it will be selected by corresponding edition.
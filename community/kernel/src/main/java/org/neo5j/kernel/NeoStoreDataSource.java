@@ -32,6 +32,7 @@ import org.neo5j.graphdb.DependencyResolver;
 import org.neo5j.graphdb.ResourceIterator;
 import org.neo5j.graphdb.config.Setting;
 import org.neo5j.graphdb.factory.GraphDatabaseSettings;
+import org.neo5j.graphdb.factory.GraphDatabaseSettings.TransactionStateMemoryAllocation;
 import org.neo5j.helpers.Exceptions;
 import org.neo5j.io.fs.FileSystemAbstraction;
 import org.neo5j.io.pagecache.IOLimiter;
@@ -68,6 +69,7 @@ import org.neo5j.kernel.impl.api.TransactionCommitProcess;
 import org.neo5j.kernel.impl.api.TransactionHooks;
 import org.neo5j.kernel.impl.api.UpdateableSchemaState;
 import org.neo5j.kernel.impl.api.index.IndexingService;
+import org.neo5j.kernel.impl.api.memory.TransactionMemoryPool;
 import org.neo5j.kernel.impl.api.operations.QueryRegistrationOperations;
 import org.neo5j.kernel.impl.api.scan.LabelScanStoreProvider;
 import org.neo5j.kernel.impl.api.state.ConstraintIndexCreator;
@@ -81,9 +83,10 @@ import org.neo5j.kernel.impl.factory.GraphDatabaseFacadeFactory;
 import org.neo5j.kernel.impl.index.IndexConfigStore;
 import org.neo5j.kernel.impl.index.LegacyIndexStore;
 import org.neo5j.kernel.impl.locking.LockService;
-import org.neo5j.kernel.impl.locking.ReentrantLockService;
 import org.neo5j.kernel.impl.locking.StatementLocksFactory;
+import org.neo5j.kernel.impl.locking.StripedLockService;
 import org.neo5j.kernel.impl.logging.LogService;
+import org.neo5j.kernel.impl.pagecache.PageCacheWarmer;
 import org.neo5j.kernel.impl.proc.Procedures;
 import org.neo5j.kernel.impl.storageengine.impl.recordstorage.RecordStorageEngine;
 import org.neo5j.kernel.impl.store.MetaDataStore;
@@ -119,6 +122,7 @@ import org.neo5j.kernel.impl.transaction.log.checkpoint.CheckPointScheduler;
 import org.neo5j.kernel.impl.transaction.log.checkpoint.CheckPointThreshold;
 import org.neo5j.kernel.impl.transaction.log.checkpoint.CheckPointThresholds;
 import org.neo5j.kernel.impl.transaction.log.checkpoint.CheckPointerImpl;
+import org.neo5j.kernel.impl.transaction.log.checkpoint.ContinuousCheckPointFlusher;
 import org.neo5j.kernel.impl.transaction.log.checkpoint.CountCommittedTransactionThreshold;
 import org.neo5j.kernel.impl.transaction.log.checkpoint.SimpleTriggerInfo;
 import org.neo5j.kernel.impl.transaction.log.checkpoint.StoreCopyCheckPointMutex;
@@ -137,6 +141,7 @@ import org.neo5j.kernel.impl.transaction.state.NeoStoreFileListing;
 import org.neo5j.kernel.impl.util.Dependencies;
 import org.neo5j.kernel.impl.util.JobScheduler;
 import org.neo5j.kernel.impl.util.SynchronizedArrayIdOrderingQueue;
+import org.neo5j.kernel.impl.util.collection.CollectionsFactorySupplier;
 import org.neo5j.kernel.info.DiagnosticsExtractor;
 import org.neo5j.kernel.info.DiagnosticsManager;
 import org.neo5j.kernel.info.DiagnosticsPhase;
@@ -162,6 +167,10 @@ import org.neo5j.storageengine.api.StoreFileMetadata;
 import org.neo5j.storageengine.api.StoreReadLayer;
 import org.neo5j.time.SystemNanoClock;
 
+import static org.neo5j.graphdb.factory.GraphDatabaseSettings.transaction_max_memory;
+import static org.neo5j.graphdb.factory.GraphDatabaseSettings.transactions_global_max_memory;
+import static org.neo5j.graphdb.factory.GraphDatabaseSettings.tx_state_max_off_heap_memory;
+import static org.neo5j.graphdb.factory.GraphDatabaseSettings.tx_state_memory_allocation;
 import static org.neo5j.helpers.collection.MapUtil.stringMap;
 import static org.neo5j.kernel.impl.transaction.log.entry.InvalidLogEntryHandler.STRICT;
 import static org.neo5j.kernel.impl.transaction.log.pruning.LogPruneStrategyFactory.fromConfigValue;
@@ -360,7 +369,7 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
 
         readOnly = config.get( Configuration.read_only );
         msgLog = logProvider.getLog( getClass() );
-        this.lockService = new ReentrantLockService();
+        this.lockService = new StripedLockService();
         this.legacyIndexProviderLookup = new LegacyIndexProviderLookup()
         {
             @Override
@@ -502,6 +511,12 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
             throw Exceptions.launderedException( e );
         }
 
+        if ( config.get( GraphDatabaseSettings.pagecache_warmup_enabled ) )
+        {
+            life.add( new PageCacheWarmer( fs, pageCache, scheduler, logProvider.getLog( PageCacheWarmer.class ),
+                    config.get( GraphDatabaseSettings.pagecache_warmup_profiling_interval ), readOnly ) );
+        }
+
         // NOTE: please make sure this is performed after having added everything to the life, in fact we would like
         // to perform the checkpointing as first step when the life is shutdown.
         life.add( lifecycleToTriggerCheckPointOnShutdown() );
@@ -605,7 +620,7 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
         final PhysicalLogFile logFile = life.add( new PhysicalLogFile( fileSystemAbstraction, logFiles,
                 config.get( GraphDatabaseSettings.logical_log_rotation_threshold ),
                 transactionIdStore::getLastCommittedTransactionId, logVersionRepository, physicalLogMonitor,
-                logHeaderCache ) );
+                logHeaderCache, config.get( GraphDatabaseSettings.preallocate_logical_logs ) ) );
 
         final PhysicalLogFileInformation.LogVersionToTimestamp logInformation = version ->
         {
@@ -668,6 +683,13 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
         life.add( checkPointer );
         life.add( checkPointScheduler );
 
+        if ( config.get( GraphDatabaseSettings.check_point_continuous ) )
+        {
+            life.add( new ContinuousCheckPointFlusher( pageCache, transactionIdStore, checkPointer, ioLimiter,
+                    scheduler, clock, logProvider.getLog( ContinuousCheckPointFlusher.class ), txThreshold,
+                    timeMillisThreshold ) );
+        }
+
         return new NeoStoreTransactionLogModule( logicalTransactionStore, logFileInformation, logFiles, logFile,
                 logRotation, checkPointer, appender, legacyIndexTransactionOrdering );
     }
@@ -738,7 +760,10 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
         KernelTransactions kernelTransactions = life.add( new KernelTransactions( statementLocksFactory,
                 constraintIndexCreator, statementOperationContainer, schemaWriteGuard, transactionHeaderInformationFactory,
                 transactionCommitProcess, indexConfigStore, legacyIndexProviderLookup, hooks, transactionMonitor,
-                availabilityGuard, tracers, storageEngine, procedures, transactionIdStore, clock, accessCapability ) );
+                availabilityGuard, tracers, storageEngine, procedures, transactionIdStore, clock, accessCapability,
+                collectionsFactorySupplier( config ),
+                new TransactionMemoryPool( config.get( transaction_max_memory ),
+                        config.get( transactions_global_max_memory ) ) ) );
 
         final Kernel kernel = new Kernel( kernelTransactions, hooks, databaseHealth, transactionMonitor, procedures,
                 config );
@@ -751,6 +776,15 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
         return new NeoStoreKernelModule( transactionCommitProcess, kernel, kernelTransactions, fileListing );
     }
 
+    private static CollectionsFactorySupplier collectionsFactorySupplier( Config config )
+    {
+        if ( config.get( tx_state_memory_allocation ) == TransactionStateMemoryAllocation.OFF_HEAP )
+        {
+            return CollectionsFactorySupplier.offHeap( config.get( tx_state_max_off_heap_memory ) );
+        }
+        return CollectionsFactorySupplier.ON_HEAP;
+    }
+
     @Override
     public synchronized void stop()
     {
@@ -23,6 +23,7 @@ import java.util.Optional;
 
 import org.neo5j.kernel.api.exceptions.Status;
 import org.neo5j.kernel.api.exceptions.TransactionFailureException;
+import org.neo5j.kernel.api.memory.MemoryTracker;
 import org.neo5j.kernel.api.security.SecurityContext;
 import org.neo5j.kernel.impl.api.Kernel;
 
@@ -215,6 +216,15 @@ public interface KernelTransaction extends AutoCloseable
      */
     long getCommitTime();
 
+    /**
+     * The tracker that the memory used by the state of this transaction, and by the queries running in it, is
+     * reported to. Reporting more memory than the transaction may use fails the transaction with a
+     * {@link org.neo5j.kernel.api.memory.MemoryLimitExceededException}.
+     *
+     * @return the memory tracker of this transaction.
+     */
+    MemoryTracker memoryTracker();
+
     Revertable overrideWith( SecurityContext context );
 
     @FunctionalInterface
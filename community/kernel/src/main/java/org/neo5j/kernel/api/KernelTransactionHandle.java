@@ -103,4 +103,10 @@ public interface KernelTransactionHandle
      * @return the lock requests granted for this transaction.
      */
     Stream<? extends ActiveLock> activeLocks();
+
+    /**
+     * @return the estimated number of bytes of memory that the underlying transaction uses, see
+     * {@link KernelTransaction#memoryTracker()}.
+     */
+    long usedMemory();
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.api.memory;
+
+/**
+ * Keeps count of the memory that a transaction uses for its state, and for the state of the queries running in it.
+ * <p>
+ * Users of a tracker report what they allocate and what they let go of. The numbers are estimates, which is
+ * enough to keep a single transaction from taking all of the memory of the database. A tracker is only ever used
+ * from the thread that runs the transaction, but {@link #usedMemory()} may be read from any thread.
+ */
+public interface MemoryTracker
+{
+    /**
+     * A tracker that keeps no count, and has no limit.
+     */
+    MemoryTracker NONE = new MemoryTracker()
+    {
+        @Override
+        public void allocated( long bytes )
+        {
+        }
+
+        @Override
+        public void deallocated( long bytes )
+        {
+        }
+
+        @Override
+        public long usedMemory()
+        {
+            return 0;
+        }
+    };
+
+    /**
+     * @param bytes the number of bytes that was just allocated, or is just about to be allocated.
+     * @throws MemoryLimitExceededException if the allocation makes the transaction use more memory than allowed.
+     * The allocation is then not counted.
+     */
+    void allocated( long bytes );
+
+    /**
+     * @param bytes the number of bytes of a previously {@link #allocated(long) reported} allocation that is not used
+     * anymore.
+     */
+    void deallocated( long bytes );
+
+    /**
+     * @return the number of bytes currently in use.
+     */
+    long usedMemory();
+
+    /**
+     * Tells the tracker that memory for its transaction was refused, either by the tracker itself or by another
+     * limit, such as that on the native memory of the transaction state. The state of the transaction may then be
+     * half way through a change, so the transaction can not be allowed to go on.
+     *
+     * @param e the failure that is about to be thrown to the user of the memory.
+     */
+    default void limitExceeded( MemoryLimitExceededException e )
+    {
+    }
+}
@@ -19,9 +19,15 @@
  */
 package org.neo5j.kernel.builtinprocs;
 
+import java.io.IOException;
 import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.neo5j.io.IOUtils;
+import org.neo5j.io.pagecache.PageCache;
+import org.neo5j.io.pagecache.PagedFile;
 import org.neo5j.kernel.api.proc.ProcedureSignature;
 import org.neo5j.kernel.api.proc.UserFunctionSignature;
 import org.neo5j.kernel.configuration.Config;
@@ -52,6 +58,25 @@ public class BuiltInDbmsProcedures
                 .sorted( Comparator.comparing( c -> c.name ) );
     }
 
+    @Description( "List the files that are mapped by the page cache, with their page cache statistics." )
+    @Procedure( name = "dbms.listPageCacheFiles", mode = DBMS )
+    public Stream<PagedFileResult> listPageCacheFiles() throws IOException
+    {
+        PageCache pageCache = graph.getDependencyResolver().resolveDependency( PageCache.class );
+        List<PagedFile> pagedFiles = pageCache.listExistingMappings();
+        try
+        {
+            return pagedFiles.stream()
+                    .map( PagedFileResult::new )
+                    .sorted( Comparator.comparing( r -> r.file ) )
+                    .collect( Collectors.toList() ).stream();
+        }
+        finally
+        {
+            IOUtils.closeAll( pagedFiles );
+        }
+    }
+
     @Description( "List all procedures in the DBMS." )
     @Procedure( name = "dbms.procedures", mode = DBMS )
     public Stream<ProcedureResult> listProcedures()
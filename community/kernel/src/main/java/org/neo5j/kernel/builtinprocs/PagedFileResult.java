@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.builtinprocs;
+
+import org.neo5j.io.pagecache.PagedFile;
+import org.neo5j.io.pagecache.monitoring.PagedFileCounters;
+
+public class PagedFileResult
+{
+    public final String file;
+    public final long pageSize;
+    public final long pins;
+    public final long hits;
+    public final long faults;
+    public final long evictions;
+    public final long flushes;
+    public final long bytesRead;
+    public final long bytesWritten;
+    public final double hitRatio;
+
+    public PagedFileResult( PagedFile pagedFile )
+    {
+        PagedFileCounters counters = pagedFile.counters();
+        this.file = pagedFile.file().getPath();
+        this.pageSize = pagedFile.pageSize();
+        this.pins = counters.pins();
+        this.hits = counters.hits();
+        this.faults = counters.faults();
+        this.evictions = counters.evictions();
+        this.flushes = counters.flushes();
+        this.bytesRead = counters.bytesRead();
+        this.bytesWritten = counters.bytesWritten();
+        this.hitRatio = counters.hitRatio();
+    }
+}
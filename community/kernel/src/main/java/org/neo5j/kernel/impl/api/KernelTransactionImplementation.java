@@ -44,11 +44,14 @@ import org.neo5j.kernel.api.exceptions.TransactionHookException;
 import org.neo5j.kernel.api.exceptions.schema.ConstraintValidationException;
 import org.neo5j.kernel.api.exceptions.schema.CreateConstraintFailureException;
 import org.neo5j.kernel.api.exceptions.schema.DropIndexFailureException;
+import org.neo5j.kernel.api.memory.MemoryTracker;
 import org.neo5j.kernel.api.schema_new.index.NewIndexDescriptor;
 import org.neo5j.kernel.api.security.SecurityContext;
 import org.neo5j.kernel.api.txstate.LegacyIndexTransactionState;
 import org.neo5j.kernel.api.txstate.TransactionState;
 import org.neo5j.kernel.api.txstate.TxStateHolder;
+import org.neo5j.kernel.impl.api.memory.TransactionMemoryPool;
+import org.neo5j.kernel.impl.api.memory.TransactionMemoryTracker;
 import org.neo5j.kernel.impl.api.state.ConstraintIndexCreator;
 import org.neo5j.kernel.impl.api.state.TxState;
 import org.neo5j.kernel.impl.factory.AccessCapability;
@@ -63,6 +66,8 @@ import org.neo5j.kernel.impl.transaction.log.PhysicalTransactionRepresentation;
 import org.neo5j.kernel.impl.transaction.tracing.CommitEvent;
 import org.neo5j.kernel.impl.transaction.tracing.TransactionEvent;
 import org.neo5j.kernel.impl.transaction.tracing.TransactionTracer;
+import org.neo5j.kernel.impl.util.collection.CollectionsFactory;
+import org.neo5j.kernel.impl.util.collection.CollectionsFactorySupplier;
 import org.neo5j.storageengine.api.StorageCommand;
 import org.neo5j.storageengine.api.StorageEngine;
 import org.neo5j.storageengine.api.StorageStatement;
@@ -106,10 +111,14 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
     private final PageCursorTracerSupplier cursorTracerSupplier;
     private final StoreReadLayer storeLayer;
     private final Clock clock;
+    private final CollectionsFactorySupplier collectionsFactorySupplier;
+    private final TransactionMemoryPool memoryPool;
 
     // State that needs to be reset between uses. Most of these should be cleared or released in #release(),
     // whereas others, such as timestamp or txId when transaction starts, even locks, needs to be set in #initialize().
     private TransactionState txState;
+    private CollectionsFactory collectionsFactory;
+    private volatile TransactionMemoryTracker memoryTracker;
     private LegacyIndexTransactionState legacyIndexTransactionState;
     private TransactionWriteState writeState;
     private TransactionHooks.TransactionHooksState hooksState;
@@ -160,7 +169,9 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
                                             LockTracer lockTracer,
                                             PageCursorTracerSupplier cursorTracerSupplier,
                                             StorageEngine storageEngine,
-                                            AccessCapability accessCapability )
+                                            AccessCapability accessCapability,
+                                            CollectionsFactorySupplier collectionsFactorySupplier,
+                                            TransactionMemoryPool memoryPool )
     {
         this.operationContainer = operationContainer;
         this.schemaWriteGuard = schemaWriteGuard;
@@ -176,6 +187,8 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
         this.clock = clock;
         this.transactionTracer = transactionTracer;
         this.cursorTracerSupplier = cursorTracerSupplier;
+        this.collectionsFactorySupplier = collectionsFactorySupplier;
+        this.memoryPool = memoryPool;
         this.storageStatement = storeLayer.newStatement();
         this.currentStatement =
                 new KernelStatement( this, this, storageStatement, procedures, accessCapability, lockTracer );
@@ -208,6 +221,9 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
         this.securityContext = frozenSecurityContext;
         this.transactionId = NOT_COMMITTED_TRANSACTION_ID;
         this.commitTime = NOT_COMMITTED_TRANSACTION_COMMIT_TIME;
+        // The tracker may be told of a limit after this use of the transaction is over, so only terminate this use
+        int trackedReuseCount = reuseCount;
+        this.memoryTracker = memoryPool.newTracker( status -> markForTermination( trackedReuseCount, status ) );
         this.currentTransactionOperations = timeoutMillis > 0 ? operationContainer.guardedParts() : operationContainer.nonGuarderParts();
         this.currentStatement.initialize( statementLocks, currentTransactionOperations, cursorTracerSupplier.get() );
         return this;
@@ -375,7 +391,8 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
         if ( txState == null )
         {
             transactionMonitor.upgradeToWriteTransaction();
-            txState = new TxState();
+            collectionsFactory = collectionsFactorySupplier.create( memoryTracker );
+            txState = new TxState( collectionsFactory );
         }
         return txState;
     }
@@ -708,6 +725,12 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
             transactionEvent = null;
             legacyIndexTransactionState = null;
             txState = null;
+            if ( collectionsFactory != null )
+            {
+                collectionsFactory.release();
+                collectionsFactory = null;
+            }
+            memoryTracker.close();
             hooksState = null;
             currentTransactionOperations = null;
             closeListeners.clear();
@@ -776,6 +799,12 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
         return commitTime;
     }
 
+    @Override
+    public MemoryTracker memoryTracker()
+    {
+        return memoryTracker;
+    }
+
     @Override
     public Revertable overrideWith( SecurityContext context )
     {
@@ -118,6 +118,12 @@ class KernelTransactionImplementationHandle implements KernelTransactionHandle
         return tx.activeLocks();
     }
 
+    @Override
+    public long usedMemory()
+    {
+        return tx.memoryTracker().usedMemory();
+    }
+
     @Override
     public boolean equals( Object o )
     {
@@ -37,6 +37,7 @@ import org.neo5j.kernel.api.KernelTransactionHandle;
 import org.neo5j.kernel.api.exceptions.Status;
 import org.neo5j.kernel.api.security.SecurityContext;
 import org.neo5j.kernel.api.txstate.LegacyIndexTransactionState;
+import org.neo5j.kernel.impl.api.memory.TransactionMemoryPool;
 import org.neo5j.kernel.impl.api.state.ConstraintIndexCreator;
 import org.neo5j.kernel.impl.api.state.LegacyIndexTransactionStateImpl;
 import org.neo5j.kernel.impl.factory.AccessCapability;
@@ -48,6 +49,7 @@ import org.neo5j.kernel.impl.store.TransactionId;
 import org.neo5j.kernel.impl.transaction.TransactionHeaderInformationFactory;
 import org.neo5j.kernel.impl.transaction.TransactionMonitor;
 import org.neo5j.kernel.impl.transaction.log.TransactionIdStore;
+import org.neo5j.kernel.impl.util.collection.CollectionsFactorySupplier;
 import org.neo5j.kernel.lifecycle.LifecycleAdapter;
 import org.neo5j.kernel.monitoring.tracing.Tracers;
 import org.neo5j.storageengine.api.StorageEngine;
@@ -81,6 +83,8 @@ public class KernelTransactions extends LifecycleAdapter implements Supplier<Ker
     private final AccessCapability accessCapability;
     private final Supplier<LegacyIndexTransactionState> legacyIndexTxStateSupplier;
     private final Clock clock;
+    private final CollectionsFactorySupplier collectionsFactorySupplier;
+    private final TransactionMemoryPool memoryPool;
     private final ReentrantReadWriteLock newTransactionsLock = new ReentrantReadWriteLock();
 
     /**
@@ -125,7 +129,9 @@ public class KernelTransactions extends LifecycleAdapter implements Supplier<Ker
                                StorageEngine storageEngine,
                                Procedures procedures,
                                TransactionIdStore transactionIdStore,
-                               Clock clock, AccessCapability accessCapability )
+                               Clock clock, AccessCapability accessCapability,
+                               CollectionsFactorySupplier collectionsFactorySupplier,
+                               TransactionMemoryPool memoryPool )
     {
         this.statementLocksFactory = statementLocksFactory;
         this.constraintIndexCreator = constraintIndexCreator;
@@ -144,6 +150,8 @@ public class KernelTransactions extends LifecycleAdapter implements Supplier<Ker
         this.legacyIndexTxStateSupplier = () -> new CachingLegacyIndexTransactionState(
                 new LegacyIndexTransactionStateImpl( indexConfigStore, legacyIndexProviderLookup ) );
         this.clock = clock;
+        this.collectionsFactorySupplier = collectionsFactorySupplier;
+        this.memoryPool = memoryPool;
         blockNewTransactions();
     }
 
@@ -337,7 +345,7 @@ public class KernelTransactions extends LifecycleAdapter implements Supplier<Ker
                             constraintIndexCreator, procedures, transactionHeaderInformationFactory,
                             transactionCommitProcess, transactionMonitor, legacyIndexTxStateSupplier, localTxPool,
                             clock, tracers.transactionTracer, tracers.lockTracer, tracers.pageCursorTracerSupplier,
-                            storageEngine, accessCapability );
+                            storageEngine, accessCapability, collectionsFactorySupplier, memoryPool );
             this.transactions.add( tx );
             return tx;
         }
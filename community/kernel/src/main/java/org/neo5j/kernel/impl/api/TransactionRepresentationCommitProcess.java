@@ -19,6 +19,9 @@
  */
 package org.neo5j.kernel.impl.api;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
 import org.neo5j.kernel.api.exceptions.TransactionFailureException;
 import org.neo5j.kernel.impl.transaction.log.TransactionAppender;
 import org.neo5j.kernel.impl.transaction.tracing.CommitEvent;
@@ -30,21 +33,55 @@ import org.neo5j.storageengine.api.TransactionApplicationMode;
 import static org.neo5j.kernel.api.exceptions.Status.Transaction.TransactionCommitFailed;
 import static org.neo5j.kernel.api.exceptions.Status.Transaction.TransactionLogError;
 
+/**
+ * Commits a batch of transactions by appending it to the transaction log, and then applying it to the store.
+ * <p>
+ * Concurrent committers already overlap these two steps, since one group of transactions can be applied while the
+ * next group is being forced. A single thread committing long batches, such as a cluster member applying
+ * replicated transactions, waits for every force before it can apply anything. Given a segment size and an
+ * executor, batches longer than the segment size are therefore pipelined: they are split into segments, and the
+ * executor appends and forces the segments in order, while the committing thread applies each segment as soon as it
+ * is in the log. Transactions are still applied in commit order, and only after they have been forced.
+ */
 public class TransactionRepresentationCommitProcess implements TransactionCommitProcess
 {
     private final TransactionAppender appender;
     private final StorageEngine storageEngine;
+    private final Executor logAppendExecutor;
+    private final int pipelineSegmentSize;
 
     public TransactionRepresentationCommitProcess( TransactionAppender appender, StorageEngine storageEngine )
     {
+        this( appender, storageEngine, null, 0 );
+    }
+
+    /**
+     * @param logAppendExecutor runs the log append stage of pipelined batches.
+     * @param pipelineSegmentSize the number of transactions in each segment of a pipelined batch, or zero to not
+     * pipeline any batches.
+     */
+    public TransactionRepresentationCommitProcess( TransactionAppender appender, StorageEngine storageEngine,
+            Executor logAppendExecutor, int pipelineSegmentSize )
+    {
+        if ( pipelineSegmentSize > 0 && logAppendExecutor == null )
+        {
+            throw new IllegalArgumentException( "Pipelined commits need an executor for the log append stage" );
+        }
         this.appender = appender;
         this.storageEngine = storageEngine;
+        this.logAppendExecutor = logAppendExecutor;
+        this.pipelineSegmentSize = pipelineSegmentSize;
     }
 
     @Override
     public long commit( TransactionToApply batch, CommitEvent commitEvent,
             TransactionApplicationMode mode ) throws TransactionFailureException
     {
+        if ( pipelineSegmentSize > 0 && isLongerThan( batch, pipelineSegmentSize ) )
+        {
+            return commitPipelined( batch, commitEvent, mode );
+        }
+
         long lastTxId = appendToLog( batch, commitEvent );
         try
         {
@@ -57,6 +94,40 @@ public class TransactionRepresentationCommitProcess implements TransactionCommit
         }
     }
 
+    private long commitPipelined( TransactionToApply batch, CommitEvent commitEvent,
+            TransactionApplicationMode mode ) throws TransactionFailureException
+    {
+        TransactionToApply[] segments = split( batch, pipelineSegmentSize );
+        LogAppendStage logAppendStage = new LogAppendStage( segments, commitEvent );
+        try
+        {
+            try
+            {
+                logAppendExecutor.execute( logAppendStage );
+            }
+            catch ( RejectedExecutionException e )
+            {
+                // Shutting down, so no need for any speed. Append all segments up front instead.
+                logAppendStage.run();
+            }
+
+            long lastTxId = -1;
+            for ( int i = 0; i < segments.length; i++ )
+            {
+                lastTxId = logAppendStage.awaitAppended( i );
+                applyToStore( segments[i], commitEvent, mode );
+            }
+            return lastTxId;
+        }
+        finally
+        {
+            // Segments that have not been appended yet, because applying an earlier segment failed, are left out
+            logAppendStage.stop();
+            join( segments );
+            close( batch );
+        }
+    }
+
     private long appendToLog( TransactionToApply batch, CommitEvent commitEvent ) throws TransactionFailureException
     {
         try ( LogAppendEvent logAppendEvent = commitEvent.beginLogAppend() )
@@ -88,12 +159,182 @@ public class TransactionRepresentationCommitProcess implements TransactionCommit
     {
         while ( batch != null )
         {
-            if ( batch.commitment().markedAsCommitted() )
+            // Transactions of a pipelined batch that never made it to the log have no commitment
+            if ( batch.commitment() != null )
             {
-                batch.commitment().publishAsClosed();
+                if ( batch.commitment().markedAsCommitted() )
+                {
+                    batch.commitment().publishAsClosed();
+                }
+                batch.close();
             }
-            batch.close();
             batch = batch.next();
         }
     }
+
+    private static boolean isLongerThan( TransactionToApply batch, int length )
+    {
+        for ( int i = 0; i < length && batch != null; i++ )
+        {
+            batch = batch.next();
+        }
+        return batch != null;
+    }
+
+    /**
+     * Cuts the batch into segments of the given size, by unlinking the last transaction of each segment from the
+     * first transaction of the next one. The links are restored by {@link #join(TransactionToApply[])}.
+     */
+    private static TransactionToApply[] split( TransactionToApply batch, int segmentSize )
+    {
+        int length = 0;
+        for ( TransactionToApply tx = batch; tx != null; tx = tx.next() )
+        {
+            length++;
+        }
+
+        TransactionToApply[] segments = new TransactionToApply[(length + segmentSize - 1) / segmentSize];
+        TransactionToApply tx = batch;
+        for ( int i = 0; i < segments.length; i++ )
+        {
+            segments[i] = tx;
+            for ( int j = 1; j < segmentSize && tx.next() != null; j++ )
+            {
+                tx = tx.next();
+            }
+            TransactionToApply next = tx.next();
+            tx.next( null );
+            tx = next;
+        }
+        return segments;
+    }
+
+    private static void join( TransactionToApply[] segments )
+    {
+        for ( int i = 1; i < segments.length; i++ )
+        {
+            TransactionToApply last = segments[i - 1];
+            while ( last.next() != null )
+            {
+                last = last.next();
+            }
+            last.next( segments[i] );
+        }
+    }
+
+    /**
+     * Appends the segments of a pipelined batch to the log, one at a time and in order, and lets the committing
+     * thread wait for each of them in turn. Appending stops at the first failure, or when the committing thread
+     * gives up on the rest of the batch.
+     */
+    private class LogAppendStage implements Runnable
+    {
+        private final TransactionToApply[] segments;
+        private final long[] lastTxIds;
+        private final CommitEvent commitEvent;
+        private int appended;
+        private boolean done;
+        private boolean stopped;
+        private TransactionFailureException failure;
+
+        LogAppendStage( TransactionToApply[] segments, CommitEvent commitEvent )
+        {
+            this.segments = segments;
+            this.lastTxIds = new long[segments.length];
+            this.commitEvent = commitEvent;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                for ( int i = 0; i < segments.length && !isStopped(); i++ )
+                {
+                    long lastTxId = appendToLog( segments[i], commitEvent );
+                    synchronized ( this )
+                    {
+                        lastTxIds[i] = lastTxId;
+                        appended++;
+                        notifyAll();
+                    }
+                }
+            }
+            catch ( TransactionFailureException e )
+            {
+                synchronized ( this )
+                {
+                    failure = e;
+                }
+            }
+            finally
+            {
+                synchronized ( this )
+                {
+                    done = true;
+                    notifyAll();
+                }
+            }
+        }
+
+        private synchronized boolean isStopped()
+        {
+            return stopped;
+        }
+
+        /**
+         * @return the id of the last transaction in the segment with the given index, once the whole segment is in
+         * the log.
+         */
+        synchronized long awaitAppended( int index ) throws TransactionFailureException
+        {
+            // The segment may already be on its way to the log, so the committing thread must see it through
+            boolean interrupted = false;
+            while ( appended <= index && !done )
+            {
+                interrupted |= waitUninterruptibly();
+            }
+            restoreInterrupt( interrupted );
+            if ( appended <= index )
+            {
+                throw failure;
+            }
+            return lastTxIds[index];
+        }
+
+        /**
+         * Prevents any further segments from being appended, and waits for an ongoing append to finish.
+         */
+        synchronized void stop()
+        {
+            stopped = true;
+            boolean interrupted = false;
+            while ( !done )
+            {
+                interrupted |= waitUninterruptibly();
+            }
+            restoreInterrupt( interrupted );
+        }
+
+        private boolean waitUninterruptibly()
+        {
+            try
+            {
+                wait();
+                return false;
+            }
+            catch ( InterruptedException e )
+            {
+                return true;
+            }
+        }
+
+        private void restoreInterrupt( boolean interrupted )
+        {
+            if ( interrupted )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.api.memory;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.neo5j.kernel.api.exceptions.Status;
+import org.neo5j.kernel.api.memory.MemoryLimitExceededException;
+
+import static org.neo5j.helpers.Format.bytes;
+
+/**
+ * The memory that all running transactions may use together. Each transaction gets a
+ * {@link #newTracker() tracker} of its own, which reserves memory from the pool in large chunks, so that the pool
+ * is not contended.
+ */
+public class TransactionMemoryPool
+{
+    private final long maxTransactionMemory;
+    private final long maxMemory;
+    private final AtomicLong reserved = new AtomicLong();
+
+    /**
+     * @param maxTransactionMemory the number of bytes that each transaction may use, or zero if there is no limit.
+     * @param maxMemory the number of bytes that can be reserved from this pool, or zero if there is no limit.
+     */
+    public TransactionMemoryPool( long maxTransactionMemory, long maxMemory )
+    {
+        this.maxTransactionMemory = maxTransactionMemory;
+        this.maxMemory = maxMemory;
+    }
+
+    /**
+     * @return a tracker for a new transaction, which must be {@link TransactionMemoryTracker#close() closed} when
+     * the transaction is done.
+     */
+    public TransactionMemoryTracker newTracker()
+    {
+        return newTracker( status -> {} );
+    }
+
+    /**
+     * @param onLimitExceeded told the status of each limit that the transaction exceeds, so that it can be failed.
+     * @return a tracker for a new transaction, which must be {@link TransactionMemoryTracker#close() closed} when
+     * the transaction is done.
+     */
+    public TransactionMemoryTracker newTracker( Consumer<Status> onLimitExceeded )
+    {
+        return new TransactionMemoryTracker( maxTransactionMemory, this, onLimitExceeded );
+    }
+
+    /**
+     * @param bytes the number of bytes to reserve.
+     * @throws MemoryLimitExceededException if the pool does not have that many bytes left.
+     */
+    void reserve( long bytes )
+    {
+        long reservedAfter = reserved.addAndGet( bytes );
+        if ( maxMemory != 0 && reservedAfter > maxMemory )
+        {
+            reserved.addAndGet( -bytes );
+            throw new MemoryLimitExceededException( Status.Transaction.MemoryPoolExhausted, String.format(
+                    "The transaction needs %s more memory, but running transactions are already using %s " +
+                    "of the %s that they may use together.",
+                    bytes( bytes ), bytes( reservedAfter - bytes ), bytes( maxMemory ) ) );
+        }
+    }
+
+    /**
+     * @param bytes the number of previously {@link #reserve(long) reserved} bytes to give back.
+     */
+    void release( long bytes )
+    {
+        reserved.addAndGet( -bytes );
+    }
+
+    /**
+     * @return the number of bytes reserved by running transactions.
+     */
+    public long reservedMemory()
+    {
+        return reserved.get();
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.api.memory;
+
+import java.util.function.Consumer;
+
+import org.neo5j.kernel.api.exceptions.Status;
+import org.neo5j.kernel.api.memory.MemoryLimitExceededException;
+import org.neo5j.kernel.api.memory.MemoryTracker;
+
+import static org.neo5j.helpers.Format.bytes;
+
+/**
+ * The {@link MemoryTracker} of a single transaction. It enforces the limit of the transaction itself, and reserves
+ * the memory it needs from the {@link TransactionMemoryPool} of all transactions a chunk at a time, so that most
+ * allocations only touch fields of this tracker.
+ * <p>
+ * When a limit is exceeded the tracker hands the status of the failure to its owner, which fails the transaction
+ * with it, since a change that could not get its memory may have been left half done.
+ * <p>
+ * The parallel workers of a query count their memory against the transaction that runs the query, so counting is
+ * synchronized.
+ * <p>
+ * Once {@link #close() closed} the tracker keeps counting, for the benefit of query state that is let go of after
+ * its transaction, but it does not touch the pool anymore.
+ */
+public class TransactionMemoryTracker implements MemoryTracker
+{
+    static final long CHUNK_SIZE = 1024 * 1024;
+
+    private final long maxMemory;
+    private final TransactionMemoryPool pool;
+    private final Consumer<Status> onLimitExceeded;
+    private volatile long used;
+    private long reserved;
+    private boolean closed;
+
+    /**
+     * @param maxMemory the number of bytes the transaction may use, or zero if there is no limit.
+     * @param pool the pool to reserve memory from.
+     * @param onLimitExceeded told the status of each limit that is exceeded.
+     */
+    TransactionMemoryTracker( long maxMemory, TransactionMemoryPool pool, Consumer<Status> onLimitExceeded )
+    {
+        this.maxMemory = maxMemory;
+        this.pool = pool;
+        this.onLimitExceeded = onLimitExceeded;
+    }
+
+    @Override
+    public synchronized void allocated( long bytes )
+    {
+        long usedAfter = used + bytes;
+        if ( maxMemory != 0 && usedAfter > maxMemory )
+        {
+            MemoryLimitExceededException e = new MemoryLimitExceededException( String.format(
+                    "The transaction needs %s of memory, which is more than the %s that it may use.",
+                    bytes( usedAfter ), bytes( maxMemory ) ) );
+            limitExceeded( e );
+            throw e;
+        }
+        if ( usedAfter > reserved && !closed )
+        {
+            long chunk = Math.max( CHUNK_SIZE, usedAfter - reserved );
+            try
+            {
+                pool.reserve( chunk );
+            }
+            catch ( MemoryLimitExceededException e )
+            {
+                limitExceeded( e );
+                throw e;
+            }
+            reserved += chunk;
+        }
+        used = usedAfter;
+    }
+
+    @Override
+    public synchronized void deallocated( long bytes )
+    {
+        long usedAfter = used - bytes;
+        used = usedAfter;
+        if ( reserved - usedAfter > 2 * CHUNK_SIZE && !closed )
+        {
+            // Keep one chunk at hand, so that a transaction that goes up and down around a chunk boundary
+            // does not go to the pool each time.
+            long excess = reserved - usedAfter - CHUNK_SIZE;
+            pool.release( excess );
+            reserved -= excess;
+        }
+    }
+
+    @Override
+    public long usedMemory()
+    {
+        return used;
+    }
+
+    @Override
+    public void limitExceeded( MemoryLimitExceededException e )
+    {
+        onLimitExceeded.accept( e.status() );
+    }
+
+    /**
+     * Gives the memory of this transaction back to the pool. Called when the transaction is done.
+     */
+    public synchronized void close()
+    {
+        if ( !closed )
+        {
+            pool.release( reserved );
+            reserved = 0;
+            closed = true;
+        }
+    }
+}
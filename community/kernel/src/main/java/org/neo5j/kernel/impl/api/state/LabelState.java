@@ -19,7 +19,9 @@
  */
 package org.neo5j.kernel.impl.api.state;
 
+import org.neo5j.kernel.impl.util.collection.CollectionsFactory;
 import org.neo5j.kernel.impl.util.diffsets.DiffSets;
+import org.neo5j.kernel.impl.util.diffsets.PrimitiveLongDiffSets;
 import org.neo5j.storageengine.api.txstate.ReadableDiffSets;
 
 /**
@@ -37,10 +39,12 @@ public abstract class LabelState
     {
         private DiffSets<Long> nodeDiffSets;
         private final int labelId;
+        private final CollectionsFactory collectionsFactory;
 
-        private Mutable( int labelId )
+        private Mutable( int labelId, CollectionsFactory collectionsFactory )
         {
             this.labelId = labelId;
+            this.collectionsFactory = collectionsFactory;
         }
 
         public int getLabelId()
@@ -58,18 +62,18 @@ public abstract class LabelState
         {
             if ( nodeDiffSets == null )
             {
-                nodeDiffSets = new DiffSets<>();
+                nodeDiffSets = new PrimitiveLongDiffSets( collectionsFactory );
             }
             return nodeDiffSets;
         }
     }
 
-    abstract static class Defaults extends StateDefaults<Integer, LabelState, Mutable>
+    abstract static class Defaults extends StateDefaults<LabelState, Mutable>
     {
         @Override
-        Mutable createValue( Integer key, TxState state )
+        Mutable createValue( long key, TxState state )
         {
-            return new Mutable( key );
+            return new Mutable( (int) key, state.collectionsFactory() );
         }
 
         @Override
@@ -73,7 +73,7 @@ public class NodeStateImpl extends PropertyContainerStateImpl implements NodeSta
     {
         if ( !hasAddedRelationships() )
         {
-            relationshipsAdded = new RelationshipChangesForNode( DiffStrategy.ADD, state );
+            relationshipsAdded = new RelationshipChangesForNode( DiffStrategy.ADD, state, state.collectionsFactory() );
         }
         relationshipsAdded.addRelationship( relId, typeId, direction );
     }
@@ -91,7 +91,8 @@ public class NodeStateImpl extends PropertyContainerStateImpl implements NodeSta
         }
         if ( !hasRemovedRelationships() )
         {
-            relationshipsRemoved = new RelationshipChangesForNode( DiffStrategy.REMOVE, state );
+            relationshipsRemoved =
+                    new RelationshipChangesForNode( DiffStrategy.REMOVE, state, state.collectionsFactory() );
         }
         relationshipsRemoved.addRelationship( relId, typeId, direction );
     }
@@ -231,10 +232,10 @@ public class NodeStateImpl extends PropertyContainerStateImpl implements NodeSta
             PrimitiveLongCollections.emptyIterator();
     }
 
-    public abstract static class Defaults extends StateDefaults<Long, NodeState, NodeStateImpl>
+    public abstract static class Defaults extends StateDefaults<NodeState, NodeStateImpl>
     {
         @Override
-        final NodeStateImpl createValue( Long id, TxState state )
+        final NodeStateImpl createValue( long id, TxState state )
         {
             return new NodeStateImpl( id, state );
         }
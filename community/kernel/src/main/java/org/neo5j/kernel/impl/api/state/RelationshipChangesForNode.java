@@ -21,15 +21,13 @@ package org.neo5j.kernel.impl.api.state;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Iterator;
-import java.util.Map;
-import java.util.Set;
 import java.util.function.Function;
 
 import org.neo5j.collection.primitive.Primitive;
 import org.neo5j.collection.primitive.PrimitiveIntCollections;
 import org.neo5j.collection.primitive.PrimitiveIntIterator;
+import org.neo5j.collection.primitive.PrimitiveIntObjectMap;
 import org.neo5j.collection.primitive.PrimitiveIntSet;
 import org.neo5j.collection.primitive.PrimitiveLongCollections;
 import org.neo5j.collection.primitive.PrimitiveLongIterator;
@@ -37,7 +35,9 @@ import org.neo5j.helpers.collection.PrefetchingIterator;
 import org.neo5j.kernel.impl.api.RelationshipVisitor;
 import org.neo5j.kernel.impl.api.RelationshipVisitor.Home;
 import org.neo5j.kernel.impl.api.store.RelationshipIterator;
-import org.neo5j.kernel.impl.util.VersionedHashMap;
+import org.neo5j.kernel.impl.util.VersionedPrimitiveLongSet;
+import org.neo5j.kernel.impl.util.collection.CollectionsFactory;
+import org.neo5j.kernel.impl.util.collection.OnHeapCollectionsFactory;
 import org.neo5j.storageengine.api.Direction;
 
 import static org.neo5j.collection.primitive.PrimitiveLongCollections.emptyIterator;
@@ -65,13 +65,13 @@ public class RelationshipChangesForNode
 
                     @Override
                     RelationshipIterator augmentPrimitiveIterator( RelationshipIterator original,
-                            Iterator<Set<Long>> diff, RelationshipVisitor.Home txStateRelationshipHome )
+                            Iterator<VersionedPrimitiveLongSet> diff, RelationshipVisitor.Home txStateRelationshipHome )
                     {
                         throw new UnsupportedOperationException();
                     }
 
                     @Override
-                    PrimitiveLongIterator getPrimitiveIterator( Iterator<Set<Long>> diff,
+                    PrimitiveLongIterator getPrimitiveIterator( Iterator<VersionedPrimitiveLongSet> diff,
                             RelationshipVisitor.Home txStateRelationshipHome )
                     {
                         throw new UnsupportedOperationException();
@@ -87,7 +87,8 @@ public class RelationshipChangesForNode
 
                     @Override
                     RelationshipIterator augmentPrimitiveIterator( final RelationshipIterator original,
-                            final Iterator<Set<Long>> diff, final RelationshipVisitor.Home txStateRelationshipHome )
+                            final Iterator<VersionedPrimitiveLongSet> diff,
+                            final RelationshipVisitor.Home txStateRelationshipHome )
                     {
                         if ( !diff.hasNext() )
                         {
@@ -96,7 +97,7 @@ public class RelationshipChangesForNode
 
                         return new RelationshipIterator()
                         {
-                            private Iterator<Long> currentSetOfAddedRels;
+                            private PrimitiveLongIterator currentSetOfAddedRels;
 
                             @Override
                             public boolean hasNext()
@@ -104,12 +105,12 @@ public class RelationshipChangesForNode
                                 return original.hasNext() || (currentSetOfAddedRels().hasNext());
                             }
 
-                            private Iterator<Long> currentSetOfAddedRels()
+                            private PrimitiveLongIterator currentSetOfAddedRels()
                             {
                                 while ( diff.hasNext() && (currentSetOfAddedRels == null || !currentSetOfAddedRels
                                         .hasNext()) )
                                 {
-                                    currentSetOfAddedRels = diff.next().iterator();
+                                    currentSetOfAddedRels = diff.next().longIterator();
                                 }
                                 return currentSetOfAddedRels;
                             }
@@ -132,7 +133,7 @@ public class RelationshipChangesForNode
                     }
 
                     @Override
-                    PrimitiveLongIterator getPrimitiveIterator( final Iterator<Set<Long>> diff,
+                    PrimitiveLongIterator getPrimitiveIterator( final Iterator<VersionedPrimitiveLongSet> diff,
                             RelationshipVisitor.Home txStateRelationshipHome )
                     {
                         if ( !diff.hasNext() )
@@ -142,21 +143,21 @@ public class RelationshipChangesForNode
 
                         return new PrimitiveLongCollections.PrimitiveLongBaseIterator()
                         {
-                            private Iterator<Long> currentSetOfAddedRels;
+                            private PrimitiveLongIterator currentSetOfAddedRels;
 
                             @Override
                             protected boolean fetchNext()
                             {
-                                Iterator<Long> iterator = currentSetOfAddedRels();
+                                PrimitiveLongIterator iterator = currentSetOfAddedRels();
                                 return iterator.hasNext() ? next( iterator.next() ) : false;
                             }
 
-                            private Iterator<Long> currentSetOfAddedRels()
+                            private PrimitiveLongIterator currentSetOfAddedRels()
                             {
                                 while ( diff.hasNext() && (currentSetOfAddedRels == null || !currentSetOfAddedRels
                                         .hasNext()) )
                                 {
-                                    currentSetOfAddedRels = diff.next().iterator();
+                                    currentSetOfAddedRels = diff.next().longIterator();
                                 }
                                 return currentSetOfAddedRels;
                             }
@@ -167,36 +168,47 @@ public class RelationshipChangesForNode
         abstract int augmentDegree( int degree, int diff );
 
         abstract RelationshipIterator augmentPrimitiveIterator( RelationshipIterator original,
-                Iterator<Set<Long>> diff, RelationshipVisitor.Home txStateRelationshipHome );
+                Iterator<VersionedPrimitiveLongSet> diff, RelationshipVisitor.Home txStateRelationshipHome );
 
         abstract PrimitiveLongIterator getPrimitiveIterator(
-                Iterator<Set<Long>> diff, RelationshipVisitor.Home txStateRelationshipHome );
+                Iterator<VersionedPrimitiveLongSet> diff, RelationshipVisitor.Home txStateRelationshipHome );
     }
 
+    // Initial capacity of the maps by relationship type, since nodes typically have few relationship types
+    private static final int TYPES_PER_NODE = 4;
+
     private final DiffStrategy diffStrategy;
     private final Home relationshipHome;
+    private final CollectionsFactory collectionsFactory;
 
-    private Map<Integer /* Type */, Set<Long /* Id */>> outgoing;
-    private Map<Integer /* Type */, Set<Long /* Id */>> incoming;
-    private Map<Integer /* Type */, Set<Long /* Id */>> loops;
+    private PrimitiveIntObjectMap<VersionedPrimitiveLongSet> outgoing; // relationship ids by type
+    private PrimitiveIntObjectMap<VersionedPrimitiveLongSet> incoming; // relationship ids by type
+    private PrimitiveIntObjectMap<VersionedPrimitiveLongSet> loops; // relationship ids by type
 
     private int totalOutgoing = 0;
     private int totalIncoming = 0;
     private int totalLoops = 0;
 
     public RelationshipChangesForNode( DiffStrategy diffStrategy, RelationshipVisitor.Home relationshipHome )
+    {
+        this( diffStrategy, relationshipHome, OnHeapCollectionsFactory.INSTANCE );
+    }
+
+    public RelationshipChangesForNode( DiffStrategy diffStrategy, RelationshipVisitor.Home relationshipHome,
+            CollectionsFactory collectionsFactory )
     {
         this.diffStrategy = diffStrategy;
         this.relationshipHome = relationshipHome;
+        this.collectionsFactory = collectionsFactory;
     }
 
     public void addRelationship( long relId, int typeId, Direction direction )
     {
-        Map<Integer, Set<Long>> relTypeToRelsMap = getTypeToRelMapForDirection( direction );
-        Set<Long> rels = relTypeToRelsMap.get( typeId );
+        PrimitiveIntObjectMap<VersionedPrimitiveLongSet> relTypeToRelsMap = getTypeToRelMapForDirection( direction );
+        VersionedPrimitiveLongSet rels = relTypeToRelsMap.get( typeId );
         if ( rels == null )
         {
-            rels = Collections.newSetFromMap( new VersionedHashMap<Long, Boolean>() );
+            rels = collectionsFactory.newLongSet();
             relTypeToRelsMap.put( typeId, rels );
         }
 
@@ -220,8 +232,8 @@ public class RelationshipChangesForNode
 
     public boolean removeRelationship( long relId, int typeId, Direction direction )
     {
-        Map<Integer, Set<Long>> relTypeToRelsMap = getTypeToRelMapForDirection( direction );
-        Set<Long> rels = relTypeToRelsMap.get( typeId );
+        PrimitiveIntObjectMap<VersionedPrimitiveLongSet> relTypeToRelsMap = getTypeToRelMapForDirection( direction );
+        VersionedPrimitiveLongSet rels = relTypeToRelsMap.get( typeId );
         if ( rels != null )
         {
             if ( rels.remove( relId ) )
@@ -262,7 +274,7 @@ public class RelationshipChangesForNode
     }
 
     public RelationshipIterator augmentRelationships( Direction direction, RelationshipIterator rels,
-            Function<Map<Integer, Set<Long>>, Iterator<Set<Long>>> typeFilter )
+            Function<PrimitiveIntObjectMap<VersionedPrimitiveLongSet>,Iterator<VersionedPrimitiveLongSet>> typeFilter )
     {
         switch ( direction )
         {
@@ -363,15 +375,15 @@ public class RelationshipChangesForNode
         PrimitiveIntSet types = Primitive.intSet();
         if ( outgoing != null && !outgoing.isEmpty() )
         {
-            outgoing.keySet().forEach( types::add );
+            types.addAll( outgoing.iterator() );
         }
         if ( incoming != null && !incoming.isEmpty() )
         {
-            incoming.keySet().forEach( types::add );
+            types.addAll( incoming.iterator() );
         }
         if ( loops != null && !loops.isEmpty() )
         {
-            loops.keySet().forEach( types::add );
+            types.addAll( loops.iterator() );
         }
         return types;
     }
@@ -392,36 +404,36 @@ public class RelationshipChangesForNode
         }
     }
 
-    private Map<Integer /* Type */, Set<Long /* Id */>> outgoing()
+    private PrimitiveIntObjectMap<VersionedPrimitiveLongSet> outgoing()
     {
         if ( outgoing == null )
         {
-            outgoing = new VersionedHashMap<>();
+            outgoing = Primitive.intObjectMap( TYPES_PER_NODE );
         }
         return outgoing;
     }
 
-    private Map<Integer /* Type */, Set<Long /* Id */>> incoming()
+    private PrimitiveIntObjectMap<VersionedPrimitiveLongSet> incoming()
     {
         if ( incoming == null )
         {
-            incoming = new VersionedHashMap<>();
+            incoming = Primitive.intObjectMap( TYPES_PER_NODE );
         }
         return incoming;
     }
 
-    private Map<Integer /* Type */, Set<Long /* Id */>> loops()
+    private PrimitiveIntObjectMap<VersionedPrimitiveLongSet> loops()
     {
         if ( loops == null )
         {
-            loops = new VersionedHashMap<>();
+            loops = Primitive.intObjectMap( TYPES_PER_NODE );
         }
         return loops;
     }
 
-    private Map<Integer, Set<Long>> getTypeToRelMapForDirection( Direction direction )
+    private PrimitiveIntObjectMap<VersionedPrimitiveLongSet> getTypeToRelMapForDirection( Direction direction )
     {
-        Map<Integer /* Type */, Set<Long /* Id */>> relTypeToRelsMap = null;
+        PrimitiveIntObjectMap<VersionedPrimitiveLongSet> relTypeToRelsMap = null;
         switch ( direction )
         {
             case INCOMING:
@@ -439,18 +451,19 @@ public class RelationshipChangesForNode
         return relTypeToRelsMap;
     }
 
-    private Function<Map<Integer, Set<Long>>, Iterator<Set<Long>>> typeFilter( int[] types )
+    private Function<PrimitiveIntObjectMap<VersionedPrimitiveLongSet>,Iterator<VersionedPrimitiveLongSet>> typeFilter(
+            int[] types )
     {
-        return relationshipsByType -> new PrefetchingIterator<Set<Long>>()
+        return relationshipsByType -> new PrefetchingIterator<VersionedPrimitiveLongSet>()
         {
             private final PrimitiveIntIterator iterTypes = PrimitiveIntCollections.iterator( types );
 
             @Override
-            protected Set<Long> fetchNextOrNull()
+            protected VersionedPrimitiveLongSet fetchNextOrNull()
             {
                 while ( iterTypes.hasNext() )
                 {
-                    Set<Long> relsByType = relationshipsByType.get( iterTypes.next() );
+                    VersionedPrimitiveLongSet relsByType = relationshipsByType.get( iterTypes.next() );
                     if ( relsByType != null )
                     {
                         return relsByType;
@@ -461,19 +474,26 @@ public class RelationshipChangesForNode
         };
     }
 
-    private static final Function<Map<Integer, Set<Long>>, Iterator<Set<Long>>> ALL_TYPES =
-            integerSetMap -> integerSetMap.values().iterator();
-
-    private Iterator<Set<Long>> diffs( Function<Map<Integer,Set<Long>>,Iterator<Set<Long>>> filter,
-            Map<Integer,Set<Long>>... maps )
+    private static final Function<PrimitiveIntObjectMap<VersionedPrimitiveLongSet>,Iterator<VersionedPrimitiveLongSet>>
+            ALL_TYPES = relationshipsByType ->
+            {
+                Collection<VersionedPrimitiveLongSet> result = new ArrayList<>( relationshipsByType.size() );
+                relationshipsByType.visitEntries( ( type, relsByType ) -> !result.add( relsByType ) );
+                return result.iterator();
+            };
+
+    @SafeVarargs
+    private final Iterator<VersionedPrimitiveLongSet> diffs(
+            Function<PrimitiveIntObjectMap<VersionedPrimitiveLongSet>,Iterator<VersionedPrimitiveLongSet>> filter,
+            PrimitiveIntObjectMap<VersionedPrimitiveLongSet>... maps )
     {
-        Collection<Set<Long>> result = new ArrayList<>();
+        Collection<VersionedPrimitiveLongSet> result = new ArrayList<>();
         for ( int i = 0; i < maps.length; i++ )
         {
-            Map<Integer,Set<Long>> map = maps[i];
+            PrimitiveIntObjectMap<VersionedPrimitiveLongSet> map = maps[i];
             if ( map != null )
             {
-                Iterator<Set<Long>> diffSet = filter.apply( map );
+                Iterator<VersionedPrimitiveLongSet> diffSet = filter.apply( map );
                 while ( diffSet.hasNext() )
                 {
                     result.add( diffSet.next() );
@@ -494,7 +514,7 @@ public class RelationshipChangesForNode
     }
 
     private PrimitiveLongIterator getRelationships( Direction direction,
-            Function<Map<Integer,Set<Long>>,Iterator<Set<Long>>> types )
+            Function<PrimitiveIntObjectMap<VersionedPrimitiveLongSet>,Iterator<VersionedPrimitiveLongSet>> types )
     {
         switch ( direction )
         {
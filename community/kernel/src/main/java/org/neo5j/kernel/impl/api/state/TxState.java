@@ -30,6 +30,7 @@ import java.util.function.Consumer;
 import org.neo5j.collection.primitive.Primitive;
 import org.neo5j.collection.primitive.PrimitiveIntSet;
 import org.neo5j.collection.primitive.PrimitiveLongIterator;
+import org.neo5j.collection.primitive.PrimitiveLongObjectMap;
 import org.neo5j.collection.primitive.PrimitiveLongSet;
 import org.neo5j.cursor.Cursor;
 import org.neo5j.helpers.collection.Iterables;
@@ -54,7 +55,11 @@ import org.neo5j.kernel.impl.api.cursor.TxSinglePropertyCursor;
 import org.neo5j.kernel.impl.api.cursor.TxSingleRelationshipCursor;
 import org.neo5j.kernel.impl.api.store.RelationshipIterator;
 import org.neo5j.kernel.impl.util.InstanceCache;
+import org.neo5j.kernel.impl.util.collection.CollectionsFactory;
+import org.neo5j.kernel.impl.util.collection.OnHeapCollectionsFactory;
 import org.neo5j.kernel.impl.util.diffsets.DiffSets;
+import org.neo5j.kernel.impl.util.diffsets.PrimitiveLongDiffSets;
+import org.neo5j.kernel.impl.util.diffsets.PrimitiveLongRelationshipDiffSets;
 import org.neo5j.kernel.impl.util.diffsets.RelationshipDiffSets;
 import org.neo5j.storageengine.api.Direction;
 import org.neo5j.storageengine.api.NodeItem;
@@ -88,47 +93,47 @@ import static org.neo5j.kernel.impl.api.PropertyValueComparison.SuperType.STRING
  */
 public final class TxState implements TransactionState, RelationshipVisitor.Home
 {
-    private Map<Integer/*Label ID*/, LabelState.Mutable> labelStatesMap;
+    private PrimitiveLongObjectMap<LabelState.Mutable> labelStatesMap;
     private static final LabelState.Defaults LABEL_STATE = new LabelState.Defaults()
     {
         @Override
-        Map<Integer, LabelState.Mutable> getMap( TxState state )
+        PrimitiveLongObjectMap<LabelState.Mutable> getMap( TxState state )
         {
             return state.labelStatesMap;
         }
 
         @Override
-        void setMap( TxState state, Map<Integer, LabelState.Mutable> map )
+        void setMap( TxState state, PrimitiveLongObjectMap<LabelState.Mutable> map )
         {
             state.labelStatesMap = map;
         }
     };
-    private Map<Long/*Node ID*/, NodeStateImpl> nodeStatesMap;
+    private PrimitiveLongObjectMap<NodeStateImpl> nodeStatesMap;
     private static final NodeStateImpl.Defaults NODE_STATE = new NodeStateImpl.Defaults()
     {
         @Override
-        Map<Long, NodeStateImpl> getMap( TxState state )
+        PrimitiveLongObjectMap<NodeStateImpl> getMap( TxState state )
         {
             return state.nodeStatesMap;
         }
 
         @Override
-        void setMap( TxState state, Map<Long, NodeStateImpl> map )
+        void setMap( TxState state, PrimitiveLongObjectMap<NodeStateImpl> map )
         {
             state.nodeStatesMap = map;
         }
     };
-    private Map<Long/*Relationship ID*/, RelationshipStateImpl> relationshipStatesMap;
+    private PrimitiveLongObjectMap<RelationshipStateImpl> relationshipStatesMap;
     private static final RelationshipStateImpl.Defaults RELATIONSHIP_STATE = new RelationshipStateImpl.Defaults()
     {
         @Override
-        Map<Long, RelationshipStateImpl> getMap( TxState state )
+        PrimitiveLongObjectMap<RelationshipStateImpl> getMap( TxState state )
         {
             return state.relationshipStatesMap;
         }
 
         @Override
-        void setMap( TxState state, Map<Long, RelationshipStateImpl> map )
+        void setMap( TxState state, PrimitiveLongObjectMap<RelationshipStateImpl> map )
         {
             state.relationshipStatesMap = map;
         }
@@ -170,8 +175,23 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
 
     private boolean hasChanges, hasDataChanges;
 
+    private final CollectionsFactory collectionsFactory;
+
+    // The number of bytes that the state grows by with each kind of change, besides the collections that the
+    // collections factory keeps track of. Measured on a 64-bit JVM with compressed references.
+    static final long ENTITY_STATE_SIZE = 320;
+    private static final long LABEL_CHANGE_SIZE = 64;
+    private static final long PROPERTY_CHANGE_SIZE = 416;
+    private static final long RELATIONSHIP_CHANGE_SIZE = 304;
+
     public TxState()
     {
+        this( OnHeapCollectionsFactory.INSTANCE );
+    }
+
+    public TxState( CollectionsFactory collectionsFactory )
+    {
+        this.collectionsFactory = collectionsFactory;
         singleNodeCursor = new InstanceCache<TxSingleNodeCursor>()
         {
             @Override
@@ -429,6 +449,25 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
         return NODE_STATE.values( this );
     }
 
+    /**
+     * @return the factory that the collections of this transaction state take their memory from.
+     */
+    CollectionsFactory collectionsFactory()
+    {
+        return collectionsFactory;
+    }
+
+    /**
+     * Reports memory that the state grows by to the memory tracker of the transaction. If the tracker refuses the
+     * memory, the change being made is left half applied, and the tracker has the transaction terminated for it.
+     *
+     * @param bytes the estimated number of bytes.
+     */
+    void allocated( long bytes )
+    {
+        collectionsFactory.memoryTracker().allocated( bytes );
+    }
+
     private DiffSets<Long> getOrCreateLabelStateNodeDiffSets( int labelId )
     {
         return LABEL_STATE.getOrCreate( this, labelId ).getOrCreateNodeDiffSets();
@@ -513,6 +552,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     @Override
     public void relationshipDoCreate( long id, int relationshipTypeId, long startNodeId, long endNodeId )
     {
+        allocated( RELATIONSHIP_CHANGE_SIZE );
         relationships().add( id );
 
         if ( startNodeId == endNodeId )
@@ -545,6 +585,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     @Override
     public void relationshipDoDelete( long id, int type, long startNodeId, long endNodeId )
     {
+        allocated( RELATIONSHIP_CHANGE_SIZE );
         if ( relationships().remove( id ) )
         {
             recordRelationshipDeleted( id );
@@ -587,6 +628,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     @Override
     public void nodeDoAddProperty( long nodeId, DefinedProperty newProperty )
     {
+        allocated( PROPERTY_CHANGE_SIZE );
         NodeStateImpl nodeState = getOrCreateNodeState( nodeId );
         nodeState.addProperty( newProperty );
         nodePropertyChanges().addProperty( nodeId, newProperty.propertyKeyId(), newProperty.value() );
@@ -596,6 +638,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     @Override
     public void nodeDoChangeProperty( long nodeId, DefinedProperty replacedProperty, DefinedProperty newProperty )
     {
+        allocated( PROPERTY_CHANGE_SIZE );
         getOrCreateNodeState( nodeId ).changeProperty( newProperty );
         nodePropertyChanges().changeProperty( nodeId, replacedProperty.propertyKeyId(),
                 replacedProperty.value(), newProperty.value() );
@@ -607,6 +650,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
             Property replacedProperty,
             DefinedProperty newProperty )
     {
+        allocated( PROPERTY_CHANGE_SIZE );
         if ( replacedProperty.isDefined() )
         {
             getOrCreateRelationshipState( relationshipId ).changeProperty( newProperty );
@@ -621,6 +665,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     @Override
     public void graphDoReplaceProperty( Property replacedProperty, DefinedProperty newProperty )
     {
+        allocated( PROPERTY_CHANGE_SIZE );
         if ( replacedProperty.isDefined() )
         {
             getOrCreateGraphState().changeProperty( newProperty );
@@ -635,6 +680,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     @Override
     public void nodeDoRemoveProperty( long nodeId, DefinedProperty removedProperty )
     {
+        allocated( PROPERTY_CHANGE_SIZE );
         getOrCreateNodeState( nodeId ).removeProperty( removedProperty );
         nodePropertyChanges().removeProperty( nodeId, removedProperty.propertyKeyId(),
                 removedProperty.value() );
@@ -644,6 +690,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     @Override
     public void relationshipDoRemoveProperty( long relationshipId, DefinedProperty removedProperty )
     {
+        allocated( PROPERTY_CHANGE_SIZE );
         getOrCreateRelationshipState( relationshipId ).removeProperty( removedProperty );
         dataChanged();
     }
@@ -651,6 +698,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     @Override
     public void graphDoRemoveProperty( DefinedProperty removedProperty )
     {
+        allocated( PROPERTY_CHANGE_SIZE );
         getOrCreateGraphState().removeProperty( removedProperty );
         dataChanged();
     }
@@ -658,6 +706,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     @Override
     public void nodeDoAddLabel( int labelId, long nodeId )
     {
+        allocated( LABEL_CHANGE_SIZE );
         getOrCreateLabelStateNodeDiffSets( labelId ).add( nodeId );
         getOrCreateNodeStateLabelDiffSets( nodeId ).add( labelId );
         dataChanged();
@@ -666,6 +715,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     @Override
     public void nodeDoRemoveLabel( int labelId, long nodeId )
     {
+        allocated( LABEL_CHANGE_SIZE );
         getOrCreateLabelStateNodeDiffSets( labelId ).remove( nodeId );
         getOrCreateNodeStateLabelDiffSets( nodeId ).remove( labelId );
         dataChanged();
@@ -847,7 +897,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     {
         if ( nodes == null )
         {
-            nodes = new DiffSets<>();
+            nodes = new PrimitiveLongDiffSets( collectionsFactory );
         }
         return nodes;
     }
@@ -880,7 +930,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     {
         if ( relationships == null )
         {
-            relationships = new RelationshipDiffSets<>( this );
+            relationships = new PrimitiveLongRelationshipDiffSets( this, collectionsFactory );
         }
         return relationships;
     }
@@ -1054,7 +1104,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
             selectedIncludeUpper = includeUpper;
         }
 
-        DiffSets<Long> diffs = new DiffSets<>();
+        DiffSets<Long> diffs = new PrimitiveLongDiffSets();
 
         Collection<DiffSets<Long>> inRange =
                 sortedUpdates.subMap( selectedLower, selectedIncludeLower,
@@ -1116,7 +1166,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
             selectedIncludeUpper = includeUpper;
         }
 
-        DiffSets<Long> diffs = new DiffSets<>();
+        DiffSets<Long> diffs = new PrimitiveLongDiffSets();
         Collection<DiffSets<Long>> inRange =
                 sortedUpdates.subMap(   selectedLower, selectedIncludeLower,
                                         selectedUpper, selectedIncludeUpper ).values();
@@ -1143,7 +1193,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
         }
         //TODO: get working with composite indexes
         OrderedPropertyValues floor = OrderedPropertyValues.ofUndefined( prefix );
-        DiffSets<Long> diffs = new DiffSets<>();
+        DiffSets<Long> diffs = new PrimitiveLongDiffSets();
         for ( Map.Entry<OrderedPropertyValues,DiffSets<Long>> entry : sortedUpdates.tailMap( floor ).entrySet() )
         {
             OrderedPropertyValues key = entry.getKey();
@@ -1247,7 +1297,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
         DiffSets<Long> diffs = updates.get( values );
         if ( diffs == null && create )
         {
-            updates.put( values, diffs = new DiffSets<>() );
+            updates.put( values, diffs = new PrimitiveLongDiffSets( collectionsFactory ) );
         }
         return diffs;
     }
@@ -1263,7 +1313,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
         {
             return null;
         }
-        DiffSets<Long> diffs = new DiffSets<>();
+        DiffSets<Long> diffs = new PrimitiveLongDiffSets();
         for ( DiffSets<Long> diffSet : updates.values() )
         {
             diffs.addAll( diffSet.getAdded().iterator() );
@@ -26,10 +26,29 @@ import org.neo5j.kernel.impl.api.ReadOnlyTransactionCommitProcess;
 import org.neo5j.kernel.impl.api.TransactionCommitProcess;
 import org.neo5j.kernel.impl.api.TransactionRepresentationCommitProcess;
 import org.neo5j.kernel.impl.transaction.log.TransactionAppender;
+import org.neo5j.kernel.impl.util.JobScheduler;
 import org.neo5j.storageengine.api.StorageEngine;
 
+import static org.neo5j.kernel.impl.util.JobScheduler.Groups.transactionLogAppend;
+
 public class CommunityCommitProcessFactory implements CommitProcessFactory
 {
+    private final JobScheduler scheduler;
+
+    public CommunityCommitProcessFactory()
+    {
+        this( null );
+    }
+
+    /**
+     * @param scheduler runs the log append stage of pipelined commits, see
+     * {@link GraphDatabaseSettings#commit_pipeline_segment_size}. Commits are not pipelined without a scheduler.
+     */
+    public CommunityCommitProcessFactory( JobScheduler scheduler )
+    {
+        this.scheduler = scheduler;
+    }
+
     @Override
     public TransactionCommitProcess create( TransactionAppender appender, StorageEngine storageEngine,
             Config config )
@@ -38,6 +57,22 @@ public class CommunityCommitProcessFactory implements CommitProcessFactory
         {
             return new ReadOnlyTransactionCommitProcess();
         }
-        return new TransactionRepresentationCommitProcess( appender, storageEngine );
+        return createWritable( appender, storageEngine, config );
+    }
+
+    /**
+     * Creates a commit process that appends to the log and applies to the store, regardless of whether the
+     * database is read only. Used by cluster members for applying the transactions they receive.
+     */
+    public TransactionCommitProcess createWritable( TransactionAppender appender, StorageEngine storageEngine,
+            Config config )
+    {
+        int pipelineSegmentSize = config.get( GraphDatabaseSettings.commit_pipeline_segment_size );
+        if ( scheduler == null || pipelineSegmentSize == 0 )
+        {
+            return new TransactionRepresentationCommitProcess( appender, storageEngine );
+        }
+        return new TransactionRepresentationCommitProcess( appender, storageEngine,
+                scheduler.executor( transactionLogAppend ), pipelineSegmentSize );
     }
 }
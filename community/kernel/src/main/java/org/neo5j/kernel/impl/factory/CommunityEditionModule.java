@@ -59,6 +59,7 @@ import org.neo5j.kernel.impl.logging.LogService;
 import org.neo5j.kernel.impl.proc.Procedures;
 import org.neo5j.kernel.impl.store.id.DefaultIdGeneratorFactory;
 import org.neo5j.kernel.impl.store.id.IdGeneratorFactory;
+import org.neo5j.kernel.impl.store.id.LeasingIdGeneratorFactory;
 import org.neo5j.kernel.impl.store.id.IdReuseEligibility;
 import org.neo5j.kernel.impl.store.id.configuration.CommunityIdTypeConfigurationProvider;
 import org.neo5j.kernel.impl.store.id.configuration.IdTypeConfigurationProvider;
@@ -105,7 +106,8 @@ public class CommunityEditionModule extends EditionModule
         statementLocksFactory = createStatementLocksFactory( lockManager, config, logging );
 
         idTypeConfigurationProvider = createIdTypeConfigurationProvider( config );
-        idGeneratorFactory = dependencies.satisfyDependency( createIdGeneratorFactory( fileSystem, idTypeConfigurationProvider ) );
+        idGeneratorFactory = dependencies.satisfyDependency( leaseIds( config,
+                createIdGeneratorFactory( fileSystem, idTypeConfigurationProvider ) ) );
 
         propertyKeyTokenHolder = life.add( dependencies.satisfyDependency( new DelegatingPropertyKeyTokenHolder(
                 createPropertyKeyCreator( config, dataSourceManager, idGeneratorFactory ) ) ) );
@@ -117,7 +119,7 @@ public class CommunityEditionModule extends EditionModule
         dependencies.satisfyDependency(
                 createKernelData( fileSystem, pageCache, storeDir, config, graphDatabaseFacade, life ) );
 
-        commitProcessFactory = new CommunityCommitProcessFactory();
+        commitProcessFactory = new CommunityCommitProcessFactory( platformModule.jobScheduler );
 
         headerInformationFactory = createHeaderInformationFactory();
 
@@ -218,6 +220,12 @@ public class CommunityEditionModule extends EditionModule
         return new DefaultIdGeneratorFactory( fs, idTypeConfigurationProvider );
     }
 
+    private static IdGeneratorFactory leaseIds( Config config, IdGeneratorFactory idGeneratorFactory )
+    {
+        int leaseSize = config.get( GraphDatabaseSettings.id_lease_size );
+        return leaseSize > 0 ? new LeasingIdGeneratorFactory( idGeneratorFactory, leaseSize ) : idGeneratorFactory;
+    }
+
     public static Locks createLockManager( Config config, Clock clock, LogService logging )
     {
         String key = config.get( GraphDatabaseFacadeFactory.Configuration.lock_manager );
@@ -0,0 +1,406 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.locking;
+
+import java.util.Arrays;
+
+import static java.lang.Thread.currentThread;
+
+/**
+ * A {@link LockService} that keeps its locks in primitive hash tables, one per stripe of the lock key space, such that
+ * taking and releasing an uncontended lock does not allocate any objects.
+ * <p>
+ * Each lock is a reentrant ticket lock: a thread that wants a lock held by another thread takes the next ticket of
+ * that lock, and waits until the ticket is served. This makes the locks fair, in the sense that they are granted in
+ * the order they were requested. Like in {@link ReentrantLockService}, read and write locks are not distinguished,
+ * all locks are mutex locks.
+ * <p>
+ * The state of all the locks in a stripe is guarded by the monitor of the stripe, which is also what waiting threads
+ * wait on. The locks are short lived, and the stripes are many, so both the monitors and the waiting are rarely
+ * contended.
+ * <p>
+ * The {@link Lock} handles are pooled per thread. A handle carries a stamp that tells whether it is currently held,
+ * so releasing a handle more than once is harmless, as the {@link Lock} contract requires. A released handle is only
+ * handed out again once its thread has released {@value #HANDLE_QUARANTINE} other handles after it, so a stale second
+ * release that comes after the handle has been released does nothing, rather than releasing a lock that the handle
+ * now guards on behalf of someone else.
+ */
+public final class StripedLockService implements LockService
+{
+    /** Must be a power of two. */
+    private static final int STRIPES = 128;
+
+    private static final int NODE = 0;
+    private static final int RELATIONSHIP = 1;
+
+    private static final int HANDLE_QUARANTINE = 16;
+    private static final ThreadLocal<HandlePool> handlePools = ThreadLocal.withInitial( HandlePool::new );
+
+    private final Stripe[] stripes;
+
+    public StripedLockService()
+    {
+        stripes = new Stripe[STRIPES];
+        for ( int i = 0; i < STRIPES; i++ )
+        {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @Override
+    public Lock acquireNodeLock( long nodeId, LockType type )
+    {
+        return acquire( key( nodeId, NODE ) );
+    }
+
+    @Override
+    public Lock acquireRelationshipLock( long relationshipId, LockType type )
+    {
+        return acquire( key( relationshipId, RELATIONSHIP ) );
+    }
+
+    int lockCount()
+    {
+        int count = 0;
+        for ( Stripe stripe : stripes )
+        {
+            synchronized ( stripe )
+            {
+                count += stripe.size;
+            }
+        }
+        return count;
+    }
+
+    private static long key( long id, int entityType )
+    {
+        if ( id < 0 )
+        {
+            throw new IllegalArgumentException( "Illegal id: " + id );
+        }
+        return (id << 1) | entityType;
+    }
+
+    private Lock acquire( long key )
+    {
+        int hash = hash( key );
+        stripes[hash & (STRIPES - 1)].acquire( key, hash >>> 7 );
+        return handlePools.get().issue( this, key );
+    }
+
+    private void release( long key )
+    {
+        int hash = hash( key );
+        stripes[hash & (STRIPES - 1)].release( key, hash >>> 7 );
+    }
+
+    private String describe( long key )
+    {
+        int hash = hash( key );
+        return stripes[hash & (STRIPES - 1)].describe( key, hash >>> 7 );
+    }
+
+    private static int hash( long key )
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * A linear probing hash table of the locks that are held, or waited for, in this stripe. A lock stays in the
+     * table for as long as it has an owner, or a waiting thread that will become its owner. The owner of a lock holds
+     * its served ticket, and the waiting threads hold the tickets from there up to, but not including, the next
+     * ticket.
+     */
+    private static final class Stripe
+    {
+        private static final long EMPTY = -1;
+        private static final int INITIAL_CAPACITY = 16;
+
+        private long[] keys = newKeys( INITIAL_CAPACITY );
+        private Thread[] owners = new Thread[INITIAL_CAPACITY];
+        private int[] holdCounts = new int[INITIAL_CAPACITY];
+        private int[] nextTickets = new int[INITIAL_CAPACITY];
+        private int[] servedTickets = new int[INITIAL_CAPACITY];
+        private int size;
+
+        private static long[] newKeys( int capacity )
+        {
+            long[] keys = new long[capacity];
+            Arrays.fill( keys, EMPTY );
+            return keys;
+        }
+
+        synchronized void acquire( long key, int hash )
+        {
+            int slot = find( key, hash );
+            if ( slot < 0 )
+            {
+                slot = insert( ~slot, key );
+                owners[slot] = currentThread();
+                holdCounts[slot] = 1;
+                return;
+            }
+            if ( owners[slot] == currentThread() )
+            {
+                holdCounts[slot]++;
+                return;
+            }
+
+            int ticket = nextTickets[slot]++;
+            boolean interrupted = false;
+            while ( servedTickets[slot] != ticket )
+            {
+                try
+                {
+                    wait();
+                }
+                catch ( InterruptedException e )
+                {
+                    // We cannot give up our ticket, since the threads behind us in the line would then wait forever.
+                    interrupted = true;
+                }
+                slot = find( key, hash ); // The table may have been rearranged while we waited
+            }
+            owners[slot] = currentThread();
+            holdCounts[slot] = 1;
+            if ( interrupted )
+            {
+                currentThread().interrupt();
+            }
+        }
+
+        synchronized void release( long key, int hash )
+        {
+            int slot = find( key, hash );
+            if ( slot < 0 )
+            {
+                throw new IllegalStateException( "Lock " + key + " is not held" );
+            }
+            if ( --holdCounts[slot] > 0 )
+            {
+                return;
+            }
+            if ( servedTickets[slot] + 1 == nextTickets[slot] )
+            {
+                remove( slot );
+            }
+            else
+            {
+                servedTickets[slot]++;
+                owners[slot] = null;
+                notifyAll();
+            }
+        }
+
+        synchronized String describe( long key, int hash )
+        {
+            int slot = find( key, hash );
+            return slot < 0 ? "UNLOCKED" : holdCounts[slot] + "*" + owners[slot];
+        }
+
+        /**
+         * @return the slot of the given key, or the one's complement of the empty slot where it would be inserted.
+         */
+        private int find( long key, int hash )
+        {
+            int mask = keys.length - 1;
+            int slot = hash & mask;
+            long candidate;
+            while ( (candidate = keys[slot]) != EMPTY )
+            {
+                if ( candidate == key )
+                {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return ~slot;
+        }
+
+        private int insert( int slot, long key )
+        {
+            keys[slot] = key;
+            nextTickets[slot] = 1;
+            servedTickets[slot] = 0;
+            if ( ++size << 1 > keys.length )
+            {
+                grow();
+                return find( key, hash( key ) >>> 7 );
+            }
+            return slot;
+        }
+
+        /**
+         * Empty the given slot, and move any following entries of the probe sequence that would otherwise become
+         * unreachable, back into the gap.
+         */
+        private void remove( int gap )
+        {
+            size--;
+            int mask = keys.length - 1;
+            int slot = gap;
+            while ( true )
+            {
+                slot = (slot + 1) & mask;
+                long key = keys[slot];
+                if ( key == EMPTY )
+                {
+                    break;
+                }
+                int home = (hash( key ) >>> 7) & mask;
+                boolean reachable = gap <= slot ? gap < home && home <= slot : gap < home || home <= slot;
+                if ( !reachable )
+                {
+                    move( slot, gap );
+                    gap = slot;
+                }
+            }
+            keys[gap] = EMPTY;
+            owners[gap] = null;
+        }
+
+        private void move( int from, int to )
+        {
+            keys[to] = keys[from];
+            owners[to] = owners[from];
+            holdCounts[to] = holdCounts[from];
+            nextTickets[to] = nextTickets[from];
+            servedTickets[to] = servedTickets[from];
+        }
+
+        private void grow()
+        {
+            long[] oldKeys = keys;
+            Thread[] oldOwners = owners;
+            int[] oldHoldCounts = holdCounts;
+            int[] oldNextTickets = nextTickets;
+            int[] oldServedTickets = servedTickets;
+            int capacity = oldKeys.length << 1;
+            keys = newKeys( capacity );
+            owners = new Thread[capacity];
+            holdCounts = new int[capacity];
+            nextTickets = new int[capacity];
+            servedTickets = new int[capacity];
+            for ( int i = 0; i < oldKeys.length; i++ )
+            {
+                long key = oldKeys[i];
+                if ( key != EMPTY )
+                {
+                    int slot = ~find( key, hash( key ) >>> 7 );
+                    keys[slot] = key;
+                    owners[slot] = oldOwners[i];
+                    holdCounts[slot] = oldHoldCounts[i];
+                    nextTickets[slot] = oldNextTickets[i];
+                    servedTickets[slot] = oldServedTickets[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * The released lock handles of a single thread, in the order they were released. The oldest handle is handed out
+     * again once at least {@value #HANDLE_QUARANTINE} handles have been released after it.
+     */
+    private static final class HandlePool
+    {
+        private final Thread owner = currentThread();
+        private final Handle[] released = new Handle[HANDLE_QUARANTINE * 2];
+        private int oldest;
+        private int count;
+
+        Handle issue( StripedLockService service, long key )
+        {
+            Handle handle;
+            if ( count > HANDLE_QUARANTINE )
+            {
+                handle = released[oldest];
+                released[oldest] = null;
+                oldest = (oldest + 1) % released.length;
+                count--;
+            }
+            else
+            {
+                handle = new Handle( this );
+            }
+            handle.issue( service, key );
+            return handle;
+        }
+
+        void recycle( Handle handle )
+        {
+            if ( currentThread() != owner )
+            {
+                return;
+            }
+            if ( count == released.length )
+            {
+                // Drop the oldest handle, rather than handing out a handle that has only just been released.
+                released[oldest] = handle;
+                oldest = (oldest + 1) % released.length;
+            }
+            else
+            {
+                released[(oldest + count) % released.length] = handle;
+                count++;
+            }
+        }
+    }
+
+    private static final class Handle extends Lock
+    {
+        private final HandlePool pool;
+        private StripedLockService service;
+        private long key;
+        // Odd while the handle is held, and even once it has been released. Both issuing and releasing move it on.
+        private int stamp;
+
+        Handle( HandlePool pool )
+        {
+            this.pool = pool;
+        }
+
+        void issue( StripedLockService service, long key )
+        {
+            this.service = service;
+            this.key = key;
+            stamp++;
+        }
+
+        @Override
+        public void release()
+        {
+            if ( (stamp & 1) == 0 )
+            {
+                return;
+            }
+            stamp++;
+            service.release( key );
+            pool.recycle( this );
+        }
+
+        @Override
+        public String toString()
+        {
+            return ((key & 1) == NODE ? "LockedNode" : "LockedRelationship") + "[id=" + (key >>> 1) +
+                   ((stamp & 1) == 1 ? "; HELD_BY=" + service.describe( key ) : "; RELEASED") + "]";
+        }
+    }
+}
@@ -19,6 +19,8 @@
  */
 package org.neo5j.kernel.impl.pagecache;
 
+import java.io.File;
+
 import org.neo5j.helpers.Service;
 import org.neo5j.io.ByteUnit;
 import org.neo5j.io.fs.FileSystemAbstraction;
@@ -31,10 +33,14 @@ import org.neo5j.io.pagecache.tracing.cursor.PageCursorTracerSupplier;
 import org.neo5j.kernel.configuration.Config;
 import org.neo5j.kernel.impl.util.OsBeanUtil;
 import org.neo5j.logging.Log;
+import org.neo5j.unsafe.impl.internal.dragons.HugePages;
 
 import static org.neo5j.graphdb.factory.GraphDatabaseSettings.mapped_memory_page_size;
+import static org.neo5j.graphdb.factory.GraphDatabaseSettings.pagecache_eviction_policy;
+import static org.neo5j.graphdb.factory.GraphDatabaseSettings.pagecache_hugetlbfs_directory;
 import static org.neo5j.graphdb.factory.GraphDatabaseSettings.pagecache_memory;
 import static org.neo5j.graphdb.factory.GraphDatabaseSettings.pagecache_swapper;
+import static org.neo5j.graphdb.factory.GraphDatabaseSettings.pagecache_transparent_huge_pages;
 import static org.neo5j.kernel.configuration.Settings.BYTES;
 import static org.neo5j.unsafe.impl.internal.dragons.FeatureToggles.getInteger;
 
@@ -111,7 +117,18 @@ public class ConfiguringPageCacheFactory
         return new MuninnPageCache(
                 swapperFactory,
                 maxPages,
-                cachePageSize, pageCacheTracer, pageCursorTracerSupplier );
+                cachePageSize, pageCacheTracer, pageCursorTracerSupplier, config.get( pagecache_eviction_policy ),
+                hugePages( config ) );
+    }
+
+    private static HugePages hugePages( Config config )
+    {
+        File hugetlbfsDirectory = config.get( pagecache_hugetlbfs_directory );
+        if ( hugetlbfsDirectory != null )
+        {
+            return HugePages.hugetlbfs( hugetlbfsDirectory );
+        }
+        return config.get( pagecache_transparent_huge_pages ) ? HugePages.transparent() : HugePages.disabled();
     }
 
     public int calculateMaxPages( Config config, int cachePageSize )
@@ -214,7 +231,8 @@ public class ConfiguringPageCacheFactory
         long pageCacheMb = ByteUnit.Byte.toMebiBytes(maxPages * cachePageSize);
         String msg = "Physical mem: " + totalPhysicalMemMb + " MiB," +
                      " Heap size: " + maxVmUsageMb + " MiB," +
-                     " Page cache size: " + pageCacheMb + " MiB.";
+                     " Page cache size: " + pageCacheMb + " MiB," +
+                     " Page cache memory: " + hugePages( config ) + ".";
 
         log.info( msg );
     }
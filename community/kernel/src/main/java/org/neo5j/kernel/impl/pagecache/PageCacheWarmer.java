@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.pagecache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.neo5j.io.IOUtils;
+import org.neo5j.io.fs.FileSystemAbstraction;
+import org.neo5j.io.pagecache.PageCache;
+import org.neo5j.io.pagecache.PageCursor;
+import org.neo5j.io.pagecache.PagedFile;
+import org.neo5j.kernel.impl.util.JobScheduler;
+import org.neo5j.kernel.lifecycle.LifecycleAdapter;
+import org.neo5j.logging.Log;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.neo5j.io.pagecache.PagedFile.PF_NO_FAULT;
+import static org.neo5j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
+import static org.neo5j.io.pagecache.PagedFile.PF_TRANSIENT;
+
+/**
+ * The page cache warmer periodically records which pages of the mapped files are in the page cache, in a profile
+ * file next to each mapped file. When the database starts, the pages in the profiles are loaded back into the page
+ * cache in the background, while the database is accepting traffic. The files are reloaded in parallel, and the
+ * pages of each file are loaded in file offset order. A read only database is reheated from the existing profiles,
+ * but does not record new ones.
+ * <p>
+ * A profile is a gzip compressed bitmap with one bit for every page in the file, where bit {@code pageId % 8} of
+ * byte {@code pageId / 8} is set if the page was in memory.
+ */
+public class PageCacheWarmer extends LifecycleAdapter
+{
+    public static final String SUFFIX_CACHEPROF = ".cacheprof";
+    private static final String SUFFIX_CACHEPROF_TMP = ".cacheprof.tmp";
+
+    private final FileSystemAbstraction fs;
+    private final PageCache pageCache;
+    private final JobScheduler scheduler;
+    private final Log log;
+    private final long profilingIntervalMillis;
+    private final boolean readOnly;
+    private volatile boolean stopped;
+    private volatile boolean reheating;
+    private volatile boolean profiled;
+    private JobScheduler.JobHandle reheatJob;
+    private JobScheduler.JobHandle profileJob;
+
+    public PageCacheWarmer( FileSystemAbstraction fs, PageCache pageCache, JobScheduler scheduler, Log log,
+            long profilingIntervalMillis, boolean readOnly )
+    {
+        this.fs = fs;
+        this.pageCache = pageCache;
+        this.scheduler = scheduler;
+        this.log = log;
+        this.profilingIntervalMillis = profilingIntervalMillis;
+        this.readOnly = readOnly;
+    }
+
+    @Override
+    public void start()
+    {
+        stopped = false;
+        profiled = false;
+        reheating = true;
+        reheatJob = scheduler.schedule( JobScheduler.Groups.pageCacheWarmup, this::reheatInBackground );
+        if ( !readOnly )
+        {
+            profileJob = scheduler.scheduleRecurring( JobScheduler.Groups.pageCacheWarmup, this::profileInBackground,
+                    profilingIntervalMillis, profilingIntervalMillis, TimeUnit.MILLISECONDS );
+        }
+    }
+
+    @Override
+    public void stop() throws Throwable
+    {
+        stopped = true;
+        awaitTermination( reheatJob );
+        if ( profileJob != null )
+        {
+            profileJob.cancel( false );
+            awaitTermination( profileJob );
+            profileJob = null;
+        }
+        // Record the latest profile before the files are unmapped, unless the database has been running for such a
+        // short time that it never got around to profiling.
+        if ( profiled )
+        {
+            stopped = false;
+            profile();
+        }
+    }
+
+    private static void awaitTermination( JobScheduler.JobHandle job ) throws InterruptedException
+    {
+        try
+        {
+            job.waitTermination();
+        }
+        catch ( ExecutionException | RuntimeException ignore )
+        {
+            // The job has been cancelled, or has already reported its failure.
+        }
+    }
+
+    private void reheatInBackground()
+    {
+        try
+        {
+            log.info( "Page cache warmup started." );
+            long startMillis = System.currentTimeMillis();
+            long pagesLoaded = reheat();
+            log.info( "Page cache warmup completed. %d pages loaded in %d ms.",
+                    pagesLoaded, System.currentTimeMillis() - startMillis );
+        }
+        catch ( Throwable e )
+        {
+            log.warn( "Page cache warmup failed.", e );
+        }
+        finally
+        {
+            reheating = false;
+        }
+    }
+
+    private void profileInBackground()
+    {
+        if ( reheating || stopped )
+        {
+            // A profile taken while we are still reheating would only be a partial picture of the page cache.
+            return;
+        }
+        try
+        {
+            profile();
+            profiled = true;
+        }
+        catch ( Throwable e )
+        {
+            log.warn( "Page cache profiling failed.", e );
+        }
+    }
+
+    /**
+     * Load the pages in the profiles of all the mapped files into the page cache, one job per file.
+     * @return The number of pages that were loaded.
+     */
+    public long reheat() throws IOException, InterruptedException
+    {
+        AtomicLong pagesLoaded = new AtomicLong();
+        List<PagedFile> pagedFiles = pageCache.listExistingMappings();
+        try
+        {
+            List<JobScheduler.JobHandle> jobs = new ArrayList<>( pagedFiles.size() );
+            for ( PagedFile pagedFile : pagedFiles )
+            {
+                jobs.add( scheduler.schedule( JobScheduler.Groups.pageCacheWarmup,
+                        () -> pagesLoaded.addAndGet( reheat( pagedFile ) ) ) );
+            }
+            for ( JobScheduler.JobHandle job : jobs )
+            {
+                awaitTermination( job );
+            }
+        }
+        finally
+        {
+            IOUtils.closeAll( pagedFiles );
+        }
+        return pagesLoaded.get();
+    }
+
+    private long reheat( PagedFile pagedFile )
+    {
+        File file = pagedFile.file();
+        File profile = profileFile( file );
+        if ( !fs.fileExists( profile ) )
+        {
+            return 0;
+        }
+        long pagesLoaded = 0;
+        try ( InputStream input = new BufferedInputStream( new GZIPInputStream( fs.openAsInputStream( profile ) ) );
+              PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK ) )
+        {
+            long lastPageId = pagedFile.getLastPageId();
+            long pageId = 0;
+            int bits;
+            while ( (bits = input.read()) != -1 && pageId <= lastPageId && !stopped )
+            {
+                for ( int i = 0; i < Byte.SIZE; i++, pageId++ )
+                {
+                    if ( (bits & (1 << i)) != 0 && cursor.next( pageId ) )
+                    {
+                        pagesLoaded++;
+                    }
+                }
+            }
+            log.info( "Page cache warmup loaded %d pages of %s.", pagesLoaded, file );
+        }
+        catch ( IOException | IllegalStateException e )
+        {
+            // The profile might be corrupt, or the file might have been unmapped. Either way, the pages that we did
+            // not get around to loading will be faulted in when they are needed.
+            log.warn( "Page cache warmup of " + file + " stopped after " + pagesLoaded + " pages.", e );
+        }
+        return pagesLoaded;
+    }
+
+    /**
+     * Record which pages of all the mapped files are in the page cache, in a profile file for each mapped file.
+     * @return The number of pages that are in the page cache, according to the new profiles.
+     */
+    public long profile() throws IOException
+    {
+        long pagesInMemory = 0;
+        List<PagedFile> pagedFiles = pageCache.listExistingMappings();
+        try
+        {
+            for ( PagedFile pagedFile : pagedFiles )
+            {
+                if ( stopped )
+                {
+                    break;
+                }
+                pagesInMemory += profile( pagedFile );
+            }
+        }
+        finally
+        {
+            IOUtils.closeAll( pagedFiles );
+        }
+        log.debug( "Page cache profile recorded %d pages in memory.", pagesInMemory );
+        return pagesInMemory;
+    }
+
+    private long profile( PagedFile pagedFile ) throws IOException
+    {
+        File file = pagedFile.file();
+        File tmpProfile = new File( file.getParentFile(), file.getName() + SUFFIX_CACHEPROF_TMP );
+        long pagesInMemory = 0;
+        try ( OutputStream output = new BufferedOutputStream(
+                new GZIPOutputStream( fs.openAsOutputStream( tmpProfile, false ) ) );
+              PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK | PF_NO_FAULT | PF_TRANSIENT ) )
+        {
+            int bits = 0;
+            int bit = 0;
+            while ( cursor.next() )
+            {
+                if ( cursor.getCurrentPageId() != PageCursor.UNBOUND_PAGE_ID )
+                {
+                    bits |= 1 << bit;
+                    pagesInMemory++;
+                }
+                if ( ++bit == Byte.SIZE )
+                {
+                    output.write( bits );
+                    bits = 0;
+                    bit = 0;
+                }
+            }
+            if ( bit > 0 )
+            {
+                output.write( bits );
+            }
+        }
+        fs.renameFile( tmpProfile, profileFile( file ), REPLACE_EXISTING );
+        return pagesInMemory;
+    }
+
+    private static File profileFile( File file )
+    {
+        return new File( file.getParentFile(), file.getName() + SUFFIX_CACHEPROF );
+    }
+}
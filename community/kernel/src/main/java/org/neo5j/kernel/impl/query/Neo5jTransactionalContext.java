@@ -19,17 +19,21 @@
  */
 package org.neo5j.kernel.impl.query;
 
+import java.util.Optional;
 import java.util.function.Supplier;
 
 import org.neo5j.graphdb.Lock;
 import org.neo5j.graphdb.NotInTransactionException;
 import org.neo5j.graphdb.PropertyContainer;
+import org.neo5j.graphdb.TransactionTerminatedException;
 import org.neo5j.kernel.GraphDatabaseQueryService;
 import org.neo5j.kernel.api.KernelTransaction;
 import org.neo5j.kernel.api.QueryRegistryOperations;
 import org.neo5j.kernel.api.ReadOperations;
 import org.neo5j.kernel.api.Statement;
 import org.neo5j.kernel.api.dbms.DbmsOperations;
+import org.neo5j.kernel.api.exceptions.Status;
+import org.neo5j.kernel.api.memory.MemoryTracker;
 import org.neo5j.kernel.api.query.ExecutingQuery;
 import org.neo5j.kernel.api.security.SecurityContext;
 import org.neo5j.kernel.api.txstate.TxStateHolder;
@@ -224,6 +228,16 @@ public class Neo5jTransactionalContext implements TransactionalContext
         return this;
     }
 
+    @Override
+    public TransactionalContext beginInNewThread()
+    {
+        InternalTransaction workerTransaction = graph.beginTransaction( transactionType, securityContext );
+        Statement workerStatement = statementSupplier.get();
+        // The query stays registered with the transaction that runs it only, so that it is listed once
+        return new Neo5jTransactionalContext( graph, statementSupplier, guard, txBridge, locker, workerTransaction,
+                workerStatement, executingQuery );
+    }
+
     @Override
     public boolean isOpen()
     {
@@ -245,7 +259,13 @@ public class Neo5jTransactionalContext implements TransactionalContext
     @Override
     public void check()
     {
-        guard.check( (KernelStatement) statement );
+        KernelStatement kernelStatement = (KernelStatement) statement;
+        Optional<Status> terminationReason = kernelStatement.getTransaction().getReasonIfTerminated();
+        if ( terminationReason.isPresent() )
+        {
+            throw new TransactionTerminatedException( terminationReason.get() );
+        }
+        guard.check( kernelStatement );
     }
 
     @Override
@@ -260,6 +280,12 @@ public class Neo5jTransactionalContext implements TransactionalContext
         return locker.exclusiveLock( statement, p );
     }
 
+    @Override
+    public MemoryTracker memoryTracker()
+    {
+        return ((KernelStatement) statement).getTransaction().memoryTracker();
+    }
+
     @Override
     public KernelTransaction.Revertable restrictCurrentTransaction( SecurityContext context )
     {
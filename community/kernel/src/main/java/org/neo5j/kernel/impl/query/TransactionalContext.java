@@ -27,6 +27,7 @@ import org.neo5j.kernel.api.KernelTransaction;
 import org.neo5j.kernel.api.ReadOperations;
 import org.neo5j.kernel.api.Statement;
 import org.neo5j.kernel.api.dbms.DbmsOperations;
+import org.neo5j.kernel.api.memory.MemoryTracker;
 import org.neo5j.kernel.api.security.SecurityContext;
 import org.neo5j.kernel.api.txstate.TxStateHolder;
 
@@ -59,6 +60,13 @@ public interface TransactionalContext
 
     TransactionalContext getOrBeginNewIfClosed();
 
+    /**
+     * Begins a new transaction of the same type and with the same security context as this one, bound to the calling
+     * thread, for a worker that runs a part of this query in parallel. The worker sees what has been committed, but
+     * not the changes of this transaction. The returned context must be closed by the thread that began it.
+     */
+    TransactionalContext beginInNewThread();
+
     boolean isOpen();
 
     GraphDatabaseQueryService graph();
@@ -66,8 +74,9 @@ public interface TransactionalContext
     Statement statement();
 
     /**
-     * Check that current context satisfy current execution guard.
-     * In case if guard criteria is not satisfied {@link org.neo5j.kernel.guard.GuardException} will be thrown.
+     * Check that current context satisfy current execution guard, and that its transaction has not been terminated.
+     * In case if guard criteria is not satisfied {@link org.neo5j.kernel.guard.GuardException} will be thrown, and
+     * {@link org.neo5j.graphdb.TransactionTerminatedException} if the transaction has been terminated.
      */
     void check();
 
@@ -77,5 +86,10 @@ public interface TransactionalContext
 
     SecurityContext securityContext();
 
+    /**
+     * @return the tracker of the memory used by the transaction, for the query to report the memory it buffers rows in.
+     */
+    MemoryTracker memoryTracker();
+
     KernelTransaction.Revertable restrictCurrentTransaction( SecurityContext context );
 }
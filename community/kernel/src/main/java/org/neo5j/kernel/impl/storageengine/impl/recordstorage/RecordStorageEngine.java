@@ -89,6 +89,7 @@ import org.neo5j.kernel.impl.transaction.command.IndexBatchTransactionApplier;
 import org.neo5j.kernel.impl.transaction.command.IndexUpdatesWork;
 import org.neo5j.kernel.impl.transaction.command.LabelUpdateWork;
 import org.neo5j.kernel.impl.transaction.command.NeoStoreBatchTransactionApplier;
+import org.neo5j.kernel.impl.transaction.command.PartitionedNeoStoreBatchTransactionApplier;
 import org.neo5j.kernel.impl.transaction.state.DefaultSchemaIndexProviderMap;
 import org.neo5j.kernel.impl.transaction.state.IntegrityValidator;
 import org.neo5j.kernel.impl.transaction.state.Loaders;
@@ -161,6 +162,7 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
     private final PropertyPhysicalToLogicalConverter indexUpdatesConverter;
     private final Supplier<StorageStatement> storeStatementSupplier;
     private final IdController idController;
+    private final int recoveryParallelism;
 
     // Immutable state for creating/applying commands
     private final Loaders loaders;
@@ -206,6 +208,7 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
         this.indexConfigStore = indexConfigStore;
         this.constraintSemantics = constraintSemantics;
         this.legacyIndexTransactionOrdering = legacyIndexTransactionOrdering;
+        this.recoveryParallelism = config.get( GraphDatabaseSettings.recovery_parallelism );
 
         this.idController = createStorageIdController( idGeneratorFactory, eligibleForReuse,
             idTypeConfigurationProvider, transactionsSnapshotSupplier );
@@ -368,7 +371,15 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
     {
         ArrayList<BatchTransactionApplier> appliers = new ArrayList<>();
         // Graph store application. The order of the decorated store appliers is irrelevant
-        appliers.add( new NeoStoreBatchTransactionApplier( neoStores, cacheAccess, lockService ) );
+        if ( mode == TransactionApplicationMode.RECOVERY && recoveryParallelism > 1 )
+        {
+            appliers.add( new PartitionedNeoStoreBatchTransactionApplier( neoStores, cacheAccess, lockService,
+                    scheduler, recoveryParallelism ) );
+        }
+        else
+        {
+            appliers.add( new NeoStoreBatchTransactionApplier( neoStores, cacheAccess, lockService ) );
+        }
         if ( mode.needsHighIdTracking() )
         {
             appliers.add( new HighIdBatchTransactionApplier( neoStores ) );
@@ -53,6 +53,7 @@ import static org.neo5j.io.pagecache.PageCacheOpenOptions.ANY_PAGE_SIZE;
 import static org.neo5j.io.pagecache.PagedFile.PF_READ_AHEAD;
 import static org.neo5j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
 import static org.neo5j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
+import static org.neo5j.io.pagecache.PagedFile.PF_TRANSIENT;
 import static org.neo5j.kernel.impl.store.record.RecordLoad.CHECK;
 import static org.neo5j.kernel.impl.store.record.RecordLoad.NORMAL;
 
@@ -1099,7 +1100,7 @@ public abstract class CommonAbstractStore<RECORD extends AbstractBaseRecord,HEAD
     @Override
     public <EXCEPTION extends Exception> void scanAllRecords( Visitor<RECORD,EXCEPTION> visitor ) throws EXCEPTION
     {
-        try ( RecordCursor<RECORD> cursor = newRecordCursor( newRecord() ) )
+        try ( RecordCursor<RECORD> cursor = newScanRecordCursor( newRecord() ) )
         {
             long highId = getHighId();
             cursor.acquire( getNumberOfReservedLowIds(), CHECK );
@@ -1129,6 +1130,14 @@ public abstract class CommonAbstractStore<RECORD extends AbstractBaseRecord,HEAD
         return new StoreRecordCursor<>( record, this );
     }
 
+    @Override
+    public RecordCursor<RECORD> newScanRecordCursor( final RECORD record )
+    {
+        // Scans visit every page of the store exactly once, so we read ahead, and we don't want to evict the
+        // frequently used pages
+        return new StoreRecordCursor<>( record, this, PF_SHARED_READ_LOCK | PF_READ_AHEAD | PF_TRANSIENT );
+    }
+
     private void verifyAfterNotRead( RECORD record, RecordLoad mode )
     {
         record.clear();
@@ -146,6 +146,19 @@ public interface RecordStore<RECORD extends AbstractBaseRecord> extends IdSequen
      */
     RecordCursor<RECORD> newRecordCursor( RECORD record );
 
+    /**
+     * Instantiates a new record cursor, like {@link #newRecordCursor(AbstractBaseRecord)}, that is meant for
+     * scanning through a large part of the store in order of increasing record ids. Such a cursor may read
+     * pages ahead of the current record, and will try not to evict more frequently used pages from the page cache.
+     *
+     * @param record instance to use when reading record data.
+     * @return a new {@link RecordCursor} instance suited for scanning through records in this store.
+     */
+    default RecordCursor<RECORD> newScanRecordCursor( RECORD record )
+    {
+        return newRecordCursor( record );
+    }
+
     /**
      * Returns another record id which the given {@code record} references and which a {@link RecordCursor}
      * would follow and read next.
@@ -278,6 +291,12 @@ public interface RecordStore<RECORD extends AbstractBaseRecord> extends IdSequen
             return actual.newRecordCursor( record );
         }
 
+        @Override
+        public RecordCursor<R> newScanRecordCursor( R record )
+        {
+            return actual.newScanRecordCursor( record );
+        }
+
         @Override
         public long getNextRecordReference( R record )
         {
@@ -59,7 +59,8 @@ public class Scanner
         {
             this.filters = filters;
             this.ids = new StoreIdIterator( store, forward );
-            this.cursor = store.newRecordCursor( store.newRecord() );
+            R record = store.newRecord();
+            this.cursor = forward ? store.newScanRecordCursor( record ) : store.newRecordCursor( record );
             cursor.acquire( 0, RecordLoad.CHECK );
         }
 
@@ -36,18 +36,12 @@ class BufferingIdGenerator extends IdGenerator.Delegate
     void initialize( Supplier<KernelTransactionsSnapshot> boundaries,
             Predicate<KernelTransactionsSnapshot> safeThreshold )
     {
-        buffer = new DelayedBuffer<>( boundaries, safeThreshold, 10_000, freedIds ->
-        {
-            for ( long id : freedIds )
-            {
-                actualFreeId( id );
-            }
-        } );
+        buffer = new DelayedBuffer<>( boundaries, safeThreshold, 10_000, this::actualFreeIds );
     }
 
-    private void actualFreeId( long id )
+    private void actualFreeIds( long[] ids )
     {
-        super.freeId( id );
+        super.freeIds( ids );
     }
 
     @Override
@@ -56,6 +50,15 @@ class BufferingIdGenerator extends IdGenerator.Delegate
         buffer.offer( id );
     }
 
+    @Override
+    public void freeIds( long[] ids )
+    {
+        for ( long id : ids )
+        {
+            buffer.offer( id );
+        }
+    }
+
     void maintenance()
     {
         buffer.maintenance();
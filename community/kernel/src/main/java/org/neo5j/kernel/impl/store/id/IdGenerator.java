@@ -33,6 +33,20 @@ public interface IdGenerator extends IdSequence, Closeable
     long getHighestPossibleIdInUse();
     void freeId( long id );
 
+    /**
+     * Frees all the given ids, as if by calling {@link #freeId(long)} for each of them. Implementations that
+     * synchronize {@link #freeId(long)} can override this to free the whole batch under a single lock.
+     *
+     * @param ids the ids to free.
+     */
+    default void freeIds( long[] ids )
+    {
+        for ( long id : ids )
+        {
+            freeId( id );
+        }
+    }
+
     /**
      * Closes the id generator, marking it as clean.
      */
@@ -92,6 +106,12 @@ public interface IdGenerator extends IdSequence, Closeable
             delegate.freeId( id );
         }
 
+        @Override
+        public void freeIds( long[] ids )
+        {
+            delegate.freeIds( ids );
+        }
+
         @Override
         public void close()
         {
@@ -194,9 +194,12 @@ public class IdGeneratorImpl implements IdGenerator
         defragIds = new long[count];
         System.arraycopy( tmpArray, 0, defragIds, 0, count );
 
-        int sizeLeftForRange = size - count;
+        // Never hand out a range that reaches past the max id, which is itself a valid id. The caller gets fewer ids
+        // than it asked for instead, and will see the capacity being exceeded when it asks for an id and there are
+        // none left. Like nextId, this moves the high id one past the max id when the range ends at the max id.
         long start = highId.get();
-        setHighId( start + sizeLeftForRange );
+        int sizeLeftForRange = (int) Math.min( size - count, Math.max( 0, max - start + 1 ) );
+        highId.set( start + sizeLeftForRange );
         return new IdRange( defragIds, start, sizeLeftForRange );
     }
 
@@ -263,6 +266,20 @@ public class IdGeneratorImpl implements IdGenerator
         keeper.freeId( id );
     }
 
+    /**
+     * Frees all the given ids while holding the monitor of this generator once, instead of once per id.
+     *
+     * @param ids The ids to be made available again
+     */
+    @Override
+    public synchronized void freeIds( long[] ids )
+    {
+        for ( long id : ids )
+        {
+            freeId( id );
+        }
+    }
+
     /**
      * Closes the id generator flushing defragged ids in memory to file. The
      * file will be truncated to the minimal size required to hold all defragged
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.store.id;
+
+import java.lang.ref.WeakReference;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.neo5j.kernel.impl.store.id.validation.IdValidator;
+
+import static org.neo5j.collection.primitive.PrimitiveLongCollections.EMPTY_LONG_ARRAY;
+
+/**
+ * Hands out ids from {@link IdRange ranges} that each thread leases from the wrapped {@link IdGenerator} with
+ * {@link #nextIdBatch(int)}, such that concurrent threads creating many records do not all synchronize on the
+ * wrapped generator for every id they allocate.
+ * <p>
+ * A lease contains the free ids that were available when it was taken, before any new ids, so ids are still reused
+ * in the same order as they would have been without leasing, only in bigger steps. Ids that are still in the leases
+ * when the generator is closed are freed, so they will be reused the next time the generator is opened. Until then,
+ * they count as used in {@link #getNumberOfIdsInUse()} and are included in the {@link #getHighId() high id}.
+ * <p>
+ * The leases of threads that have died are dropped, and their remaining ids freed, whenever another thread takes its
+ * first lease, so a generator that sees many short lived threads does not accumulate leases.
+ */
+class LeasingIdGenerator extends IdGenerator.Delegate
+{
+    private final int leaseSize;
+    private final ThreadLocal<Lease> threadLease = ThreadLocal.withInitial( this::newLease );
+    private final Set<Lease> leases = ConcurrentHashMap.newKeySet();
+
+    LeasingIdGenerator( IdGenerator delegate, int leaseSize )
+    {
+        super( delegate );
+        this.leaseSize = leaseSize;
+    }
+
+    private Lease newLease()
+    {
+        releaseLeasesOfDeadThreads();
+        Lease lease = new Lease( Thread.currentThread() );
+        leases.add( lease );
+        return lease;
+    }
+
+    private void releaseLeasesOfDeadThreads()
+    {
+        for ( Lease lease : leases )
+        {
+            // A dead thread cannot touch its lease anymore, and removing it first makes sure only one thread frees it
+            if ( !lease.isOwnerAlive() && leases.remove( lease ) )
+            {
+                freeRemainingIds( lease );
+            }
+        }
+    }
+
+    private void freeRemainingIds( Lease lease )
+    {
+        long id;
+        while ( (id = lease.next()) != -1 )
+        {
+            super.freeId( id );
+        }
+    }
+
+    @Override
+    public long nextId()
+    {
+        Lease lease = threadLease.get();
+        long id = lease.next();
+        if ( id == -1 )
+        {
+            lease.renew( super.nextIdBatch( leaseSize ) );
+            id = lease.next();
+            if ( id == -1 )
+            {
+                // The ids have run out, so let the wrapped generator tell us how.
+                id = super.nextId();
+            }
+        }
+        return id;
+    }
+
+    @Override
+    public void close()
+    {
+        for ( Lease lease : leases )
+        {
+            freeRemainingIds( lease );
+        }
+        leases.clear();
+        super.close();
+    }
+
+    @Override
+    public void delete()
+    {
+        leases.clear();
+        super.delete();
+    }
+
+    /**
+     * The ids leased by a single thread. Only ever accessed by that thread, except when the generator is closed, or
+     * when the thread has died.
+     */
+    private static class Lease
+    {
+        private final WeakReference<Thread> owner;
+        private long[] defragIds = EMPTY_LONG_ARRAY;
+        private int defragCursor;
+        private long nextId;
+        private long endId;
+
+        Lease( Thread owner )
+        {
+            this.owner = new WeakReference<>( owner );
+        }
+
+        boolean isOwnerAlive()
+        {
+            Thread thread = owner.get();
+            return thread != null && thread.isAlive();
+        }
+
+        void renew( IdRange range )
+        {
+            defragIds = range.getDefragIds();
+            defragCursor = 0;
+            nextId = range.getRangeStart();
+            endId = nextId + range.getRangeLength();
+        }
+
+        /**
+         * @return the next id of this lease, or -1 if it has been used up.
+         */
+        long next()
+        {
+            if ( defragCursor < defragIds.length )
+            {
+                return defragIds[defragCursor++];
+            }
+            if ( nextId < endId && IdValidator.isReservedId( nextId ) )
+            {
+                nextId++;
+            }
+            return nextId < endId ? nextId++ : -1;
+        }
+    }
+}
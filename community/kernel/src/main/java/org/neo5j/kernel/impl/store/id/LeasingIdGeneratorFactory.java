@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.store.id;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Wraps the {@link IdGenerator}s of the record types that are created in large numbers by concurrent transactions
+ * in {@link LeasingIdGenerator}s, so that each thread allocates ids from a lease of its own.
+ * <p>
+ * The token, schema and neostore id types are left as they are, since they are rarely allocated, and their ids
+ * should stay dense.
+ */
+public class LeasingIdGeneratorFactory implements IdGeneratorFactory
+{
+    private static final Set<IdType> TYPES_TO_LEASE = Collections.unmodifiableSet( EnumSet.of( IdType.NODE,
+            IdType.RELATIONSHIP, IdType.RELATIONSHIP_GROUP, IdType.PROPERTY, IdType.STRING_BLOCK, IdType.ARRAY_BLOCK,
+            IdType.NODE_LABELS ) );
+
+    private final LeasingIdGenerator[/*IdType#ordinal as key*/] leasingIdGenerators =
+            new LeasingIdGenerator[IdType.values().length];
+    private final IdGeneratorFactory delegate;
+    private final int leaseSize;
+
+    public LeasingIdGeneratorFactory( IdGeneratorFactory delegate, int leaseSize )
+    {
+        if ( leaseSize < 1 )
+        {
+            throw new IllegalArgumentException( "Illegal lease size: " + leaseSize );
+        }
+        this.delegate = delegate;
+        this.leaseSize = leaseSize;
+    }
+
+    @Override
+    public IdGenerator open( File filename, IdType idType, long highId, long maxId )
+    {
+        return lease( idType, delegate.open( filename, idType, highId, maxId ) );
+    }
+
+    @Override
+    public IdGenerator open( File filename, int grabSize, IdType idType, long highId, long maxId )
+    {
+        return lease( idType, delegate.open( filename, grabSize, idType, highId, maxId ) );
+    }
+
+    private IdGenerator lease( IdType idType, IdGenerator generator )
+    {
+        if ( TYPES_TO_LEASE.contains( idType ) )
+        {
+            LeasingIdGenerator leasingGenerator = new LeasingIdGenerator( generator, leaseSize );
+            leasingIdGenerators[idType.ordinal()] = leasingGenerator;
+            generator = leasingGenerator;
+        }
+        return generator;
+    }
+
+    @Override
+    public void create( File filename, long highId, boolean throwIfFileExists )
+    {
+        delegate.create( filename, highId, throwIfFileExists );
+    }
+
+    @Override
+    public IdGenerator get( IdType idType )
+    {
+        IdGenerator generator = leasingIdGenerators[idType.ordinal()];
+        return generator != null ? generator : delegate.get( idType );
+    }
+}
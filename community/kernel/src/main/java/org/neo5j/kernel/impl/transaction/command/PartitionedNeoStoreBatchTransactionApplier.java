@@ -0,0 +1,457 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.transaction.command;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.neo5j.collection.primitive.Primitive;
+import org.neo5j.collection.primitive.PrimitiveLongIntMap;
+import org.neo5j.kernel.impl.api.BatchTransactionApplier;
+import org.neo5j.kernel.impl.api.CommandVisitor;
+import org.neo5j.kernel.impl.api.TransactionApplier;
+import org.neo5j.kernel.impl.core.CacheAccessBackDoor;
+import org.neo5j.kernel.impl.locking.LockGroup;
+import org.neo5j.kernel.impl.locking.LockService;
+import org.neo5j.kernel.impl.store.NeoStores;
+import org.neo5j.kernel.impl.store.PropertyType;
+import org.neo5j.kernel.impl.store.record.AbstractBaseRecord;
+import org.neo5j.kernel.impl.store.record.DynamicRecord;
+import org.neo5j.kernel.impl.store.record.PropertyBlock;
+import org.neo5j.kernel.impl.store.record.PropertyRecord;
+import org.neo5j.kernel.impl.util.JobScheduler;
+import org.neo5j.storageengine.api.CommandsToApply;
+
+/**
+ * A variant of the {@link NeoStoreBatchTransactionApplier} for recovery, which applies the node, relationship,
+ * relationship group and property commands of a batch of transactions in parallel.
+ * <p>
+ * These commands are partitioned by the record they change, and the partitions are applied by separate threads when
+ * the batch is closed. The commands of each partition are applied in the order they were committed, so the last
+ * change to any given record wins, just like when the commands are applied one by one. The dynamic records that are
+ * written along with a command, and that can be reused by other records across transactions, are tracked as well.
+ * If a command writes a dynamic record that has been written from another partition, then all the commands that have
+ * been collected so far are applied before the command is collected.
+ * <p>
+ * Record formats with secondary record units, like high_limit, let a record spill over into another record slot of
+ * the same store. Such a secondary unit is freed when the record no longer needs it, and can then be reused by any
+ * other record, as its primary or as its secondary unit. Once a record with a secondary unit has been seen, the
+ * partition of every record slot that the commands write is tracked like the dynamic records, such that no slot is
+ * written by two partitions.
+ * <p>
+ * All other commands, like token and schema commands, are applied right away, in transaction order, by a
+ * {@link NeoStoreTransactionApplier}.
+ * <p>
+ * The record changes are applied without taking any record locks, which is only okay because nothing else reads from
+ * the stores while the database is recovering.
+ */
+public class PartitionedNeoStoreBatchTransactionApplier extends BatchTransactionApplier.Adapter
+{
+    // Apply the collected commands when this many have been collected, to bound the memory used by a large batch.
+    private static final int MAX_COLLECTED_COMMANDS = 100_000;
+    // Records with ids that are close together share store pages, so we let runs of records go to the same partition.
+    private static final int RECORDS_PER_PARTITION_RUN_SHIFT = 6;
+
+    private static final int NODE = 0;
+    private static final int RELATIONSHIP = 1;
+    private static final int RELATIONSHIP_GROUP = 2;
+    private static final int PROPERTY = 3;
+    private static final int RECORD_TYPES = 4;
+
+    private final NeoStores neoStores;
+    private final CacheAccessBackDoor cacheAccess;
+    private final LockService lockService;
+    private final JobScheduler scheduler;
+    private final List<List<Command>> partitions;
+    private final PrimitiveLongIntMap labelRecordPartitions = Primitive.longIntMap();
+    private final PrimitiveLongIntMap stringRecordPartitions = Primitive.longIntMap();
+    private final PrimitiveLongIntMap arrayRecordPartitions = Primitive.longIntMap();
+    private final List<DynamicRecord> valueRecords = new ArrayList<>();
+    private final PrimitiveLongIntMap[] recordUnitPartitions = new PrimitiveLongIntMap[RECORD_TYPES];
+    private boolean trackRecordUnits;
+    private int collectedCommands;
+
+    public PartitionedNeoStoreBatchTransactionApplier( NeoStores neoStores, CacheAccessBackDoor cacheAccess,
+            LockService lockService, JobScheduler scheduler, int parallelism )
+    {
+        this.neoStores = neoStores;
+        this.cacheAccess = cacheAccess;
+        this.lockService = lockService;
+        this.scheduler = scheduler;
+        this.partitions = new ArrayList<>( parallelism );
+        for ( int i = 0; i < parallelism; i++ )
+        {
+            partitions.add( new ArrayList<>() );
+        }
+        for ( int i = 0; i < RECORD_TYPES; i++ )
+        {
+            recordUnitPartitions[i] = Primitive.longIntMap();
+        }
+    }
+
+    @Override
+    public TransactionApplier startTx( CommandsToApply transaction )
+    {
+        throw new RuntimeException( "PartitionedNeoStoreBatchTransactionApplier requires a LockGroup" );
+    }
+
+    @Override
+    public TransactionApplier startTx( CommandsToApply transaction, LockGroup lockGroup ) throws IOException
+    {
+        return new PartitioningTransactionApplier( new NeoStoreTransactionApplier( neoStores, cacheAccess,
+                lockService, transaction.transactionId(), lockGroup ) );
+    }
+
+    @Override
+    public void close() throws Exception
+    {
+        applyCollectedCommands();
+    }
+
+    private void collect( Command command, int partition ) throws IOException
+    {
+        partitions.get( partition ).add( command );
+        collectedCommands++;
+        if ( collectedCommands >= MAX_COLLECTED_COMMANDS )
+        {
+            applyCollectedCommands();
+        }
+    }
+
+    private int partitionOf( int recordType, long id )
+    {
+        return (int) (((id >>> RECORDS_PER_PARTITION_RUN_SHIFT) + recordType) % partitions.size());
+    }
+
+    /**
+     * Note that the record slots of the given record change, and the given dynamic records that are written along
+     * with it, are written by the given partition. If any of them have already been written by another partition,
+     * then the commands collected so far are applied first, since the order in which the partitions write the
+     * records would otherwise be undefined.
+     */
+    private void claimRecords( int recordType, Command.BaseCommand<?> command, Collection<DynamicRecord> records,
+            boolean labels, int partition ) throws IOException
+    {
+        AbstractBaseRecord before = command.getBefore();
+        AbstractBaseRecord after = command.getAfter();
+        if ( !trackRecordUnits && (before.hasSecondaryUnitId() || after.hasSecondaryUnitId()) )
+        {
+            // The slots written by the commands collected so far are not known, so apply them before we start
+            // tracking slots.
+            applyCollectedCommands();
+            trackRecordUnits = true;
+        }
+        if ( isAnyRecordUnitOwnedByOtherPartition( recordType, before, after, partition ) ||
+             isAnyDynamicRecordOwnedByOtherPartition( records, labels, partition ) )
+        {
+            applyCollectedCommands();
+        }
+        if ( trackRecordUnits )
+        {
+            PrimitiveLongIntMap owners = recordUnitPartitions[recordType];
+            owners.put( after.getId(), partition );
+            if ( before.hasSecondaryUnitId() )
+            {
+                owners.put( before.getSecondaryUnitId(), partition );
+            }
+            if ( after.hasSecondaryUnitId() )
+            {
+                owners.put( after.getSecondaryUnitId(), partition );
+            }
+        }
+        for ( DynamicRecord record : records )
+        {
+            ownersOf( record, labels ).put( record.getId(), partition );
+        }
+    }
+
+    private boolean isAnyRecordUnitOwnedByOtherPartition( int recordType, AbstractBaseRecord before,
+            AbstractBaseRecord after, int partition )
+    {
+        if ( !trackRecordUnits )
+        {
+            return false;
+        }
+        PrimitiveLongIntMap owners = recordUnitPartitions[recordType];
+        return isOwnedByOtherPartition( owners, after.getId(), partition ) ||
+               isSecondaryUnitOwnedByOtherPartition( owners, before, partition ) ||
+               isSecondaryUnitOwnedByOtherPartition( owners, after, partition );
+    }
+
+    private static boolean isSecondaryUnitOwnedByOtherPartition( PrimitiveLongIntMap owners, AbstractBaseRecord record,
+            int partition )
+    {
+        return record.hasSecondaryUnitId() && isOwnedByOtherPartition( owners, record.getSecondaryUnitId(), partition );
+    }
+
+    private boolean isAnyDynamicRecordOwnedByOtherPartition( Collection<DynamicRecord> records, boolean labels,
+            int partition )
+    {
+        for ( DynamicRecord record : records )
+        {
+            if ( isOwnedByOtherPartition( ownersOf( record, labels ), record.getId(), partition ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isOwnedByOtherPartition( PrimitiveLongIntMap owners, long id, int partition )
+    {
+        int owner = owners.get( id );
+        return owner != -1 && owner != partition;
+    }
+
+    private PrimitiveLongIntMap ownersOf( DynamicRecord record, boolean labels )
+    {
+        if ( labels )
+        {
+            return labelRecordPartitions;
+        }
+        return record.getType() == PropertyType.ARRAY ? arrayRecordPartitions : stringRecordPartitions;
+    }
+
+    private List<DynamicRecord> valueRecordsOf( PropertyRecord record )
+    {
+        valueRecords.clear();
+        if ( record.inUse() )
+        {
+            for ( PropertyBlock block : record )
+            {
+                if ( !block.isLight() )
+                {
+                    valueRecords.addAll( block.getValueRecords() );
+                }
+            }
+        }
+        valueRecords.addAll( record.getDeletedRecords() );
+        return valueRecords;
+    }
+
+    private void applyCollectedCommands() throws IOException
+    {
+        if ( collectedCommands == 0 )
+        {
+            return;
+        }
+        List<JobScheduler.JobHandle> jobs = new ArrayList<>( partitions.size() );
+        for ( List<Command> partition : partitions )
+        {
+            if ( !partition.isEmpty() )
+            {
+                jobs.add( scheduler.schedule( JobScheduler.Groups.recovery, new RecordUpdater( neoStores, partition ) ) );
+            }
+        }
+        Throwable failure = null;
+        for ( JobScheduler.JobHandle job : jobs )
+        {
+            try
+            {
+                job.waitTermination();
+            }
+            catch ( InterruptedException | ExecutionException e )
+            {
+                Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                if ( cause instanceof UncheckedIOException )
+                {
+                    cause = cause.getCause();
+                }
+                if ( failure == null )
+                {
+                    failure = cause;
+                }
+                else
+                {
+                    failure.addSuppressed( cause );
+                }
+            }
+        }
+
+        for ( List<Command> partition : partitions )
+        {
+            partition.clear();
+        }
+        labelRecordPartitions.clear();
+        stringRecordPartitions.clear();
+        arrayRecordPartitions.clear();
+        for ( PrimitiveLongIntMap owners : recordUnitPartitions )
+        {
+            owners.clear();
+        }
+        collectedCommands = 0;
+
+        if ( failure != null )
+        {
+            if ( failure instanceof IOException )
+            {
+                throw (IOException) failure;
+            }
+            throw new IOException( "Failed to apply recovered record changes", failure );
+        }
+    }
+
+    private class PartitioningTransactionApplier extends TransactionApplier.Adapter
+    {
+        private final NeoStoreTransactionApplier delegate;
+
+        PartitioningTransactionApplier( NeoStoreTransactionApplier delegate )
+        {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void close() throws Exception
+        {
+            delegate.close();
+        }
+
+        @Override
+        public boolean visitNodeCommand( Command.NodeCommand command ) throws IOException
+        {
+            int partition = partitionOf( NODE, command.getKey() );
+            claimRecords( NODE, command, command.getAfter().getDynamicLabelRecords(), true, partition );
+            collect( command, partition );
+            return false;
+        }
+
+        @Override
+        public boolean visitRelationshipCommand( Command.RelationshipCommand command ) throws IOException
+        {
+            int partition = partitionOf( RELATIONSHIP, command.getKey() );
+            claimRecords( RELATIONSHIP, command, Collections.emptyList(), false, partition );
+            collect( command, partition );
+            return false;
+        }
+
+        @Override
+        public boolean visitRelationshipGroupCommand( Command.RelationshipGroupCommand command ) throws IOException
+        {
+            int partition = partitionOf( RELATIONSHIP_GROUP, command.getKey() );
+            claimRecords( RELATIONSHIP_GROUP, command, Collections.emptyList(), false, partition );
+            collect( command, partition );
+            return false;
+        }
+
+        @Override
+        public boolean visitPropertyCommand( Command.PropertyCommand command ) throws IOException
+        {
+            int partition = partitionOf( PROPERTY, command.getKey() );
+            claimRecords( PROPERTY, command, valueRecordsOf( command.getAfter() ), false, partition );
+            collect( command, partition );
+            return false;
+        }
+
+        @Override
+        public boolean visitRelationshipTypeTokenCommand( Command.RelationshipTypeTokenCommand command )
+                throws IOException
+        {
+            return delegate.visitRelationshipTypeTokenCommand( command );
+        }
+
+        @Override
+        public boolean visitLabelTokenCommand( Command.LabelTokenCommand command ) throws IOException
+        {
+            return delegate.visitLabelTokenCommand( command );
+        }
+
+        @Override
+        public boolean visitPropertyKeyTokenCommand( Command.PropertyKeyTokenCommand command ) throws IOException
+        {
+            return delegate.visitPropertyKeyTokenCommand( command );
+        }
+
+        @Override
+        public boolean visitSchemaRuleCommand( Command.SchemaRuleCommand command ) throws IOException
+        {
+            return delegate.visitSchemaRuleCommand( command );
+        }
+
+        @Override
+        public boolean visitNeoStoreCommand( Command.NeoStoreCommand command ) throws IOException
+        {
+            return delegate.visitNeoStoreCommand( command );
+        }
+    }
+
+    /**
+     * Applies the commands of one partition to the stores, in order.
+     */
+    private static class RecordUpdater extends CommandVisitor.Adapter implements Runnable
+    {
+        private final NeoStores neoStores;
+        private final List<Command> commands;
+
+        RecordUpdater( NeoStores neoStores, List<Command> commands )
+        {
+            this.neoStores = neoStores;
+            this.commands = commands;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                for ( Command command : commands )
+                {
+                    command.handle( this );
+                }
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+        }
+
+        @Override
+        public boolean visitNodeCommand( Command.NodeCommand command ) throws IOException
+        {
+            neoStores.getNodeStore().updateRecord( command.getAfter() );
+            return false;
+        }
+
+        @Override
+        public boolean visitRelationshipCommand( Command.RelationshipCommand command ) throws IOException
+        {
+            neoStores.getRelationshipStore().updateRecord( command.getAfter() );
+            return false;
+        }
+
+        @Override
+        public boolean visitRelationshipGroupCommand( Command.RelationshipGroupCommand command ) throws IOException
+        {
+            neoStores.getRelationshipGroupStore().updateRecord( command.getAfter() );
+            return false;
+        }
+
+        @Override
+        public boolean visitPropertyCommand( Command.PropertyCommand command ) throws IOException
+        {
+            neoStores.getPropertyStore().updateRecord( command.getAfter() );
+            return false;
+        }
+    }
+}
@@ -22,12 +22,14 @@ package org.neo5j.kernel.impl.transaction.log;
 import java.io.Flushable;
 import java.io.IOException;
 import java.nio.channels.ClosedChannelException;
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.neo5j.io.ByteUnit;
 import org.neo5j.kernel.impl.api.TransactionToApply;
 import org.neo5j.kernel.impl.transaction.TransactionRepresentation;
 import org.neo5j.kernel.impl.transaction.log.entry.LogEntryWriter;
@@ -51,6 +53,12 @@ import static org.neo5j.kernel.impl.transaction.log.entry.LogEntryStart.checksum
  */
 public class BatchingTransactionAppender extends LifecycleAdapter implements TransactionAppender
 {
+    // Threads that append larger batches than this still serialize them up front, but don't keep all the buffers.
+    private static final int MAX_POOLED_SERIALIZED_TRANSACTIONS = 16;
+    // The buffer memory that each committing thread keeps between appends. Bigger transactions allocate what they
+    // need, and release it again once they are in the log.
+    private static final long MAX_RETAINED_BYTES_PER_THREAD = ByteUnit.kibiBytes( 256 );
+
     // For the graph store and schema indexes order-of-updates are managed by the high level entity locks
     // such that changes are applied to the affected records in the same order that they are written to the
     // log. For the legacy indexes there are no such locks, and hence no such ordering. This queue below
@@ -65,10 +73,12 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
     private final LogPositionMarker positionMarker = new LogPositionMarker();
     private final DatabaseHealth databaseHealth;
     private final Lock forceLock = new ReentrantLock();
+    // Each committing thread serializes its transactions into its own buffers, before grabbing the logFile monitor.
+    private final ThreadLocal<SerializedTransaction[]> serializedTransactions =
+            ThreadLocal.withInitial( () -> newSerializedTransactions( new SerializedTransaction[0], 1 ) );
 
     private FlushablePositionAwareChannel writer;
     private TransactionLogWriter transactionLogWriter;
-    private IndexCommandDetector indexCommandDetector;
 
     public BatchingTransactionAppender( LogFile logFile, LogRotation logRotation,
             TransactionMetadataCache transactionMetadataCache, TransactionIdStore transactionIdStore,
@@ -86,13 +96,17 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
     public void start() throws Throwable
     {
         this.writer = logFile.getWriter();
-        this.indexCommandDetector = new IndexCommandDetector();
         this.transactionLogWriter = new TransactionLogWriter( new LogEntryWriter( writer ) );
     }
 
     @Override
     public long append( TransactionToApply batch, LogAppendEvent logAppendEvent ) throws IOException
     {
+        // Serializing the commands is the bulk of the work of appending a transaction, and it does not depend on
+        // the transaction id or the log position, so we do it before we grab the logFile monitor. This way only the
+        // copying of the serialized bytes into the log is serialized across concurrent committers.
+        SerializedTransaction[] serialized = serialize( batch );
+
         // We put log rotation check outside the private append method since it must happen before
         // we generate the next transaction id
         boolean logRotated = logRotation.rotateLogIfNeeded( logAppendEvent );
@@ -109,6 +123,7 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
             {
                 // Append all transactions in this batch to the log under the same logFile monitor
                 TransactionToApply tx = batch;
+                int index = 0;
                 while ( tx != null )
                 {
                     long transactionId = transactionIdStore.nextCommittingTransactionId();
@@ -119,7 +134,8 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
                     // really recover from and would point to a bug somewhere.
                     matchAgainstExpectedTransactionIdIfAny( transactionId, tx );
 
-                    TransactionCommitment commitment = appendToLog( tx.transactionRepresentation(), transactionId );
+                    TransactionCommitment commitment =
+                            appendToLog( tx.transactionRepresentation(), transactionId, serialized[index++] );
                     tx.commitment( commitment, transactionId );
                     tx = tx.next();
                     lastTransactionId = transactionId;
@@ -139,6 +155,38 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
         return lastTransactionId;
     }
 
+    private SerializedTransaction[] serialize( TransactionToApply batch ) throws IOException
+    {
+        SerializedTransaction[] serialized = serializedTransactions.get();
+        int index = 0;
+        for ( TransactionToApply tx = batch; tx != null; tx = tx.next() )
+        {
+            if ( index == serialized.length )
+            {
+                serialized = newSerializedTransactions( serialized, index * 2 );
+                if ( serialized.length <= MAX_POOLED_SERIALIZED_TRANSACTIONS )
+                {
+                    serializedTransactions.set( serialized );
+                }
+            }
+            serialized[index++].serialize( tx.transactionRepresentation() );
+        }
+        return serialized;
+    }
+
+    private static SerializedTransaction[] newSerializedTransactions( SerializedTransaction[] serialized, int length )
+    {
+        SerializedTransaction[] grown = Arrays.copyOf( serialized, length );
+        for ( int i = serialized.length; i < length; i++ )
+        {
+            // Only the first transaction of a batch keeps a larger buffer around. It is the only one for transactions
+            // committed one at a time, and batches of many transactions are rare enough that it is not worth
+            // holding on to more memory for them in every committing thread.
+            grown[i] = new SerializedTransaction( i == 0 ? MAX_RETAINED_BYTES_PER_THREAD : 0 );
+        }
+        return grown;
+    }
+
     private void matchAgainstExpectedTransactionIdIfAny( long transactionId, TransactionToApply tx )
     {
         long expectedTransactionId = tx.transactionId();
@@ -189,13 +237,9 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
      * @return A TransactionCommitment instance with metadata about the committed transaction, such as whether or not
      * this transaction contains any legacy index changes.
      */
-    private TransactionCommitment appendToLog( TransactionRepresentation transaction, long transactionId )
-            throws IOException
+    private TransactionCommitment appendToLog( TransactionRepresentation transaction, long transactionId,
+            SerializedTransaction serialized ) throws IOException
     {
-        // Reset command writer so that we, after we've written the transaction, can ask it whether or
-        // not any legacy index command was written. If so then there's additional ordering to care about below.
-        indexCommandDetector.reset();
-
         // The outcome of this try block is either of:
         // a) transaction successfully appended, at which point we return a Commitment to be used after force
         // b) transaction failed to be appended, at which point a kernel panic is issued
@@ -205,17 +249,16 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
         try
         {
             LogPosition logPositionBeforeCommit = writer.getCurrentPosition( positionMarker ).newPosition();
-            transactionLogWriter.append( transaction, transactionId );
+            serialized.channel.writeTo( writer );
+            transactionLogWriter.commit( transaction, transactionId );
             LogPosition logPositionAfterCommit = writer.getCurrentPosition( positionMarker ).newPosition();
 
-            long transactionChecksum =
-                    checksum( transaction.additionalHeader(), transaction.getMasterId(), transaction.getAuthorId() );
+            long transactionChecksum = serialized.checksum;
             transactionMetadataCache
                     .cacheTransactionMetadata( transactionId, logPositionBeforeCommit, transaction.getMasterId(),
                             transaction.getAuthorId(), transactionChecksum, transaction.getTimeCommitted() );
 
-            transaction.accept( indexCommandDetector );
-            boolean hasLegacyIndexChanges = indexCommandDetector.hasWrittenAnyLegacyIndexCommand();
+            boolean hasLegacyIndexChanges = serialized.hasLegacyIndexChanges;
             if ( hasLegacyIndexChanges )
             {
                 // Offer this transaction id to the queue so that the legacy index applier can take part in the ordering
@@ -352,4 +395,36 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
             // we emptied into the channel, and thus it is already flushed by that thread.
         }
     }
+
+    /**
+     * The start entry and commands of a transaction, serialized ahead of appending it to the log, along with the
+     * metadata about the transaction that can be computed without holding the logFile monitor.
+     */
+    private static class SerializedTransaction
+    {
+        private final SerializedTransactionChannel channel;
+        private final TransactionLogWriter transactionLogWriter;
+        private final IndexCommandDetector indexCommandDetector = new IndexCommandDetector();
+        private boolean hasLegacyIndexChanges;
+        private long checksum;
+
+        SerializedTransaction( long maxRetainedBytes )
+        {
+            channel = new SerializedTransactionChannel( maxRetainedBytes );
+            transactionLogWriter = new TransactionLogWriter( new LogEntryWriter( channel ) );
+        }
+
+        void serialize( TransactionRepresentation transaction ) throws IOException
+        {
+            channel.clear();
+            transactionLogWriter.serialize( transaction );
+
+            // Ask whether or not any legacy index command was written. If so then there's additional ordering to
+            // care about when the transaction is appended.
+            indexCommandDetector.reset();
+            transaction.accept( indexCommandDetector );
+            hasLegacyIndexChanges = indexCommandDetector.hasWrittenAnyLegacyIndexCommand();
+            checksum = checksum( transaction.additionalHeader(), transaction.getMasterId(), transaction.getAuthorId() );
+        }
+    }
 }
@@ -21,6 +21,7 @@ package org.neo5j.kernel.impl.transaction.log;
 
 import java.io.File;
 
+import org.neo5j.helpers.Format;
 import org.neo5j.kernel.impl.transaction.log.rotation.LogRotation;
 import org.neo5j.kernel.recovery.Recovery;
 import org.neo5j.kernel.recovery.PositionToRecoverFrom;
@@ -48,6 +49,24 @@ public class LoggingLogFileMonitor implements
         log.info( "Recovery required from position " + startPosition );
     }
 
+    @Override
+    public void recoveryProgress( long recoveredTransactions, long recoveredBytes, long bytesToRecover,
+            long elapsedMillis )
+    {
+        if ( recoveredBytes > 0 && bytesToRecover > 0 )
+        {
+            double remainingFraction = (double) (bytesToRecover - recoveredBytes) / recoveredBytes;
+            long remainingMillis = (long) (elapsedMillis * remainingFraction);
+            log.info( format( "Recovery in progress. %d transactions recovered, %d%% of the log, about %s remaining",
+                    recoveredTransactions, recoveredBytes * 100 / bytesToRecover,
+                    Format.duration( Math.max( 0, remainingMillis ) ) ) );
+        }
+        else
+        {
+            log.info( format( "Recovery in progress. %d transactions recovered", recoveredTransactions ) );
+        }
+    }
+
     @Override
     public void recoveryCompleted( int numberOfRecoveredTransactions )
     {
@@ -26,9 +26,13 @@ import java.nio.ByteBuffer;
 import java.util.function.Supplier;
 
 import org.neo5j.helpers.Exceptions;
+import org.neo5j.io.ByteUnit;
 import org.neo5j.io.fs.FileSystemAbstraction;
 import org.neo5j.io.fs.StoreChannel;
+import org.neo5j.kernel.impl.transaction.log.entry.LogEntryByteCodes;
+import org.neo5j.kernel.impl.transaction.log.entry.LogEntryReader;
 import org.neo5j.kernel.impl.transaction.log.entry.LogHeader;
+import org.neo5j.kernel.impl.transaction.log.entry.VersionAwareLogEntryReader;
 import org.neo5j.kernel.lifecycle.Lifecycle;
 
 import static org.neo5j.kernel.impl.transaction.log.entry.LogHeader.LOG_HEADER_SIZE;
@@ -38,6 +42,12 @@ import static org.neo5j.kernel.impl.transaction.log.entry.LogVersions.CURRENT_LO
 
 /**
  * {@link LogFile} backed by one or more files in a {@link FileSystemAbstraction}.
+ * <p>
+ * Log files can be preallocated to the rotation threshold, by filling them with zeros when they are created. Appends
+ * then overwrite the zeros instead of growing the file, so that forcing the log does not also have to make a new
+ * file size durable. Readers stop at the zeros, since they read as {@link LogEntryByteCodes#EMPTY empty} entries.
+ * The zeros are cut off when the log is rotated away from or shut down, and the end of the data is searched for when
+ * starting on a log file that may still have them, after a crash.
  */
 public class PhysicalLogFile implements LogFile, Lifecycle
 {
@@ -60,7 +70,10 @@ public class PhysicalLogFile implements LogFile, Lifecycle
     public static final String REGEX_DEFAULT_NAME = "neostore\\.transaction\\.db";
     public static final String DEFAULT_VERSION_SUFFIX = ".";
     public static final String REGEX_DEFAULT_VERSION_SUFFIX = "\\.";
+    private static final int PREALLOCATION_CHUNK_SIZE = (int) ByteUnit.mebiBytes( 1 );
+
     private final long rotateAtSize;
+    private final boolean preallocate;
     private final FileSystemAbstraction fileSystem;
     private final Supplier<Long> lastCommittedId;
     private final PhysicalLogFiles logFiles;
@@ -77,9 +90,21 @@ public class PhysicalLogFile implements LogFile, Lifecycle
                             Supplier<Long> lastCommittedId, LogVersionRepository logVersionRepository,
                             Monitor monitor, LogHeaderCache logHeaderCache
     )
+    {
+        this( fileSystem, logFiles, rotateAtSize, lastCommittedId, logVersionRepository, monitor, logHeaderCache,
+                false );
+    }
+
+    /**
+     * @param preallocate whether to preallocate log files to {@code rotateAtSize}.
+     */
+    public PhysicalLogFile( FileSystemAbstraction fileSystem, PhysicalLogFiles logFiles, long rotateAtSize,
+                            Supplier<Long> lastCommittedId, LogVersionRepository logVersionRepository,
+                            Monitor monitor, LogHeaderCache logHeaderCache, boolean preallocate )
     {
         this.fileSystem = fileSystem;
         this.rotateAtSize = rotateAtSize;
+        this.preallocate = preallocate;
         this.lastCommittedId = lastCommittedId;
         this.logVersionRepository = logVersionRepository;
         this.monitor = monitor;
@@ -105,8 +130,18 @@ public class PhysicalLogFile implements LogFile, Lifecycle
 
         long lastLogVersionUsed = logVersionRepository.getCurrentLogVersion();
         channel = createLogChannelForVersion( lastLogVersionUsed );
-        // Move to the end
-        channel.position( channel.size() );
+        // Move to the end, which comes before any preallocated zeros. Whatever a crash left after the end is cut
+        // off, so that preallocating again zeros all of the file after it.
+        long endOfData = findEndOfData( lastLogVersionUsed, channel );
+        if ( endOfData < channel.size() )
+        {
+            channel.truncate( endOfData );
+        }
+        if ( preallocate )
+        {
+            preallocate( channel );
+        }
+        channel.position( endOfData );
 
         writer = new PositionAwarePhysicalFlushableChannel( channel );
     }
@@ -125,6 +160,12 @@ public class PhysicalLogFile implements LogFile, Lifecycle
     {
         if ( writer != null )
         {
+            if ( preallocate )
+            {
+                // Leave a log file without zeros behind, so that the next start can append right at its end
+                writer.prepareForFlush().flush();
+                channel.truncate( channel.position() );
+            }
             writer.close();
         }
         if ( channel != null )
@@ -159,7 +200,7 @@ public class PhysicalLogFile implements LogFile, Lifecycle
      * Steps during rotation are:
      * <ol>
      * <li>1: Increment log version, {@link LogVersionRepository#incrementAndGetVersion()} (also flushes the store)</li>
-     * <li>2: Flush current log</li>
+     * <li>2: Flush current log, and cut off its preallocated zeros if any</li>
      * <li>3: Create new log file</li>
      * <li>4: Write header</li>
      * </ol>
@@ -208,6 +249,15 @@ public class PhysicalLogFile implements LogFile, Lifecycle
          * transaction complete in the log we're rotating away. Awesome.
          */
         writer.prepareForFlush().flush();
+        if ( preallocate )
+        {
+            /*
+             * Readers stop at the first zeros that they see, so they must be gone before there are
+             * transactions in the next log file for the readers to continue to.
+             */
+            currentLog.truncate( currentLog.position() );
+            currentLog.force( true );
+        }
         /*
          * The log version is now in the store, flushed and persistent. If we crash
          * now, on recovery we'll attempt to open the version we're about to create
@@ -243,12 +293,103 @@ public class PhysicalLogFile implements LogFile, Lifecycle
             writeLogHeader( headerBuffer, forVersion, lastTxId );
             logHeaderCache.putHeader( forVersion, lastTxId );
             storeChannel.writeAll( headerBuffer );
+            if ( preallocate )
+            {
+                preallocate( storeChannel );
+            }
             monitor.opened( toOpen, forVersion, lastTxId, true );
         }
         byte formatVersion = header == null ? CURRENT_LOG_VERSION : header.logFormatVersion;
         return new PhysicalLogVersionedStoreChannel( storeChannel, forVersion, formatVersion );
     }
 
+    /**
+     * Fills the given log file with zeros, from its current end up to the rotation threshold, and makes the new size
+     * durable.
+     */
+    private void preallocate( StoreChannel storeChannel ) throws IOException
+    {
+        long size = storeChannel.size();
+        if ( size >= rotateAtSize )
+        {
+            return;
+        }
+        long position = storeChannel.position();
+        storeChannel.position( size );
+        ByteBuffer zeros = ByteBuffer.allocate( PREALLOCATION_CHUNK_SIZE );
+        for ( long zerosEnd = size; zerosEnd < rotateAtSize; zerosEnd += zeros.limit() )
+        {
+            zeros.clear().limit( (int) Math.min( zeros.capacity(), rotateAtSize - zerosEnd ) );
+            storeChannel.writeAll( zeros );
+        }
+        storeChannel.force( true );
+        storeChannel.position( position );
+    }
+
+    /**
+     * @return the position after the last log entry in the given log file, which is the size of the file unless
+     * it has been preallocated.
+     */
+    private long findEndOfData( long version, StoreChannel storeChannel ) throws IOException
+    {
+        long size = storeChannel.size();
+        if ( size <= LOG_HEADER_SIZE || !mayEndInPreallocatedZeros( storeChannel, size ) )
+        {
+            return size;
+        }
+
+        LogEntryReader<ReadableClosablePositionAwareChannel> entryReader = new VersionAwareLogEntryReader<>();
+        LogPositionMarker endOfData = new LogPositionMarker();
+        try ( ReadAheadLogChannel reader = new ReadAheadLogChannel(
+                openForVersion( logFiles, fileSystem, version, false ), LogVersionBridge.NO_MORE_CHANNELS ) )
+        {
+            reader.getCurrentPosition( endOfData );
+            while ( entryReader.readLogEntry( reader ) != null )
+            {
+                reader.getCurrentPosition( endOfData );
+            }
+        }
+        return endOfData.getByteOffset();
+    }
+
+    /**
+     * A log file only ends in preallocated zeros if it was preallocated, by this log file or by one that preallocated
+     * before a crash and a restart without preallocation. Such a file is at least as large as the rotation threshold,
+     * unless the threshold changed too, but then it ends in a long run of zeros, while a log entry never ends in more
+     * than a few: the last entry of a log is a commit, which ends in its time stamp, or a check point, which ends in a
+     * position after a log header.
+     */
+    private boolean mayEndInPreallocatedZeros( StoreChannel storeChannel, long size ) throws IOException
+    {
+        int trailingZeros = trailingZeros( storeChannel, size, Long.BYTES );
+        if ( preallocate )
+        {
+            return trailingZeros > 0;
+        }
+        return trailingZeros == Long.BYTES || (trailingZeros > 0 && size >= rotateAtSize);
+    }
+
+    /**
+     * @return the number of zeros that the given log file ends with, counting no further than {@code max}.
+     */
+    private static int trailingZeros( StoreChannel storeChannel, long size, int max ) throws IOException
+    {
+        long position = storeChannel.position();
+        ByteBuffer tail = ByteBuffer.allocate( (int) Math.min( max, size - LOG_HEADER_SIZE ) );
+        storeChannel.position( size - tail.capacity() );
+        while ( tail.hasRemaining() && storeChannel.read( tail ) > 0 )
+        {
+            // keep reading until the end of the file
+        }
+        storeChannel.position( position );
+        int zeros = 0;
+        while ( zeros < tail.position() && tail.get( tail.position() - 1 - zeros ) == LogEntryByteCodes.EMPTY )
+        {
+            zeros++;
+        }
+        return zeros;
+    }
+
     @Override
     public FlushablePositionAwareChannel getWriter()
     {
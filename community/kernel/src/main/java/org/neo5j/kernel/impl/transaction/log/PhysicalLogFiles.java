@@ -21,9 +21,12 @@ package org.neo5j.kernel.impl.transaction.log;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.regex.Pattern;
 
 import org.neo5j.io.fs.FileSystemAbstraction;
+import org.neo5j.io.fs.StoreChannel;
+import org.neo5j.kernel.impl.transaction.log.entry.LogEntryByteCodes;
 import org.neo5j.kernel.impl.transaction.log.entry.LogHeader;
 
 import static java.lang.Math.max;
@@ -88,9 +91,23 @@ public class PhysicalLogFiles
         return readLogHeader( fileSystem, getLogFileForVersion( version ) );
     }
 
-    public boolean hasAnyEntries( long version )
+    /**
+     * @return whether the log file of the given version has any entries after its header. A log file can be
+     * preallocated, filled with zeros where the entries are to go, and no log entry starts with a zero.
+     */
+    public boolean hasAnyEntries( long version ) throws IOException
     {
-        return fileSystem.getFileSize( getLogFileForVersion( version ) ) > LOG_HEADER_SIZE;
+        File logFile = getLogFileForVersion( version );
+        if ( fileSystem.getFileSize( logFile ) <= LOG_HEADER_SIZE )
+        {
+            return false;
+        }
+        try ( StoreChannel channel = fileSystem.open( logFile, "r" ) )
+        {
+            ByteBuffer firstByte = ByteBuffer.allocate( 1 );
+            channel.position( LOG_HEADER_SIZE );
+            return channel.read( firstByte ) == 1 && firstByte.get( 0 ) != LogEntryByteCodes.EMPTY;
+        }
     }
 
     public long getHighestLogVersion()
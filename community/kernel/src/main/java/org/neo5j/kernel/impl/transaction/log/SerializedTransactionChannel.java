@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.transaction.log;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo5j.io.ByteUnit;
+
+/**
+ * A {@link FlushableChannel} that collects the serialized form of a transaction in heap buffers, such that the
+ * comparatively expensive serialization of the commands can happen concurrently with other committers, and only
+ * the copying of the serialized bytes into the actual log channel needs to happen under the log file monitor.
+ * <p>
+ * The bytes are collected in a list of chunks rather than one contiguous buffer, so a big transaction never needs
+ * to be copied into a bigger buffer, and its size is not bounded by the largest array the heap can hold.
+ * <p>
+ * The channel is reused for many transactions, so it keeps its chunks when it is cleared, but only up to a given
+ * capacity. The chunks beyond that capacity, which are only needed for serializing big transactions, are released.
+ */
+final class SerializedTransactionChannel implements FlushableChannel
+{
+    private static final int INITIAL_CAPACITY = (int) ByteUnit.kibiBytes( 4 );
+    private static final int MAX_CHUNK_CAPACITY = (int) ByteUnit.mebiBytes( 1 );
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final long maxRetainedCapacity;
+    private ByteBuffer current;
+    private int currentIndex;
+
+    /**
+     * @param maxRetainedCapacity the total capacity of the chunks that are kept when this channel is cleared. The
+     * first, small, chunk is always kept.
+     */
+    SerializedTransactionChannel( long maxRetainedCapacity )
+    {
+        this.maxRetainedCapacity = maxRetainedCapacity;
+        current = ByteBuffer.allocate( INITIAL_CAPACITY );
+        chunks.add( current );
+    }
+
+    /**
+     * Discard the contents of this channel, so it can be reused for serializing another transaction.
+     */
+    void clear()
+    {
+        for ( int i = 0; i <= currentIndex; i++ )
+        {
+            chunks.get( i ).clear();
+        }
+        int retainedChunks = 1;
+        long retainedCapacity = INITIAL_CAPACITY;
+        while ( retainedChunks < chunks.size() &&
+                retainedCapacity + chunks.get( retainedChunks ).capacity() <= maxRetainedCapacity )
+        {
+            retainedCapacity += chunks.get( retainedChunks ).capacity();
+            retainedChunks++;
+        }
+        chunks.subList( retainedChunks, chunks.size() ).clear();
+        currentIndex = 0;
+        current = chunks.get( 0 );
+    }
+
+    /**
+     * @return the total capacity of the chunks currently held by this channel.
+     */
+    long capacity()
+    {
+        long capacity = 0;
+        for ( ByteBuffer chunk : chunks )
+        {
+            capacity += chunk.capacity();
+        }
+        return capacity;
+    }
+
+    /**
+     * Copy all the bytes written to this channel, into the given channel, and then {@link #clear()} this channel,
+     * such that the memory held by a big transaction is released as soon as it is in the log.
+     */
+    void writeTo( FlushableChannel channel ) throws IOException
+    {
+        for ( int i = 0; i <= currentIndex; i++ )
+        {
+            ByteBuffer chunk = chunks.get( i );
+            channel.put( chunk.array(), chunk.position() );
+        }
+        clear();
+    }
+
+    @Override
+    public Flushable prepareForFlush() throws IOException
+    {
+        // Nothing to prepare; the contents are only ever transferred to the log with writeTo.
+        return () ->
+        {
+        };
+    }
+
+    @Override
+    public FlushableChannel put( byte value ) throws IOException
+    {
+        bufferWithGuaranteedSpace( 1 ).put( value );
+        return this;
+    }
+
+    @Override
+    public FlushableChannel putShort( short value ) throws IOException
+    {
+        bufferWithGuaranteedSpace( 2 ).putShort( value );
+        return this;
+    }
+
+    @Override
+    public FlushableChannel putInt( int value ) throws IOException
+    {
+        bufferWithGuaranteedSpace( 4 ).putInt( value );
+        return this;
+    }
+
+    @Override
+    public FlushableChannel putLong( long value ) throws IOException
+    {
+        bufferWithGuaranteedSpace( 8 ).putLong( value );
+        return this;
+    }
+
+    @Override
+    public FlushableChannel putFloat( float value ) throws IOException
+    {
+        bufferWithGuaranteedSpace( 4 ).putFloat( value );
+        return this;
+    }
+
+    @Override
+    public FlushableChannel putDouble( double value ) throws IOException
+    {
+        bufferWithGuaranteedSpace( 8 ).putDouble( value );
+        return this;
+    }
+
+    @Override
+    public FlushableChannel put( byte[] value, int length ) throws IOException
+    {
+        int offset = 0;
+        while ( offset < length )
+        {
+            if ( !current.hasRemaining() )
+            {
+                nextChunk();
+            }
+            int chunkLength = Math.min( length - offset, current.remaining() );
+            current.put( value, offset, chunkLength );
+            offset += chunkLength;
+        }
+        return this;
+    }
+
+    private ByteBuffer bufferWithGuaranteedSpace( int spaceInBytes )
+    {
+        if ( current.remaining() < spaceInBytes )
+        {
+            // Values are never split across chunks, so the few bytes left at the end of this one are skipped
+            nextChunk();
+        }
+        return current;
+    }
+
+    private void nextChunk()
+    {
+        currentIndex++;
+        if ( currentIndex == chunks.size() )
+        {
+            chunks.add( ByteBuffer.allocate( Math.min( current.capacity() << 1, MAX_CHUNK_CAPACITY ) ) );
+        }
+        current = chunks.get( currentIndex );
+        current.clear();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+    }
+}
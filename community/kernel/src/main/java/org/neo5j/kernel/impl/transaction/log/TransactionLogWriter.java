@@ -34,6 +34,16 @@ public class TransactionLogWriter
     }
 
     public void append( TransactionRepresentation transaction, long transactionId ) throws IOException
+    {
+        serialize( transaction );
+        commit( transaction, transactionId );
+    }
+
+    /**
+     * Write the start entry and all the commands of the given transaction, which do not depend on the id that the
+     * transaction will be committed with.
+     */
+    public void serialize( TransactionRepresentation transaction ) throws IOException
     {
         writer.writeStartEntry( transaction.getMasterId(), transaction.getAuthorId(),
                 transaction.getTimeStarted(), transaction.getLatestCommittedTxWhenStarted(),
@@ -41,7 +51,14 @@ public class TransactionLogWriter
 
         // Write all the commands to the log channel
         writer.serialize( transaction );
+    }
 
+    /**
+     * Write the commit entry of the given transaction, following its {@link #serialize(TransactionRepresentation)
+     * serialized} start entry and commands.
+     */
+    public void commit( TransactionRepresentation transaction, long transactionId ) throws IOException
+    {
         // Write commit record
         writer.writeCommitEntry( transactionId, transaction.getTimeCommitted() );
     }
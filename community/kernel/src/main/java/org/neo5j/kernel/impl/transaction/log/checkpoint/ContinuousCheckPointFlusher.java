@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.transaction.log.checkpoint;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.List;
+
+import org.neo5j.io.IOUtils;
+import org.neo5j.io.pagecache.IOLimiter;
+import org.neo5j.io.pagecache.PageCache;
+import org.neo5j.io.pagecache.PagedFile;
+import org.neo5j.kernel.impl.transaction.log.TransactionIdStore;
+import org.neo5j.kernel.impl.util.JobScheduler;
+import org.neo5j.kernel.lifecycle.LifecycleAdapter;
+import org.neo5j.logging.Log;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.neo5j.kernel.impl.util.JobScheduler.Groups.checkPoint;
+import static org.neo5j.unsafe.impl.internal.dragons.FeatureToggles.getLong;
+
+/**
+ * Continuously writes back the dirty pages in the page cache in the background, such that the store flush of the next
+ * check point only has a small amount of work left to do, instead of causing a burst of IO.
+ * <p>
+ * The flusher sweeps through all the pages of all the mapped files, in a round-robin fashion. The pace of the sweep is
+ * set by how far we are from the next check point; by the number of transactions and the amount of time since the
+ * last check point, relative to the configured check point thresholds. When either threshold is reached, the whole
+ * page cache has been swept once since the last check point. The writes are rate limited by the same
+ * {@link IOLimiter} as the check points.
+ */
+public class ContinuousCheckPointFlusher extends LifecycleAdapter
+{
+    static final long PERIOD_MILLIS = getLong( ContinuousCheckPointFlusher.class, "periodMillis", 1000 );
+
+    private final PageCache pageCache;
+    private final TransactionIdStore transactionIdStore;
+    private final CheckPointer checkPointer;
+    private final IOLimiter ioLimiter;
+    private final JobScheduler scheduler;
+    private final Clock clock;
+    private final Log log;
+    private final long txThreshold;
+    private final long timeMillisThreshold;
+
+    // The sweep state is only accessed by the flushing job.
+    private long observedCheckPointTx;
+    private long sweepStartTx;
+    private long sweepStartMillis;
+    private long pagesSwept;
+    private int fileIndex;
+    private long filePageId;
+
+    private JobScheduler.JobHandle handle;
+
+    public ContinuousCheckPointFlusher( PageCache pageCache, TransactionIdStore transactionIdStore,
+            CheckPointer checkPointer, IOLimiter ioLimiter, JobScheduler scheduler, Clock clock, Log log,
+            long txThreshold, long timeMillisThreshold )
+    {
+        this.pageCache = pageCache;
+        this.transactionIdStore = transactionIdStore;
+        this.checkPointer = checkPointer;
+        this.ioLimiter = ioLimiter;
+        this.scheduler = scheduler;
+        this.clock = clock;
+        this.log = log;
+        this.txThreshold = Math.max( 1, txThreshold );
+        this.timeMillisThreshold = Math.max( 1, timeMillisThreshold );
+    }
+
+    @Override
+    public void start()
+    {
+        observedCheckPointTx = checkPointer.lastCheckPointedTransactionId();
+        startSweep( transactionIdStore.getLastClosedTransactionId() );
+        handle = scheduler.scheduleRecurring( checkPoint, this::flushInBackground, PERIOD_MILLIS, MILLISECONDS );
+    }
+
+    @Override
+    public void stop()
+    {
+        if ( handle != null )
+        {
+            handle.cancel( false );
+            handle = null;
+        }
+    }
+
+    private void flushInBackground()
+    {
+        try
+        {
+            flushIncrementally();
+        }
+        catch ( Throwable e )
+        {
+            // The next check point will flush whatever we did not get around to.
+            log.warn( "Continuous check point flushing failed.", e );
+        }
+    }
+
+    /**
+     * Sweep as many pages as needed to keep pace with the progress towards the next check point.
+     * @return The number of dirty pages that were written.
+     */
+    long flushIncrementally() throws IOException
+    {
+        long lastCheckPointedTx = checkPointer.lastCheckPointedTransactionId();
+        if ( lastCheckPointedTx != observedCheckPointTx )
+        {
+            // A check point has happened since our last run, so everything we swept before it has been flushed.
+            observedCheckPointTx = lastCheckPointedTx;
+            startSweep( lastCheckPointedTx );
+        }
+
+        long txDistance = transactionIdStore.getLastClosedTransactionId() - sweepStartTx;
+        long timeDistance = clock.millis() - sweepStartMillis;
+        double progress = Math.min( 1.0, Math.max(
+                txDistance / (double) txThreshold, timeDistance / (double) timeMillisThreshold ) );
+
+        List<PagedFile> pagedFiles = pageCache.listExistingMappings();
+        try
+        {
+            long totalPages = 0;
+            for ( PagedFile pagedFile : pagedFiles )
+            {
+                totalPages += pagedFile.getLastPageId() + 1;
+            }
+            long pagesToSweep = Math.min( (long) (progress * totalPages) - pagesSwept, totalPages );
+            return pagesToSweep > 0 ? sweep( pagedFiles, pagesToSweep ) : 0;
+        }
+        finally
+        {
+            IOUtils.closeAll( pagedFiles );
+        }
+    }
+
+    private void startSweep( long transactionId )
+    {
+        sweepStartTx = transactionId;
+        sweepStartMillis = clock.millis();
+        pagesSwept = 0;
+    }
+
+    private long sweep( List<PagedFile> pagedFiles, long pagesToSweep ) throws IOException
+    {
+        long pagesFlushed = 0;
+        int filesVisited = 0;
+        while ( pagesToSweep > 0 && filesVisited <= pagedFiles.size() )
+        {
+            if ( fileIndex >= pagedFiles.size() )
+            {
+                fileIndex = 0;
+            }
+            PagedFile pagedFile = pagedFiles.get( fileIndex );
+            long filePages = pagedFile.getLastPageId() + 1;
+            long pageCount = Math.min( pagesToSweep, filePages - filePageId );
+            if ( pageCount > 0 )
+            {
+                pagesFlushed += pagedFile.flushDirtyPages( filePageId, pageCount, ioLimiter );
+                pagesToSweep -= pageCount;
+                pagesSwept += pageCount;
+                filePageId += pageCount;
+            }
+            if ( filePageId >= filePages )
+            {
+                fileIndex++;
+                filePageId = 0;
+                filesVisited++;
+            }
+        }
+        return pagesFlushed;
+    }
+}
@@ -19,9 +19,9 @@
  */
 package org.neo5j.kernel.impl.util;
 
-import java.util.Iterator;
 import java.util.Set;
 
+import org.neo5j.collection.primitive.PrimitiveLongCollections;
 import org.neo5j.collection.primitive.PrimitiveLongCollections.PrimitiveLongBaseIterator;
 import org.neo5j.collection.primitive.PrimitiveLongIterator;
 import org.neo5j.graphdb.Resource;
@@ -29,6 +29,7 @@ import org.neo5j.graphdb.Resource;
 /**
  * Applies a diffset to the given source PrimitiveLongIterator.
  * If the given source is a Resource, then so is this DiffApplyingPrimitiveLongIterator.
+ * Diffsets kept in {@link VersionedPrimitiveLongSet}s are applied without boxing.
  */
 public class DiffApplyingPrimitiveLongIterator extends PrimitiveLongBaseIterator implements Resource
 {
@@ -65,7 +66,7 @@ public class DiffApplyingPrimitiveLongIterator extends PrimitiveLongBaseIterator
     }
 
     private final PrimitiveLongIterator source;
-    private final Iterator<?> addedElementsIterator;
+    private final PrimitiveLongIterator addedElementsIterator;
     private final Set<?> addedElements;
     private final Set<?> removedElements;
     protected Phase phase;
@@ -75,7 +76,7 @@ public class DiffApplyingPrimitiveLongIterator extends PrimitiveLongBaseIterator
     {
         this.source = source;
         this.addedElements = addedElements;
-        this.addedElementsIterator = addedElements.iterator();
+        this.addedElementsIterator = iterator( addedElements );
         this.removedElements = removedElements;
         phase = Phase.FILTERED_SOURCE;
     }
@@ -91,7 +92,7 @@ public class DiffApplyingPrimitiveLongIterator extends PrimitiveLongBaseIterator
         while ( source.hasNext() )
         {
             long value = source.next();
-            if ( !removedElements.contains( value ) && !addedElements.contains( value ) )
+            if ( !contains( removedElements, value ) && !contains( addedElements, value ) )
             {
                 return next( value );
             }
@@ -107,7 +108,22 @@ public class DiffApplyingPrimitiveLongIterator extends PrimitiveLongBaseIterator
 
     private boolean computeNextFromAddedElements()
     {
-        return addedElementsIterator.hasNext() && next((Long) addedElementsIterator.next());
+        return addedElementsIterator.hasNext() && next( addedElementsIterator.next() );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static PrimitiveLongIterator iterator( Set<?> elements )
+    {
+        return elements instanceof VersionedPrimitiveLongSet
+               ? ((VersionedPrimitiveLongSet) elements).longIterator()
+               : PrimitiveLongCollections.toPrimitiveIterator( ((Set<Long>) elements).iterator() );
+    }
+
+    private static boolean contains( Set<?> elements, long value )
+    {
+        return elements instanceof VersionedPrimitiveLongSet
+               ? ((VersionedPrimitiveLongSet) elements).contains( value )
+               : elements.contains( value );
     }
 
     @Override
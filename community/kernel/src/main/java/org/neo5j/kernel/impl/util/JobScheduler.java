@@ -142,6 +142,26 @@ public interface JobScheduler extends Lifecycle
          */
         public static final Group checkPoint = new Group( "CheckPoint", POOLED );
 
+        /**
+         * Page cache warmup; profiling and reloading of the pages that are in the page cache.
+         */
+        public static final Group pageCacheWarmup = new Group( "PageCacheWarmup", POOLED );
+
+        /**
+         * Parallel application of the record changes of recovered transactions.
+         */
+        public static final Group recovery = new Group( "Recovery", POOLED );
+
+        /**
+         * Transaction log appending and forcing of pipelined commits, overlapping the application to the store.
+         */
+        public static final Group transactionLogAppend = new Group( "TransactionLogAppend", POOLED );
+
+        /**
+         * Workers that run parts of a Cypher query in parallel with the thread of the query.
+         */
+        public static final Group cypherWorker = new Group( "CypherWorker", POOLED );
+
         /**
          * Raft Log pruning
          */
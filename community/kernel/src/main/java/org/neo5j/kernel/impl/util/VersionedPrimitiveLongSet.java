@@ -0,0 +1,523 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.util;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.neo5j.collection.primitive.PrimitiveLongCollections.PrimitiveLongBaseIterator;
+import org.neo5j.collection.primitive.PrimitiveLongIterator;
+import org.neo5j.kernel.impl.util.collection.CollectionsFactory;
+import org.neo5j.kernel.impl.util.collection.OnHeapCollectionsFactory;
+import org.neo5j.unsafe.impl.batchimport.cache.IntArray;
+import org.neo5j.unsafe.impl.batchimport.cache.LongArray;
+
+import static org.neo5j.collection.primitive.PrimitiveLongCollections.EMPTY_LONG_ARRAY;
+
+/**
+ * A single-threaded set of longs that stores its elements without boxing them, and that gives the same guarantees
+ * as {@link VersionedHashMap} for iterating over and manipulating its contents simultaneously.
+ *
+ * <h2>Behavior for adding elements while iterating</h2>
+ *
+ * Elements added while iterating over this set will not be returned by any iterator created before the addition.
+ *
+ * <h2>Behavior for removing elements while iterating</h2>
+ *
+ * Elements removed while iterating over this set will not be returned by any iterator that has not yet reached them.
+ *
+ * <h2>How it works</h2>
+ *
+ * Elements are appended to an array of slots. Small sets, which is what most sets tracking the changes of a
+ * transaction are, keep only live elements in that array and are searched linearly. Removing an element from a small
+ * set copies the remaining elements to a new array, leaving the array seen by existing iterators untouched.
+ * <p>
+ * Once a set grows beyond {@value #SMALL_SET_SIZE} elements, its slots are moved to a {@link LongArray}, and an
+ * open addressing hash index keeps track of which slot holds each live element. Iterators only return an element if
+ * the index still points at the slot they found it in. Removing an element then leaves a dead slot behind, which is
+ * reclaimed when the slot array would otherwise have to grow. Both arrays come from the {@link CollectionsFactory}
+ * of the set, which decides whether they live on or off the heap.
+ * <p>
+ * Iterators that were created before elements were moved to other slots fall back to checking for membership, and may
+ * then return elements that were removed and added back after they were created. A slot array that is replaced
+ * while iterators are reading it is freed once the last of them is exhausted, or else when the factory is released.
+ * Using the set, or any of its iterators, after the factory has been released throws an
+ * {@link IllegalStateException}, since the arrays may then have been freed.
+ * <p>
+ * The {@link java.util.Set} methods box elements on their way in and out. The primitive methods,
+ * {@link #add(long)}, {@link #remove(long)}, {@link #contains(long)} and {@link #longIterator()}, do not.
+ */
+public class VersionedPrimitiveLongSet extends AbstractSet<Long>
+{
+    private static final int SMALL_SET_SIZE = 8;
+    private static final int NO_SLOT = -1;
+
+    private final CollectionsFactory collectionsFactory;
+    // Only used while the set has at most SMALL_SET_SIZE elements
+    private long[] smallSlots = EMPTY_LONG_ARRAY;
+    // Only used once the set has grown beyond SMALL_SET_SIZE elements. The index maps elements to slots, by storing
+    // the slots of live elements at or after the position that the element hashes to.
+    private LongArray slots;
+    private IntArray index;
+    private int indexMask;
+    private int usedSlots;
+    private int size;
+    // The iterators that are reading the current slot array, if any, which then must not be freed until they are done
+    private SlotReaders slotReaders;
+    // Incremented whenever live elements move to other slots, invalidating the slots seen by existing iterators
+    private int relocations;
+
+    public VersionedPrimitiveLongSet()
+    {
+        this( OnHeapCollectionsFactory.INSTANCE );
+    }
+
+    public VersionedPrimitiveLongSet( CollectionsFactory collectionsFactory )
+    {
+        this.collectionsFactory = collectionsFactory;
+    }
+
+    public boolean add( long element )
+    {
+        assertNotReleased();
+        if ( slots == null )
+        {
+            if ( smallSetSlotOf( element ) != NO_SLOT )
+            {
+                return false;
+            }
+            if ( usedSlots < SMALL_SET_SIZE )
+            {
+                if ( usedSlots == smallSlots.length )
+                {
+                    smallSlots = Arrays.copyOf( smallSlots, Math.max( 2, smallSlots.length << 1 ) );
+                }
+                smallSlots[usedSlots++] = element;
+                size++;
+                return true;
+            }
+            outgrowSmallSlots();
+        }
+        else if ( indexPositionOf( element ) != NO_SLOT )
+        {
+            return false;
+        }
+        if ( usedSlots == slots.length() )
+        {
+            makeRoomForOneMoreSlot();
+        }
+        slots.set( usedSlots, element );
+        index.set( freeIndexPositionFor( element ), usedSlots++ );
+        size++;
+        return true;
+    }
+
+    public boolean remove( long element )
+    {
+        if ( slots != null )
+        {
+            assertNotReleased();
+            int position = indexPositionOf( element );
+            if ( position == NO_SLOT )
+            {
+                return false;
+            }
+            removeIndexEntry( position );
+            size--;
+            return true;
+        }
+        int slot = smallSetSlotOf( element );
+        if ( slot == NO_SLOT )
+        {
+            return false;
+        }
+        long[] remaining = new long[smallSlots.length];
+        System.arraycopy( smallSlots, 0, remaining, 0, slot );
+        System.arraycopy( smallSlots, slot + 1, remaining, slot, usedSlots - slot - 1 );
+        smallSlots = remaining;
+        usedSlots--;
+        size--;
+        relocations++;
+        return true;
+    }
+
+    public boolean contains( long element )
+    {
+        if ( slots == null )
+        {
+            return smallSetSlotOf( element ) != NO_SLOT;
+        }
+        assertNotReleased();
+        return indexPositionOf( element ) != NO_SLOT;
+    }
+
+    /**
+     * @return an iterator over the elements of this set, which does not box the elements it returns.
+     */
+    public PrimitiveLongIterator longIterator()
+    {
+        if ( slots == null )
+        {
+            return new SlotIterator( smallSlots, null, usedSlots, null );
+        }
+        assertNotReleased();
+        if ( slotReaders == null )
+        {
+            slotReaders = new SlotReaders( slots );
+        }
+        slotReaders.count++;
+        return new SlotIterator( null, slots, usedSlots, slotReaders );
+    }
+
+    @Override
+    public boolean add( Long element )
+    {
+        return add( element.longValue() );
+    }
+
+    @Override
+    public boolean remove( Object element )
+    {
+        return element instanceof Long && remove( ((Long) element).longValue() );
+    }
+
+    @Override
+    public boolean contains( Object element )
+    {
+        return element instanceof Long && contains( ((Long) element).longValue() );
+    }
+
+    @Override
+    public Iterator<Long> iterator()
+    {
+        PrimitiveLongIterator elements = longIterator();
+        return new Iterator<Long>()
+        {
+            private long current;
+            private boolean removable;
+
+            @Override
+            public boolean hasNext()
+            {
+                return elements.hasNext();
+            }
+
+            @Override
+            public Long next()
+            {
+                current = elements.next();
+                removable = true;
+                return current;
+            }
+
+            @Override
+            public void remove()
+            {
+                if ( !removable )
+                {
+                    throw new IllegalStateException();
+                }
+                removable = false;
+                VersionedPrimitiveLongSet.this.remove( current );
+            }
+        };
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    @Override
+    public void clear()
+    {
+        if ( slots != null )
+        {
+            assertNotReleased();
+            retireSlots();
+            collectionsFactory.free( index );
+            slots = null;
+            index = null;
+        }
+        smallSlots = EMPTY_LONG_ARRAY;
+        usedSlots = 0;
+        size = 0;
+        relocations++;
+    }
+
+    private int smallSetSlotOf( long element )
+    {
+        for ( int slot = 0; slot < usedSlots; slot++ )
+        {
+            if ( smallSlots[slot] == element )
+            {
+                return slot;
+            }
+        }
+        return NO_SLOT;
+    }
+
+    private int slotOf( long element )
+    {
+        int position = indexPositionOf( element );
+        return position == NO_SLOT ? NO_SLOT : index.get( position );
+    }
+
+    private int indexPositionOf( long element )
+    {
+        for ( int position = hash( element ); ; position = (position + 1) & indexMask )
+        {
+            int slot = index.get( position );
+            if ( slot == NO_SLOT )
+            {
+                return NO_SLOT;
+            }
+            if ( slots.get( slot ) == element )
+            {
+                return position;
+            }
+        }
+    }
+
+    private int freeIndexPositionFor( long element )
+    {
+        int position = hash( element );
+        while ( index.get( position ) != NO_SLOT )
+        {
+            position = (position + 1) & indexMask;
+        }
+        return position;
+    }
+
+    private void removeIndexEntry( int hole )
+    {
+        // Move later entries of the same probe sequence into the hole, such that no lookup stops short of them
+        for ( int position = (hole + 1) & indexMask; ; position = (position + 1) & indexMask )
+        {
+            int slot = index.get( position );
+            if ( slot == NO_SLOT )
+            {
+                break;
+            }
+            int home = hash( slots.get( slot ) );
+            if ( ((position - home) & indexMask) >= ((position - hole) & indexMask) )
+            {
+                index.set( hole, slot );
+                hole = position;
+            }
+        }
+        index.set( hole, NO_SLOT );
+    }
+
+    private int hash( long element )
+    {
+        long hash = element * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & indexMask;
+    }
+
+    private void outgrowSmallSlots()
+    {
+        // The slots keep their positions, so iterators reading the small slot array are not affected
+        int capacity = SMALL_SET_SIZE << 1;
+        LongArray grown = collectionsFactory.newLongArray( capacity );
+        IntArray grownIndex = newIndex( capacity );
+        for ( int slot = 0; slot < usedSlots; slot++ )
+        {
+            grown.set( slot, smallSlots[slot] );
+        }
+        smallSlots = null;
+        slots = grown;
+        useIndex( grownIndex );
+        indexAllSlots();
+    }
+
+    private void makeRoomForOneMoreSlot()
+    {
+        // Slots are never overwritten once an iterator may have seen them, only appended to. This is what allows
+        // iterators to keep reading the array they were created with, so room is always made in a new array.
+        int capacity = (int) slots.length();
+        if ( size <= usedSlots / 2 )
+        {
+            LongArray compacted = collectionsFactory.newLongArray( capacity );
+            int target = 0;
+            for ( int slot = 0; slot < usedSlots; slot++ )
+            {
+                long element = slots.get( slot );
+                if ( slotOf( element ) == slot )
+                {
+                    compacted.set( target++, element );
+                }
+            }
+            retireSlots();
+            slots = compacted;
+            usedSlots = target;
+            relocations++;
+            index.clear();
+            indexAllSlots();
+        }
+        else
+        {
+            LongArray grown = collectionsFactory.newLongArray( capacity << 1 );
+            IntArray grownIndex = newIndex( capacity << 1 );
+            for ( int slot = 0; slot < usedSlots; slot++ )
+            {
+                grown.set( slot, slots.get( slot ) );
+            }
+            retireSlots();
+            slots = grown;
+            IntArray previousIndex = index;
+            useIndex( grownIndex );
+            // Only live slots are in the index, whereas dead slots stay behind in the slot array
+            for ( long position = 0; position < previousIndex.length(); position++ )
+            {
+                int slot = previousIndex.get( position );
+                if ( slot != NO_SLOT )
+                {
+                    index.set( freeIndexPositionFor( slots.get( slot ) ), slot );
+                }
+            }
+            collectionsFactory.free( previousIndex );
+        }
+    }
+
+    private IntArray newIndex( int capacity )
+    {
+        // At least twice as many positions as slots keeps the probe sequences short
+        return collectionsFactory.newIntArray( capacity << 1, NO_SLOT );
+    }
+
+    private void useIndex( IntArray emptyIndex )
+    {
+        index = emptyIndex;
+        indexMask = (int) emptyIndex.length() - 1;
+    }
+
+    private void indexAllSlots()
+    {
+        for ( int slot = 0; slot < usedSlots; slot++ )
+        {
+            index.set( freeIndexPositionFor( slots.get( slot ) ), slot );
+        }
+    }
+
+    private void retireSlots()
+    {
+        if ( slotReaders == null )
+        {
+            collectionsFactory.free( slots );
+        }
+        else
+        {
+            // The last iterator to finish reading the retired slots frees them
+            slotReaders.retired = true;
+            slotReaders = null;
+        }
+    }
+
+    private void assertNotReleased()
+    {
+        if ( collectionsFactory.isReleased() )
+        {
+            throw new IllegalStateException( "The transaction state that this set belongs to has been released." );
+        }
+    }
+
+    /**
+     * The number of iterators that have not yet been exhausted, of a slot array.
+     */
+    private static final class SlotReaders
+    {
+        private final LongArray slots;
+        private int count;
+        private boolean retired;
+
+        SlotReaders( LongArray slots )
+        {
+            this.slots = slots;
+        }
+    }
+
+    private class SlotIterator extends PrimitiveLongBaseIterator
+    {
+        private final long[] smallSlots;
+        private final LongArray slots;
+        private final int usedSlots;
+        private final int relocations;
+        private SlotReaders readers;
+        private int slot;
+
+        SlotIterator( long[] smallSlots, LongArray slots, int usedSlots, SlotReaders readers )
+        {
+            this.smallSlots = smallSlots;
+            this.slots = slots;
+            this.usedSlots = usedSlots;
+            this.readers = readers;
+            this.relocations = VersionedPrimitiveLongSet.this.relocations;
+        }
+
+        @Override
+        protected boolean fetchNext()
+        {
+            if ( slots != null && readers != null )
+            {
+                assertNotReleased();
+            }
+            while ( slot < usedSlots )
+            {
+                int candidate = slot++;
+                long element = slots == null ? smallSlots[candidate] : slots.get( candidate );
+                if ( isLive( element, candidate ) )
+                {
+                    return next( element );
+                }
+            }
+            doneReading();
+            return false;
+        }
+
+        private void doneReading()
+        {
+            if ( readers != null && --readers.count == 0 && readers.retired )
+            {
+                collectionsFactory.free( readers.slots );
+            }
+            readers = null;
+        }
+
+        private boolean isLive( long element, int candidate )
+        {
+            if ( relocations != VersionedPrimitiveLongSet.this.relocations )
+            {
+                return contains( element );
+            }
+            // Without relocations, slots only die when elements are removed from a set that has outgrown being small
+            return VersionedPrimitiveLongSet.this.slots == null || size == VersionedPrimitiveLongSet.this.usedSlots ||
+                   slotOf( element ) == candidate;
+        }
+    }
+}
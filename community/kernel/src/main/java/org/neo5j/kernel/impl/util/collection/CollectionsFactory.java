@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.util.collection;
+
+import org.neo5j.kernel.api.memory.MemoryLimitExceededException;
+import org.neo5j.kernel.api.memory.MemoryTracker;
+import org.neo5j.kernel.impl.util.VersionedPrimitiveLongSet;
+import org.neo5j.unsafe.impl.batchimport.cache.IntArray;
+import org.neo5j.unsafe.impl.batchimport.cache.LongArray;
+import org.neo5j.unsafe.impl.batchimport.cache.NumberArray;
+
+/**
+ * Creates the collections that the state of a transaction is kept in, and decides where their memory comes from.
+ * <p>
+ * A factory belongs to a single transaction, and is used by that transaction only. Everything it has created may be
+ * freed when the transaction is done with its state, which it signals by calling {@link #release()}.
+ *
+ * @see CollectionsFactorySupplier
+ */
+public interface CollectionsFactory
+{
+    /**
+     * @return a new, empty set that takes the arrays it grows into from this factory.
+     */
+    VersionedPrimitiveLongSet newLongSet();
+
+    /**
+     * @param length the number of items in the array.
+     * @return a new array of the given length, with all items zero.
+     * @throws MemoryLimitExceededException if the array would make the transaction use more memory than allowed.
+     */
+    LongArray newLongArray( int length );
+
+    /**
+     * @param length the number of items in the array.
+     * @param defaultValue the value of all items in the new array.
+     * @return a new array of the given length.
+     * @throws MemoryLimitExceededException if the array would make the transaction use more memory than allowed.
+     */
+    IntArray newIntArray( int length, int defaultValue );
+
+    /**
+     * Frees an array created by this factory ahead of {@link #release()}, because it is known not to be used anymore.
+     *
+     * @param array an array created by this factory.
+     */
+    void free( NumberArray<?> array );
+
+    /**
+     * @return the number of bytes of native memory held by the collections of this factory.
+     */
+    long usedNativeMemory();
+
+    /**
+     * Frees all memory held by the collections of this factory, which must not be used afterwards.
+     */
+    void release();
+
+    /**
+     * @return true if this factory has been {@link #release() released}, such that the arrays it created must not
+     * be touched anymore, since their memory may have been freed.
+     */
+    boolean isReleased();
+
+    /**
+     * @return the tracker that the size of the collections of this factory is reported to, for users of the
+     * factory to report the memory they use besides.
+     */
+    MemoryTracker memoryTracker();
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.util.collection;
+
+import org.neo5j.kernel.api.memory.MemoryTracker;
+
+/**
+ * Gives each transaction that changes something a {@link CollectionsFactory} of its own, for its state.
+ */
+@FunctionalInterface
+public interface CollectionsFactorySupplier
+{
+    CollectionsFactorySupplier ON_HEAP = OnHeapCollectionsFactory::new;
+
+    /**
+     * @param memoryTracker the tracker of the transaction, which the factory reports the size of its arrays to.
+     * @return a factory for the state of one transaction.
+     */
+    CollectionsFactory create( MemoryTracker memoryTracker );
+
+    /**
+     * @param maxNativeMemory the number of bytes of native memory that each transaction may use for its state.
+     * @return a supplier of factories that keep large collections in native memory.
+     */
+    static CollectionsFactorySupplier offHeap( long maxNativeMemory )
+    {
+        return memoryTracker -> new OffHeapCollectionsFactory( maxNativeMemory, memoryTracker );
+    }
+}
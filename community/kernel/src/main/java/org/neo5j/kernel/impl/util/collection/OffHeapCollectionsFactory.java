@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.util.collection;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.neo5j.kernel.api.memory.MemoryLimitExceededException;
+import org.neo5j.kernel.api.memory.MemoryTracker;
+import org.neo5j.kernel.impl.util.VersionedPrimitiveLongSet;
+import org.neo5j.unsafe.impl.batchimport.cache.IntArray;
+import org.neo5j.unsafe.impl.batchimport.cache.LongArray;
+import org.neo5j.unsafe.impl.batchimport.cache.NumberArray;
+
+import static org.neo5j.helpers.Format.bytes;
+import static org.neo5j.kernel.impl.util.collection.OnHeapCollectionsFactory.sizeOf;
+import static org.neo5j.unsafe.impl.batchimport.cache.NumberArrayFactory.HEAP;
+import static org.neo5j.unsafe.impl.batchimport.cache.NumberArrayFactory.OFF_HEAP;
+
+/**
+ * Keeps large collections in native memory, such that transactions that change tens of millions of entities do not
+ * fill up the heap with their state. Small arrays, which is what most collections of a transaction consist of, are
+ * still kept on the heap, since allocating and keeping track of native memory for each of them would cost more than
+ * it saves.
+ * <p>
+ * The native memory used by the collections of a transaction is limited, and going beyond that limit fails the
+ * transaction with a {@link MemoryLimitExceededException}. Arrays stay allocated until they are
+ * {@link #free(NumberArray) freed}, or until the factory is {@link #release() released}. The size of all arrays,
+ * whether on the heap or not, is also reported to the {@link MemoryTracker} of the transaction.
+ * <p>
+ * Once the factory has been released, it refuses to create more arrays, and the collections it created refuse to be
+ * used, since reading freed native memory could crash the JVM.
+ */
+public class OffHeapCollectionsFactory implements CollectionsFactory
+{
+    static final int NATIVE_MEMORY_THRESHOLD = 8192;
+
+    private final long maxNativeMemory;
+    private final Set<NumberArray<?>> nativeArrays = Collections.newSetFromMap( new IdentityHashMap<>() );
+    private final MemoryTracker memoryTracker;
+    private long usedNativeMemory;
+    private boolean released;
+
+    public OffHeapCollectionsFactory( long maxNativeMemory, MemoryTracker memoryTracker )
+    {
+        this.maxNativeMemory = maxNativeMemory;
+        this.memoryTracker = memoryTracker;
+    }
+
+    @Override
+    public VersionedPrimitiveLongSet newLongSet()
+    {
+        return new VersionedPrimitiveLongSet( this );
+    }
+
+    @Override
+    public LongArray newLongArray( int length )
+    {
+        assertNotReleased();
+        long size = length * 8L;
+        if ( size < NATIVE_MEMORY_THRESHOLD )
+        {
+            memoryTracker.allocated( size );
+            return HEAP.newLongArray( length, 0 );
+        }
+        reserve( size );
+        memoryTracker.allocated( size );
+        return track( OFF_HEAP.newLongArray( length, 0 ) );
+    }
+
+    @Override
+    public IntArray newIntArray( int length, int defaultValue )
+    {
+        assertNotReleased();
+        long size = length * 4L;
+        if ( size < NATIVE_MEMORY_THRESHOLD )
+        {
+            memoryTracker.allocated( size );
+            return HEAP.newIntArray( length, defaultValue );
+        }
+        reserve( size );
+        memoryTracker.allocated( size );
+        return track( OFF_HEAP.newIntArray( length, defaultValue ) );
+    }
+
+    @Override
+    public void free( NumberArray<?> array )
+    {
+        memoryTracker.deallocated( sizeOf( array ) );
+        if ( nativeArrays.remove( array ) )
+        {
+            usedNativeMemory -= sizeOf( array );
+            array.close();
+        }
+    }
+
+    @Override
+    public long usedNativeMemory()
+    {
+        return usedNativeMemory;
+    }
+
+    @Override
+    public void release()
+    {
+        released = true;
+        for ( NumberArray<?> array : nativeArrays )
+        {
+            array.close();
+        }
+        nativeArrays.clear();
+        usedNativeMemory = 0;
+    }
+
+    @Override
+    public boolean isReleased()
+    {
+        return released;
+    }
+
+    @Override
+    public MemoryTracker memoryTracker()
+    {
+        return memoryTracker;
+    }
+
+    private void assertNotReleased()
+    {
+        if ( released )
+        {
+            throw new IllegalStateException( "The transaction state has been released." );
+        }
+    }
+
+    private void reserve( long size )
+    {
+        if ( usedNativeMemory + size > maxNativeMemory )
+        {
+            MemoryLimitExceededException e = new MemoryLimitExceededException( String.format(
+                    "The transaction state needs %s of native memory, which is more than the %s that it may use.",
+                    bytes( usedNativeMemory + size ), bytes( maxNativeMemory ) ) );
+            memoryTracker.limitExceeded( e );
+            throw e;
+        }
+    }
+
+    private <N extends NumberArray<N>> N track( N array )
+    {
+        nativeArrays.add( array );
+        usedNativeMemory += sizeOf( array );
+        return array;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.util.collection;
+
+import org.neo5j.kernel.api.memory.MemoryTracker;
+import org.neo5j.kernel.impl.util.VersionedPrimitiveLongSet;
+import org.neo5j.unsafe.impl.batchimport.cache.IntArray;
+import org.neo5j.unsafe.impl.batchimport.cache.LongArray;
+import org.neo5j.unsafe.impl.batchimport.cache.NumberArray;
+
+import static org.neo5j.unsafe.impl.batchimport.cache.NumberArrayFactory.HEAP;
+
+/**
+ * Keeps all collections on the heap, leaving it to the garbage collector to free them. This is the default.
+ * <p>
+ * The size of each array is reported to the {@link MemoryTracker} of the transaction when the array is created, and
+ * when it is {@link #free(NumberArray) freed}.
+ */
+public class OnHeapCollectionsFactory implements CollectionsFactory
+{
+    /**
+     * A factory for state that is not part of a transaction, and so is not tracked.
+     */
+    public static final CollectionsFactory INSTANCE = new OnHeapCollectionsFactory( MemoryTracker.NONE );
+
+    private final MemoryTracker memoryTracker;
+
+    public OnHeapCollectionsFactory( MemoryTracker memoryTracker )
+    {
+        this.memoryTracker = memoryTracker;
+    }
+
+    @Override
+    public VersionedPrimitiveLongSet newLongSet()
+    {
+        return new VersionedPrimitiveLongSet( this );
+    }
+
+    @Override
+    public LongArray newLongArray( int length )
+    {
+        memoryTracker.allocated( length * 8L );
+        return HEAP.newLongArray( length, 0 );
+    }
+
+    @Override
+    public IntArray newIntArray( int length, int defaultValue )
+    {
+        memoryTracker.allocated( length * 4L );
+        return HEAP.newIntArray( length, defaultValue );
+    }
+
+    @Override
+    public void free( NumberArray<?> array )
+    {
+        memoryTracker.deallocated( sizeOf( array ) );
+    }
+
+    @Override
+    public long usedNativeMemory()
+    {
+        return 0;
+    }
+
+    @Override
+    public boolean isReleased()
+    {
+        // Nothing is ever freed by this factory, so the collections it created stay safe to use
+        return false;
+    }
+
+    @Override
+    public void release()
+    {
+    }
+
+    @Override
+    public MemoryTracker memoryTracker()
+    {
+        return memoryTracker;
+    }
+
+    static long sizeOf( NumberArray<?> array )
+    {
+        return array.length() * (array instanceof LongArray ? 8 : 4);
+    }
+}
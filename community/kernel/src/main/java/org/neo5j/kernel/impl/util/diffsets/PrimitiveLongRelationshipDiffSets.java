@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.util.diffsets;
+
+import java.util.Set;
+
+import org.neo5j.kernel.impl.api.RelationshipVisitor;
+import org.neo5j.kernel.impl.util.VersionedPrimitiveLongSet;
+import org.neo5j.kernel.impl.util.collection.CollectionsFactory;
+import org.neo5j.kernel.impl.util.collection.OnHeapCollectionsFactory;
+
+/**
+ * {@link RelationshipDiffSets} of relationship ids, where the added and removed ids are kept in
+ * {@link VersionedPrimitiveLongSet primitive sets} instead of sets of boxed longs.
+ */
+public class PrimitiveLongRelationshipDiffSets extends RelationshipDiffSets<Long>
+{
+    private final CollectionsFactory collectionsFactory;
+
+    public PrimitiveLongRelationshipDiffSets( RelationshipVisitor.Home txStateRelationshipHome )
+    {
+        this( txStateRelationshipHome, OnHeapCollectionsFactory.INSTANCE );
+    }
+
+    public PrimitiveLongRelationshipDiffSets( RelationshipVisitor.Home txStateRelationshipHome,
+            CollectionsFactory collectionsFactory )
+    {
+        super( txStateRelationshipHome );
+        this.collectionsFactory = collectionsFactory;
+    }
+
+    @Override
+    protected Set<Long> newSet()
+    {
+        return collectionsFactory.newLongSet();
+    }
+}
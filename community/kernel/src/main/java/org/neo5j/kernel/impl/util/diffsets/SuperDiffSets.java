@@ -201,7 +201,11 @@ abstract class SuperDiffSets<T,LONGITERATOR extends PrimitiveLongIterator>
         return added( false ).size() - removed( false ).size();
     }
 
-    private Set<T> newSet()
+    /**
+     * Creates the set that added or removed elements are kept in. Subclasses tracking primitive ids can store
+     * them without boxing by overriding this.
+     */
+    protected Set<T> newSet()
     {
         return newSetFromMap( new VersionedHashMap<>() );
     }
@@ -19,6 +19,7 @@
  */
 package org.neo5j.kernel.recovery;
 
+import java.io.File;
 import java.io.IOException;
 
 import org.neo5j.helpers.collection.Visitor;
@@ -122,6 +123,22 @@ public class DefaultRecoverySPI implements Recovery.SPI
                 positionAfterLastRecoveredTransaction.getByteOffset() );
     }
 
+    @Override
+    public long getLogBytesFrom( LogPosition position ) throws IOException
+    {
+        long bytes = 0;
+        long highestLogVersion = logFiles.getHighestLogVersion();
+        for ( long version = position.getLogVersion(); version <= highestLogVersion; version++ )
+        {
+            File logFile = logFiles.getLogFileForVersion( version );
+            if ( fs.fileExists( logFile ) )
+            {
+                bytes += fs.getFileSize( logFile );
+            }
+        }
+        return Math.max( 0, bytes - position.getByteOffset() );
+    }
+
     static class RecoveryVisitor implements Visitor<CommittedTransactionRepresentation,Exception>
     {
         private final TransactionQueue transactionsToApply;
@@ -20,12 +20,15 @@
 package org.neo5j.kernel.recovery;
 
 import java.io.IOException;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
 
 import org.neo5j.helpers.collection.Visitor;
 import org.neo5j.kernel.impl.transaction.CommittedTransactionRepresentation;
 import org.neo5j.kernel.impl.transaction.log.LogPosition;
 import org.neo5j.kernel.impl.transaction.log.TransactionCursor;
 import org.neo5j.kernel.lifecycle.LifecycleAdapter;
+import org.neo5j.time.Clocks;
 
 /**
  * This is the process of doing a recovery on the transaction log and store, and is executed
@@ -43,6 +46,19 @@ public class Recovery extends LifecycleAdapter
         { // no-op by default
         }
 
+        /**
+         * Called periodically while transactions are being recovered.
+         *
+         * @param recoveredTransactions the number of transactions recovered so far.
+         * @param recoveredBytes the number of bytes of the transaction log recovered so far.
+         * @param bytesToRecover the total number of bytes of the transaction log to recover, or -1 if not known.
+         * @param elapsedMillis the time spent recovering so far.
+         */
+        default void recoveryProgress( long recoveredTransactions, long recoveredBytes, long bytesToRecover,
+                long elapsedMillis )
+        { // no-op by default
+        }
+
         default void recoveryCompleted( int numberOfRecoveredTransactions )
         { // no-op by default
         }
@@ -60,18 +76,38 @@ public class Recovery extends LifecycleAdapter
 
         void allTransactionsRecovered( CommittedTransactionRepresentation lastRecoveredTransaction,
                 LogPosition positionAfterLastRecoveredTransaction ) throws Exception;
+
+        /**
+         * @return the number of bytes in the transaction log from the given position to the end of the log, or -1
+         * if this is not known.
+         */
+        default long getLogBytesFrom( LogPosition position ) throws IOException
+        {
+            return -1;
+        }
     }
 
+    // How often the clock is checked to see if it is time to report progress, in number of recovered transactions.
+    private static final int PROGRESS_CHECK_INTERVAL = 1_000;
+    private static final long PROGRESS_REPORT_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis( 10 );
+
     private final SPI spi;
     private final Monitor monitor;
+    private final Clock clock;
     private int numberOfRecoveredTransactions;
 
     private boolean recoveredLog = false;
 
     public Recovery( SPI spi, Monitor monitor )
+    {
+        this( spi, monitor, Clocks.systemClock() );
+    }
+
+    public Recovery( SPI spi, Monitor monitor, Clock clock )
     {
         this.spi = spi;
         this.monitor = monitor;
+        this.clock = clock;
     }
 
     @Override
@@ -88,6 +124,9 @@ public class Recovery extends LifecycleAdapter
         LogPosition recoveryToPosition;
         CommittedTransactionRepresentation lastTransaction = null;
         Visitor<CommittedTransactionRepresentation,Exception> recoveryVisitor = spi.startRecovery();
+        long bytesToRecover = spi.getLogBytesFrom( recoveryFromPosition );
+        long startTimeMillis = clock.millis();
+        long lastProgressReportMillis = startTimeMillis;
         try ( TransactionCursor transactionsToRecover = spi.getTransactions( recoveryFromPosition ) )
         {
             while ( transactionsToRecover.next() )
@@ -97,6 +136,19 @@ public class Recovery extends LifecycleAdapter
                 recoveryVisitor.visit( lastTransaction );
                 monitor.transactionRecovered( txId );
                 numberOfRecoveredTransactions++;
+
+                if ( numberOfRecoveredTransactions % PROGRESS_CHECK_INTERVAL == 0 )
+                {
+                    long now = clock.millis();
+                    if ( now - lastProgressReportMillis >= PROGRESS_REPORT_INTERVAL_MILLIS )
+                    {
+                        lastProgressReportMillis = now;
+                        long recoveredBytes = bytesToRecover == -1 ? -1 :
+                                bytesToRecover - spi.getLogBytesFrom( transactionsToRecover.position() );
+                        monitor.recoveryProgress( numberOfRecoveredTransactions, recoveredBytes, bytesToRecover,
+                                now - startTimeMillis );
+                    }
+                }
             }
             recoveryToPosition = transactionsToRecover.position();
         }
@@ -59,7 +59,7 @@ public class ReadRecordsStep<RECORD extends AbstractBaseRecord> extends IoProduc
         this.ids = ids;
         this.klass = (Class<RECORD>) store.newRecord().getClass();
         this.recordSize = store.getRecordSize();
-        this.cursor = store.newRecordCursor( record = store.newRecord() );
+        this.cursor = store.newScanRecordCursor( record = store.newRecord() );
         this.highId = store.getHighId();
     }
 
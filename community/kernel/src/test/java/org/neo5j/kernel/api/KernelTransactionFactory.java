@@ -30,6 +30,7 @@ import org.neo5j.kernel.impl.api.StatementOperationContainer;
 import org.neo5j.kernel.impl.api.TransactionHeaderInformation;
 import org.neo5j.kernel.impl.api.TransactionHooks;
 import org.neo5j.kernel.impl.api.TransactionRepresentationCommitProcess;
+import org.neo5j.kernel.impl.api.memory.TransactionMemoryPool;
 import org.neo5j.kernel.impl.api.state.ConstraintIndexCreator;
 import org.neo5j.kernel.impl.factory.CanWrite;
 import org.neo5j.kernel.impl.locking.LockTracer;
@@ -39,6 +40,7 @@ import org.neo5j.kernel.impl.locking.StatementLocks;
 import org.neo5j.kernel.impl.proc.Procedures;
 import org.neo5j.kernel.impl.transaction.TransactionHeaderInformationFactory;
 import org.neo5j.kernel.impl.transaction.TransactionMonitor;
+import org.neo5j.kernel.impl.util.collection.CollectionsFactorySupplier;
 import org.neo5j.storageengine.api.StorageEngine;
 import org.neo5j.storageengine.api.StorageStatement;
 import org.neo5j.storageengine.api.StoreReadLayer;
@@ -91,7 +93,8 @@ public class KernelTransactionFactory
                 NULL,
                 LockTracer.NONE,
                 PageCursorTracerSupplier.NULL,
-                storageEngine, new CanWrite() );
+                storageEngine, new CanWrite(), CollectionsFactorySupplier.ON_HEAP,
+                new TransactionMemoryPool( 0, 0 ) );
 
         StatementLocks statementLocks = new SimpleStatementLocks( new NoOpClient() );
 
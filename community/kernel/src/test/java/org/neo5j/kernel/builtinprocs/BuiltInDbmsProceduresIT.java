@@ -26,11 +26,13 @@ import java.util.stream.Collectors;
 import org.junit.Test;
 
 import org.neo5j.collection.RawIterator;
+import org.neo5j.graphdb.Transaction;
 import org.neo5j.graphdb.factory.GraphDatabaseSettings;
 import org.neo5j.kernel.api.exceptions.ProcedureException;
 import org.neo5j.kernel.api.security.AnonymousContext;
 import org.neo5j.kernel.impl.api.integrationtest.KernelIntegrationTest;
 
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasItem;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
@@ -86,4 +88,37 @@ public class BuiltInDbmsProceduresIT extends KernelIntegrationTest
                         "cypher., etc). This is currently false by default but will be true by default in 4.0.",
                 "false" }, config.get( 0 ) );
     }
+
+    @Test
+    public void listPageCacheFiles() throws Exception
+    {
+        // Given
+        try ( Transaction tx = db.beginTx() )
+        {
+            db.createNode();
+            tx.success();
+        }
+
+        // When
+        RawIterator<Object[],ProcedureException> stream =
+                dbmsOperations().procedureCallDbms( procedureName( "dbms", "listPageCacheFiles" ),
+                        new Object[0],
+                        AnonymousContext.none() );
+
+        // Then
+        List<Object[]> files = asList( stream );
+        List<String> names = files.stream()
+                .map( o -> o[0].toString() )
+                .collect( Collectors.toList() );
+        assertEquals( names.stream().sorted().collect( Collectors.toList() ), names );
+
+        Object[] nodeStore = files.stream()
+                .filter( o -> o[0].toString().endsWith( "neostore.nodestore.db" ) )
+                .findFirst().orElseThrow( () -> new AssertionError( "No row for the node store in " + names ) );
+        assertThat( (Long) nodeStore[1], greaterThan( 0L ) );
+        long pins = (Long) nodeStore[2];
+        long hits = (Long) nodeStore[3];
+        assertThat( pins, greaterThan( 0L ) );
+        assertEquals( (double) hits / pins, (Double) nodeStore[9], 0.0 );
+    }
 }
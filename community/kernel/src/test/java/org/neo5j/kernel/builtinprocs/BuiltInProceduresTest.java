@@ -24,6 +24,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.stubbing.Answer;
 
+import java.io.File;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -36,6 +37,8 @@ import org.neo5j.graphdb.Node;
 import org.neo5j.graphdb.Path;
 import org.neo5j.graphdb.Relationship;
 import org.neo5j.helpers.collection.Iterators;
+import org.neo5j.io.pagecache.PageCache;
+import org.neo5j.io.pagecache.StubPagedFile;
 import org.neo5j.kernel.api.KernelTransaction;
 import org.neo5j.kernel.api.ReadOperations;
 import org.neo5j.kernel.api.Statement;
@@ -54,6 +57,7 @@ import org.neo5j.kernel.impl.proc.TypeMappers;
 import org.neo5j.kernel.internal.GraphDatabaseAPI;
 import org.neo5j.storageengine.api.Token;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyIterator;
 import static java.util.Collections.singletonList;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -83,6 +87,7 @@ public class BuiltInProceduresTest
     private final KernelTransaction tx = mock( KernelTransaction.class );
     private final DependencyResolver resolver = mock( DependencyResolver.class );
     private final GraphDatabaseAPI graphDatabaseAPI = mock( GraphDatabaseAPI.class );
+    private final PageCache pageCache = mock( PageCache.class );
 
     private final Procedures procs = new Procedures();
 
@@ -207,6 +212,11 @@ public class BuiltInProceduresTest
                 record( "dbms.components",
                         "dbms.components() :: (name :: STRING?, versions :: LIST? OF STRING?, edition :: STRING?)",
                         "List DBMS components and their versions." ),
+                record( "dbms.listPageCacheFiles",
+                        "dbms.listPageCacheFiles() :: (file :: STRING?, pageSize :: INTEGER?, pins :: INTEGER?, " +
+                        "hits :: INTEGER?, faults :: INTEGER?, evictions :: INTEGER?, flushes :: INTEGER?, " +
+                        "bytesRead :: INTEGER?, bytesWritten :: INTEGER?, hitRatio :: FLOAT?)",
+                        "List the files that are mapped by the page cache, with their page cache statistics." ),
                 record( "dbms.procedures",
                         "dbms.procedures() :: (name :: STRING?, signature :: STRING?, description :: STRING?)",
                         "List all procedures in the DBMS." ),
@@ -229,6 +239,28 @@ public class BuiltInProceduresTest
         ) );
     }
 
+    @Test
+    public void shouldListPageCacheFilesWithTheirCounters() throws Throwable
+    {
+        // Given
+        StubPagedFile nodes = givenPagedFile( "neostore.nodestore.db", 8192 );
+        nodes.counters.pins = 4;
+        nodes.counters.hits = 3;
+        nodes.counters.faults = 1;
+        nodes.counters.evictions = 2;
+        nodes.counters.flushes = 5;
+        nodes.counters.bytesRead = 8192;
+        nodes.counters.bytesWritten = 40960;
+        StubPagedFile labels = givenPagedFile( "neostore.labeltokenstore.db", 4096 );
+        when( pageCache.listExistingMappings() ).thenReturn( asList( nodes, labels ) );
+
+        // When/Then
+        assertThat( call( "dbms.listPageCacheFiles" ), contains(
+                record( new File( "neostore.labeltokenstore.db" ).getPath(), 4096L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 1.0 ),
+                record( new File( "neostore.nodestore.db" ).getPath(), 8192L, 4L, 3L, 1L, 2L, 5L, 8192L, 40960L, 0.75 )
+        ) );
+    }
+
     private Matcher<Object[]> record( Object... fields )
     {
         return equalTo( fields );
@@ -285,6 +317,13 @@ public class BuiltInProceduresTest
         }
     }
 
+    private StubPagedFile givenPagedFile( String fileName, int pageSize )
+    {
+        StubPagedFile pagedFile = new StubPagedFile( pageSize );
+        pagedFile.file = new File( fileName );
+        return pagedFile;
+    }
+
     private Integer token( String name, Map<Integer,String> tokens )
     {
         Supplier<Integer> allocateFromMap = () ->
@@ -358,6 +397,7 @@ public class BuiltInProceduresTest
         ctx.put( GRAPHDATABASEAPI, graphDatabaseAPI );
         when( graphDatabaseAPI.getDependencyResolver() ).thenReturn( resolver );
         when( resolver.resolveDependency( Procedures.class ) ).thenReturn( procs );
+        when( resolver.resolveDependency( PageCache.class ) ).thenReturn( pageCache );
         return Iterators
                 .asList( procs.callProcedure( ctx, ProcedureSignature.procedureName( name.split( "\\." ) ), args ) );
     }
@@ -26,6 +26,7 @@ import org.neo5j.kernel.api.ReadOperations;
 import org.neo5j.kernel.api.Statement;
 import org.neo5j.kernel.api.exceptions.Status;
 import org.neo5j.kernel.api.exceptions.TransactionFailureException;
+import org.neo5j.kernel.api.memory.MemoryTracker;
 import org.neo5j.kernel.api.security.SecurityContext;
 
 public class StubKernelTransaction implements KernelTransaction
@@ -133,6 +134,12 @@ public class StubKernelTransaction implements KernelTransaction
         throw new UnsupportedOperationException( "not implemented" );
     }
 
+    @Override
+    public MemoryTracker memoryTracker()
+    {
+        return MemoryTracker.NONE;
+    }
+
     @Override
     public Revertable overrideWith( SecurityContext context )
     {
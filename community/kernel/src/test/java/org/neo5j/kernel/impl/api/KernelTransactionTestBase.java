@@ -32,6 +32,7 @@ import org.neo5j.kernel.api.exceptions.TransactionFailureException;
 import org.neo5j.kernel.api.security.SecurityContext;
 import org.neo5j.kernel.api.txstate.LegacyIndexTransactionState;
 import org.neo5j.kernel.configuration.Config;
+import org.neo5j.kernel.impl.api.memory.TransactionMemoryPool;
 import org.neo5j.kernel.impl.api.store.StoreStatement;
 import org.neo5j.kernel.impl.factory.CanWrite;
 import org.neo5j.kernel.impl.locking.LockTracer;
@@ -47,6 +48,7 @@ import org.neo5j.kernel.impl.transaction.TransactionRepresentation;
 import org.neo5j.kernel.impl.transaction.log.TransactionIdStore;
 import org.neo5j.kernel.impl.transaction.tracing.CommitEvent;
 import org.neo5j.kernel.impl.transaction.tracing.TransactionTracer;
+import org.neo5j.kernel.impl.util.collection.CollectionsFactorySupplier;
 import org.neo5j.storageengine.api.StorageCommand;
 import org.neo5j.storageengine.api.StorageEngine;
 import org.neo5j.storageengine.api.StorageStatement;
@@ -141,7 +143,7 @@ public class KernelTransactionTestBase
         return new KernelTransactionImplementation( operationContainer, schemaWriteGuard,
                 hooks, null, null, headerInformationFactory, commitProcess, transactionMonitor, legacyIndexStateSupplier,
                 txPool, clock, TransactionTracer.NULL, LockTracer.NONE, PageCursorTracerSupplier.NULL, storageEngine,
-                new CanWrite() );
+                new CanWrite(), CollectionsFactorySupplier.ON_HEAP, new TransactionMemoryPool( 0, 0 ) );
     }
 
     public class CapturingCommitProcess implements TransactionCommitProcess
@@ -43,6 +43,7 @@ import org.neo5j.kernel.api.exceptions.Status;
 import org.neo5j.kernel.api.exceptions.TransactionFailureException;
 import org.neo5j.kernel.api.security.AnonymousContext;
 import org.neo5j.kernel.api.security.SecurityContext;
+import org.neo5j.kernel.impl.api.memory.TransactionMemoryPool;
 import org.neo5j.kernel.impl.api.state.ConstraintIndexCreator;
 import org.neo5j.kernel.impl.factory.AccessCapability;
 import org.neo5j.kernel.impl.factory.CanWrite;
@@ -58,6 +59,7 @@ import org.neo5j.kernel.impl.transaction.TransactionRepresentation;
 import org.neo5j.kernel.impl.transaction.log.TransactionIdStore;
 import org.neo5j.kernel.impl.transaction.tracing.CommitEvent;
 import org.neo5j.kernel.impl.util.JobScheduler;
+import org.neo5j.kernel.impl.util.collection.CollectionsFactorySupplier;
 import org.neo5j.kernel.lifecycle.LifeSupport;
 import org.neo5j.kernel.monitoring.Monitors;
 import org.neo5j.kernel.monitoring.tracing.Tracers;
@@ -557,7 +559,8 @@ public class KernelTransactionsTest
                 null, statementOperationsContianer, null, DEFAULT,
                 commitProcess, null, null, new TransactionHooks(), mock( TransactionMonitor.class ),
                 availabilityGuard,
-                tracers, storageEngine, new Procedures(), transactionIdStore, clock, new CanWrite() );
+                tracers, storageEngine, new Procedures(), transactionIdStore, clock, new CanWrite(),
+                CollectionsFactorySupplier.ON_HEAP, new TransactionMemoryPool( 0, 0 ) );
     }
 
     private static TestKernelTransactions createTestTransactions( StorageEngine storageEngine,
@@ -569,7 +572,7 @@ public class KernelTransactionsTest
                 null, DEFAULT,
                 commitProcess, null, null, new TransactionHooks(), mock( TransactionMonitor.class ),
                 availabilityGuard, tracers, storageEngine, new Procedures(), transactionIdStore, clock,
-                new CanWrite() );
+                new CanWrite(), CollectionsFactorySupplier.ON_HEAP, new TransactionMemoryPool( 0, 0 ) );
     }
 
     private static TransactionCommitProcess newRememberingCommitProcess( final TransactionRepresentation[] slot )
@@ -618,13 +621,14 @@ public class KernelTransactionsTest
                 LegacyIndexProviderLookup legacyIndexProviderLookup, TransactionHooks hooks,
                 TransactionMonitor transactionMonitor, AvailabilityGuard availabilityGuard, Tracers tracers,
                 StorageEngine storageEngine, Procedures procedures, TransactionIdStore transactionIdStore, Clock clock,
-                AccessCapability accessCapability )
+                AccessCapability accessCapability, CollectionsFactorySupplier collectionsFactorySupplier,
+                TransactionMemoryPool memoryPool )
         {
             super( statementLocksFactory, constraintIndexCreator, statementOperationsContianer, schemaWriteGuard,
                     txHeaderFactory, transactionCommitProcess, indexConfigStore, legacyIndexProviderLookup, hooks,
                     transactionMonitor, availabilityGuard, tracers, storageEngine, procedures, transactionIdStore,
                     clock,
-                    accessCapability );
+                    accessCapability, collectionsFactorySupplier, memoryPool );
         }
 
         @Override
@@ -103,6 +103,12 @@ public class TestKernelTransactionHandle implements KernelTransactionHandle
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public long usedMemory()
+    {
+        return tx.memoryTracker().usedMemory();
+    }
+
     @Override
     public boolean equals( Object o )
     {
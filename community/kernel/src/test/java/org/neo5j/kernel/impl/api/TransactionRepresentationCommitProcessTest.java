@@ -22,7 +22,9 @@ package org.neo5j.kernel.impl.api;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 import org.neo5j.kernel.api.exceptions.TransactionFailureException;
 import org.neo5j.kernel.impl.transaction.TransactionRepresentation;
@@ -36,19 +38,23 @@ import org.neo5j.kernel.impl.transaction.tracing.LogAppendEvent;
 import org.neo5j.storageengine.api.StorageEngine;
 import org.neo5j.storageengine.api.TransactionApplicationMode;
 
+import static java.util.Arrays.asList;
 import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.neo5j.helpers.Exceptions.contains;
+import static org.neo5j.kernel.api.exceptions.Status.Transaction.TransactionLogError;
 import static org.neo5j.storageengine.api.TransactionApplicationMode.INTERNAL;
 
 public class TransactionRepresentationCommitProcessTest
@@ -138,6 +144,114 @@ public class TransactionRepresentationCommitProcessTest
         verify( transactionIdStore ).transactionCommitted( txId, FakeCommitment.CHECKSUM, FakeCommitment.TIMESTAMP );
     }
 
+    @Test
+    public void shouldApplyPipelinedBatchInCommitOrderOneSegmentAtATime() throws Exception
+    {
+        // GIVEN
+        TransactionIdStore transactionIdStore = mock( TransactionIdStore.class );
+        when( transactionIdStore.nextCommittingTransactionId() ).thenReturn( 2L, 3L, 4L, 5L, 6L, 7L, 8L );
+        TransactionAppender appender = new TestableTransactionAppender( transactionIdStore );
+        StorageEngine storageEngine = mock( StorageEngine.class );
+        List<List<Long>> appliedSegments = recordAppliedSegments( storageEngine );
+        TransactionCommitProcess commitProcess =
+                new TransactionRepresentationCommitProcess( appender, storageEngine, Runnable::run, 3 );
+        TransactionToApply batch = batchOf( 7 );
+
+        // WHEN
+        long lastTxId = commitProcess.commit( batch, commitEvent, INTERNAL );
+
+        // THEN
+        assertEquals( 8L, lastTxId );
+        assertEquals( asList( asList( 2L, 3L, 4L ), asList( 5L, 6L, 7L ), asList( 8L ) ), appliedSegments );
+        assertEquals( 7, lengthOf( batch ) );
+        verify( transactionIdStore, times( 7 ) ).transactionClosed( anyLong(), anyLong(), anyLong() );
+    }
+
+    @Test
+    public void shouldApplyAndCloseAppendedSegmentsOfPipelinedBatchWhenAppendFails() throws Exception
+    {
+        // GIVEN
+        TransactionIdStore transactionIdStore = mock( TransactionIdStore.class );
+        when( transactionIdStore.nextCommittingTransactionId() ).thenReturn( 2L, 3L, 4L );
+        TransactionToApply batch = batchOf( 7 );
+        TransactionToApply secondSegment = batch.next().next().next();
+        IOException rootCause = new IOException( "Mock exception" );
+        TransactionAppender appender = new TestableTransactionAppender( transactionIdStore )
+        {
+            @Override
+            public long append( TransactionToApply batch, LogAppendEvent logAppendEvent ) throws IOException
+            {
+                if ( batch == secondSegment )
+                {
+                    throw rootCause;
+                }
+                return super.append( batch, logAppendEvent );
+            }
+        };
+        StorageEngine storageEngine = mock( StorageEngine.class );
+        List<List<Long>> appliedSegments = recordAppliedSegments( storageEngine );
+        TransactionCommitProcess commitProcess =
+                new TransactionRepresentationCommitProcess( appender, storageEngine, Runnable::run, 3 );
+
+        // WHEN
+        try
+        {
+            commitProcess.commit( batch, commitEvent, INTERNAL );
+            fail( "Should have failed" );
+        }
+        catch ( TransactionFailureException e )
+        {
+            assertEquals( TransactionLogError, e.status() );
+            assertTrue( contains( e, rootCause.getMessage(), rootCause.getClass() ) );
+        }
+
+        // THEN
+        assertEquals( asList( asList( 2L, 3L, 4L ) ), appliedSegments );
+        assertEquals( 7, lengthOf( batch ) );
+        verify( transactionIdStore, times( 3 ) ).transactionClosed( anyLong(), anyLong(), anyLong() );
+    }
+
+    private List<List<Long>> recordAppliedSegments( StorageEngine storageEngine ) throws Exception
+    {
+        List<List<Long>> appliedSegments = new ArrayList<>();
+        doAnswer( invocation ->
+        {
+            List<Long> segment = new ArrayList<>();
+            for ( TransactionToApply tx = invocation.getArgumentAt( 0, TransactionToApply.class ); tx != null;
+                    tx = tx.next() )
+            {
+                assertTrue( tx.commitment().markedAsCommitted() );
+                segment.add( tx.transactionId() );
+            }
+            appliedSegments.add( segment );
+            return null;
+        } ).when( storageEngine ).apply( any( TransactionToApply.class ), any( TransactionApplicationMode.class ) );
+        return appliedSegments;
+    }
+
+    private TransactionToApply batchOf( int length )
+    {
+        TransactionToApply first = mockedTransaction();
+        TransactionToApply last = first;
+        for ( int i = 1; i < length; i++ )
+        {
+            TransactionToApply next = mockedTransaction();
+            last.next( next );
+            last = next;
+        }
+        return first;
+    }
+
+    private int lengthOf( TransactionToApply batch )
+    {
+        int length = 0;
+        for ( ; batch != null; batch = batch.next() )
+        {
+            length++;
+        }
+        return length;
+    }
+
     private TransactionToApply mockedTransaction()
     {
         TransactionRepresentation transaction = mock( TransactionRepresentation.class );
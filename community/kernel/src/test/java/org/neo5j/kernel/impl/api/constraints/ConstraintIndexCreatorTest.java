@@ -35,6 +35,7 @@ import org.neo5j.kernel.api.exceptions.TransactionFailureException;
 import org.neo5j.kernel.api.exceptions.index.IndexEntryConflictException;
 import org.neo5j.kernel.api.exceptions.index.IndexPopulationFailedKernelException;
 import org.neo5j.kernel.api.index.PropertyAccessor;
+import org.neo5j.kernel.api.memory.MemoryTracker;
 import org.neo5j.kernel.api.exceptions.schema.UniquePropertyValueValidationException;
 import org.neo5j.kernel.api.proc.CallableProcedure;
 import org.neo5j.kernel.api.proc.CallableUserAggregationFunction;
@@ -340,6 +341,12 @@ public class ConstraintIndexCreatorTest
                 return -1;
             }
 
+            @Override
+            public MemoryTracker memoryTracker()
+            {
+                return MemoryTracker.NONE;
+            }
+
             @Override
             public Revertable overrideWith( SecurityContext context )
             {
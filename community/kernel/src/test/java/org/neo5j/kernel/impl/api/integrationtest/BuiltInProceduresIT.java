@@ -133,6 +133,11 @@ public class BuiltInProceduresIT extends KernelIntegrationTest
                         "RELATIONSHIP?)", "Show the schema of the data."} ),
                 equalTo( new Object[]{"db.relationshipTypes", "db.relationshipTypes() :: (relationshipType :: " +
                         "STRING?)", "List all relationship types in the database."} ),
+                equalTo( new Object[]{"dbms.listPageCacheFiles",
+                        "dbms.listPageCacheFiles() :: (file :: STRING?, pageSize :: INTEGER?, pins :: INTEGER?, " +
+                        "hits :: INTEGER?, faults :: INTEGER?, evictions :: INTEGER?, flushes :: INTEGER?, " +
+                        "bytesRead :: INTEGER?, bytesWritten :: INTEGER?, hitRatio :: FLOAT?)",
+                        "List the files that are mapped by the page cache, with their page cache statistics."} ),
                 equalTo( new Object[]{"dbms.procedures", "dbms.procedures() :: (name :: STRING?, signature :: " +
                         "STRING?, description :: STRING?)", "List all procedures in the DBMS."} ),
                 equalTo( new Object[]{"dbms.functions", "dbms.functions() :: (name :: STRING?, signature :: " +
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.api.memory;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo5j.kernel.api.exceptions.Status;
+import org.neo5j.kernel.api.memory.MemoryLimitExceededException;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.neo5j.kernel.impl.api.memory.TransactionMemoryTracker.CHUNK_SIZE;
+
+public class TransactionMemoryTrackerTest
+{
+    @Test
+    public void shouldReserveMemoryFromThePoolInChunks() throws Exception
+    {
+        // Given
+        TransactionMemoryPool pool = new TransactionMemoryPool( 0, 0 );
+        TransactionMemoryTracker tracker = pool.newTracker();
+
+        // When
+        tracker.allocated( 100 );
+        tracker.allocated( 200 );
+
+        // Then
+        assertThat( tracker.usedMemory(), equalTo( 300L ) );
+        assertThat( pool.reservedMemory(), equalTo( CHUNK_SIZE ) );
+
+        // When
+        tracker.allocated( 2 * CHUNK_SIZE );
+        tracker.deallocated( 2 * CHUNK_SIZE );
+
+        // Then
+        assertThat( tracker.usedMemory(), equalTo( 300L ) );
+        assertThat( pool.reservedMemory(), equalTo( 2 * CHUNK_SIZE + 300 ) );
+
+        // When
+        tracker.close();
+
+        // Then
+        assertThat( pool.reservedMemory(), equalTo( 0L ) );
+    }
+
+    @Test
+    public void shouldFailAllocationBeyondTheLimitOfTheTransaction() throws Exception
+    {
+        // Given
+        TransactionMemoryPool pool = new TransactionMemoryPool( 1000, 0 );
+        TransactionMemoryTracker tracker = pool.newTracker();
+        tracker.allocated( 800 );
+
+        try
+        {
+            // When
+            tracker.allocated( 300 );
+            fail( "Should have failed" );
+        }
+        catch ( MemoryLimitExceededException e )
+        {
+            // Then
+            assertThat( e.status(), equalTo( Status.Transaction.TransactionMemoryLimitExceeded ) );
+            assertThat( tracker.usedMemory(), equalTo( 800L ) );
+        }
+    }
+
+    @Test
+    public void shouldFailAllocationBeyondTheLimitOfAllTransactions() throws Exception
+    {
+        // Given
+        TransactionMemoryPool pool = new TransactionMemoryPool( 0, 3 * CHUNK_SIZE );
+        TransactionMemoryTracker first = pool.newTracker();
+        TransactionMemoryTracker second = pool.newTracker();
+        first.allocated( 2 * CHUNK_SIZE );
+        second.allocated( CHUNK_SIZE / 2 );
+
+        try
+        {
+            // When
+            second.allocated( CHUNK_SIZE );
+            fail( "Should have failed" );
+        }
+        catch ( MemoryLimitExceededException e )
+        {
+            // Then
+            assertThat( e.status(), equalTo( Status.Transaction.MemoryPoolExhausted ) );
+        }
+
+        // When
+        first.close();
+        second.allocated( CHUNK_SIZE );
+
+        // Then
+        assertThat( second.usedMemory(), equalTo( CHUNK_SIZE + CHUNK_SIZE / 2 ) );
+    }
+
+    @Test
+    public void shouldTellItsOwnerOfEachExceededLimit() throws Exception
+    {
+        // Given
+        List<Status> reported = new ArrayList<>();
+        TransactionMemoryPool pool = new TransactionMemoryPool( 2 * CHUNK_SIZE, CHUNK_SIZE );
+        TransactionMemoryTracker tracker = pool.newTracker( reported::add );
+        tracker.allocated( CHUNK_SIZE );
+
+        // When
+        allocateAndFail( tracker, CHUNK_SIZE );
+        allocateAndFail( tracker, 2 * CHUNK_SIZE );
+
+        // Then
+        assertThat( reported, equalTo( asList( Status.Transaction.MemoryPoolExhausted,
+                Status.Transaction.TransactionMemoryLimitExceeded ) ) );
+        assertThat( tracker.usedMemory(), equalTo( CHUNK_SIZE ) );
+    }
+
+    private static void allocateAndFail( TransactionMemoryTracker tracker, long bytes )
+    {
+        try
+        {
+            tracker.allocated( bytes );
+            fail( "Should have failed" );
+        }
+        catch ( MemoryLimitExceededException e )
+        {
+            // expected
+        }
+    }
+}
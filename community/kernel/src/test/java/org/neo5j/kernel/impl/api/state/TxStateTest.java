@@ -31,6 +31,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
@@ -38,6 +39,8 @@ import java.util.Set;
 import org.neo5j.cursor.Cursor;
 import org.neo5j.helpers.collection.Iterables;
 import org.neo5j.helpers.collection.Pair;
+import org.neo5j.kernel.api.exceptions.Status;
+import org.neo5j.kernel.api.memory.MemoryLimitExceededException;
 import org.neo5j.kernel.api.properties.DefinedProperty;
 import org.neo5j.kernel.api.schema_new.OrderedPropertyValues;
 import org.neo5j.kernel.api.schema_new.constaints.ConstraintDescriptor;
@@ -46,8 +49,12 @@ import org.neo5j.kernel.api.schema_new.constaints.UniquenessConstraintDescriptor
 import org.neo5j.kernel.api.schema_new.index.NewIndexDescriptor;
 import org.neo5j.kernel.api.schema_new.index.NewIndexDescriptorFactory;
 import org.neo5j.kernel.api.txstate.TransactionState;
+import org.neo5j.kernel.impl.api.memory.TransactionMemoryPool;
+import org.neo5j.kernel.impl.api.memory.TransactionMemoryTracker;
+import org.neo5j.kernel.impl.util.collection.OnHeapCollectionsFactory;
 import org.neo5j.storageengine.api.Direction;
 import org.neo5j.storageengine.api.RelationshipItem;
+import org.neo5j.storageengine.api.txstate.NodeState;
 import org.neo5j.storageengine.api.txstate.ReadableDiffSets;
 import org.neo5j.storageengine.api.txstate.TxStateVisitor;
 import org.neo5j.test.rule.RandomRule;
@@ -1396,6 +1403,75 @@ public class TxStateTest
         } );
     }
 
+    @Test
+    public void shouldIterateModifiedNodesAsTheyWereWhenIterationStarted() throws Exception
+    {
+        // GIVEN
+        for ( long nodeId = 0; nodeId < 10; nodeId++ )
+        {
+            state.nodeDoAddLabel( 1, nodeId );
+        }
+
+        // WHEN modifying many more nodes while iterating, which makes the node state map grow
+        Set<Long> visited = new HashSet<>();
+        for ( NodeState node : state.modifiedNodes() )
+        {
+            visited.add( node.getId() );
+            for ( long nodeId = 100 * (node.getId() + 1); nodeId < 100 * (node.getId() + 2); nodeId++ )
+            {
+                state.nodeDoAddLabel( 1, nodeId );
+            }
+        }
+
+        // THEN
+        assertEquals( asSet( 0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L ), visited );
+    }
+
+    @Test
+    public void shouldReportTheMemoryOfChangesToTheTrackerOfTheTransaction() throws Exception
+    {
+        // GIVEN
+        TransactionMemoryTracker tracker = new TransactionMemoryPool( 0, 0 ).newTracker();
+        TxState state = new TxState( new OnHeapCollectionsFactory( tracker ) );
+
+        // WHEN
+        state.nodeDoAddLabel( 1, 0 );
+        long afterLabel = tracker.usedMemory();
+        state.nodeDoAddProperty( 0, stringProperty( 2, "value" ) );
+        long afterProperty = tracker.usedMemory();
+        state.relationshipDoCreate( 1, 1, 0, 0 );
+
+        // THEN
+        assertTrue( afterLabel >= TxState.ENTITY_STATE_SIZE );
+        assertTrue( afterProperty > afterLabel );
+        assertTrue( tracker.usedMemory() > afterProperty );
+    }
+
+    @Test
+    public void shouldHaveTheTransactionTerminatedWhenAChangeExceedsItsMemoryLimit() throws Exception
+    {
+        // GIVEN
+        List<Status> reported = new ArrayList<>();
+        TransactionMemoryTracker tracker = new TransactionMemoryPool( 10_000, 0 ).newTracker( reported::add );
+        TxState state = new TxState( new OnHeapCollectionsFactory( tracker ) );
+
+        try
+        {
+            // WHEN
+            for ( long nodeId = 0; nodeId < 1000; nodeId++ )
+            {
+                state.nodeDoAddLabel( 1, nodeId );
+            }
+            fail( "Should have failed" );
+        }
+        catch ( MemoryLimitExceededException e )
+        {
+            // THEN
+            assertEquals( singletonList( Status.Transaction.TransactionMemoryLimitExceeded ), reported );
+            assertTrue( tracker.usedMemory() <= 10_000 );
+        }
+    }
+
     @Test
     public void shouldObserveCorrectAugmentedNodeRelationshipsState() throws Exception
     {
@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.locking;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+import org.neo5j.test.rule.concurrent.ThreadRepository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class StripedLockServiceTest
+{
+    @Rule
+    public final ThreadRepository threads = new ThreadRepository( 5, TimeUnit.SECONDS );
+
+    @Test
+    public void shouldAllowReEntrance() throws Exception
+    {
+        // given
+        LockService locks = new StripedLockService();
+
+        ThreadRepository.Events events = threads.events();
+        LockNode lock1once = new LockNode( locks, 1 );
+        LockNode lock1again = new LockNode( locks, 1 );
+        LockNode lock1inOtherThread = new LockNode( locks, 1 );
+
+        ThreadRepository.Signal lockedOnce = threads.signal();
+        ThreadRepository.Signal ready = threads.signal();
+
+        // when
+        threads.execute( lock1once, ready.await(), lockedOnce, lock1again,
+                         events.trigger( "Double Locked" ),
+                         lock1once.release, lock1again.release );
+        threads.execute( ready, lockedOnce.await(), lock1inOtherThread,
+                         events.trigger( "Other Thread" ),
+                         lock1inOtherThread.release );
+
+        // then
+        events.assertInOrder( "Double Locked", "Other Thread" );
+    }
+
+    @Test
+    public void shouldBlockOnLockedLock() throws Exception
+    {
+        // given
+        LockService locks = new StripedLockService();
+        LockNode lockSameNode = new LockNode( locks, 17 );
+        ThreadRepository.Events events = threads.events();
+        ThreadRepository.Signal ready = threads.signal();
+
+        // when
+        try ( Lock ignored = locks.acquireNodeLock( 17, LockService.LockType.WRITE_LOCK ) )
+        {
+            ThreadRepository.ThreadInfo thread =
+                    threads.execute( ready, lockSameNode, events.trigger( "locked" ), lockSameNode.release );
+            ready.awaitNow();
+
+            // then
+            assertTrue( awaitWaiting( thread, 5, TimeUnit.SECONDS ) );
+            assertTrue( events.snapshot().isEmpty() );
+        }
+        events.assertInOrder( "locked" );
+    }
+
+    @Test
+    public void shouldNotBlockOnRelationshipWithSameIdAsLockedNode() throws Exception
+    {
+        // given
+        LockService locks = new StripedLockService();
+        ThreadRepository.Events events = threads.events();
+
+        // when
+        try ( Lock ignored = locks.acquireNodeLock( 17, LockService.LockType.WRITE_LOCK ) )
+        {
+            threads.execute( new LockRelationship( locks, 17 ), events.trigger( "locked" ) );
+
+            // then
+            events.assertInOrder( "locked" );
+        }
+    }
+
+    @Test
+    public void shouldGrantLocksInTheOrderTheyWereRequested() throws Exception
+    {
+        // given
+        LockService locks = new StripedLockService();
+        ThreadRepository.Events events = threads.events();
+
+        // when
+        try ( Lock ignored = locks.acquireNodeLock( 42, LockService.LockType.WRITE_LOCK ) )
+        {
+            for ( int i = 0; i < 3; i++ )
+            {
+                LockNode waiter = new LockNode( locks, 42 );
+                ThreadRepository.ThreadInfo thread =
+                        threads.execute( waiter, events.trigger( "waiter " + i ), waiter.release );
+                assertTrue( awaitWaiting( thread, 5, TimeUnit.SECONDS ) );
+            }
+        }
+
+        // then
+        events.assertInOrder( "waiter 0", "waiter 1", "waiter 2" );
+    }
+
+    @Test
+    public void shouldNotLeaveResidualLockStateAfterAllLocksHaveBeenReleased() throws Exception
+    {
+        // given
+        StripedLockService locks = new StripedLockService();
+
+        // when
+        locks.acquireNodeLock( 42, LockService.LockType.WRITE_LOCK ).release();
+
+        // then
+        assertEquals( 0, locks.lockCount() );
+    }
+
+    @Test
+    public void shouldIgnoreStaleReleaseOfLockThatHasAlreadyBeenReleased() throws Exception
+    {
+        // given a released lock, and another lock taken afterwards by the same thread
+        StripedLockService locks = new StripedLockService();
+        Lock released = locks.acquireNodeLock( 1, LockService.LockType.WRITE_LOCK );
+        released.release();
+        Lock held = locks.acquireNodeLock( 2, LockService.LockType.WRITE_LOCK );
+
+        // when
+        released.release();
+
+        // then
+        assertEquals( 1, locks.lockCount() );
+        assertEquals( "LockedNode[id=2; HELD_BY=1*" + Thread.currentThread() + "]", held.toString() );
+        held.release();
+        assertEquals( 0, locks.lockCount() );
+    }
+
+    @Test
+    public void shouldIgnoreSecondReleaseOfReentrantlyHeldLock() throws Exception
+    {
+        // given a lock that is held twice by the same thread
+        StripedLockService locks = new StripedLockService();
+        Lock outer = locks.acquireNodeLock( 1, LockService.LockType.WRITE_LOCK );
+        Lock inner = locks.acquireNodeLock( 1, LockService.LockType.WRITE_LOCK );
+
+        // when the inner handle is released twice
+        inner.release();
+        inner.release();
+
+        // then the outer hold is still there
+        assertEquals( 1, locks.lockCount() );
+        assertEquals( "LockedNode[id=1; HELD_BY=1*" + Thread.currentThread() + "]", outer.toString() );
+        outer.release();
+        outer.release();
+        assertEquals( 0, locks.lockCount() );
+    }
+
+    @Test
+    public void shouldNotHandOutRecentlyReleasedHandlesAgain() throws Exception
+    {
+        // given
+        StripedLockService locks = new StripedLockService();
+        Lock released = locks.acquireNodeLock( 1, LockService.LockType.WRITE_LOCK );
+        released.release();
+
+        // when
+        for ( int i = 2; i < 18; i++ )
+        {
+            Lock lock = locks.acquireNodeLock( i, LockService.LockType.WRITE_LOCK );
+            assertTrue( lock != released );
+            lock.release();
+        }
+    }
+
+    @Test
+    public void shouldNotAllocateWhenTakingUncontendedLocks() throws Exception
+    {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue( bean instanceof com.sun.management.ThreadMXBean );
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue( threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled() );
+
+        // given a warmed up lock service and handle pool
+        StripedLockService locks = new StripedLockService();
+        lockAndReleaseManyTimes( locks );
+        long threadId = Thread.currentThread().getId();
+
+        // when
+        long allocatedBefore = threadBean.getThreadAllocatedBytes( threadId );
+        int acquisitions = lockAndReleaseManyTimes( locks );
+        long allocated = threadBean.getThreadAllocatedBytes( threadId ) - allocatedBefore;
+
+        // then, allowing for a few bytes allocated by the measurement itself
+        assertTrue( "Allocated " + allocated + " bytes for " + acquisitions + " acquisitions",
+                allocated < acquisitions / 10 );
+    }
+
+    private static int lockAndReleaseManyTimes( LockService locks )
+    {
+        int acquisitions = 0;
+        for ( int round = 0; round < 100; round++ )
+        {
+            for ( long id = 0; id < 100; id++ )
+            {
+                try ( Lock node = locks.acquireNodeLock( id, LockService.LockType.WRITE_LOCK );
+                      Lock relationship = locks.acquireRelationshipLock( id, LockService.LockType.READ_LOCK ) )
+                {
+                    acquisitions += 2;
+                }
+            }
+        }
+        return acquisitions;
+    }
+
+    @Test
+    public void shouldPresentLockStateInStringRepresentationOfLock() throws Exception
+    {
+        // given
+        LockService locks = new StripedLockService();
+        Lock first;
+
+        // when
+        try ( Lock lock = first = locks.acquireNodeLock( 666, LockService.LockType.WRITE_LOCK ) )
+        {
+            // then
+            assertEquals( "LockedNode[id=666; HELD_BY=1*" + Thread.currentThread() + "]", lock.toString() );
+
+            // when
+            try ( Lock inner = locks.acquireNodeLock( 666, LockService.LockType.WRITE_LOCK ) )
+            {
+                assertEquals( "LockedNode[id=666; HELD_BY=2*" + Thread.currentThread() + "]", lock.toString() );
+                assertEquals( lock.toString(), inner.toString() );
+            }
+
+            // then
+            assertEquals( "LockedNode[id=666; HELD_BY=1*" + Thread.currentThread() + "]", lock.toString() );
+        }
+
+        // then
+        assertEquals( "LockedNode[id=666; RELEASED]", first.toString() );
+    }
+
+    private static class LockNode implements ThreadRepository.Task
+    {
+        private final LockService locks;
+        private final long nodeId;
+        private Lock lock;
+
+        LockNode( LockService locks, long nodeId )
+        {
+            this.locks = locks;
+            this.nodeId = nodeId;
+        }
+
+        private final ThreadRepository.Task release = new ThreadRepository.Task()
+        {
+            @Override
+            public void perform() throws Exception
+            {
+                lock.release();
+            }
+        };
+
+        @Override
+        public void perform() throws Exception
+        {
+            this.lock = locks.acquireNodeLock( nodeId, LockService.LockType.WRITE_LOCK );
+        }
+    }
+
+    private static class LockRelationship implements ThreadRepository.Task
+    {
+        private final LockService locks;
+        private final long relationshipId;
+
+        LockRelationship( LockService locks, long relationshipId )
+        {
+            this.locks = locks;
+            this.relationshipId = relationshipId;
+        }
+
+        @Override
+        public void perform() throws Exception
+        {
+            locks.acquireRelationshipLock( relationshipId, LockService.LockType.WRITE_LOCK ).release();
+        }
+    }
+
+    private static boolean awaitWaiting( ThreadRepository.ThreadInfo thread, long timeout, TimeUnit unit )
+    {
+        for ( long end = System.currentTimeMillis() + unit.toMillis( timeout ); System.currentTimeMillis() < end; )
+        {
+            if ( thread.getState() == Thread.State.WAITING )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.pagecache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.neo5j.io.pagecache.PageCache;
+import org.neo5j.io.pagecache.PageCursor;
+import org.neo5j.io.pagecache.PagedFile;
+import org.neo5j.kernel.impl.util.Neo5jJobScheduler;
+import org.neo5j.logging.NullLog;
+import org.neo5j.test.rule.PageCacheRule;
+import org.neo5j.test.rule.TestDirectory;
+import org.neo5j.test.rule.fs.EphemeralFileSystemRule;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.neo5j.io.pagecache.PagedFile.PF_NO_FAULT;
+import static org.neo5j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
+import static org.neo5j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
+
+public class PageCacheWarmerTest
+{
+    private static final int PAGE_SIZE = 8192;
+    private static final int PAGES = 20;
+
+    private final EphemeralFileSystemRule fs = new EphemeralFileSystemRule();
+    private final TestDirectory directory = TestDirectory.testDirectory( getClass(), fs.get() );
+    private final PageCacheRule pageCacheRule = new PageCacheRule( PageCacheRule.config().withInconsistentReads( false ) );
+
+    @Rule
+    public final RuleChain rules = RuleChain.outerRule( fs ).around( directory ).around( pageCacheRule );
+
+    private final Neo5jJobScheduler scheduler = new Neo5jJobScheduler();
+    private PageCache pageCache;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        scheduler.init();
+        file = directory.file( "a" );
+        try ( PagedFile pagedFile = pageCache().map( file, PAGE_SIZE, CREATE );
+              PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+        {
+            for ( int i = 0; i < PAGES; i++ )
+            {
+                assertTrue( cursor.next() );
+                cursor.putLong( i );
+            }
+        }
+    }
+
+    @After
+    public void tearDown()
+    {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void profileMustRecordThePagesThatAreInMemory() throws Exception
+    {
+        try ( PagedFile pagedFile = pageCache().map( file, PAGE_SIZE ) )
+        {
+            touch( pagedFile, 3, 7, 11 );
+
+            assertEquals( 3, warmer().profile() );
+        }
+        assertTrue( fs.get().fileExists( new File( directory.directory(), "a" + PageCacheWarmer.SUFFIX_CACHEPROF ) ) );
+    }
+
+    @Test
+    public void reheatMustLoadThePagesFromTheProfile() throws Exception
+    {
+        try ( PagedFile pagedFile = pageCache().map( file, PAGE_SIZE ) )
+        {
+            touch( pagedFile, 3, 7, 11 );
+            warmer().profile();
+        }
+
+        try ( PagedFile pagedFile = pageCache().map( file, PAGE_SIZE ) )
+        {
+            assertEquals( 3, warmer().reheat() );
+            assertEquals( 3, pagedFile.counters().faults() );
+
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK | PF_NO_FAULT ) )
+            {
+                for ( int i = 0; i < PAGES; i++ )
+                {
+                    assertTrue( cursor.next() );
+                    boolean expectedInMemory = i == 3 || i == 7 || i == 11;
+                    assertEquals( "page " + i, expectedInMemory, cursor.getCurrentPageId() == i );
+                }
+            }
+        }
+    }
+
+    @Test
+    public void reheatMustIgnoreFilesWithoutProfiles() throws Exception
+    {
+        try ( PagedFile pagedFile = pageCache().map( file, PAGE_SIZE ) )
+        {
+            assertEquals( 0, warmer().reheat() );
+            assertEquals( 0, pagedFile.counters().faults() );
+        }
+    }
+
+    @Test
+    public void readOnlyDatabaseMustNotRecordProfiles() throws Throwable
+    {
+        try ( PagedFile pagedFile = pageCache().map( file, PAGE_SIZE ) )
+        {
+            touch( pagedFile, 3, 7, 11 );
+
+            PageCacheWarmer warmer = warmer( 1, true );
+            warmer.start();
+            Thread.sleep( 100 );
+            warmer.stop();
+        }
+        assertFalse( fs.get().fileExists( new File( directory.directory(), "a" + PageCacheWarmer.SUFFIX_CACHEPROF ) ) );
+    }
+
+    /**
+     * Get a fresh page cache, such that only the pages touched by the test are in memory.
+     */
+    private PageCache pageCache()
+    {
+        pageCache = pageCacheRule.getPageCache( fs.get() );
+        return pageCache;
+    }
+
+    private PageCacheWarmer warmer()
+    {
+        return warmer( 1000, false );
+    }
+
+    private PageCacheWarmer warmer( long profilingIntervalMillis, boolean readOnly )
+    {
+        return new PageCacheWarmer( fs.get(), pageCache, scheduler, NullLog.getInstance(), profilingIntervalMillis,
+                readOnly );
+    }
+
+    private static void touch( PagedFile pagedFile, long... pageIds ) throws IOException
+    {
+        try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK ) )
+        {
+            for ( long pageId : pageIds )
+            {
+                assertTrue( cursor.next( pageId ) );
+            }
+        }
+    }
+}
@@ -67,7 +67,7 @@ public class BufferingIdGeneratorFactoryTest
         bufferingIdGeneratorFactory.maintenance();
 
         // THEN
-        verify( actual.get( IdType.STRING_BLOCK ) ).freeId( 7 );
+        verify( actual.get( IdType.STRING_BLOCK ) ).freeIds( new long[] {7} );
     }
 
     @Test
@@ -104,7 +104,7 @@ public class BufferingIdGeneratorFactoryTest
         bufferingIdGeneratorFactory.maintenance();
 
         // THEN
-        verify( actual.get( IdType.STRING_BLOCK ) ).freeId( 7 );
+        verify( actual.get( IdType.STRING_BLOCK ) ).freeIds( new long[] {7} );
     }
 
     private static class ControllableSnapshotSupplier implements Supplier<KernelTransactionsSnapshot>
@@ -108,6 +108,45 @@ public class IdGeneratorImplTest
         }
     }
 
+    @Test
+    public void idBatchMayEndExactlyAtTheMaxId()
+    {
+        long maxId = 10;
+        IdGeneratorImpl.createGenerator( fsr.get(), file, 0, false );
+        IdGenerator idGenerator = new IdGeneratorImpl( fsr.get(), file, 1, maxId, false, 0 );
+
+        IdRange range = idGenerator.nextIdBatch( (int) maxId + 1 );
+        assertEquals( 0, range.getRangeStart() );
+        assertEquals( maxId + 1, range.getRangeLength() );
+        assertEquals( maxId + 1, idGenerator.getHighId() );
+
+        try
+        {
+            idGenerator.nextId();
+            fail( "Should have failed" );
+        }
+        catch ( Exception e )
+        {
+            assertThat( e, instanceOf( IdCapacityExceededException.class ) );
+        }
+    }
+
+    @Test
+    public void idBatchMustBeCutShortAtTheMaxId()
+    {
+        long maxId = 10;
+        IdGeneratorImpl.createGenerator( fsr.get(), file, 0, false );
+        IdGenerator idGenerator = new IdGeneratorImpl( fsr.get(), file, 1, maxId, false, 0 );
+        idGenerator.setHighId( maxId );
+
+        IdRange range = idGenerator.nextIdBatch( 5 );
+        assertEquals( maxId, range.getRangeStart() );
+        assertEquals( 1, range.getRangeLength() );
+
+        range = idGenerator.nextIdBatch( 5 );
+        assertEquals( 0, range.getRangeLength() );
+    }
+
     /**
      * It should be fine to set high id to {@link IdGeneratorImpl#INTEGER_MINUS_ONE}.
      * It will just be never returned from {@link IdGeneratorImpl#nextId()}.
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.store.id;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.neo5j.kernel.impl.store.id.validation.IdCapacityExceededException;
+import org.neo5j.test.rule.fs.EphemeralFileSystemRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LeasingIdGeneratorTest
+{
+    @Rule
+    public final EphemeralFileSystemRule fsr = new EphemeralFileSystemRule();
+    private final File file = new File( "ids" );
+
+    @Test
+    public void shouldAllocateIdsFromSeparateLeasesPerThread() throws Exception
+    {
+        // GIVEN
+        IdGeneratorImpl.createGenerator( fsr.get(), file, 0, false );
+        IdGenerator idGenerator = new LeasingIdGenerator( newGenerator( Long.MAX_VALUE ), 10 );
+
+        // WHEN
+        assertEquals( 0, idGenerator.nextId() );
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            Future<Long> otherThreadsId = executor.submit( idGenerator::nextId );
+            assertEquals( 10L, (long) otherThreadsId.get() );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        // THEN
+        assertEquals( 1, idGenerator.nextId() );
+        assertEquals( 20, idGenerator.getHighId() );
+        idGenerator.close();
+    }
+
+    @Test
+    public void shouldFreeUnusedLeasedIdsWhenClosed() throws Exception
+    {
+        // GIVEN
+        IdGeneratorImpl.createGenerator( fsr.get(), file, 0, false );
+        IdGenerator idGenerator = new LeasingIdGenerator( newGenerator( Long.MAX_VALUE ), 10 );
+        for ( int i = 0; i < 3; i++ )
+        {
+            idGenerator.nextId();
+        }
+
+        // WHEN
+        idGenerator.close();
+
+        // THEN
+        IdGenerator reopened = newGenerator( Long.MAX_VALUE );
+        assertEquals( 10, reopened.getHighId() );
+        assertEquals( 7, reopened.getDefragCount() );
+        Set<Long> reused = new HashSet<>();
+        for ( int i = 0; i < 7; i++ )
+        {
+            reused.add( reopened.nextId() );
+        }
+        for ( long id = 3; id < 10; id++ )
+        {
+            assertTrue( reused.contains( id ) );
+        }
+        reopened.close();
+    }
+
+    @Test
+    public void shouldFreeUnusedIdsLeasedByThreadsThatHaveDied() throws Exception
+    {
+        // GIVEN a thread that leased ids, used one of them, and died
+        IdGeneratorImpl.createGenerator( fsr.get(), file, 0, false );
+        IdGenerator idGenerator = new LeasingIdGenerator( newGenerator( Long.MAX_VALUE ), 10 );
+        assertEquals( 0, idInNewThread( idGenerator ) );
+
+        // WHEN another thread takes a lease
+        assertEquals( 10, idInNewThread( idGenerator ) );
+
+        // THEN the ids that the dead thread did not use have been freed
+        assertEquals( 9, idGenerator.getDefragCount() );
+        idGenerator.close();
+    }
+
+    @Test
+    public void shouldAllocateAllIdsUpToMaxIdBeforeThrowing() throws Exception
+    {
+        // GIVEN
+        long maxId = 10;
+        IdGeneratorImpl.createGenerator( fsr.get(), file, 0, false );
+        IdGenerator idGenerator = new LeasingIdGenerator( newGenerator( maxId ), 4 );
+
+        // WHEN
+        Set<Long> ids = new HashSet<>();
+        for ( long i = 0; i <= maxId; i++ )
+        {
+            assertTrue( ids.add( idGenerator.nextId() ) );
+        }
+
+        // THEN
+        try
+        {
+            idGenerator.nextId();
+            fail( "Should have failed" );
+        }
+        catch ( IdCapacityExceededException e )
+        {
+            // good
+        }
+    }
+
+    private static long idInNewThread( IdGenerator idGenerator ) throws InterruptedException
+    {
+        long[] id = new long[1];
+        Thread thread = new Thread( () -> id[0] = idGenerator.nextId() );
+        thread.start();
+        thread.join();
+        return id[0];
+    }
+
+    private IdGenerator newGenerator( long maxId )
+    {
+        return new IdGeneratorImpl( fsr.get(), file, 1024, maxId, false, 0 );
+    }
+}
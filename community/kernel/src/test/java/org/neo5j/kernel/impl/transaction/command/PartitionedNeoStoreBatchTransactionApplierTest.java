@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.transaction.command;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.neo5j.kernel.impl.api.BatchTransactionApplier;
+import org.neo5j.kernel.impl.api.TransactionToApply;
+import org.neo5j.kernel.impl.core.CacheAccessBackDoor;
+import org.neo5j.kernel.impl.locking.LockService;
+import org.neo5j.kernel.impl.store.LabelTokenStore;
+import org.neo5j.kernel.impl.store.NeoStores;
+import org.neo5j.kernel.impl.store.NodeStore;
+import org.neo5j.kernel.impl.store.RelationshipStore;
+import org.neo5j.kernel.impl.store.record.DynamicRecord;
+import org.neo5j.kernel.impl.store.record.LabelTokenRecord;
+import org.neo5j.kernel.impl.store.record.NodeRecord;
+import org.neo5j.kernel.impl.store.record.RelationshipRecord;
+import org.neo5j.kernel.impl.transaction.log.PhysicalTransactionRepresentation;
+import org.neo5j.kernel.impl.util.Neo5jJobScheduler;
+import org.neo5j.storageengine.api.StorageCommand;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.neo5j.kernel.impl.transaction.command.CommandHandlerContract.apply;
+
+public class PartitionedNeoStoreBatchTransactionApplierTest
+{
+    private static final int PARALLELISM = 4;
+
+    private final NeoStores neoStores = mock( NeoStores.class );
+    private final NodeStore nodeStore = mock( NodeStore.class );
+    private final RelationshipStore relationshipStore = mock( RelationshipStore.class );
+    private final LabelTokenStore labelTokenStore = mock( LabelTokenStore.class );
+    private final CacheAccessBackDoor cacheAccess = mock( CacheAccessBackDoor.class );
+    private final LockService lockService = mock( LockService.class );
+    private final Neo5jJobScheduler scheduler = new Neo5jJobScheduler();
+    private final List<Object> appliedRecords = Collections.synchronizedList( new ArrayList<>() );
+
+    @Before
+    public void setUp()
+    {
+        scheduler.init();
+        when( neoStores.getNodeStore() ).thenReturn( nodeStore );
+        when( neoStores.getRelationshipStore() ).thenReturn( relationshipStore );
+        when( neoStores.getLabelTokenStore() ).thenReturn( labelTokenStore );
+        doAnswer( invocation -> appliedRecords.add( invocation.getArguments()[0] ) )
+                .when( nodeStore ).updateRecord( any( NodeRecord.class ) );
+        doAnswer( invocation -> appliedRecords.add( invocation.getArguments()[0] ) )
+                .when( relationshipStore ).updateRecord( any( RelationshipRecord.class ) );
+    }
+
+    @After
+    public void tearDown()
+    {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void shouldApplyChangesToTheSameRecordInCommitOrder() throws Exception
+    {
+        // given
+        BatchTransactionApplier applier = newApplier();
+        List<TransactionToApply> transactions = new ArrayList<>();
+        List<NodeRecord> expectedNodeChanges = new ArrayList<>();
+        for ( int i = 0; i < 100; i++ )
+        {
+            NodeRecord after = new NodeRecord( 7, false, i, -1 );
+            after.setInUse( true );
+            expectedNodeChanges.add( after );
+            RelationshipRecord relationship = new RelationshipRecord( i * 100 );
+            transactions.add( transaction( i, new Command.NodeCommand( new NodeRecord( 7 ), after ),
+                    new Command.RelationshipCommand( relationship, relationship ) ) );
+        }
+
+        // when
+        apply( applier, transactions.toArray( new TransactionToApply[transactions.size()] ) );
+
+        // then
+        assertEquals( 200, appliedRecords.size() );
+        List<Object> nodeChanges = new ArrayList<>( appliedRecords );
+        nodeChanges.removeIf( record -> !(record instanceof NodeRecord) );
+        assertEquals( expectedNodeChanges, nodeChanges );
+    }
+
+    @Test
+    public void shouldApplyCollectedChangesBeforeDynamicRecordIsWrittenByAnotherPartition() throws Exception
+    {
+        // given a node that frees a dynamic label record, which is then reused by a node in another partition
+        BatchTransactionApplier applier = newApplier();
+        DynamicRecord deleted = DynamicRecord.dynamicRecord( 5, false );
+        DynamicRecord reused = DynamicRecord.dynamicRecord( 5, true );
+        NodeRecord first = new NodeRecord( 0 );
+        first.setInUse( true );
+        first.setLabelField( 42, Collections.singletonList( deleted ) );
+        NodeRecord second = new NodeRecord( 64 );
+        second.setInUse( true );
+        second.setLabelField( 43, Collections.singletonList( reused ) );
+
+        // when
+        apply( applier,
+                transaction( 1, new Command.NodeCommand( new NodeRecord( 0 ), first ) ),
+                transaction( 2, new Command.NodeCommand( new NodeRecord( 64 ), second ) ) );
+
+        // then
+        assertThat( appliedRecords, contains( first, second ) );
+    }
+
+    @Test
+    public void shouldApplyCollectedChangesBeforeSecondaryUnitIsWrittenByAnotherPartition() throws Exception
+    {
+        // given a relationship that frees its secondary unit, like high_limit does when the record shrinks, and a
+        // relationship in another partition that then reuses that record slot as its own secondary unit
+        BatchTransactionApplier applier = newApplier();
+        RelationshipRecord before = relationshipWithSecondaryUnit( 0, 200, true );
+        RelationshipRecord first = relationshipWithSecondaryUnit( 0, 200, false );
+        RelationshipRecord second = relationshipWithSecondaryUnit( 64, 200, true );
+
+        // when
+        apply( applier,
+                transaction( 1, new Command.RelationshipCommand( before, first ) ),
+                transaction( 2, new Command.RelationshipCommand( new RelationshipRecord( 64 ), second ) ) );
+
+        // then
+        assertThat( appliedRecords, contains( first, second ) );
+    }
+
+    @Test
+    public void shouldApplyCollectedChangesBeforeSecondaryUnitIsReusedAsPrimaryUnitByAnotherPartition()
+            throws Exception
+    {
+        // given a relationship whose secondary unit is freed, and then reused as the primary unit of another
+        // relationship in another partition
+        BatchTransactionApplier applier = newApplier();
+        RelationshipRecord before = relationshipWithSecondaryUnit( 0, 64, true );
+        RelationshipRecord first = relationshipWithSecondaryUnit( 0, 64, false );
+        RelationshipRecord second = new RelationshipRecord( 64 );
+        second.setInUse( true );
+
+        // when
+        apply( applier,
+                transaction( 1, new Command.RelationshipCommand( before, first ) ),
+                transaction( 2, new Command.RelationshipCommand( new RelationshipRecord( 64 ), second ) ) );
+
+        // then
+        assertThat( appliedRecords, contains( first, second ) );
+    }
+
+    @Test
+    public void shouldApplyCollectedChangesBeforeTrackingSecondaryUnits() throws Exception
+    {
+        // given a relationship written before any secondary unit has been seen, whose record slot is then used as
+        // the secondary unit of a relationship in another partition
+        BatchTransactionApplier applier = newApplier();
+        RelationshipRecord first = new RelationshipRecord( 64 );
+        first.setInUse( true );
+        RelationshipRecord second = relationshipWithSecondaryUnit( 0, 64, true );
+
+        // when
+        apply( applier,
+                transaction( 1, new Command.RelationshipCommand( new RelationshipRecord( 64 ), first ) ),
+                transaction( 2, new Command.RelationshipCommand( new RelationshipRecord( 0 ), second ) ) );
+
+        // then
+        assertThat( appliedRecords, contains( first, second ) );
+    }
+
+    @Test
+    public void shouldApplyTokenCommandsRightAway() throws Exception
+    {
+        // given
+        BatchTransactionApplier applier = newApplier();
+        LabelTokenRecord token = new LabelTokenRecord( 3 );
+        NodeRecord node = new NodeRecord( 1 );
+        TransactionToApply transaction =
+                transaction( 1, new Command.LabelTokenCommand( token, token ), new Command.NodeCommand( node, node ) );
+
+        // when
+        apply( applier, txApplier ->
+        {
+            transaction.transactionRepresentation().accept( txApplier );
+            verify( labelTokenStore ).updateRecord( token );
+            // the node change is applied when the batch is closed
+            assertEquals( 0, appliedRecords.size() );
+            return false;
+        }, transaction );
+
+        // then
+        assertThat( appliedRecords, contains( node ) );
+        verifyZeroInteractions( lockService );
+    }
+
+    private BatchTransactionApplier newApplier()
+    {
+        return new PartitionedNeoStoreBatchTransactionApplier( neoStores, cacheAccess, lockService, scheduler,
+                PARALLELISM );
+    }
+
+    private static RelationshipRecord relationshipWithSecondaryUnit( long id, long secondaryUnitId,
+            boolean requiresSecondaryUnit )
+    {
+        RelationshipRecord record = new RelationshipRecord( id );
+        record.setInUse( true );
+        record.setSecondaryUnitId( secondaryUnitId );
+        record.setRequiresSecondaryUnit( requiresSecondaryUnit );
+        return record;
+    }
+
+    private static TransactionToApply transaction( long txId, StorageCommand... commands )
+    {
+        PhysicalTransactionRepresentation representation =
+                new PhysicalTransactionRepresentation( Arrays.asList( commands ) );
+        representation.setHeader( new byte[0], 0, 0, 0, 0, 0, 0 );
+        return new TransactionToApply( representation, txId );
+    }
+}
@@ -54,6 +54,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyByte;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyLong;
@@ -232,7 +233,8 @@ public class BatchingTransactionAppenderTest
         String failureMessage = "Forces a failure";
         FlushablePositionAwareChannel channel = spy( new InMemoryClosableChannel() );
         IOException failure = new IOException( failureMessage );
-        when( channel.putInt( anyInt() ) ).thenThrow( failure );
+        // The transaction is serialized up front, and then copied into the log channel
+        doThrow( failure ).when( channel ).put( any( byte[].class ), anyInt() );
         when( logFile.getWriter() ).thenReturn( channel );
         when( transactionIdStore.nextCommittingTransactionId() ).thenReturn( txId );
         Mockito.reset( databaseHealth );
@@ -257,6 +259,36 @@ public class BatchingTransactionAppenderTest
         }
     }
 
+    @Test
+    public void shouldNotPanicOrGenerateTransactionIdWhenFailingToSerializeTransaction() throws Exception
+    {
+        // GIVEN
+        InMemoryClosableChannel channel = new InMemoryClosableChannel();
+        when( logFile.getWriter() ).thenReturn( channel );
+        Mockito.reset( databaseHealth );
+        TransactionAppender appender = life.add( new BatchingTransactionAppender( logFile, NO_ROTATION, positionCache,
+                transactionIdStore, BYPASS, databaseHealth ) );
+
+        // WHEN
+        IOException failure = new IOException( "Forces a failure" );
+        TransactionRepresentation transaction = mock( TransactionRepresentation.class );
+        when( transaction.additionalHeader() ).thenReturn( new byte[0] );
+        doThrow( failure ).when( transaction ).accept( any() );
+        try
+        {
+            appender.append( new TransactionToApply( transaction ), logAppendEvent );
+            fail( "Expected append to fail. Something is wrong with the test itself" );
+        }
+        catch ( IOException e )
+        {
+            // THEN nothing has been written to the log, so there's no reason to panic
+            assertSame( failure, e );
+            verify( transactionIdStore, times( 0 ) ).nextCommittingTransactionId();
+            verifyZeroInteractions( databaseHealth );
+            assertEquals( 0, channel.writerPosition() );
+        }
+    }
+
     @Test
     public void shouldNotCallTransactionClosedOnFailedForceLogToDisk() throws Exception
     {
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.transaction.log;
+
+import org.junit.Test;
+
+import org.neo5j.helpers.Format;
+import org.neo5j.logging.AssertableLogProvider;
+
+import static org.neo5j.logging.AssertableLogProvider.inLog;
+
+public class LoggingLogFileMonitorTest
+{
+    private final AssertableLogProvider logProvider = new AssertableLogProvider();
+    private final LoggingLogFileMonitor monitor =
+            new LoggingLogFileMonitor( logProvider.getLog( LoggingLogFileMonitor.class ) );
+
+    @Test
+    public void mustEstimateRemainingRecoveryTimeFromTheRateOfRecoveredBytes() throws Exception
+    {
+        // When a quarter of the log took ten seconds to recover
+        monitor.recoveryProgress( 2000, 250_000, 1_000_000, 10_000 );
+
+        // Then the remaining three quarters take thirty seconds
+        logProvider.assertExactly( inLog( LoggingLogFileMonitor.class ).info(
+                "Recovery in progress. 2000 transactions recovered, 25% of the log, about " +
+                Format.duration( 30_000 ) + " remaining" ) );
+    }
+
+    @Test
+    public void mustNotEstimateRemainingRecoveryTimeBeforeAnyBytesAreRecovered() throws Exception
+    {
+        // When
+        monitor.recoveryProgress( 0, 0, 1_000_000, 10_000 );
+
+        // Then
+        logProvider.assertExactly( inLog( LoggingLogFileMonitor.class ).info(
+                "Recovery in progress. 0 transactions recovered" ) );
+    }
+
+    @Test
+    public void mustNotEstimateRemainingRecoveryTimeWhenTheSizeOfTheLogIsNotKnown() throws Exception
+    {
+        // When
+        monitor.recoveryProgress( 1000, -1, -1, 10_000 );
+
+        // Then
+        logProvider.assertExactly( inLog( LoggingLogFileMonitor.class ).info(
+                "Recovery in progress. 1000 transactions recovered" ) );
+    }
+}
@@ -32,14 +32,20 @@ import org.neo5j.io.fs.StoreChannel;
 import org.neo5j.kernel.impl.transaction.DeadSimpleLogVersionRepository;
 import org.neo5j.kernel.impl.transaction.DeadSimpleTransactionIdStore;
 import org.neo5j.kernel.impl.transaction.log.PhysicalLogFile.Monitor;
+import org.neo5j.kernel.impl.transaction.log.entry.CheckPoint;
 import org.neo5j.kernel.impl.transaction.log.entry.IncompleteLogHeaderException;
+import org.neo5j.kernel.impl.transaction.log.entry.LogEntry;
+import org.neo5j.kernel.impl.transaction.log.entry.LogEntryWriter;
 import org.neo5j.kernel.impl.transaction.log.entry.LogHeader;
+import org.neo5j.kernel.impl.transaction.log.entry.VersionAwareLogEntryReader;
 import org.neo5j.kernel.lifecycle.LifeSupport;
 import org.neo5j.test.rule.TestDirectory;
 import org.neo5j.test.rule.fs.DefaultFileSystemRule;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
@@ -50,6 +56,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.neo5j.kernel.impl.transaction.log.TransactionIdStore.BASE_TX_COMMIT_TIMESTAMP;
+import static org.neo5j.kernel.impl.transaction.log.entry.LogHeader.LOG_HEADER_SIZE;
 import static org.neo5j.kernel.impl.transaction.log.entry.LogHeaderReader.readLogHeader;
 
 public class PhysicalLogFileTest
@@ -297,6 +304,208 @@ public class PhysicalLogFileTest
         }
     }
 
+    @Test
+    public void shouldPreallocateLogFilesAndCutOffTheZerosOnRotationAndShutdown() throws Exception
+    {
+        // GIVEN
+        LifeSupport life = new LifeSupport();
+        FileSystemAbstraction fs = fileSystemRule.get();
+        PhysicalLogFiles logFiles = new PhysicalLogFiles( directory.directory(), "log", fs );
+        PhysicalLogFile logFile = life.add( new PhysicalLogFile( fs, logFiles, 10_000,
+                transactionIdStore::getLastCommittedTransactionId, logVersionRepository, mock( Monitor.class ),
+                new LogHeaderCache( 10 ), true ) );
+        life.start();
+        assertEquals( 10_000, fs.getFileSize( logFiles.getLogFileForVersion( 1 ) ) );
+
+        // WHEN
+        LogPosition endOfFirstLog = writeCheckPoints( logFile, 0, 3 );
+        logFile.rotate();
+
+        // THEN
+        assertEquals( endOfFirstLog.getByteOffset(), fs.getFileSize( logFiles.getLogFileForVersion( 1 ) ) );
+        assertEquals( 10_000, fs.getFileSize( logFiles.getLogFileForVersion( 2 ) ) );
+
+        // WHEN
+        LogPosition endOfSecondLog = writeCheckPoints( logFile, 3, 5 );
+        life.shutdown();
+
+        // THEN
+        assertEquals( endOfSecondLog.getByteOffset(), fs.getFileSize( logFiles.getLogFileForVersion( 2 ) ) );
+    }
+
+    @Test
+    public void shouldAppendAfterTheLastEntryOfPreallocatedLogFileLeftBehindByCrash() throws Exception
+    {
+        // GIVEN a preallocated log file that was never shut down
+        FileSystemAbstraction fs = fileSystemRule.get();
+        PhysicalLogFiles logFiles = new PhysicalLogFiles( directory.directory(), "log", fs );
+        LifeSupport crashedLife = new LifeSupport();
+        PhysicalLogFile crashedLogFile = crashedLife.add( new PhysicalLogFile( fs, logFiles, 10_000,
+                transactionIdStore::getLastCommittedTransactionId, logVersionRepository, mock( Monitor.class ),
+                new LogHeaderCache( 10 ), true ) );
+        crashedLife.start();
+        LogPosition endOfData = writeCheckPoints( crashedLogFile, 0, 3 );
+
+        // WHEN
+        LifeSupport life = new LifeSupport();
+        PhysicalLogFile logFile = life.add( new PhysicalLogFile( fs, logFiles, 10_000,
+                transactionIdStore::getLastCommittedTransactionId, logVersionRepository, mock( Monitor.class ),
+                new LogHeaderCache( 10 ), true ) );
+        life.start();
+        try
+        {
+            LogPositionMarker marker = new LogPositionMarker();
+            logFile.getWriter().getCurrentPosition( marker );
+            assertEquals( endOfData, marker.newPosition() );
+            writeCheckPoints( logFile, 3, 4 );
+
+            // THEN
+            try ( ReadableLogChannel reader = logFile.getReader( new LogPosition( 1, LOG_HEADER_SIZE ) ) )
+            {
+                VersionAwareLogEntryReader<ReadableLogChannel> entryReader = new VersionAwareLogEntryReader<>();
+                for ( int i = 0; i < 4; i++ )
+                {
+                    LogEntry entry = entryReader.readLogEntry( reader );
+                    assertEquals( new LogPosition( 1, i ), entry.<CheckPoint>as().getLogPosition() );
+                }
+                assertNull( entryReader.readLogEntry( reader ) );
+            }
+        }
+        finally
+        {
+            life.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldZeroEverythingAfterTheLastEntryOfAPreallocatedLogFileLeftBehindByCrash() throws Exception
+    {
+        // GIVEN a preallocated log file that was never shut down, with bytes after its last entry
+        FileSystemAbstraction fs = fileSystemRule.get();
+        PhysicalLogFiles logFiles = new PhysicalLogFiles( directory.directory(), "log", fs );
+        LifeSupport crashedLife = new LifeSupport();
+        PhysicalLogFile crashedLogFile = crashedLife.add( new PhysicalLogFile( fs, logFiles, 10_000,
+                transactionIdStore::getLastCommittedTransactionId, logVersionRepository, mock( Monitor.class ),
+                new LogHeaderCache( 10 ), true ) );
+        crashedLife.start();
+        LogPosition endOfData = writeCheckPoints( crashedLogFile, 0, 3 );
+        File file = logFiles.getLogFileForVersion( 1 );
+        try ( StoreChannel channel = fs.open( file, "rw" ) )
+        {
+            channel.position( 9_000 );
+            channel.writeAll( ByteBuffer.wrap( someBytes( 100 ) ) );
+        }
+
+        // WHEN
+        LifeSupport life = new LifeSupport();
+        life.add( new PhysicalLogFile( fs, logFiles, 10_000, transactionIdStore::getLastCommittedTransactionId,
+                logVersionRepository, mock( Monitor.class ), new LogHeaderCache( 10 ), true ) );
+        life.start();
+
+        // THEN
+        try ( StoreChannel channel = fs.open( file, "r" ) )
+        {
+            assertEquals( 10_000, channel.size() );
+            ByteBuffer afterData = ByteBuffer.allocate( (int) (10_000 - endOfData.getByteOffset()) );
+            channel.position( endOfData.getByteOffset() );
+            while ( afterData.hasRemaining() && channel.read( afterData ) > 0 )
+            {
+                // read up to the end of the file
+            }
+            assertArrayEquals( new byte[afterData.capacity()], afterData.array() );
+        }
+        finally
+        {
+            life.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldNotSearchLogFilesThatWereNeverPreallocatedForTheirLastEntry() throws Exception
+    {
+        // GIVEN a log file that ends in a zero, after bytes that can not be read as log entries
+        FileSystemAbstraction fs = fileSystemRule.get();
+        PhysicalLogFiles logFiles = new PhysicalLogFiles( directory.directory(), "log", fs );
+        LifeSupport firstLife = new LifeSupport();
+        firstLife.add( new PhysicalLogFile( fs, logFiles, 10_000, transactionIdStore::getLastCommittedTransactionId,
+                logVersionRepository, mock( Monitor.class ), new LogHeaderCache( 10 ) ) );
+        firstLife.start();
+        firstLife.shutdown();
+        File file = logFiles.getLogFileForVersion( 1 );
+        try ( StoreChannel channel = fs.open( file, "rw" ) )
+        {
+            channel.position( channel.size() );
+            channel.writeAll( ByteBuffer.wrap( new byte[]{1, 2, 3, 0} ) );
+        }
+        long size = fs.getFileSize( file );
+
+        // WHEN
+        LifeSupport life = new LifeSupport();
+        PhysicalLogFile logFile = life.add( new PhysicalLogFile( fs, logFiles, 10_000,
+                transactionIdStore::getLastCommittedTransactionId, logVersionRepository, mock( Monitor.class ),
+                new LogHeaderCache( 10 ) ) );
+        life.start();
+
+        // THEN
+        try
+        {
+            LogPositionMarker marker = new LogPositionMarker();
+            logFile.getWriter().getCurrentPosition( marker );
+            assertEquals( size, marker.newPosition().getByteOffset() );
+        }
+        finally
+        {
+            life.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldNotSeeEntriesInPreallocatedLogFileWithoutAny() throws Exception
+    {
+        // GIVEN
+        FileSystemAbstraction fs = fileSystemRule.get();
+        PhysicalLogFiles logFiles = new PhysicalLogFiles( directory.directory(), "log", fs );
+        LifeSupport life = new LifeSupport();
+        PhysicalLogFile logFile = life.add( new PhysicalLogFile( fs, logFiles, 10_000,
+                transactionIdStore::getLastCommittedTransactionId, logVersionRepository, mock( Monitor.class ),
+                new LogHeaderCache( 10 ), true ) );
+        life.start();
+        try
+        {
+            // THEN
+            assertFalse( logFiles.hasAnyEntries( 1 ) );
+
+            // WHEN
+            writeCheckPoints( logFile, 0, 1 );
+
+            // THEN
+            assertTrue( logFiles.hasAnyEntries( 1 ) );
+        }
+        finally
+        {
+            life.shutdown();
+        }
+    }
+
+    /**
+     * Writes check points to positions {@code first} up to {@code end} in log version 1, as recognizable entries.
+     *
+     * @return the position after the written check points.
+     */
+    private LogPosition writeCheckPoints( LogFile logFile, int first, int end ) throws IOException
+    {
+        FlushablePositionAwareChannel writer = logFile.getWriter();
+        LogEntryWriter entryWriter = new LogEntryWriter( writer );
+        for ( int i = first; i < end; i++ )
+        {
+            entryWriter.writeCheckPointEntry( new LogPosition( 1, i ) );
+        }
+        writer.prepareForFlush().flush();
+        LogPositionMarker marker = new LogPositionMarker();
+        writer.getCurrentPosition( marker );
+        return marker.newPosition();
+    }
+
     private byte[] readBytes( ReadableClosableChannel reader, int length ) throws IOException
     {
         byte[] result = new byte[length];
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.transaction.log;
+
+import org.junit.Test;
+
+import org.neo5j.io.ByteUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SerializedTransactionChannelTest
+{
+    private final SerializedTransactionChannel channel = new SerializedTransactionChannel( ByteUnit.mebiBytes( 1 ) );
+
+    @Test
+    public void mustWriteValuesThatSpanManyChunksInOrder() throws Exception
+    {
+        // Given
+        byte[] bytes = bytes( (int) ByteUnit.mebiBytes( 3 ) );
+        int longs = (int) ByteUnit.kibiBytes( 200 );
+        for ( int i = 0; i < longs; i++ )
+        {
+            channel.putLong( i );
+            channel.put( (byte) i );
+        }
+        channel.put( bytes, bytes.length );
+        channel.putInt( 42 );
+
+        // When
+        InMemoryClosableChannel log = new InMemoryClosableChannel( longs * 9 + bytes.length + 4 );
+        channel.writeTo( log );
+
+        // Then
+        for ( int i = 0; i < longs; i++ )
+        {
+            assertEquals( i, log.getLong() );
+            assertEquals( (byte) i, log.get() );
+        }
+        byte[] read = new byte[bytes.length];
+        log.get( read, read.length );
+        assertArrayEquals( bytes, read );
+        assertEquals( 42, log.getInt() );
+    }
+
+    @Test
+    public void mustBeEmptyAfterWritingToTheLog() throws Exception
+    {
+        // Given
+        byte[] bytes = bytes( (int) ByteUnit.mebiBytes( 2 ) );
+        channel.put( bytes, bytes.length );
+        channel.writeTo( new InMemoryClosableChannel( bytes.length ) );
+
+        // When
+        channel.putLong( 7 );
+        InMemoryClosableChannel log = new InMemoryClosableChannel( 8 );
+        channel.writeTo( log );
+
+        // Then
+        assertEquals( 7, log.getLong() );
+        assertEquals( 8, log.writerPosition() );
+    }
+
+    @Test
+    public void mustReleaseChunksBeyondItsRetainedCapacity() throws Exception
+    {
+        // Given
+        byte[] bytes = bytes( (int) ByteUnit.mebiBytes( 8 ) );
+        channel.put( bytes, bytes.length );
+        assertTrue( channel.capacity() >= bytes.length );
+
+        // When
+        channel.writeTo( new InMemoryClosableChannel( bytes.length ) );
+
+        // Then
+        assertTrue( channel.capacity() <= ByteUnit.mebiBytes( 1 ) );
+    }
+
+    @Test
+    public void mustKeepOnlyTheFirstChunkWhenNothingElseIsRetained() throws Exception
+    {
+        // Given
+        SerializedTransactionChannel channel = new SerializedTransactionChannel( 0 );
+        long initialCapacity = channel.capacity();
+        byte[] bytes = bytes( (int) ByteUnit.kibiBytes( 100 ) );
+        channel.put( bytes, bytes.length );
+
+        // When
+        channel.writeTo( new InMemoryClosableChannel( bytes.length ) );
+
+        // Then
+        assertEquals( initialCapacity, channel.capacity() );
+        channel.putLong( 7 );
+        InMemoryClosableChannel log = new InMemoryClosableChannel( 8 );
+        channel.writeTo( log );
+        assertEquals( 7, log.getLong() );
+    }
+
+    private static byte[] bytes( int length )
+    {
+        byte[] bytes = new byte[length];
+        for ( int i = 0; i < length; i++ )
+        {
+            bytes[i] = (byte) (i * 31);
+        }
+        return bytes;
+    }
+}
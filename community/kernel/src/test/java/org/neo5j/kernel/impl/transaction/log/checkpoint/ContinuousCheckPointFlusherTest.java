@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.transaction.log.checkpoint;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.neo5j.io.pagecache.IOLimiter;
+import org.neo5j.io.pagecache.PageCache;
+import org.neo5j.io.pagecache.PagedFile;
+import org.neo5j.kernel.impl.transaction.log.TransactionIdStore;
+import org.neo5j.logging.NullLog;
+import org.neo5j.test.OnDemandJobScheduler;
+import org.neo5j.time.Clocks;
+import org.neo5j.time.FakeClock;
+
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ContinuousCheckPointFlusherTest
+{
+    private final PageCache pageCache = mock( PageCache.class );
+    private final PagedFile fileA = mock( PagedFile.class );
+    private final PagedFile fileB = mock( PagedFile.class );
+    private final TransactionIdStore transactionIdStore = mock( TransactionIdStore.class );
+    private final CheckPointer checkPointer = mock( CheckPointer.class );
+    private final IOLimiter limiter = IOLimiter.unlimited();
+    private final OnDemandJobScheduler jobScheduler = new OnDemandJobScheduler();
+    private final FakeClock clock = Clocks.fakeClock();
+    private ContinuousCheckPointFlusher flusher;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        when( pageCache.listExistingMappings() ).thenAnswer( invocation -> Arrays.asList( fileA, fileB ) );
+        when( fileA.getLastPageId() ).thenReturn( 59L );
+        when( fileB.getLastPageId() ).thenReturn( 39L );
+        when( transactionIdStore.getLastClosedTransactionId() ).thenReturn( 10L );
+        when( checkPointer.lastCheckPointedTransactionId() ).thenReturn( 10L );
+        flusher = new ContinuousCheckPointFlusher( pageCache, transactionIdStore, checkPointer, limiter, jobScheduler,
+                clock, NullLog.getInstance(), 100, TimeUnit.MINUTES.toMillis( 10 ) );
+        flusher.start();
+    }
+
+    @Test
+    public void shouldScheduleRecurringFlushOnStart() throws Exception
+    {
+        assertNotNull( jobScheduler.getJob() );
+    }
+
+    @Test
+    public void shouldNotFlushAnythingBeforeAnyProgressTowardsTheNextCheckPoint() throws Exception
+    {
+        flusher.flushIncrementally();
+
+        verify( fileA, never() ).flushDirtyPages( anyLong(), anyLong(), same( limiter ) );
+        verify( fileB, never() ).flushDirtyPages( anyLong(), anyLong(), same( limiter ) );
+    }
+
+    @Test
+    public void shouldSweepPagesInProportionToTheTransactionsSinceTheLastCheckPoint() throws Exception
+    {
+        // 100 pages in total, and we are 30% of the way to the tx threshold
+        when( transactionIdStore.getLastClosedTransactionId() ).thenReturn( 40L );
+        flusher.flushIncrementally();
+        verify( fileA ).flushDirtyPages( 0, 30, limiter );
+
+        // 80% of the way, so we sweep on into the next file
+        when( transactionIdStore.getLastClosedTransactionId() ).thenReturn( 90L );
+        flusher.flushIncrementally();
+        verify( fileA ).flushDirtyPages( 30, 30, limiter );
+        verify( fileB ).flushDirtyPages( 0, 20, limiter );
+    }
+
+    @Test
+    public void shouldSweepPagesInProportionToTheTimeSinceTheLastCheckPoint() throws Exception
+    {
+        clock.forward( 5, TimeUnit.MINUTES );
+        flusher.flushIncrementally();
+        verify( fileA ).flushDirtyPages( 0, 50, limiter );
+    }
+
+    @Test
+    public void shouldStartNewSweepWhereTheLastOneLeftOffAfterCheckPoint() throws Exception
+    {
+        when( transactionIdStore.getLastClosedTransactionId() ).thenReturn( 50L );
+        flusher.flushIncrementally();
+        verify( fileA ).flushDirtyPages( 0, 40, limiter );
+
+        when( checkPointer.lastCheckPointedTransactionId() ).thenReturn( 50L );
+        when( transactionIdStore.getLastClosedTransactionId() ).thenReturn( 80L );
+        flusher.flushIncrementally();
+        verify( fileA ).flushDirtyPages( 40, 20, limiter );
+        verify( fileB ).flushDirtyPages( 0, 10, limiter );
+    }
+
+    @Test
+    public void shouldSweepEachPageAtMostOncePerRun() throws Exception
+    {
+        when( transactionIdStore.getLastClosedTransactionId() ).thenReturn( 1000L );
+        flusher.flushIncrementally();
+        verify( fileA ).flushDirtyPages( 0, 60, limiter );
+        verify( fileB ).flushDirtyPages( 0, 40, limiter );
+
+        flusher.flushIncrementally();
+        verify( fileA, times( 1 ) ).flushDirtyPages( anyLong(), anyLong(), same( limiter ) );
+        verify( fileB, times( 1 ) ).flushDirtyPages( anyLong(), anyLong(), same( limiter ) );
+    }
+}
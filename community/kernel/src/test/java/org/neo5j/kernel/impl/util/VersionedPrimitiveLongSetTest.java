@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.util;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.neo5j.collection.primitive.PrimitiveLongIterator;
+import org.neo5j.kernel.api.memory.MemoryTracker;
+import org.neo5j.kernel.impl.util.collection.OffHeapCollectionsFactory;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.neo5j.collection.primitive.PrimitiveLongCollections.asArray;
+import static org.neo5j.collection.primitive.PrimitiveLongCollections.count;
+
+public class VersionedPrimitiveLongSetTest
+{
+    @Test
+    public void shouldAddRemoveAndContain() throws Exception
+    {
+        // Given
+        VersionedPrimitiveLongSet set = new VersionedPrimitiveLongSet();
+
+        // When
+        assertTrue( set.add( 22 ) );
+        assertFalse( set.add( 22 ) );
+
+        // Then
+        assertTrue( set.contains( 22 ) );
+        assertFalse( set.contains( 21 ) );
+        assertTrue( set.contains( (Object) 22L ) );
+        assertThat( set.size(), equalTo( 1 ) );
+
+        // When
+        assertTrue( set.remove( 22 ) );
+        assertFalse( set.remove( 22 ) );
+
+        // Then
+        assertFalse( set.contains( 22 ) );
+        assertTrue( set.isEmpty() );
+    }
+
+    @Test
+    public void shouldNotSeeAdditionsWhileIterating() throws Exception
+    {
+        for ( int size : new int[] {3, 100} )
+        {
+            // Given
+            VersionedPrimitiveLongSet set = new VersionedPrimitiveLongSet();
+            for ( long i = 0; i < size; i++ )
+            {
+                set.add( i );
+            }
+
+            // When
+            int count = 0;
+            long next = 1000;
+            PrimitiveLongIterator iterator = set.longIterator();
+            while ( iterator.hasNext() )
+            {
+                iterator.next();
+                set.add( next++ );
+                count++;
+            }
+
+            // Then
+            assertThat( count, equalTo( size ) );
+            assertThat( set.size(), equalTo( size * 2 ) );
+        }
+    }
+
+    @Test
+    public void shouldNotSeeRemovalsWhileIterating() throws Exception
+    {
+        for ( int size : new int[] {4, 100} )
+        {
+            // Given
+            VersionedPrimitiveLongSet set = new VersionedPrimitiveLongSet();
+            for ( long i = 0; i < size; i++ )
+            {
+                set.add( i );
+            }
+
+            // When
+            int count = 0;
+            PrimitiveLongIterator iterator = set.longIterator();
+            while ( iterator.hasNext() )
+            {
+                set.remove( iterator.next() + 1 );
+                count++;
+            }
+
+            // Then
+            assertThat( count, equalTo( size / 2 ) );
+        }
+    }
+
+    @Test
+    public void shouldKeepIteratingThroughCompactions() throws Exception
+    {
+        // Given
+        VersionedPrimitiveLongSet set = new VersionedPrimitiveLongSet();
+        for ( long i = 0; i < 64; i++ )
+        {
+            set.add( i );
+        }
+        PrimitiveLongIterator iterator = set.longIterator();
+
+        // When
+        for ( long i = 0; i < 48; i++ )
+        {
+            set.remove( i );
+        }
+        for ( long i = 100; i < 200; i++ )
+        {
+            set.add( i );
+        }
+
+        // Then
+        assertThat( asArray( iterator ), equalTo( new long[] {48, 49, 50, 51, 52, 53, 54, 55, 56, 57, 58, 59, 60, 61,
+                62, 63} ) );
+        assertThat( count( set.longIterator() ), equalTo( 116 ) );
+    }
+
+    @Test
+    public void shouldBehaveLikeASet() throws Exception
+    {
+        shouldBehaveLikeASet( new VersionedPrimitiveLongSet(), 100 );
+    }
+
+    @Test
+    public void shouldBehaveLikeASetWhenKeptInNativeMemory() throws Exception
+    {
+        OffHeapCollectionsFactory collectionsFactory = new OffHeapCollectionsFactory( Long.MAX_VALUE, MemoryTracker.NONE );
+        try
+        {
+            shouldBehaveLikeASet( collectionsFactory.newLongSet(), 10_000 );
+            assertThat( collectionsFactory.usedNativeMemory(), greaterThan( 0L ) );
+        }
+        finally
+        {
+            collectionsFactory.release();
+        }
+    }
+
+    private void shouldBehaveLikeASet( VersionedPrimitiveLongSet set, int elements )
+    {
+        // Given
+        Random random = new Random();
+        Set<Long> expected = new HashSet<>();
+
+        for ( int i = 0; i < 100_000; i++ )
+        {
+            // When
+            long element = random.nextInt( elements );
+            if ( random.nextInt( 3 ) != 0 )
+            {
+                assertThat( set.add( element ), equalTo( expected.add( element ) ) );
+            }
+            else
+            {
+                assertThat( set.remove( element ), equalTo( expected.remove( element ) ) );
+            }
+
+            // Then
+            assertThat( set.size(), equalTo( expected.size() ) );
+        }
+        assertThat( set, equalTo( expected ) );
+        assertThat( count( set.longIterator() ), equalTo( expected.size() ) );
+    }
+}
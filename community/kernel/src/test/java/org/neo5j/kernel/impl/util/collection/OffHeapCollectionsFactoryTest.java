@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.util.collection;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo5j.collection.primitive.PrimitiveLongIterator;
+import org.neo5j.kernel.api.exceptions.Status;
+import org.neo5j.kernel.api.memory.MemoryLimitExceededException;
+import org.neo5j.kernel.api.memory.MemoryTracker;
+import org.neo5j.kernel.impl.api.memory.TransactionMemoryPool;
+import org.neo5j.kernel.impl.util.VersionedPrimitiveLongSet;
+import org.neo5j.unsafe.impl.batchimport.cache.IntArray;
+import org.neo5j.unsafe.impl.batchimport.cache.LongArray;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class OffHeapCollectionsFactoryTest
+{
+    @Test
+    public void shouldKeepSmallArraysOnHeap() throws Exception
+    {
+        // Given
+        OffHeapCollectionsFactory factory = new OffHeapCollectionsFactory( Long.MAX_VALUE, MemoryTracker.NONE );
+
+        // When
+        factory.newLongArray( 16 );
+        factory.newIntArray( 32, -1 );
+
+        // Then
+        assertThat( factory.usedNativeMemory(), equalTo( 0L ) );
+    }
+
+    @Test
+    public void shouldTrackNativeMemoryOfLargeArrays() throws Exception
+    {
+        // Given
+        OffHeapCollectionsFactory factory = new OffHeapCollectionsFactory( Long.MAX_VALUE, MemoryTracker.NONE );
+
+        // When
+        LongArray longs = factory.newLongArray( 4096 );
+        IntArray ints = factory.newIntArray( 8192, -1 );
+
+        // Then
+        assertThat( ints.get( 8191 ), equalTo( -1 ) );
+        assertThat( factory.usedNativeMemory(), equalTo( 4096 * 8L + 8192 * 4L ) );
+
+        // When
+        factory.free( longs );
+
+        // Then
+        assertThat( factory.usedNativeMemory(), equalTo( 8192 * 4L ) );
+
+        // When
+        factory.release();
+
+        // Then
+        assertThat( factory.usedNativeMemory(), equalTo( 0L ) );
+    }
+
+    @Test
+    public void shouldFailWhenUsingMoreNativeMemoryThanAllowed() throws Exception
+    {
+        // Given
+        List<Status> reported = new ArrayList<>();
+        MemoryTracker tracker = new TransactionMemoryPool( 0, 0 ).newTracker( reported::add );
+        OffHeapCollectionsFactory factory = new OffHeapCollectionsFactory( 1024 * 1024, tracker );
+        factory.newLongArray( 1024 * 1024 / 8 );
+
+        try
+        {
+            // When
+            factory.newLongArray( 1024 );
+            fail( "Should have failed" );
+        }
+        catch ( MemoryLimitExceededException e )
+        {
+            // Then
+            assertThat( e.status(), equalTo( Status.Transaction.TransactionMemoryLimitExceeded ) );
+            assertThat( factory.usedNativeMemory(), equalTo( 1024 * 1024L ) );
+            assertThat( reported, equalTo( singletonList( Status.Transaction.TransactionMemoryLimitExceeded ) ) );
+        }
+        finally
+        {
+            factory.release();
+        }
+    }
+
+    @Test
+    public void shouldFreeReplacedSlotsOnceTheIteratorsReadingThemAreExhausted() throws Exception
+    {
+        // Given a set with an iterator over slots that are then replaced by bigger ones
+        OffHeapCollectionsFactory factory = new OffHeapCollectionsFactory( Long.MAX_VALUE, MemoryTracker.NONE );
+        VersionedPrimitiveLongSet set = factory.newLongSet();
+        for ( long i = 0; i < 2048; i++ )
+        {
+            set.add( i );
+        }
+        PrimitiveLongIterator iterator = set.longIterator();
+        set.add( 2048 );
+        long usedWithReplacedSlots = factory.usedNativeMemory();
+
+        // When
+        int seen = 0;
+        while ( iterator.hasNext() )
+        {
+            iterator.next();
+            seen++;
+        }
+
+        // Then
+        assertThat( seen, equalTo( 2048 ) );
+        assertThat( factory.usedNativeMemory(), equalTo( usedWithReplacedSlots - 2048 * 8L ) );
+        factory.release();
+    }
+
+    @Test
+    public void shouldRefuseToUseSetsAfterRelease() throws Exception
+    {
+        // Given
+        OffHeapCollectionsFactory factory = new OffHeapCollectionsFactory( Long.MAX_VALUE, MemoryTracker.NONE );
+        VersionedPrimitiveLongSet set = factory.newLongSet();
+        for ( long i = 0; i < 2048; i++ )
+        {
+            set.add( i );
+        }
+        PrimitiveLongIterator iterator = set.longIterator();
+
+        // When
+        factory.release();
+
+        // Then
+        try
+        {
+            iterator.hasNext();
+            fail( "Should have failed" );
+        }
+        catch ( IllegalStateException e )
+        {
+            // good
+        }
+        try
+        {
+            set.contains( 1 );
+            fail( "Should have failed" );
+        }
+        catch ( IllegalStateException e )
+        {
+            // good
+        }
+        try
+        {
+            factory.newLongArray( 4096 );
+            fail( "Should have failed" );
+        }
+        catch ( IllegalStateException e )
+        {
+            // good
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.recovery;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.neo5j.helpers.collection.Visitor;
+import org.neo5j.kernel.impl.transaction.CommittedTransactionRepresentation;
+import org.neo5j.kernel.impl.transaction.log.LogPosition;
+import org.neo5j.kernel.impl.transaction.log.TransactionCursor;
+import org.neo5j.kernel.impl.transaction.log.entry.OnePhaseCommit;
+import org.neo5j.time.Clocks;
+import org.neo5j.time.FakeClock;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class RecoveryProgressTest
+{
+    private static final int BYTES_PER_TRANSACTION = 100;
+
+    private final FakeClock clock = Clocks.fakeClock();
+    private final List<long[]> reports = new ArrayList<>();
+    private final Recovery.Monitor monitor = new Recovery.Monitor()
+    {
+        @Override
+        public void recoveryProgress( long recoveredTransactions, long recoveredBytes, long bytesToRecover,
+                long elapsedMillis )
+        {
+            reports.add( new long[]{recoveredTransactions, recoveredBytes, bytesToRecover, elapsedMillis} );
+        }
+    };
+
+    @Test
+    public void mustReportProgressEveryTenSeconds() throws Throwable
+    {
+        // Given five milliseconds per transaction, ten seconds pass for every 2000 transactions
+        Recovery recovery = new Recovery( new TransactionsSpi( 7000, 5, true ), monitor, clock );
+
+        // When
+        recovery.init();
+
+        // Then
+        assertEquals( 3, reports.size() );
+        assertArrayEquals( new long[]{2000, 200_000, 700_000, 10_000}, reports.get( 0 ) );
+        assertArrayEquals( new long[]{4000, 400_000, 700_000, 20_000}, reports.get( 1 ) );
+        assertArrayEquals( new long[]{6000, 600_000, 700_000, 30_000}, reports.get( 2 ) );
+    }
+
+    @Test
+    public void mustNotReportProgressOfRecoveriesShorterThanTenSeconds() throws Throwable
+    {
+        // Given
+        Recovery recovery = new Recovery( new TransactionsSpi( 5000, 1, true ), monitor, clock );
+
+        // When
+        recovery.init();
+
+        // Then
+        assertEquals( 0, reports.size() );
+    }
+
+    @Test
+    public void mustReportUnknownBytesWhenTheSizeOfTheLogIsNotKnown() throws Throwable
+    {
+        // Given
+        Recovery recovery = new Recovery( new TransactionsSpi( 3000, 10, false ), monitor, clock );
+
+        // When
+        recovery.init();
+
+        // Then
+        assertEquals( 3, reports.size() );
+        assertArrayEquals( new long[]{1000, -1, -1, 10_000}, reports.get( 0 ) );
+        assertArrayEquals( new long[]{3000, -1, -1, 30_000}, reports.get( 2 ) );
+    }
+
+    /**
+     * Recovers the given number of transactions, of {@link #BYTES_PER_TRANSACTION} bytes each, moving the clock
+     * forward by the given number of milliseconds for each of them.
+     */
+    private class TransactionsSpi implements Recovery.SPI
+    {
+        private final int transactions;
+        private final long millisPerTransaction;
+        private final boolean knowsLogSize;
+
+        TransactionsSpi( int transactions, long millisPerTransaction, boolean knowsLogSize )
+        {
+            this.transactions = transactions;
+            this.millisPerTransaction = millisPerTransaction;
+            this.knowsLogSize = knowsLogSize;
+        }
+
+        @Override
+        public void forceEverything()
+        {
+        }
+
+        @Override
+        public TransactionCursor getTransactions( LogPosition position ) throws IOException
+        {
+            return new TransactionCursor()
+            {
+                private int recovered;
+
+                @Override
+                public LogPosition position()
+                {
+                    return new LogPosition( 0, recovered * (long) BYTES_PER_TRANSACTION );
+                }
+
+                @Override
+                public boolean next() throws IOException
+                {
+                    if ( recovered == transactions )
+                    {
+                        return false;
+                    }
+                    recovered++;
+                    clock.forward( millisPerTransaction, TimeUnit.MILLISECONDS );
+                    return true;
+                }
+
+                @Override
+                public CommittedTransactionRepresentation get()
+                {
+                    return new CommittedTransactionRepresentation( null, null, new OnePhaseCommit( recovered, 0 ) );
+                }
+
+                @Override
+                public void close() throws IOException
+                {
+                }
+            };
+        }
+
+        @Override
+        public LogPosition getPositionToRecoverFrom() throws IOException
+        {
+            return new LogPosition( 0, 0 );
+        }
+
+        @Override
+        public Visitor<CommittedTransactionRepresentation,Exception> startRecovery()
+        {
+            return transaction -> false;
+        }
+
+        @Override
+        public void allTransactionsRecovered( CommittedTransactionRepresentation lastRecoveredTransaction,
+                LogPosition positionAfterLastRecoveredTransaction ) throws Exception
+        {
+        }
+
+        @Override
+        public long getLogBytesFrom( LogPosition position ) throws IOException
+        {
+            return knowsLogSize ? transactions * (long) BYTES_PER_TRANSACTION - position.getByteOffset() : -1;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.unsafe.impl.internal.dragons;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ * Describes if, and how, the {@link MemoryManager} should back the memory it allocates with huge pages.
+ * <p>
+ * Large page caches spend a lot of time on TLB misses when their memory is mapped with ordinary 4 KiB pages. With
+ * {@link #transparent() transparent huge pages}, the memory manager grabs its memory in large slabs that are aligned
+ * to the huge page size, such that the operating system can back them with huge pages when transparent huge pages are
+ * enabled for the process. With {@link #hugetlbfs(File) hugetlbfs}, the slabs are instead memory mapped from files in
+ * a hugetlbfs mount, which are always backed by huge pages, and which are reserved up front.
+ * <p>
+ * NUMA placement of the memory follows the memory policy of the process, e.g. as given by
+ * {@code numactl --interleave=all}, for all of these modes.
+ */
+public final class HugePages
+{
+    /**
+     * The size of the huge pages, in bytes. This is read from {@code /proc/meminfo} when available, and otherwise
+     * defaults to 2 MiB.
+     */
+    public static final long HUGE_PAGE_SIZE = FeatureToggles.getLong( HugePages.class, "HUGE_PAGE_SIZE",
+            detectHugePageSize() );
+
+    /**
+     * The amount of memory, in bytes, that the memory manager grabs in each slab when huge pages are used.
+     */
+    static final long GRAB_SIZE = FeatureToggles.getLong( HugePages.class, "GRAB_SIZE", 1024 * 1024 * 1024 ); // 1 GiB
+
+    private static final HugePages DISABLED = new HugePages( false, null );
+    private static final HugePages TRANSPARENT = new HugePages( true, null );
+
+    private final boolean enabled;
+    private final File hugetlbfsDirectory;
+
+    private HugePages( boolean enabled, File hugetlbfsDirectory )
+    {
+        this.enabled = enabled;
+        this.hugetlbfsDirectory = hugetlbfsDirectory;
+    }
+
+    /**
+     * @return A mode where memory is allocated with ordinary page alignment, in small slabs.
+     */
+    public static HugePages disabled()
+    {
+        return DISABLED;
+    }
+
+    /**
+     * @return A mode where memory is allocated in large slabs that are aligned to the huge page size.
+     */
+    public static HugePages transparent()
+    {
+        return TRANSPARENT;
+    }
+
+    /**
+     * @param directory A directory in a mounted hugetlbfs file system.
+     * @return A mode where memory is allocated in large slabs that are memory mapped from the given directory.
+     */
+    public static HugePages hugetlbfs( File directory )
+    {
+        if ( !directory.isDirectory() )
+        {
+            throw new IllegalArgumentException( "The hugetlbfs directory " + directory + " does not exist." );
+        }
+        return new HugePages( true, directory );
+    }
+
+    boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    File hugetlbfsDirectory()
+    {
+        return hugetlbfsDirectory;
+    }
+
+    static long alignToHugePage( long size )
+    {
+        return (size + HUGE_PAGE_SIZE - 1) & -HUGE_PAGE_SIZE;
+    }
+
+    private static long detectHugePageSize()
+    {
+        long defaultSize = 2 * 1024 * 1024;
+        File meminfo = new File( "/proc/meminfo" );
+        if ( !meminfo.canRead() )
+        {
+            return defaultSize;
+        }
+        try ( BufferedReader reader = new BufferedReader( new FileReader( meminfo ) ) )
+        {
+            String line;
+            while ( (line = reader.readLine()) != null )
+            {
+                if ( line.startsWith( "Hugepagesize:" ) )
+                {
+                    String[] parts = line.substring( "Hugepagesize:".length() ).trim().split( "\\s+" );
+                    long size = Long.parseLong( parts[0] ) * 1024; // The size is given in kB.
+                    return Long.bitCount( size ) == 1 ? size : defaultSize;
+                }
+            }
+        }
+        catch ( IOException | RuntimeException ignore )
+        {
+            // We will go with the default.
+        }
+        return defaultSize;
+    }
+
+    @Override
+    public String toString()
+    {
+        return !enabled ? "HugePages[disabled]" :
+               hugetlbfsDirectory == null ? "HugePages[transparent]" : "HugePages[hugetlbfs=" + hugetlbfsDirectory + "]";
+    }
+}
@@ -19,11 +19,18 @@
  */
 package org.neo5j.unsafe.impl.internal.dragons;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
 /**
  * The memory manager is simple: it only allocates memory, until it itself is finalizable and frees it all in one go.
  *
  * The memory is allocated in large segments, and the memory returned by the memory manager is page aligned, and plays
- * well with transparent huge pages and other operating system optimisations.
+ * well with transparent huge pages and other operating system optimisations. The memory can also be explicitly backed by
+ * huge pages, as described by {@link HugePages}.
  *
  * The memory manager assumes that the memory claimed from it is evenly divisible in units of pages.
  */
@@ -39,6 +46,8 @@ public final class MemoryManager
      */
     private long memoryReserve;
     private final long alignment;
+    private final HugePages hugePages;
+    private final long grabSize;
 
     private Slab slabs;
 
@@ -50,9 +59,24 @@ public final class MemoryManager
      * @param alignment The byte multiple that the allocated pointers have to be aligned at.
      */
     public MemoryManager( long expectedMaxMemory, long alignment )
+    {
+        this( expectedMaxMemory, alignment, HugePages.disabled() );
+    }
+
+    /**
+     * Create a new MemoryManager that will allocate the given amount of memory, to pointers that are aligned to the
+     * given alignment size, in slabs that are backed by huge pages as described by the given {@link HugePages}.
+     * @param expectedMaxMemory The maximum amount of memory that this memory manager is expected to allocate. The
+     * actual amount of memory used can end up greater than this value, if some of it gets wasted on alignment padding.
+     * @param alignment The byte multiple that the allocated pointers have to be aligned at.
+     * @param hugePages Whether, and how, the allocated memory should be backed by huge pages.
+     */
+    public MemoryManager( long expectedMaxMemory, long alignment, HugePages hugePages )
     {
         this.memoryReserve = expectedMaxMemory;
         this.alignment = alignment;
+        this.hugePages = hugePages;
+        this.grabSize = hugePages.isEnabled() ? HugePages.alignToHugePage( HugePages.GRAB_SIZE ) : GRAB_SIZE;
     }
 
     /**
@@ -64,11 +88,16 @@ public final class MemoryManager
     {
         if ( slabs == null || !slabs.canAllocate( bytes ) )
         {
-            long slabGrab = Math.min( GRAB_SIZE, memoryReserve );
+            long slabGrab = Math.min( grabSize, memoryReserve );
+            if ( hugePages.isEnabled() )
+            {
+                // Huge page slabs are always a whole number of huge pages, so we might as well use all of it.
+                slabGrab = HugePages.alignToHugePage( slabGrab );
+            }
             if ( slabGrab < bytes )
             {
                 slabGrab = bytes;
-                Slab slab = new Slab( slabs, slabGrab, alignment );
+                Slab slab = newSlab( slabGrab );
                 if ( slab.canAllocate( bytes ) )
                 {
                     memoryReserve -= slabGrab;
@@ -79,11 +108,65 @@ public final class MemoryManager
                 slabGrab = bytes + alignment;
             }
             memoryReserve -= slabGrab;
-            slabs = new Slab( slabs, slabGrab, alignment );
+            slabs = newSlab( slabGrab );
         }
         return slabs.allocate( bytes );
     }
 
+    private Slab newSlab( long size )
+    {
+        if ( !hugePages.isEnabled() )
+        {
+            return new Slab( slabs, UnsafeUtil.allocateMemory( size ), size, alignment, null );
+        }
+        if ( hugePages.hugetlbfsDirectory() == null )
+        {
+            // Over-allocate by one huge page, so the slab can start at a huge page boundary.
+            long rawSize = size + HugePages.HUGE_PAGE_SIZE;
+            long address = UnsafeUtil.allocateMemory( rawSize );
+            long hugePageAligned = (address + HugePages.HUGE_PAGE_SIZE - 1) & -HugePages.HUGE_PAGE_SIZE;
+            return new Slab( slabs, address, hugePageAligned, address + rawSize, alignment, null );
+        }
+        ByteBuffer buffer = mapHugetlbfsSlab( HugePages.alignToHugePage( size ) );
+        long address = UnsafeUtil.getDirectByteBufferAddress( buffer );
+        return new Slab( slabs, address, buffer.capacity(), alignment, buffer );
+    }
+
+    private ByteBuffer mapHugetlbfsSlab( long size )
+    {
+        if ( size > Integer.MAX_VALUE )
+        {
+            throw new IllegalArgumentException( "Cannot map a hugetlbfs slab of " + size + " bytes." );
+        }
+        File directory = hugePages.hugetlbfsDirectory();
+        File file = null;
+        try
+        {
+            file = File.createTempFile( "neo5j-pagecache", ".slab", directory );
+            try ( RandomAccessFile raf = new RandomAccessFile( file, "rw" ) )
+            {
+                // The mapping outlives both the channel and the file, which we delete right away, so the memory is
+                // given back to the operating system once the mapping is garbage collected.
+                return raf.getChannel().map( FileChannel.MapMode.READ_WRITE, 0, size );
+            }
+        }
+        catch ( IOException e )
+        {
+            OutOfMemoryError error = new OutOfMemoryError(
+                    "Failed to map " + size + " bytes of huge page memory in " + directory + "." );
+            error.initCause( e );
+            throw error;
+        }
+        finally
+        {
+            if ( file != null )
+            {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+    }
+
     @Override
     protected synchronized void finalize() throws Throwable
     {
@@ -104,15 +187,23 @@ public final class MemoryManager
         private final long limit;
         private final long alignMask;
         private long nextAlignedPointer;
+        // The mapping that backs this slab, if it is memory mapped rather than allocated.
+        private ByteBuffer mapping;
+
+        Slab( Slab next, long address, long size, long alignment, ByteBuffer mapping )
+        {
+            this( next, address, address, address + size, alignment, mapping );
+        }
 
-        Slab( Slab next, long size, long alignment )
+        Slab( Slab next, long address, long start, long limit, long alignment, ByteBuffer mapping )
         {
             this.next = next;
-            this.address = UnsafeUtil.allocateMemory( size );
-            this.limit = address + size;
+            this.address = address;
+            this.limit = limit;
             this.alignMask = alignment - 1;
+            this.mapping = mapping;
 
-            nextAlignedPointer = nextAligned( address );
+            nextAlignedPointer = nextAligned( start );
         }
 
         private long nextAligned( long pointer )
@@ -133,7 +224,15 @@ public final class MemoryManager
 
         public void free()
         {
-            UnsafeUtil.free( address );
+            if ( mapping == null )
+            {
+                UnsafeUtil.free( address );
+            }
+            else
+            {
+                // Mapped memory is released when the mapping is garbage collected.
+                mapping = null;
+            }
         }
 
         public boolean canAllocate( long bytes )
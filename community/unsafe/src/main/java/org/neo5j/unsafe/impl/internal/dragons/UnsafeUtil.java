@@ -907,6 +907,14 @@ public final class UnsafeUtil
         unsafe.putLong( dbb, directByteBufferAddressOffset, addr );
     }
 
+    /**
+     * Get the native memory address of the given DirectByteBuffer, which may also be a MappedByteBuffer.
+     */
+    public static long getDirectByteBufferAddress( ByteBuffer dbb )
+    {
+        return unsafe.getLong( dbb, directByteBufferAddressOffset );
+    }
+
     /**
      * Change if native access checking is enabled by setting it to the given new setting, and returning the old
      * setting.
@@ -19,7 +19,9 @@
  */
 package org.neo5j.unsafe.impl.internal.dragons;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
@@ -27,6 +29,9 @@ import static org.junit.Assert.assertThat;
 
 public class MemoryManagerTest
 {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void allocatedPointerMustNotBeNull() throws Exception
     {
@@ -53,4 +58,27 @@ public class MemoryManagerTest
         }
         // Also asserts that no OutOfMemoryError is thrown.
     }
+
+    @Test
+    public void transparentHugePageSlabsMustStartAtHugePageBoundaries() throws Exception
+    {
+        MemoryManager mman = new MemoryManager( 16 * 4096, UnsafeUtil.pageSize(), HugePages.transparent() );
+        long address = mman.allocateAligned( 8192 );
+        assertThat( address % HugePages.HUGE_PAGE_SIZE, is( 0L ) );
+        assertThat( mman.allocateAligned( 8192 ), is( address + 8192 ) );
+    }
+
+    @Test
+    public void mustAllocateMemoryMappedFromHugetlbfsDirectory() throws Exception
+    {
+        // Any directory will do for the purpose of this test, though only hugetlbfs will give us huge pages.
+        MemoryManager mman = new MemoryManager( 16 * 4096, UnsafeUtil.pageSize(),
+                HugePages.hugetlbfs( folder.getRoot() ) );
+        long address = mman.allocateAligned( 8192 );
+        assertThat( address % UnsafeUtil.pageSize(), is( 0L ) );
+        UnsafeUtil.putLong( address, 42 );
+        assertThat( UnsafeUtil.getLong( address ), is( 42L ) );
+        // The slab files are deleted as soon as they have been mapped.
+        assertThat( folder.getRoot().list().length, is( 0 ) );
+    }
 }
@@ -32,17 +32,14 @@ import org.neo5j.kernel.AvailabilityGuard;
 import org.neo5j.kernel.AvailabilityGuard.AvailabilityRequirement;
 import org.neo5j.kernel.NeoStoreDataSource;
 import org.neo5j.kernel.impl.api.TransactionCommitProcess;
-import org.neo5j.kernel.impl.api.TransactionRepresentationCommitProcess;
 import org.neo5j.kernel.impl.store.StoreType;
 import org.neo5j.kernel.impl.storemigration.StoreFile;
-import org.neo5j.kernel.impl.transaction.log.TransactionAppender;
 import org.neo5j.kernel.impl.transaction.state.DataSourceManager;
 import org.neo5j.kernel.impl.util.watcher.FileSystemWatcherService;
 import org.neo5j.kernel.internal.DatabaseHealth;
 import org.neo5j.kernel.lifecycle.Lifecycle;
 import org.neo5j.logging.Log;
 import org.neo5j.logging.LogProvider;
-import org.neo5j.storageengine.api.StorageEngine;
 
 import static org.neo5j.kernel.AvailabilityGuard.availabilityRequirement;
 
@@ -215,9 +212,9 @@ public class LocalDatabase implements Lifecycle
     /**
      * Called by the DataSourceManager during start.
      */
-    public void registerCommitProcessDependencies( TransactionAppender appender, StorageEngine applier )
+    public void registerCommitProcess( TransactionCommitProcess localCommit )
     {
-        localCommit = new TransactionRepresentationCommitProcess( appender, applier );
+        this.localCommit = localCommit;
     }
 
     public TransactionCommitProcess getCommitProcess()
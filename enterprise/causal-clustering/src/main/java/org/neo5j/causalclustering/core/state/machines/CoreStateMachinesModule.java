@@ -54,6 +54,7 @@ import org.neo5j.kernel.impl.core.PropertyKeyTokenHolder;
 import org.neo5j.kernel.impl.core.RelationshipTypeToken;
 import org.neo5j.kernel.impl.core.RelationshipTypeTokenHolder;
 import org.neo5j.kernel.impl.enterprise.id.EnterpriseIdTypeConfigurationProvider;
+import org.neo5j.kernel.impl.factory.CommunityCommitProcessFactory;
 import org.neo5j.kernel.impl.factory.CommunityEditionModule;
 import org.neo5j.kernel.impl.factory.PlatformModule;
 import org.neo5j.kernel.impl.locking.Locks;
@@ -182,9 +183,11 @@ public class CoreStateMachinesModule
                 relationshipTypeTokenStateMachine, propertyKeyTokenStateMachine, replicatedLockTokenStateMachine,
                 idAllocationStateMachine, localDatabase, consensusLogIndexRecovery );
 
+        CommunityCommitProcessFactory localCommitProcessFactory =
+                new CommunityCommitProcessFactory( platformModule.jobScheduler );
         commitProcessFactory = ( appender, applier, ignored ) ->
         {
-            localDatabase.registerCommitProcessDependencies( appender, applier );
+            localDatabase.registerCommitProcess( localCommitProcessFactory.createWritable( appender, applier, config ) );
             return new ReplicatedTransactionCommitProcess( replicator );
         };
 
@@ -62,7 +62,6 @@ import org.neo5j.kernel.enterprise.builtinprocs.EnterpriseBuiltInDbmsProcedures;
 import org.neo5j.kernel.impl.api.CommitProcessFactory;
 import org.neo5j.kernel.impl.api.ReadOnlyTransactionCommitProcess;
 import org.neo5j.kernel.impl.api.TransactionCommitProcess;
-import org.neo5j.kernel.impl.api.TransactionRepresentationCommitProcess;
 import org.neo5j.kernel.impl.core.DelegatingLabelTokenHolder;
 import org.neo5j.kernel.impl.core.DelegatingPropertyKeyTokenHolder;
 import org.neo5j.kernel.impl.core.DelegatingRelationshipTypeTokenHolder;
@@ -73,6 +72,7 @@ import org.neo5j.kernel.impl.enterprise.EnterpriseEditionModule;
 import org.neo5j.kernel.impl.enterprise.StandardBoltConnectionTracker;
 import org.neo5j.kernel.impl.enterprise.id.EnterpriseIdTypeConfigurationProvider;
 import org.neo5j.kernel.impl.enterprise.transaction.log.checkpoint.ConfigurableIOLimiter;
+import org.neo5j.kernel.impl.factory.CommunityCommitProcessFactory;
 import org.neo5j.kernel.impl.factory.DatabaseInfo;
 import org.neo5j.kernel.impl.factory.EditionModule;
 import org.neo5j.kernel.impl.factory.GraphDatabaseFacade;
@@ -188,9 +188,11 @@ public class EnterpriseReadReplicaEditionModule extends EditionModule
 
         final Supplier<DatabaseHealth> databaseHealthSupplier = dependencies.provideDependency( DatabaseHealth.class );
 
-        Supplier<TransactionCommitProcess> writableCommitProcess = () -> new TransactionRepresentationCommitProcess(
+        CommunityCommitProcessFactory localCommitProcessFactory =
+                new CommunityCommitProcessFactory( platformModule.jobScheduler );
+        Supplier<TransactionCommitProcess> writableCommitProcess = () -> localCommitProcessFactory.createWritable(
                 dependencies.resolveDependency( TransactionAppender.class ),
-                dependencies.resolveDependency( StorageEngine.class ) );
+                dependencies.resolveDependency( StorageEngine.class ), config );
 
         LifeSupport txPulling = new LifeSupport();
         int maxBatchSize = config.get( CausalClusteringSettings.read_replica_transaction_applier_batch_size );
@@ -115,11 +115,10 @@ public class EnterpriseBuiltInDbmsProcedures
     {
         assertAdmin();
 
-        return countTransactionByUsername(
+        return summarizeTransactionsByUsername(
             getActiveTransactions( graph.getDependencyResolver() )
                 .stream()
                 .filter( tx -> !tx.terminationReason().isPresent() )
-                .map( tx -> tx.securityContext().subject().username() )
         );
     }
 
@@ -401,6 +400,18 @@ public class EnterpriseBuiltInDbmsProcedures
         );
     }
 
+    public static Stream<TransactionResult> summarizeTransactionsByUsername(
+            Stream<KernelTransactionHandle> transactions )
+    {
+        return transactions
+            .collect( Collectors.groupingBy( tx -> tx.securityContext().subject().username() ) )
+            .entrySet()
+            .stream()
+            .map( entry -> new TransactionResult( entry.getKey(), (long) entry.getValue().size(),
+                    entry.getValue().stream().mapToLong( KernelTransactionHandle::usedMemory ).sum() )
+        );
+    }
+
     public static Stream<ConnectionResult> countConnectionsByUsername( Stream<String> usernames )
     {
         return usernames
@@ -453,11 +464,18 @@ public class EnterpriseBuiltInDbmsProcedures
     {
         public final String username;
         public final Long activeTransactions;
+        public final Long usedMemory;
 
         TransactionResult( String username, Long activeTransactions )
+        {
+            this( username, activeTransactions, null );
+        }
+
+        TransactionResult( String username, Long activeTransactions, Long usedMemory )
         {
             this.username = username;
             this.activeTransactions = activeTransactions;
+            this.usedMemory = usedMemory;
         }
     }
 
@@ -22,7 +22,6 @@ package org.neo5j.kernel.impl.enterprise.lock.forseti;
 import java.time.Clock;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ConcurrentMap;
 import java.util.function.IntFunction;
 import java.util.stream.Stream;
 
@@ -68,7 +67,7 @@ public class ForsetiClient implements Locks.Client
     private final int clientId;
 
     /** resourceType -> lock map. These are the global lock maps, shared across all clients. */
-    private final ConcurrentMap<Long,ForsetiLockManager.Lock>[] lockMaps;
+    private final ForsetiLockTable[] lockMaps;
 
     /** resourceType -> wait strategy */
     private final WaitStrategy<AcquireLockTimeoutException>[] waitStrategies;
@@ -120,7 +119,7 @@ public class ForsetiClient implements Locks.Client
 
     private volatile boolean hasLocks;
 
-    public ForsetiClient( int id, ConcurrentMap<Long,ForsetiLockManager.Lock>[] lockMaps, WaitStrategy<AcquireLockTimeoutException>[] waitStrategies,
+    public ForsetiClient( int id, ForsetiLockTable[] lockMaps, WaitStrategy<AcquireLockTimeoutException>[] waitStrategies,
             Pool<ForsetiClient> clientPool, DeadlockResolutionStrategy deadlockResolutionStrategy, IntFunction<ForsetiClient> clientById,
             long lockAcquisitionTimeoutMillis, Clock clock )
     {
@@ -160,7 +159,7 @@ public class ForsetiClient implements Locks.Client
         try
         {
             // Grab the global lock map we will be using
-            ConcurrentMap<Long,ForsetiLockManager.Lock> lockMap = lockMaps[resourceType.typeId()];
+            ForsetiLockTable lockMap = lockMaps[resourceType.typeId()];
 
             // And grab our local lock maps
             PrimitiveLongIntMap heldShareLocks = sharedLockCounts[resourceType.typeId()];
@@ -282,7 +281,7 @@ public class ForsetiClient implements Locks.Client
 
         try
         {
-            ConcurrentMap<Long,ForsetiLockManager.Lock> lockMap = lockMaps[resourceType.typeId()];
+            ForsetiLockTable lockMap = lockMaps[resourceType.typeId()];
             PrimitiveLongIntMap heldLocks = exclusiveLockCounts[resourceType.typeId()];
 
             for ( long resourceId : resourceIds )
@@ -354,7 +353,7 @@ public class ForsetiClient implements Locks.Client
 
         try
         {
-            ConcurrentMap<Long,ForsetiLockManager.Lock> lockMap = lockMaps[resourceType.typeId()];
+            ForsetiLockTable lockMap = lockMaps[resourceType.typeId()];
             PrimitiveLongIntMap heldLocks = exclusiveLockCounts[resourceType.typeId()];
 
             int heldCount = heldLocks.get( resourceId );
@@ -406,7 +405,7 @@ public class ForsetiClient implements Locks.Client
 
         try
         {
-            ConcurrentMap<Long,ForsetiLockManager.Lock> lockMap = lockMaps[resourceType.typeId()];
+            ForsetiLockTable lockMap = lockMaps[resourceType.typeId()];
             PrimitiveLongIntMap heldShareLocks = sharedLockCounts[resourceType.typeId()];
             PrimitiveLongIntMap heldExclusiveLocks = exclusiveLockCounts[resourceType.typeId()];
 
@@ -569,7 +568,7 @@ public class ForsetiClient implements Locks.Client
                 return;
             }
 
-            ConcurrentMap<Long,ForsetiLockManager.Lock> lockMap = lockMaps[resourceType.typeId()];
+            ForsetiLockTable lockMap = lockMaps[resourceType.typeId()];
             if ( sharedLockCounts[resourceType.typeId()].containsKey( resourceId ) )
             {
                 // We are still holding a shared lock, so we will release it to be reused
@@ -795,7 +794,7 @@ public class ForsetiClient implements Locks.Client
     }
 
     /** Release a lock from the global pool. */
-    private void releaseGlobalLock( ConcurrentMap<Long,ForsetiLockManager.Lock> lockMap, long resourceId )
+    private void releaseGlobalLock( ForsetiLockTable lockMap, long resourceId )
     {
         ForsetiLockManager.Lock lock = lockMap.get( resourceId );
         if ( lock instanceof ExclusiveLock )
@@ -836,7 +835,7 @@ public class ForsetiClient implements Locks.Client
             LockTracer tracer,
             LockWaitEvent waitEvent,
             ResourceType resourceType,
-            ConcurrentMap<Long,ForsetiLockManager.Lock> lockMap,
+            ForsetiLockTable lockMap,
             long resourceId,
             SharedLock sharedLock,
             long waitStartMillis )
@@ -1052,9 +1051,9 @@ public class ForsetiClient implements Locks.Client
      */
     private class ReleaseSharedDontCheckExclusiveVisitor implements PrimitiveLongVisitor<RuntimeException>
     {
-        private ConcurrentMap<Long,ForsetiLockManager.Lock> lockMap;
+        private ForsetiLockTable lockMap;
 
-        private PrimitiveLongVisitor<RuntimeException> initialize( ConcurrentMap<Long,ForsetiLockManager.Lock> lockMap )
+        private PrimitiveLongVisitor<RuntimeException> initialize( ForsetiLockTable lockMap )
         {
             this.lockMap = lockMap;
             return this;
@@ -1075,10 +1074,10 @@ public class ForsetiClient implements Locks.Client
     private class ReleaseExclusiveLocksAndClearSharedVisitor implements PrimitiveLongVisitor<RuntimeException>
     {
         private PrimitiveLongIntMap sharedLockCounts;
-        private ConcurrentMap<Long,ForsetiLockManager.Lock> lockMap;
+        private ForsetiLockTable lockMap;
 
         private PrimitiveLongVisitor<RuntimeException> initialize( PrimitiveLongIntMap sharedLockCounts,
-                                                                   ConcurrentMap<Long,ForsetiLockManager.Lock> lockMap )
+                                                                   ForsetiLockTable lockMap )
         {
             this.sharedLockCounts = sharedLockCounts;
             this.lockMap = lockMap;
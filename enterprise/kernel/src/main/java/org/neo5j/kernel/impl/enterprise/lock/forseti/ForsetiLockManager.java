@@ -20,7 +20,6 @@
 package org.neo5j.kernel.impl.enterprise.lock.forseti;
 
 import java.time.Clock;
-import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -94,8 +93,8 @@ import org.neo5j.storageengine.api.lock.WaitStrategy;
  * be worth investigating fat locks, or in any case optimize the current way SharedLock adds and removes clients from
  * its holder list.
  * <p/>
- * The maps used by Forseti should be replaced by faster concurrent maps, perhaps a striped hopscotch map or something
- * similar.
+ * The lock tables are striped linear probing tables, see {@link ForsetiLockTable}. Their stripes are guarded by
+ * stamped locks, which could be replaced by a lock-free scheme if the write locks ever show up as a bottleneck.
  */
 public class ForsetiLockManager implements Locks
 {
@@ -164,8 +163,8 @@ public class ForsetiLockManager implements Locks
         boolean shouldAbort( ForsetiClient clientThatsAsking, ForsetiClient clientWereDeadlockedWith );
     }
 
-    /** Pointers to lock maps, one array per resource type. */
-    private final ConcurrentMap<Long,ForsetiLockManager.Lock>[] lockMaps;
+    /** Pointers to lock tables, one per resource type. */
+    private final ForsetiLockTable[] lockMaps;
 
     /** Reverse lookup resource types by id, used for introspection */
     private final ResourceType[] resourceTypes;
@@ -179,7 +178,7 @@ public class ForsetiLockManager implements Locks
     public ForsetiLockManager( Config config, Clock clock, ResourceType... resourceTypes )
     {
         int maxResourceId = findMaxResourceId( resourceTypes );
-        this.lockMaps = new ConcurrentMap[maxResourceId];
+        this.lockMaps = new ForsetiLockTable[maxResourceId];
         this.resourceTypes = new ResourceType[maxResourceId];
 
         /* Wait strategies per resource type */
@@ -187,7 +186,7 @@ public class ForsetiLockManager implements Locks
 
         for ( ResourceType type : resourceTypes )
         {
-            this.lockMaps[type.typeId()] = new ConcurrentHashMap<>( 16, 0.6f, 512 );
+            this.lockMaps[type.typeId()] = new ForsetiLockTable();
             waitStrategies[type.typeId()] = type.waitStrategy();
             this.resourceTypes[type.typeId()] = type;
         }
@@ -226,11 +225,8 @@ public class ForsetiLockManager implements Locks
             if ( lockMaps[i] != null )
             {
                 ResourceType type = resourceTypes[i];
-                for ( Map.Entry<Long,Lock> entry : lockMaps[i].entrySet() )
-                {
-                    Lock lock = entry.getValue();
-                    out.visit( type, entry.getKey(), lock.describeWaitList(), 0, System.identityHashCode( lock ) );
-                }
+                lockMaps[i].visit( ( resourceId, lock ) -> out.visit(
+                        type, resourceId, lock.describeWaitList(), 0, System.identityHashCode( lock ) ) );
             }
         }
     }
@@ -263,11 +259,11 @@ public class ForsetiLockManager implements Locks
         private final ConcurrentMap<Integer,ForsetiClient> clientsById = new ConcurrentHashMap<>();
         private final Config config;
         private final Clock clock;
-        private final ConcurrentMap<Long,ForsetiLockManager.Lock>[] lockMaps;
+        private final ForsetiLockTable[] lockMaps;
         private final WaitStrategy<AcquireLockTimeoutException>[] waitStrategies;
         private final DeadlockResolutionStrategy deadlockResolutionStrategy = DeadlockStrategies.DEFAULT;
 
-        ForsetiClientFlyweightPool( Config config, Clock clock, ConcurrentMap<Long,Lock>[] lockMaps,
+        ForsetiClientFlyweightPool( Config config, Clock clock, ForsetiLockTable[] lockMaps,
                 WaitStrategy<AcquireLockTimeoutException>[] waitStrategies )
         {
             super( 128, null );
@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.enterprise.lock.forseti;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * The table of currently held locks of a single resource type, keyed by resource id.
+ * <p>
+ * This replaces the {@code ConcurrentHashMap<Long,Lock>} that Forseti used to keep its locks in. That map had to box
+ * every resource id, and allocate a map node for every lock that was put into it, which made up most of the garbage
+ * produced by taking locks. This table instead keeps the keys in primitive {@code long} arrays, and is striped into a
+ * number of independently guarded open-addressing hash tables, that use linear probing and backward-shift deletion.
+ * Adding and removing locks is thus allocation free, except for when a stripe needs to grow.
+ * <p>
+ * Lookups are done under an optimistic read of the {@link StampedLock} that guards the stripe, and only fall back to
+ * taking the read lock if a concurrent modification of the same stripe is detected. Modifications take the write
+ * lock of their stripe. Since the lock tables are only ever modified when locks are created or die, and not when
+ * existing shared locks gain or lose holders, the write locks are short and rarely contended.
+ */
+class ForsetiLockTable
+{
+    /** Must be a power of two, and no more than 2^7, since the stripe is picked from the top 7 bits of the hash. */
+    private static final int STRIPES = 128;
+    private static final int INITIAL_STRIPE_CAPACITY = 16;
+
+    interface Visitor
+    {
+        void visit( long resourceId, ForsetiLockManager.Lock lock );
+    }
+
+    private final Stripe[] stripes;
+
+    ForsetiLockTable()
+    {
+        stripes = new Stripe[STRIPES];
+        for ( int i = 0; i < STRIPES; i++ )
+        {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * @return the lock for the given resource id, or {@code null} if there is none.
+     */
+    ForsetiLockManager.Lock get( long resourceId )
+    {
+        long hash = hash( resourceId );
+        return stripe( hash ).get( resourceId, (int) hash );
+    }
+
+    /**
+     * Put the given lock into the table, unless there already is a lock for the given resource id.
+     *
+     * @return the lock that was already in the table, or {@code null} if the given lock was put into the table.
+     */
+    ForsetiLockManager.Lock putIfAbsent( long resourceId, ForsetiLockManager.Lock lock )
+    {
+        long hash = hash( resourceId );
+        return stripe( hash ).put( resourceId, (int) hash, lock, true );
+    }
+
+    /**
+     * Put the given lock into the table, replacing any lock that was already there for the given resource id.
+     *
+     * @return the lock that was replaced, or {@code null} if there was none.
+     */
+    ForsetiLockManager.Lock put( long resourceId, ForsetiLockManager.Lock lock )
+    {
+        long hash = hash( resourceId );
+        return stripe( hash ).put( resourceId, (int) hash, lock, false );
+    }
+
+    /**
+     * @return the lock that was removed, or {@code null} if there was no lock for the given resource id.
+     */
+    ForsetiLockManager.Lock remove( long resourceId )
+    {
+        long hash = hash( resourceId );
+        return stripe( hash ).remove( resourceId, (int) hash );
+    }
+
+    /**
+     * Visit all the locks in the table. Each stripe is visited under its read lock, so the visitor must not try to
+     * modify the table.
+     */
+    void visit( Visitor visitor )
+    {
+        for ( Stripe stripe : stripes )
+        {
+            stripe.visit( visitor );
+        }
+    }
+
+    private Stripe stripe( long hash )
+    {
+        return stripes[(int) (hash >>> 57) & (STRIPES - 1)];
+    }
+
+    /**
+     * The finalizer of MurmurHash3. Resource ids are often sequential, and the resource ids of schema and index
+     * entry locks are already hashes, so we need all bits of the key to affect both the stripe and the slot.
+     */
+    private static long hash( long resourceId )
+    {
+        long h = resourceId;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * A linear probing hash table, where a slot is empty if its value is {@code null}. The table is kept at most half
+     * full, so probe sequences stay short and there is always an empty slot to terminate them.
+     */
+    private static final class Stripe extends StampedLock
+    {
+        private long[] keys = new long[INITIAL_STRIPE_CAPACITY];
+        private ForsetiLockManager.Lock[] values = new ForsetiLockManager.Lock[INITIAL_STRIPE_CAPACITY];
+        private int size;
+
+        ForsetiLockManager.Lock get( long key, int hash )
+        {
+            long stamp = tryOptimisticRead();
+            ForsetiLockManager.Lock lock = find( keys, values, key, hash );
+            if ( !validate( stamp ) )
+            {
+                stamp = readLock();
+                try
+                {
+                    lock = find( keys, values, key, hash );
+                }
+                finally
+                {
+                    unlockRead( stamp );
+                }
+            }
+            return lock;
+        }
+
+        /**
+         * This may observe the table in the middle of a modification when called under an optimistic read, in which
+         * case the result is garbage and will be discarded, but it must still terminate without throwing.
+         */
+        private static ForsetiLockManager.Lock find( long[] keys, ForsetiLockManager.Lock[] values, long key,
+                int hash )
+        {
+            int mask = keys.length - 1;
+            if ( values.length != keys.length )
+            {
+                return null; // We raced with a resize
+            }
+            for ( int i = hash & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++ )
+            {
+                ForsetiLockManager.Lock value = values[i];
+                if ( value == null )
+                {
+                    return null;
+                }
+                if ( keys[i] == key )
+                {
+                    return value;
+                }
+            }
+            return null;
+        }
+
+        ForsetiLockManager.Lock put( long key, int hash, ForsetiLockManager.Lock lock, boolean onlyIfAbsent )
+        {
+            long stamp = writeLock();
+            try
+            {
+                int mask = keys.length - 1;
+                int i = hash & mask;
+                ForsetiLockManager.Lock value;
+                while ( (value = values[i]) != null )
+                {
+                    if ( keys[i] == key )
+                    {
+                        if ( !onlyIfAbsent )
+                        {
+                            values[i] = lock;
+                        }
+                        return value;
+                    }
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+                values[i] = lock;
+                if ( ++size << 1 > keys.length )
+                {
+                    grow();
+                }
+                return null;
+            }
+            finally
+            {
+                unlockWrite( stamp );
+            }
+        }
+
+        ForsetiLockManager.Lock remove( long key, int hash )
+        {
+            long stamp = writeLock();
+            try
+            {
+                int mask = keys.length - 1;
+                int i = hash & mask;
+                ForsetiLockManager.Lock value;
+                while ( (value = values[i]) != null )
+                {
+                    if ( keys[i] == key )
+                    {
+                        shiftBackwards( i, mask );
+                        size--;
+                        return value;
+                    }
+                    i = (i + 1) & mask;
+                }
+                return null;
+            }
+            finally
+            {
+                unlockWrite( stamp );
+            }
+        }
+
+        /**
+         * Empty the given slot, and move any following entries of the probe sequence that would otherwise become
+         * unreachable, back into the gap. This keeps the table free of tombstones.
+         */
+        private void shiftBackwards( int gap, int mask )
+        {
+            int i = gap;
+            while ( true )
+            {
+                i = (i + 1) & mask;
+                ForsetiLockManager.Lock value = values[i];
+                if ( value == null )
+                {
+                    break;
+                }
+                int home = (int) hash( keys[i] ) & mask;
+                // The entry can move into the gap, if its home slot is not cyclically within (gap, i].
+                boolean reachable = gap <= i ? gap < home && home <= i : gap < home || home <= i;
+                if ( !reachable )
+                {
+                    keys[gap] = keys[i];
+                    values[gap] = value;
+                    gap = i;
+                }
+            }
+            values[gap] = null;
+        }
+
+        private void grow()
+        {
+            long[] oldKeys = keys;
+            ForsetiLockManager.Lock[] oldValues = values;
+            int capacity = oldKeys.length << 1;
+            int mask = capacity - 1;
+            long[] newKeys = new long[capacity];
+            ForsetiLockManager.Lock[] newValues = new ForsetiLockManager.Lock[capacity];
+            for ( int j = 0; j < oldKeys.length; j++ )
+            {
+                ForsetiLockManager.Lock value = oldValues[j];
+                if ( value != null )
+                {
+                    int i = (int) hash( oldKeys[j] ) & mask;
+                    while ( newValues[i] != null )
+                    {
+                        i = (i + 1) & mask;
+                    }
+                    newKeys[i] = oldKeys[j];
+                    newValues[i] = value;
+                }
+            }
+            keys = newKeys;
+            values = newValues;
+        }
+
+        void visit( Visitor visitor )
+        {
+            long stamp = readLock();
+            try
+            {
+                for ( int i = 0; i < values.length; i++ )
+                {
+                    ForsetiLockManager.Lock value = values[i];
+                    if ( value != null )
+                    {
+                        visitor.visit( keys[i], value );
+                    }
+                }
+            }
+            finally
+            {
+                unlockRead( stamp );
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.enterprise.builtinprocs;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.neo5j.kernel.api.KernelTransactionHandle;
+import org.neo5j.kernel.api.security.AuthSubject;
+import org.neo5j.kernel.api.security.SecurityContext;
+import org.neo5j.kernel.enterprise.builtinprocs.EnterpriseBuiltInDbmsProcedures.TransactionResult;
+
+import static java.util.stream.Collectors.toMap;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EnterpriseBuiltInDbmsProceduresTest
+{
+    @Test
+    public void shouldSumTheMemoryUsedByTheTransactionsOfEachUser() throws Exception
+    {
+        // Given
+        Stream<KernelTransactionHandle> transactions = Stream.of(
+                transaction( "alice", 100 ), transaction( "bob", 1000 ), transaction( "alice", 20 ) );
+
+        // When
+        Map<String,TransactionResult> results = EnterpriseBuiltInDbmsProcedures
+                .summarizeTransactionsByUsername( transactions )
+                .collect( toMap( result -> result.username, result -> result ) );
+
+        // Then
+        assertThat( results.get( "alice" ).activeTransactions, equalTo( 2L ) );
+        assertThat( results.get( "alice" ).usedMemory, equalTo( 120L ) );
+        assertThat( results.get( "bob" ).activeTransactions, equalTo( 1L ) );
+        assertThat( results.get( "bob" ).usedMemory, equalTo( 1000L ) );
+    }
+
+    private static KernelTransactionHandle transaction( String username, long usedMemory )
+    {
+        AuthSubject subject = mock( AuthSubject.class );
+        when( subject.username() ).thenReturn( username );
+        SecurityContext securityContext = mock( SecurityContext.class );
+        when( securityContext.subject() ).thenReturn( subject );
+        KernelTransactionHandle transaction = mock( KernelTransactionHandle.class );
+        when( transaction.securityContext() ).thenReturn( securityContext );
+        when( transaction.usedMemory() ).thenReturn( usedMemory );
+        return transaction;
+    }
+}
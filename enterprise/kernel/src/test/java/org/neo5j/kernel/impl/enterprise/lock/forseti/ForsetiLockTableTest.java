@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.kernel.impl.enterprise.lock.forseti;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+public class ForsetiLockTableTest
+{
+    private final ForsetiLockTable table = new ForsetiLockTable();
+
+    @Test
+    public void shouldOnlyPutIfAbsent() throws Exception
+    {
+        // Given
+        ForsetiLockManager.Lock lockA = mock( ForsetiLockManager.Lock.class );
+        ForsetiLockManager.Lock lockB = mock( ForsetiLockManager.Lock.class );
+
+        // When
+        assertNull( table.putIfAbsent( 42, lockA ) );
+
+        // Then
+        assertSame( lockA, table.putIfAbsent( 42, lockB ) );
+        assertSame( lockA, table.get( 42 ) );
+    }
+
+    @Test
+    public void shouldReplaceOnPut() throws Exception
+    {
+        // Given
+        ForsetiLockManager.Lock lockA = mock( ForsetiLockManager.Lock.class );
+        ForsetiLockManager.Lock lockB = mock( ForsetiLockManager.Lock.class );
+        table.put( -1, lockA );
+
+        // When
+        assertSame( lockA, table.put( -1, lockB ) );
+
+        // Then
+        assertSame( lockB, table.get( -1 ) );
+    }
+
+    @Test
+    public void shouldRemoveLocks() throws Exception
+    {
+        // Given
+        ForsetiLockManager.Lock lock = mock( ForsetiLockManager.Lock.class );
+        table.put( 0, lock );
+
+        // When
+        assertSame( lock, table.remove( 0 ) );
+
+        // Then
+        assertNull( table.get( 0 ) );
+        assertNull( table.remove( 0 ) );
+    }
+
+    @Test
+    public void shouldBehaveLikeAMapUnderRandomGrowthAndRemoval() throws Exception
+    {
+        // Many keys per stripe, so the stripes grow, and the removals have to shift long probe sequences.
+        Random random = new Random( 1 );
+        Map<Long,ForsetiLockManager.Lock> expected = new HashMap<>();
+        ForsetiLockManager.Lock[] locks = new ForsetiLockManager.Lock[16];
+        for ( int i = 0; i < locks.length; i++ )
+        {
+            locks[i] = mock( ForsetiLockManager.Lock.class );
+        }
+
+        for ( int i = 0; i < 200_000; i++ )
+        {
+            long key = random.nextBoolean() ? random.nextLong() : random.nextInt( 10_000 );
+            ForsetiLockManager.Lock lock = locks[random.nextInt( locks.length )];
+            switch ( random.nextInt( 4 ) )
+            {
+            case 0:
+                assertSame( expected.get( key ), table.get( key ) );
+                break;
+            case 1:
+                assertSame( expected.putIfAbsent( key, lock ), table.putIfAbsent( key, lock ) );
+                break;
+            case 2:
+                assertSame( expected.put( key, lock ), table.put( key, lock ) );
+                break;
+            default:
+                assertSame( expected.remove( key ), table.remove( key ) );
+            }
+        }
+
+        Map<Long,ForsetiLockManager.Lock> visited = new HashMap<>();
+        table.visit( visited::put );
+        assertEquals( expected, visited );
+    }
+}
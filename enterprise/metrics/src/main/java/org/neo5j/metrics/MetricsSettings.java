@@ -58,6 +58,11 @@ public class MetricsSettings implements LoadableConfig
                   "etc." )
     public static Setting<Boolean> neoPageCacheEnabled = setting(
             "metrics.neo5j.pagecache.enabled", Settings.BOOLEAN, neoEnabled );
+    @Description( "Enable reporting metrics about the page cache activity on each individual file mapped by the " +
+                  "page cache; page faults, evictions, flushes, etc. Every mapped file gets its own set of metrics, " +
+                  "so this is not enabled by default." )
+    public static Setting<Boolean> neoPageCacheFilesEnabled = setting(
+            "metrics.neo5j.pagecache.files.enabled", Settings.BOOLEAN, Settings.FALSE );
     @Description( "Enable reporting metrics about approximately how many entities are in the database; nodes, " +
                   "relationships, properties, etc." )
     public static Setting<Boolean> neoCountsEnabled = setting(
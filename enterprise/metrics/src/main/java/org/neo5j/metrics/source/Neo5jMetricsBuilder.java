@@ -24,6 +24,7 @@ import com.codahale.metrics.MetricRegistry;
 import java.util.function.Supplier;
 
 import org.neo5j.causalclustering.core.consensus.CoreMetaData;
+import org.neo5j.io.pagecache.PageCache;
 import org.neo5j.io.pagecache.monitoring.PageCacheCounters;
 import org.neo5j.kernel.configuration.Config;
 import org.neo5j.kernel.ha.cluster.member.ClusterMembers;
@@ -35,6 +36,7 @@ import org.neo5j.kernel.impl.store.stats.StoreEntityCounters;
 import org.neo5j.kernel.impl.transaction.TransactionCounters;
 import org.neo5j.kernel.impl.transaction.log.TransactionIdStore;
 import org.neo5j.kernel.impl.transaction.log.checkpoint.CheckPointerMonitor;
+import org.neo5j.kernel.impl.util.JobScheduler;
 import org.neo5j.kernel.lifecycle.LifeSupport;
 import org.neo5j.kernel.monitoring.Monitors;
 import org.neo5j.metrics.MetricsSettings;
@@ -49,6 +51,7 @@ import org.neo5j.metrics.source.db.CheckPointingMetrics;
 import org.neo5j.metrics.source.db.CypherMetrics;
 import org.neo5j.metrics.source.db.EntityCountMetrics;
 import org.neo5j.metrics.source.db.LogRotationMetrics;
+import org.neo5j.metrics.source.db.PageCacheFileMetrics;
 import org.neo5j.metrics.source.db.PageCacheMetrics;
 import org.neo5j.metrics.source.db.TransactionMetrics;
 import org.neo5j.metrics.source.jvm.GCMetrics;
@@ -75,6 +78,10 @@ public class Neo5jMetricsBuilder
 
         PageCacheCounters pageCacheCounters();
 
+        PageCache pageCache();
+
+        JobScheduler scheduler();
+
         CheckPointerMonitor checkPointerMonitor();
 
         LogRotationMonitor logRotationMonitor();
@@ -116,6 +123,13 @@ public class Neo5jMetricsBuilder
             result = true;
         }
 
+        if ( config.get( MetricsSettings.neoPageCacheFilesEnabled ) )
+        {
+            life.add( new PageCacheFileMetrics( registry, dependencies.pageCache(), dependencies.scheduler(),
+                    kernelContext.storeDir(), logService.getInternalLog( PageCacheFileMetrics.class ) ) );
+            result = true;
+        }
+
         if ( config.get( MetricsSettings.neoCheckPointingEnabled ) )
         {
             life.add( new CheckPointingMetrics( reporter, registry, dependencies.monitors(),
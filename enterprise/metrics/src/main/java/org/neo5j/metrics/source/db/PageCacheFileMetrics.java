@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo5j.
+ *
+ * Neo5j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo5j.metrics.source.db;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.neo5j.io.IOUtils;
+import org.neo5j.io.pagecache.PageCache;
+import org.neo5j.io.pagecache.PagedFile;
+import org.neo5j.io.pagecache.monitoring.PagedFileCounters;
+import org.neo5j.kernel.impl.annotations.Documented;
+import org.neo5j.kernel.impl.util.JobScheduler;
+import org.neo5j.kernel.lifecycle.LifecycleAdapter;
+import org.neo5j.logging.Log;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Page cache metrics for each individual file that is mapped by the page cache. Files are mapped and unmapped while
+ * the database is running, so the set of metrics is periodically brought up to date with the current mappings.
+ */
+@Documented( ".Database PageCache File Metrics" )
+public class PageCacheFileMetrics extends LifecycleAdapter
+{
+    private static final String FILE = "<file>";
+    private static final String PAGE_CACHE_FILE_PREFIX = name( "neo5j.page_cache.file", FILE );
+    private static final long REFRESH_INTERVAL_SECONDS = 1;
+
+    @Documented( "The total number of page pins on each file mapped by the page cache" )
+    public static final String PC_FILE_PINS = name( PAGE_CACHE_FILE_PREFIX, "pins" );
+    @Documented( "The total number of page hits on each file mapped by the page cache" )
+    public static final String PC_FILE_HITS = name( PAGE_CACHE_FILE_PREFIX, "hits" );
+    @Documented( "The total number of page faults on each file mapped by the page cache" )
+    public static final String PC_FILE_PAGE_FAULTS = name( PAGE_CACHE_FILE_PREFIX, "page_faults" );
+    @Documented( "The total number of page evictions from each file mapped by the page cache" )
+    public static final String PC_FILE_EVICTIONS = name( PAGE_CACHE_FILE_PREFIX, "evictions" );
+    @Documented( "The total number of page flushes to each file mapped by the page cache" )
+    public static final String PC_FILE_FLUSHES = name( PAGE_CACHE_FILE_PREFIX, "flushes" );
+    @Documented( "The total number of bytes read by page faults from each file mapped by the page cache" )
+    public static final String PC_FILE_BYTES_READ = name( PAGE_CACHE_FILE_PREFIX, "bytes_read" );
+    @Documented( "The total number of bytes written by page flushes to each file mapped by the page cache" )
+    public static final String PC_FILE_BYTES_WRITTEN = name( PAGE_CACHE_FILE_PREFIX, "bytes_written" );
+
+    private final MetricRegistry registry;
+    private final PageCache pageCache;
+    private final JobScheduler scheduler;
+    private final File storeDir;
+    private final Log log;
+    private final Map<String,PagedFileCounters> registeredFiles = new HashMap<>();
+    private JobScheduler.JobHandle refreshJob;
+
+    public PageCacheFileMetrics( MetricRegistry registry, PageCache pageCache, JobScheduler scheduler, File storeDir,
+            Log log )
+    {
+        this.registry = registry;
+        this.pageCache = pageCache;
+        this.scheduler = scheduler;
+        this.storeDir = storeDir;
+        this.log = log;
+    }
+
+    @Override
+    public void start()
+    {
+        refreshJob = scheduler.scheduleRecurring( JobScheduler.Groups.metricsEvent, this::refresh,
+                0, REFRESH_INTERVAL_SECONDS, TimeUnit.SECONDS );
+    }
+
+    @Override
+    public synchronized void stop()
+    {
+        refreshJob.cancel( false );
+        registeredFiles.keySet().forEach( this::removeMetrics );
+        registeredFiles.clear();
+    }
+
+    /**
+     * Register metrics for the files that have been mapped, and remove the metrics of the files that have been
+     * unmapped, since the last refresh. A file that has been unmapped and then mapped again gets new counters.
+     */
+    synchronized void refresh()
+    {
+        Map<String,PagedFileCounters> mappedFiles = new HashMap<>();
+        try
+        {
+            List<PagedFile> pagedFiles = pageCache.listExistingMappings();
+            try
+            {
+                for ( PagedFile pagedFile : pagedFiles )
+                {
+                    mappedFiles.put( metricsFileName( pagedFile.file() ), pagedFile.counters() );
+                }
+            }
+            finally
+            {
+                IOUtils.closeAll( pagedFiles );
+            }
+        }
+        catch ( IOException e )
+        {
+            log.warn( "Unable to list the files mapped by the page cache.", e );
+            return;
+        }
+
+        Iterator<Map.Entry<String,PagedFileCounters>> registered = registeredFiles.entrySet().iterator();
+        while ( registered.hasNext() )
+        {
+            Map.Entry<String,PagedFileCounters> entry = registered.next();
+            if ( mappedFiles.get( entry.getKey() ) != entry.getValue() )
+            {
+                removeMetrics( entry.getKey() );
+                registered.remove();
+            }
+        }
+        mappedFiles.forEach( ( fileName, counters ) ->
+        {
+            if ( registeredFiles.putIfAbsent( fileName, counters ) == null )
+            {
+                registerMetrics( fileName, counters );
+            }
+        } );
+    }
+
+    private String metricsFileName( File file )
+    {
+        String path = file.getPath();
+        String storePath = storeDir.getPath();
+        if ( path.startsWith( storePath ) )
+        {
+            path = path.substring( storePath.length() );
+        }
+        // Dots and path separators would otherwise introduce levels in the hierarchy of metric names.
+        return path.replaceAll( "^[/\\\\]+", "" ).replaceAll( "[./\\\\]", "_" );
+    }
+
+    private static String metricName( String template, String fileName )
+    {
+        return template.replace( FILE, fileName );
+    }
+
+    private void registerMetrics( String fileName, PagedFileCounters counters )
+    {
+        registry.register( metricName( PC_FILE_PINS, fileName ), (Gauge<Long>) counters::pins );
+        registry.register( metricName( PC_FILE_HITS, fileName ), (Gauge<Long>) counters::hits );
+        registry.register( metricName( PC_FILE_PAGE_FAULTS, fileName ), (Gauge<Long>) counters::faults );
+        registry.register( metricName( PC_FILE_EVICTIONS, fileName ), (Gauge<Long>) counters::evictions );
+        registry.register( metricName( PC_FILE_FLUSHES, fileName ), (Gauge<Long>) counters::flushes );
+        registry.register( metricName( PC_FILE_BYTES_READ, fileName ), (Gauge<Long>) counters::bytesRead );
+        registry.register( metricName( PC_FILE_BYTES_WRITTEN, fileName ), (Gauge<Long>) counters::bytesWritten );
+    }
+
+    private void removeMetrics( String fileName )
+    {
+        registry.remove( metricName( PC_FILE_PINS, fileName ) );
+        registry.remove( metricName( PC_FILE_HITS, fileName ) );
+        registry.remove( metricName( PC_FILE_PAGE_FAULTS, fileName ) );
+        registry.remove( metricName( PC_FILE_EVICTIONS, fileName ) );
+        registry.remove( metricName( PC_FILE_FLUSHES, fileName ) );
+        registry.remove( metricName( PC_FILE_BYTES_READ, fileName ) );
+        registry.remove( metricName( PC_FILE_BYTES_WRITTEN, fileName ) );
+    }
+}
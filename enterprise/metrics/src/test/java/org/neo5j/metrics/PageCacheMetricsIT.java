@@ -35,6 +35,7 @@ import org.neo5j.graphdb.Node;
 import org.neo5j.graphdb.ResourceIterator;
 import org.neo5j.graphdb.Transaction;
 import org.neo5j.kernel.configuration.Settings;
+import org.neo5j.metrics.source.db.PageCacheFileMetrics;
 import org.neo5j.metrics.source.db.PageCacheMetrics;
 import org.neo5j.test.TestGraphDatabaseFactory;
 import org.neo5j.test.rule.TestDirectory;
@@ -60,6 +61,7 @@ public class PageCacheMetricsIT
         metricsDirectory = testDirectory.directory( "metrics" );
         database = new TestGraphDatabaseFactory().newEmbeddedDatabaseBuilder( testDirectory.graphDbDir() )
                 .setConfig( MetricsSettings.neoPageCacheEnabled, Settings.TRUE  )
+                .setConfig( MetricsSettings.neoPageCacheFilesEnabled, Settings.TRUE )
                 .setConfig( MetricsSettings.csvEnabled, Settings.TRUE )
                 .setConfig( MetricsSettings.csvInterval, "100ms" )
                 .setConfig( MetricsSettings.csvPath, metricsDirectory.getAbsolutePath() ).newGraphDatabase();
@@ -96,6 +98,20 @@ public class PageCacheMetricsIT
         assertMetrics( "Page cache exceptions should be included in metrics report.", PageCacheMetrics.PC_EVICTION_EXCEPTIONS, equalTo( 0L ) );
     }
 
+    @Test
+    public void pageCacheFileMetrics() throws Exception
+    {
+        Label testLabel = Label.label( "testLabel" );
+        try ( Transaction transaction = database.beginTx() )
+        {
+            database.createNode( testLabel );
+            transaction.success();
+        }
+
+        String nodeStore = PageCacheFileMetrics.PC_FILE_PINS.replace( "<file>", "neostore_nodestore_db" );
+        assertMetrics( "Node store pins should be included in metrics report.", nodeStore, greaterThan( 0L ) );
+    }
+
     private void assertMetrics( String message, String metricName, Matcher<Long> matcher ) throws Exception
     {
         assertEventually( message, () -> readLongValue( metricsCsv( metricsDirectory, metricName ) ), matcher, 5, SECONDS );